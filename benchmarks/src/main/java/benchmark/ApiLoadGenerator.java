@@ -0,0 +1,208 @@
+package benchmark;
+
+import exporter.JsonLinesExpenseWriter;
+import metrics.LatencyHistogram;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * API Load Generator
+ * Drives a running API server (Main --server) with a fixed number of concurrent clients,
+ * each sending its next request as soon as the last one returns, and reports throughput
+ * and latency percentiles per endpoint. The mix is mostly listings and summaries, like
+ * the desktop screens produce. A short warm-up run is discarded first.
+ *
+ * Usage: java -cp benchmarks/target/benchmarks.jar benchmark.ApiLoadGenerator baseUrl username password [concurrency] [seconds]
+ */
+public class ApiLoadGenerator {
+    private static final Pattern TOKEN = Pattern.compile("\"token\":\"([^\"]+)\"");
+    private static final Pattern EXPENSE_ID = Pattern.compile("\"id\":(\\d+)");
+    private static final String[] SEARCH_WORDS = {"lunch", "taxi", "rent", "coffee", "book"};
+
+    private final HttpClient client;
+    private final String baseUrl;
+    private final String token;
+    private final List<Endpoint> endpoints = new ArrayList<>();
+    private final List<Integer> expenseIds;
+
+    private ApiLoadGenerator(HttpClient client, String baseUrl, String token) throws IOException, InterruptedException {
+        this.client = client;
+        this.baseUrl = baseUrl;
+        this.token = token;
+
+        endpoints.add(new Endpoint("list", 40, random -> "/api/expenses?limit=50"));
+        endpoints.add(new Endpoint("dashboard", 20, random -> "/api/summary/dashboard"));
+        endpoints.add(new Endpoint("get", 20, random -> "/api/expenses/" + randomId(random)));
+        endpoints.add(new Endpoint("summary", 10, random -> "/api/summary?month=" + randomMonth(random)));
+        endpoints.add(new Endpoint("search", 10, random ->
+                "/api/expenses?limit=20&q=" + URLEncoder.encode(
+                        SEARCH_WORDS[random.nextInt(SEARCH_WORDS.length)], StandardCharsets.UTF_8)));
+
+        // Ids to fetch come from the first page, so every "get" hits an existing expense
+        expenseIds = new ArrayList<>();
+        Matcher matcher = EXPENSE_ID.matcher(get("/api/expenses?limit=500").body());
+        while (matcher.find()) {
+            expenseIds.add(Integer.parseInt(matcher.group(1)));
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 3) {
+            System.err.println("Usage: ApiLoadGenerator baseUrl username password [concurrency] [seconds]");
+            System.exit(2);
+        }
+        String baseUrl = args[0].replaceAll("/+$", "");
+        int concurrency = args.length > 3 ? Integer.parseInt(args[3]) : 16;
+        int seconds = args.length > 4 ? Integer.parseInt(args[4]) : 10;
+
+        // The JDK server speaks HTTP/1.1 only; asking for it skips the h2c upgrade attempt
+        HttpClient client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+        ApiLoadGenerator generator = new ApiLoadGenerator(client, baseUrl, login(client, baseUrl, args[1], args[2]));
+
+        generator.run(concurrency, Math.max(1, seconds / 5));
+        generator.reset();
+        long start = System.nanoTime();
+        generator.run(concurrency, seconds);
+        generator.report(concurrency, (System.nanoTime() - start) / 1e9);
+    }
+
+    private static String login(HttpClient client, String baseUrl, String username, String password)
+            throws IOException, InterruptedException {
+        StringBuilder body = new StringBuilder("{\"username\":");
+        JsonLinesExpenseWriter.writeString(body, username);
+        body.append(",\"password\":");
+        JsonLinesExpenseWriter.writeString(body, password);
+        body.append('}');
+        HttpResponse<String> response = client.send(HttpRequest.newBuilder(URI.create(baseUrl + "/api/login"))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body.toString()))
+                .build(), HttpResponse.BodyHandlers.ofString());
+        Matcher matcher = TOKEN.matcher(response.body());
+        if (response.statusCode() != 200 || !matcher.find()) {
+            throw new IOException("Login failed with status " + response.statusCode() + ": " + response.body());
+        }
+        return matcher.group(1);
+    }
+
+    private void run(int concurrency, int seconds) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+        ExecutorService clients = Executors.newFixedThreadPool(concurrency);
+        for (int i = 0; i < concurrency; i++) {
+            clients.execute(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                while (System.nanoTime() < deadline) {
+                    pick(random).call(random);
+                }
+            });
+        }
+        clients.shutdown();
+        clients.awaitTermination(seconds + 60L, TimeUnit.SECONDS);
+    }
+
+    private Endpoint pick(ThreadLocalRandom random) {
+        int roll = random.nextInt(100);
+        for (Endpoint endpoint : endpoints) {
+            roll -= endpoint.weight;
+            if (roll < 0) {
+                return endpoint;
+            }
+        }
+        return endpoints.get(0);
+    }
+
+    private void reset() {
+        for (Endpoint endpoint : endpoints) {
+            endpoint.latency.reset();
+            endpoint.errors.reset();
+        }
+    }
+
+    private void report(int concurrency, double seconds) {
+        long total = 0;
+        System.out.printf("Concurrency: %d, duration: %.1f s%n", concurrency, seconds);
+        System.out.printf("%-10s %9s %9s %9s %9s %9s %7s%n", "endpoint", "requests", "req/s", "p50 ms", "p99 ms", "max ms", "errors");
+        for (Endpoint endpoint : endpoints) {
+            LatencyHistogram.Snapshot snapshot = endpoint.latency.snapshot();
+            total += snapshot.getCount();
+            System.out.printf("%-10s %9d %9.0f %9.2f %9.2f %9.2f %7d%n", endpoint.name, snapshot.getCount(),
+                    snapshot.getCount() / seconds, millis(snapshot.getValueAtPercentile(50)),
+                    millis(snapshot.getValueAtPercentile(99)), millis(snapshot.getMax()), endpoint.errors.sum());
+        }
+        System.out.printf("Total: %d requests, %.0f req/s%n", total, total / seconds);
+    }
+
+    private HttpResponse<String> get(String path) throws IOException, InterruptedException {
+        return client.send(HttpRequest.newBuilder(URI.create(baseUrl + path))
+                .header("Authorization", "Bearer " + token)
+                .GET()
+                .build(), HttpResponse.BodyHandlers.ofString());
+    }
+
+    private int randomId(ThreadLocalRandom random) {
+        return expenseIds.isEmpty() ? 1 : expenseIds.get(random.nextInt(expenseIds.size()));
+    }
+
+    private static String randomMonth(ThreadLocalRandom random) {
+        return YearMonth.now().minusMonths(random.nextInt(12)).toString();
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1e6;
+    }
+
+    private interface PathSupplier {
+        String next(ThreadLocalRandom random);
+    }
+
+    /**
+     * One kind of request, with its share of the mix and its measurements
+     */
+    private final class Endpoint {
+        private final String name;
+        private final int weight;
+        private final PathSupplier path;
+        private final LatencyHistogram latency = new LatencyHistogram();
+        private final LongAdder errors = new LongAdder();
+
+        private Endpoint(String name, int weight, PathSupplier path) {
+            this.name = name;
+            this.weight = weight;
+            this.path = path;
+        }
+
+        private void call(ThreadLocalRandom random) {
+            long start = System.nanoTime();
+            try {
+                if (get(path.next(random)).statusCode() != 200) {
+                    errors.increment();
+                }
+            } catch (IOException e) {
+                errors.increment();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            latency.record(System.nanoTime() - start);
+        }
+    }
+}
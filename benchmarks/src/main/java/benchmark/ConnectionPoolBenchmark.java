@@ -0,0 +1,68 @@
+package benchmark;
+
+import util.DatabaseUtil;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Connection Pool Benchmark
+ * Compares per-call latency of opening a fresh SQLite connection against borrowing a pooled one.
+ *
+ * Usage: java -cp benchmarks/target/benchmarks.jar benchmark.ConnectionPoolBenchmark [iterations]
+ */
+public class ConnectionPoolBenchmark {
+    private static final String QUERY = "SELECT SUM(amount_minor) FROM expenses WHERE user_id = ?";
+
+    public static void main(String[] args) throws SQLException {
+        int iterations = args.length > 0 ? Integer.parseInt(args[0]) : 5000;
+        DatabaseUtil.initializeDatabase();
+
+        // Warm up both paths so class loading and JIT do not skew the first measurement
+        runUnpooled(iterations / 10);
+        runPooled(iterations / 10);
+
+        double unpooled = runUnpooled(iterations);
+        double pooled = runPooled(iterations);
+
+        System.out.printf("Iterations:            %d%n", iterations);
+        System.out.printf("DriverManager per call: %.1f us/call%n", unpooled);
+        System.out.printf("Pooled connection:      %.1f us/call%n", pooled);
+        System.out.printf("Speedup:                %.1fx%n", unpooled / pooled);
+        System.out.println(DatabaseUtil.getPool());
+
+        DatabaseUtil.shutdown();
+    }
+
+    private static double runUnpooled(int iterations) throws SQLException {
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            try (Connection conn = DriverManager.getConnection(DatabaseUtil.getDatabaseUrl())) {
+                query(conn);
+            }
+        }
+        return (System.nanoTime() - start) / 1000.0 / iterations;
+    }
+
+    private static double runPooled(int iterations) throws SQLException {
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            try (Connection conn = DatabaseUtil.getConnection()) {
+                query(conn);
+            }
+        }
+        return (System.nanoTime() - start) / 1000.0 / iterations;
+    }
+
+    private static void query(Connection conn) throws SQLException {
+        try (PreparedStatement pstmt = conn.prepareStatement(QUERY)) {
+            pstmt.setInt(1, 1);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                rs.next();
+            }
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package benchmark;
+
+import dao.ExpenseDAO;
+import dao.ExpenseWriteQueue;
+import model.Expense;
+import util.DatabaseUtil;
+import util.ShardRouter;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Shard Write Benchmark
+ * Measures single-expense insert throughput of concurrent writers, each writing as its own
+ * user, over the configured number of shards. Run it once per shard count to compare, e.g.
+ * with -Dexpensetracker.shards.count=1 and then 4. Writers are spread evenly over the shards;
+ * their synthetic users start at 1000001 and their rows are deleted afterwards.
+ * In "direct" mode every insert is its own transaction through ExpenseDAO; in "queued" mode
+ * inserts go through ExpenseWriteQueue and are group-committed.
+ *
+ * Usage: java -cp benchmarks/target/benchmarks.jar benchmark.ShardWriteBenchmark [writers] [seconds] [direct|queued]
+ */
+public class ShardWriteBenchmark {
+    private static final int FIRST_USER_ID = 1_000_001;
+
+    public static void main(String[] args) throws Exception {
+        int writers = args.length > 0 ? Integer.parseInt(args[0]) : 8;
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+        boolean queued = args.length > 2 && args[2].equals("queued");
+        DatabaseUtil.initializeDatabase();
+
+        ShardRouter router = DatabaseUtil.getShardRouter();
+        int[] users = pickUsers(router, writers);
+        Inserter inserter;
+        if (queued) {
+            ExpenseWriteQueue queue = ExpenseWriteQueue.getInstance();
+            inserter = expense -> queue.add(expense).join();
+        } else {
+            ExpenseDAO expenseDAO = new ExpenseDAO();
+            inserter = expenseDAO::addExpense;
+        }
+
+        // Warm up so class loading, JIT and directory lookups do not count
+        run(inserter, users, 1);
+        long inserts = run(inserter, users, seconds);
+
+        System.out.printf("Shards:     %d%n", router.getShardCount());
+        System.out.printf("Writers:    %d (%s)%n", writers, queued ? "queued" : "direct");
+        System.out.printf("Inserts:    %d in %d s%n", inserts, seconds);
+        System.out.printf("Throughput: %.0f inserts/s%n", inserts / (double) seconds);
+        System.out.printf("Cores:      %d%n", Runtime.getRuntime().availableProcessors());
+
+        cleanUp(router, users);
+        DatabaseUtil.shutdown();
+    }
+
+    /**
+     * Pick one user per writer so that writer i lands on shard i mod the shard count
+     */
+    private static int[] pickUsers(ShardRouter router, int writers) {
+        int[] users = new int[writers];
+        int candidate = FIRST_USER_ID;
+        for (int i = 0; i < writers; i++) {
+            while (router.ringShard(candidate) != i % router.getShardCount()) {
+                candidate++;
+            }
+            users[i] = candidate++;
+        }
+        return users;
+    }
+
+    /**
+     * Inserts one expense and returns once it is committed
+     */
+    @FunctionalInterface
+    private interface Inserter {
+        boolean insert(Expense expense);
+    }
+
+    private static long run(Inserter inserter, int[] users, int seconds) throws InterruptedException {
+        AtomicBoolean stop = new AtomicBoolean();
+        LongAdder inserts = new LongAdder();
+        List<Thread> threads = new ArrayList<>();
+
+        for (int userId : users) {
+            Thread thread = new Thread(() -> {
+                LocalDate date = LocalDate.of(2024, 1, 1);
+                int n = 0;
+                while (!stop.get()) {
+                    Expense expense = new Expense(userId, "Benchmark " + n, 100 + n % 900, "Other",
+                            date.plusDays(n % 365), null);
+                    if (inserter.insert(expense)) {
+                        inserts.increment();
+                    }
+                    n++;
+                }
+            }, "shard-writer-" + userId);
+            threads.add(thread);
+            thread.start();
+        }
+
+        Thread.sleep(seconds * 1000L);
+        stop.set(true);
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        return inserts.sum();
+    }
+
+    private static void cleanUp(ShardRouter router, int[] users) throws SQLException {
+        for (int userId : users) {
+            try (Connection conn = router.getConnection(userId);
+                 PreparedStatement pstmt = conn.prepareStatement("DELETE FROM expenses WHERE user_id = ?")) {
+                pstmt.setInt(1, userId);
+                pstmt.executeUpdate();
+            }
+            try (Connection conn = DatabaseUtil.getConnection();
+                 PreparedStatement pstmt = conn.prepareStatement("DELETE FROM user_shards WHERE user_id = ?")) {
+                pstmt.setInt(1, userId);
+                pstmt.executeUpdate();
+            }
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package benchmark.jmh;
+
+import analytics.ColumnarExpenseStore;
+import analytics.ExpenseColumns;
+import dao.ExpenseQuery;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.YearMonth;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Columnar Store Benchmarks
+ * The analytics of ExpenseDaoBenchmark answered from in-memory columns instead of SQLite
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ColumnarStoreBenchmark {
+    private ExpenseColumns columns;
+    private ExpenseQuery all;
+    private ExpenseQuery thisMonth;
+
+    @Setup(Level.Trial)
+    public void setUp(DatabaseState state) {
+        columns = ColumnarExpenseStore.getInstance().getColumns(state.readUserId);
+        all = ExpenseQuery.forUser(state.readUserId);
+        thisMonth = ExpenseQuery.forUser(state.readUserId).inMonth(YearMonth.now());
+    }
+
+    @Benchmark
+    public Map<String, Long> categoryTotals() {
+        return columns.categoryTotals(all);
+    }
+
+    @Benchmark
+    public long monthlyTotal() {
+        return columns.total(thisMonth);
+    }
+
+    @Benchmark
+    public int[] topTenExpenses() {
+        return columns.topExpenseIds(all, 10);
+    }
+}
@@ -0,0 +1,54 @@
+package benchmark.jmh;
+
+import dao.ExpenseDAO;
+import dao.UserDAO;
+import model.User;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import util.DatabaseUtil;
+
+import java.sql.SQLException;
+
+/**
+ * Database State
+ * Shared benchmark state: a seeded database of (users x expensesPerUser) rows and the DAOs
+ * under test. Override the size with -p users=N -p expensesPerUser=M.
+ */
+@State(Scope.Benchmark)
+public class DatabaseState {
+    private static final String WRITER = "bench-writer";
+
+    @Param("10")
+    public int users;
+
+    @Param("10000")
+    public int expensesPerUser;
+
+    public ExpenseDAO expenseDAO;
+    public UserDAO userDAO;
+
+    // User whose rows the read benchmarks query, and a separate user that receives inserts
+    public int readUserId;
+    public int writeUserId;
+
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException {
+        SyntheticDatabase.open(users, expensesPerUser);
+        expenseDAO = new ExpenseDAO();
+        userDAO = new UserDAO();
+        readUserId = userDAO.loginUser(SyntheticDatabase.username(1), SyntheticDatabase.password(1)).getUserId();
+        if (!userDAO.usernameExists(WRITER)) {
+            userDAO.registerUser(new User(WRITER, WRITER + "@example.com", WRITER));
+        }
+        writeUserId = userDAO.loginUser(WRITER, WRITER).getUserId();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        DatabaseUtil.shutdown();
+    }
+}
@@ -0,0 +1,60 @@
+package benchmark.jmh;
+
+import model.Expense;
+import model.User;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * DAO Benchmarks
+ * Average latency of the ExpenseDAO and UserDAO calls the UI makes most often
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ExpenseDaoBenchmark {
+
+    @Benchmark
+    public List<Expense> getAllExpenses(DatabaseState state) {
+        return state.expenseDAO.getAllExpenses(state.readUserId);
+    }
+
+    @Benchmark
+    public List<Expense> filterExpenses(DatabaseState state) {
+        return state.expenseDAO.filterExpenses(state.readUserId, LocalDate.now().getMonthValue(), "Food");
+    }
+
+    @Benchmark
+    public Map<String, Long> getCategoryTotals(DatabaseState state) {
+        return state.expenseDAO.getCategoryTotals(state.readUserId);
+    }
+
+    @Benchmark
+    public long getMonthlyTotal(DatabaseState state) {
+        return state.expenseDAO.getMonthlyTotal(state.readUserId);
+    }
+
+    @Benchmark
+    public boolean addExpense(DatabaseState state) {
+        Expense expense = new Expense(state.writeUserId, "Benchmark insert", 12_345, "Food",
+                LocalDate.now(), "Inserted by ExpenseDaoBenchmark");
+        return state.expenseDAO.addExpense(expense);
+    }
+
+    @Benchmark
+    public User loginUser(DatabaseState state) {
+        return state.userDAO.loginUser(SyntheticDatabase.username(1), SyntheticDatabase.password(1));
+    }
+}
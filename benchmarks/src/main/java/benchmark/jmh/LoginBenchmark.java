@@ -0,0 +1,65 @@
+package benchmark.jmh;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import security.PasswordService;
+import security.Pbkdf2PasswordHasher;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Login Benchmark
+ * Password verification throughput while a burst of logins arrives at once, for a range of
+ * PBKDF2 iteration counts and hashing pool sizes. The database side of a login is covered
+ * by ExpenseDaoBenchmark.loginUser.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 3)
+@Measurement(iterations = 3, time = 5)
+@Fork(1)
+@Threads(16)
+@State(Scope.Benchmark)
+public class LoginBenchmark {
+    private static final String PASSWORD = "correct horse battery staple";
+
+    @Param({"100000", "310000"})
+    public int iterations;
+
+    @Param({"1", "2", "4"})
+    public int verifyThreads;
+
+    private PasswordService passwordService;
+    private String storedHash;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        // Queue large enough for the whole burst, so the benchmark measures waiting, not rejection
+        passwordService = new PasswordService(new Pbkdf2PasswordHasher(iterations), List.of(),
+                verifyThreads, 1024);
+        storedHash = passwordService.hash(PASSWORD);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        passwordService.shutdown();
+    }
+
+    @Benchmark
+    public boolean verify() {
+        return passwordService.verify(PASSWORD, storedHash).isMatched();
+    }
+}
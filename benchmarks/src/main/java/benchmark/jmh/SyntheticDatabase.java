@@ -0,0 +1,102 @@
+package benchmark.jmh;
+
+import dao.ExpenseDAO;
+import dao.UserDAO;
+import model.Expense;
+import model.User;
+import util.DatabaseUtil;
+
+import java.io.File;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Random;
+
+/**
+ * Synthetic Database
+ * Points the application at a benchmark database of a given size and seeds it once.
+ * Each size gets its own file, so repeated runs reuse the seeded data.
+ */
+public class SyntheticDatabase {
+    static final String[] CATEGORIES = {"Food", "Travel", "Shopping", "Bills", "Entertainment", "Health", "Other"};
+
+    private SyntheticDatabase() {}
+
+    /**
+     * Must run before anything touches DatabaseUtil in this JVM, since the URL is read once
+     * @param users Number of users
+     * @param expensesPerUser Number of expenses per user
+     */
+    public static void open(int users, int expensesPerUser) throws SQLException {
+        String dir = System.getProperty("bench.dir", "target");
+        new File(dir).mkdirs();
+        String path = dir + File.separator + "jmh-" + users + "x" + expensesPerUser + ".db";
+        System.setProperty("expensetracker.db.url", "jdbc:sqlite:" + path);
+
+        DatabaseUtil.initializeDatabase();
+        if (countUsers() < users) {
+            seed(users, expensesPerUser);
+        }
+    }
+
+    public static String username(int index) {
+        return "bench-user-" + index;
+    }
+
+    public static String password(int index) {
+        return "bench-password-" + index;
+    }
+
+    private static int countUsers() throws SQLException {
+        try (Connection conn = DatabaseUtil.getConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT COUNT(*) FROM users")) {
+            return rs.next() ? rs.getInt(1) : 0;
+        }
+    }
+
+    private static void seed(int users, int expensesPerUser) {
+        UserDAO userDAO = new UserDAO();
+        ExpenseDAO expenseDAO = new ExpenseDAO();
+        Random random = new Random(42);
+
+        System.out.println("Seeding " + users + " users x " + expensesPerUser + " expenses...");
+        for (int i = 1; i <= users; i++) {
+            userDAO.registerUser(new User(username(i), username(i) + "@example.com", password(i)));
+            User user = userDAO.loginUser(username(i), password(i));
+            expenseDAO.addExpenses(() -> generate(user.getUserId(), expensesPerUser, random), 5000);
+        }
+    }
+
+    private static Iterator<Expense> generate(int userId, int count, Random random) {
+        LocalDate today = LocalDate.now();
+        return new Iterator<>() {
+            private int produced;
+
+            @Override
+            public boolean hasNext() {
+                return produced < count;
+            }
+
+            @Override
+            public Expense next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                produced++;
+                return new Expense(
+                        userId,
+                        "Expense " + produced,
+                        100 + random.nextInt(500_000),
+                        CATEGORIES[random.nextInt(CATEGORIES.length)],
+                        today.minusDays(random.nextInt(3 * 365)),
+                        "Synthetic expense"
+                );
+            }
+        };
+    }
+}
@@ -1,15 +1,25 @@
 
 
 import view.LoginFrame;
+import metrics.MetricsReporter;
+import server.ApiServer;
 import util.DatabaseUtil;
 import javax.swing.*;
+import java.io.IOException;
+import java.util.Arrays;
 
 /**
  * Main Entry Point for Expense Tracker Application
- * Initializes database and launches login window
+ * Initializes database and launches login window,
+ * or with --server runs the headless JSON API instead (see ApiServer)
  */
 public class Main {
     public static void main(String[] args) {
+        if (Arrays.asList(args).contains("--server")) {
+            runServer();
+            return;
+        }
+
         // Set system look and feel for better UI
         try {
             UIManager.setLookAndFeel(UIManager.getSystemLookAndFeelClassName());
@@ -18,7 +28,11 @@ public class Main {
         }
 
         // Initialize database tables
-        DatabaseUtil.initializeDatabase();
+        initializeDatabase();
+        MetricsReporter.startFromConfig();
+
+        // Closing a window exits the JVM; commit queued expense writes before the pools close
+        Runtime.getRuntime().addShutdownHook(new Thread(DatabaseUtil::shutdown, "database-shutdown"));
 
         // Launch login frame on EDT (Event Dispatch Thread)
         SwingUtilities.invokeLater(() -> {
@@ -26,4 +40,35 @@ public class Main {
             loginFrame.setVisible(true);
         });
     }
-}
\ No newline at end of file
+
+    private static void runServer() {
+        initializeDatabase();
+        MetricsReporter.startFromConfig();
+
+        ApiServer server = ApiServer.fromConfig();
+        try {
+            server.start();
+        } catch (IOException e) {
+            System.err.println("Error starting API server: " + e.getMessage());
+            System.exit(1);
+        }
+        System.out.println("Expense Tracker API listening on port " + server.getPort());
+
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            server.stop(2);
+            DatabaseUtil.shutdown();
+        }, "api-server-shutdown"));
+    }
+
+    /**
+     * Bring every database up to date, or exit: a half-initialized catalog or shard must not be used
+     */
+    private static void initializeDatabase() {
+        try {
+            DatabaseUtil.initializeDatabase();
+        } catch (IllegalStateException e) {
+            System.err.println(e.getMessage());
+            System.exit(1);
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package analytics;
+
+import model.CategoryRegistry;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Category Dictionary
+ * Maps one user's category names to the one-byte ordinals stored in their ExpenseColumns.
+ * Names are matched the way the database's NOCASE collation matches them, and keep the
+ * spelling they were first seen with. Ordinals are assigned on first sight and never reused.
+ */
+public class CategoryDictionary {
+    public static final int MAX_CATEGORIES = 256;
+    public static final int NONE = -1;
+
+    private final Map<String, Integer> ordinals = new ConcurrentHashMap<>();
+    private volatile String[] names = new String[0];
+
+    /**
+     * Get the ordinal of a category, assigning one if it is new
+     * @param category Category name
+     * @return Ordinal in [0, MAX_CATEGORIES)
+     * @throws IllegalStateException if every ordinal is taken
+     */
+    public int ordinal(String category) {
+        Integer existing = ordinals.get(CategoryRegistry.foldName(category));
+        return existing != null ? existing : assign(category);
+    }
+
+    /**
+     * Get the ordinal of a category without assigning one
+     * @param category Category name
+     * @return Ordinal, or NONE if the category has never been seen
+     */
+    public int find(String category) {
+        return ordinals.getOrDefault(CategoryRegistry.foldName(category), NONE);
+    }
+
+    public String name(int ordinal) {
+        return names[ordinal];
+    }
+
+    public int size() {
+        return names.length;
+    }
+
+    private synchronized int assign(String category) {
+        String key = CategoryRegistry.foldName(category);
+        Integer existing = ordinals.get(key);
+        if (existing != null) {
+            return existing;
+        }
+        int ordinal = names.length;
+        if (ordinal >= MAX_CATEGORIES) {
+            throw new IllegalStateException("More than " + MAX_CATEGORIES + " categories");
+        }
+        String[] grown = Arrays.copyOf(names, ordinal + 1);
+        grown[ordinal] = category;
+        // Publish the name before the ordinal so readers never see an ordinal without its name
+        names = grown;
+        ordinals.put(key, ordinal);
+        return ordinal;
+    }
+}
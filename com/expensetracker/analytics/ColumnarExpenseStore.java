@@ -0,0 +1,205 @@
+package analytics;
+
+import dao.ExpenseChangeListener;
+import dao.ExpenseEventBus;
+import dao.ExpenseQuery;
+import model.Expense;
+import util.AppConfig;
+import util.DatabaseUtil;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Columnar Expense Store
+ * Optional in-memory copy of each user's expenses in ExpenseColumns form, used by
+ * ExpenseDAO to answer totals and group-bys without a database round trip.
+ * A user's columns are loaded on first use and then kept in step with writes made
+ * through ExpenseDAO. A load is kept only if no write of the user overlapped it, since it
+ * may already hold a row whose event is still to come. The columns of the least recently
+ * used users are dropped beyond expensetracker.analytics.columnar.maxUsers.
+ * Each user has a CategoryDictionary of their own; a user with more categories than it
+ * holds is left to SQL for the rest of the run.
+ * Enable with expensetracker.analytics.columnar=true.
+ */
+public class ColumnarExpenseStore implements ExpenseChangeListener {
+    private static final boolean ENABLED = Boolean.parseBoolean(
+            AppConfig.getString(AppConfig.get(), "expensetracker.analytics.columnar", "false"));
+    private static final int MAX_USERS = Math.max(1,
+            AppConfig.getInt(AppConfig.get(), "expensetracker.analytics.columnar.maxUsers", 100));
+
+    private static final ColumnarExpenseStore INSTANCE = new ColumnarExpenseStore();
+
+    static {
+        ExpenseEventBus.getInstance().subscribe(INSTANCE);
+    }
+
+    private final ExpenseEventBus events = ExpenseEventBus.getInstance();
+    // Least recently used users go first; guarded by its own monitor, which events are applied under
+    private final Map<Integer, ExpenseColumns> columnsByUser = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, ExpenseColumns> eldest) {
+            return size() > MAX_USERS;
+        }
+    };
+    // Users with more categories than a CategoryDictionary holds
+    private final Set<Integer> disabledUsers = ConcurrentHashMap.newKeySet();
+
+    private ColumnarExpenseStore() {}
+
+    public static ColumnarExpenseStore getInstance() {
+        return INSTANCE;
+    }
+
+    public static boolean isEnabled() {
+        return ENABLED;
+    }
+
+    /**
+     * Columns of a user when the store is enabled, for callers that fall back to SQL otherwise
+     * @param userId User ID
+     * @return ExpenseColumns object, or null if the store is disabled or could not load the user
+     */
+    public static ExpenseColumns columnsIfEnabled(int userId) {
+        return ENABLED ? INSTANCE.getColumns(userId) : null;
+    }
+
+    /**
+     * Columns that can answer a query when the store is enabled. The columns hold no text,
+     * so queries with a search text always go to SQL.
+     * @param query Expense query
+     * @return ExpenseColumns object, or null if SQL has to answer the query
+     */
+    public static ExpenseColumns columnsIfEnabled(ExpenseQuery query) {
+        return query.getSearchText() == null ? columnsIfEnabled(query.getUserId()) : null;
+    }
+
+    /**
+     * Get a user's columns, loading them on first use
+     * @param userId User ID
+     * @return ExpenseColumns object, or null if loading failed or the user does not fit
+     */
+    public ExpenseColumns getColumns(int userId) {
+        ExpenseColumns columns;
+        synchronized (columnsByUser) {
+            columns = columnsByUser.get(userId);
+        }
+        if (columns != null || disabledUsers.contains(userId)) {
+            return columns;
+        }
+
+        long stamp = events.writeStamp(userId);
+        columns = load(userId);
+        if (columns == null) {
+            return null;
+        }
+        synchronized (columnsByUser) {
+            ExpenseColumns raced = columnsByUser.get(userId);
+            if (raced != null) {
+                return raced;
+            }
+            if (events.isUnchangedSince(userId, stamp)) {
+                columnsByUser.put(userId, columns);
+            }
+        }
+        // Otherwise answer from what was read, and load again next time
+        return columns;
+    }
+
+    /**
+     * Drop a user's columns, e.g. after changes made outside ExpenseDAO
+     * @param userId User ID
+     */
+    public void invalidate(int userId) {
+        synchronized (columnsByUser) {
+            columnsByUser.remove(userId);
+        }
+    }
+
+    @Override
+    public void expenseAdded(Expense expense) {
+        synchronized (columnsByUser) {
+            ExpenseColumns columns = columnsByUser.get(expense.getUserId());
+            if (columns != null) {
+                insert(columns, expense);
+            }
+        }
+    }
+
+    @Override
+    public void expenseUpdated(Expense before, Expense after) {
+        expenseDeleted(before);
+        expenseAdded(after);
+    }
+
+    @Override
+    public void expenseDeleted(Expense expense) {
+        synchronized (columnsByUser) {
+            ExpenseColumns columns = columnsByUser.get(expense.getUserId());
+            if (columns != null && !columns.remove(expense.getExpenseId(), epochDay(expense.getExpenseDate()))) {
+                // Out of step with the database; rebuild on next use rather than serve wrong totals
+                invalidate(expense.getUserId());
+            }
+        }
+    }
+
+    private void insert(ExpenseColumns columns, Expense expense) {
+        try {
+            columns.insert(expense.getExpenseId(), epochDay(expense.getExpenseDate()),
+                    expense.getAmount(), expense.getCategory());
+        } catch (IllegalStateException e) {
+            disable(expense.getUserId(), e);
+        }
+    }
+
+    /**
+     * Read a user's rows in (date, id) order, only the columns the store keeps
+     */
+    private ExpenseColumns load(int userId) {
+        String sql = "SELECT e.expense_id, e.expense_date, e.amount_minor, c.name AS category " +
+                "FROM expenses e JOIN categories c ON c.category_id = e.category_id " +
+                "WHERE e.user_id = ? ORDER BY e.expense_date, e.expense_id";
+
+        try (Connection conn = DatabaseUtil.getConnection(userId);
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+            pstmt.setInt(1, userId);
+            ResultSet rs = pstmt.executeQuery();
+
+            ExpenseColumns columns = new ExpenseColumns(new CategoryDictionary());
+            while (rs.next()) {
+                columns.append(rs.getInt("expense_id"), epochDay(LocalDate.parse(rs.getString("expense_date"))),
+                        rs.getLong("amount_minor"), rs.getString("category"));
+            }
+            return columns;
+
+        } catch (SQLException e) {
+            System.err.println("Error loading columnar expenses: " + e.getMessage());
+            return null;
+        } catch (IllegalStateException e) {
+            disable(userId, e);
+            return null;
+        }
+    }
+
+    /**
+     * Stop keeping columns for a user, so their queries go to SQL without reloading every time
+     */
+    private void disable(int userId, IllegalStateException e) {
+        if (disabledUsers.add(userId)) {
+            System.err.println("Columnar store disabled for user " + userId + ": " + e.getMessage());
+        }
+        invalidate(userId);
+    }
+
+    private static int epochDay(LocalDate date) {
+        return (int) date.toEpochDay();
+    }
+}
@@ -0,0 +1,310 @@
+package analytics;
+
+import dao.ExpenseQuery;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Expense Columns
+ * One user's expenses as parallel primitive arrays (id, epoch day, amount in paise,
+ * category ordinal), sorted by (day, id). Titles and descriptions are not kept.
+ * A date range is a contiguous slice found by binary search, so range sums and
+ * group-bys are plain loops over arrays with no object per row.
+ */
+public class ExpenseColumns {
+    private static final int INITIAL_CAPACITY = 256;
+
+    private final CategoryDictionary categories;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private int size;
+    private int[] ids = new int[INITIAL_CAPACITY];
+    private int[] epochDays = new int[INITIAL_CAPACITY];
+    private long[] amounts = new long[INITIAL_CAPACITY];
+    private byte[] categoryOrdinals = new byte[INITIAL_CAPACITY];
+
+    public ExpenseColumns(CategoryDictionary categories) {
+        this.categories = categories;
+    }
+
+    /**
+     * Add a row known to sort after every row already present, e.g. while loading in order
+     */
+    void append(int id, int epochDay, long amount, String category) {
+        lock.writeLock().lock();
+        try {
+            ensureCapacity(size + 1);
+            set(size++, id, epochDay, amount, categories.ordinal(category));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Add a row in its sorted position
+     */
+    void insert(int id, int epochDay, long amount, String category) {
+        int ordinal = categories.ordinal(category);
+        lock.writeLock().lock();
+        try {
+            ensureCapacity(size + 1);
+            int index = insertionPoint(epochDay, id);
+            int tail = size - index;
+            System.arraycopy(ids, index, ids, index + 1, tail);
+            System.arraycopy(epochDays, index, epochDays, index + 1, tail);
+            System.arraycopy(amounts, index, amounts, index + 1, tail);
+            System.arraycopy(categoryOrdinals, index, categoryOrdinals, index + 1, tail);
+            set(index, id, epochDay, amount, ordinal);
+            size++;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Remove the row with an id
+     * @return true if it was present
+     */
+    boolean remove(int id, int epochDay) {
+        lock.writeLock().lock();
+        try {
+            int index = insertionPoint(epochDay, id);
+            if (index >= size || ids[index] != id) {
+                return false;
+            }
+            int tail = size - index - 1;
+            System.arraycopy(ids, index + 1, ids, index, tail);
+            System.arraycopy(epochDays, index + 1, epochDays, index, tail);
+            System.arraycopy(amounts, index + 1, amounts, index, tail);
+            System.arraycopy(categoryOrdinals, index + 1, categoryOrdinals, index, tail);
+            size--;
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return size;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Sum of the amounts matching a query
+     * @param query Expense query
+     * @return Total in paise
+     */
+    public long total(ExpenseQuery query) {
+        int category = categoryFilter(query);
+        if (category == CategoryDictionary.NONE && query.getCategory() != null) {
+            return 0;
+        }
+
+        lock.readLock().lock();
+        try {
+            int from = lowerBound(query), to = upperBound(query);
+            long total = 0;
+            if (category == CategoryDictionary.NONE) {
+                for (int i = from; i < to; i++) {
+                    total += amounts[i];
+                }
+            } else {
+                byte wanted = (byte) category;
+                for (int i = from; i < to; i++) {
+                    if (categoryOrdinals[i] == wanted) {
+                        total += amounts[i];
+                    }
+                }
+            }
+            return total;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Number of rows matching a query
+     * @param query Expense query
+     * @return Row count
+     */
+    public int count(ExpenseQuery query) {
+        int category = categoryFilter(query);
+        if (category == CategoryDictionary.NONE && query.getCategory() != null) {
+            return 0;
+        }
+
+        lock.readLock().lock();
+        try {
+            int from = lowerBound(query), to = upperBound(query);
+            if (category == CategoryDictionary.NONE) {
+                return to - from;
+            }
+            byte wanted = (byte) category;
+            int count = 0;
+            for (int i = from; i < to; i++) {
+                if (categoryOrdinals[i] == wanted) {
+                    count++;
+                }
+            }
+            return count;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Amounts matching a query grouped by category
+     * @param query Expense query
+     * @return Map of category to total in paise, ordered by category name
+     */
+    public Map<String, Long> categoryTotals(ExpenseQuery query) {
+        long[] totals = new long[CategoryDictionary.MAX_CATEGORIES];
+        boolean[] seen = new boolean[CategoryDictionary.MAX_CATEGORIES];
+        int category = categoryFilter(query);
+        if (category == CategoryDictionary.NONE && query.getCategory() != null) {
+            return new TreeMap<>();
+        }
+
+        lock.readLock().lock();
+        try {
+            int from = lowerBound(query), to = upperBound(query);
+            for (int i = from; i < to; i++) {
+                int ordinal = categoryOrdinals[i] & 0xFF;
+                totals[ordinal] += amounts[i];
+                seen[ordinal] = true;
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        Map<String, Long> result = new TreeMap<>();
+        for (int ordinal = 0; ordinal < totals.length; ordinal++) {
+            if (seen[ordinal] && (category == CategoryDictionary.NONE || ordinal == category)) {
+                result.put(categories.name(ordinal), totals[ordinal]);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Categories with the largest totals among the rows matching a query
+     * @param query Expense query
+     * @param n Maximum number of categories
+     * @return Map of category to total in paise, largest first
+     */
+    public Map<String, Long> topCategories(ExpenseQuery query, int n) {
+        List<Map.Entry<String, Long>> entries = new ArrayList<>(categoryTotals(query).entrySet());
+        entries.sort(Map.Entry.<String, Long>comparingByValue().reversed());
+
+        Map<String, Long> top = new LinkedHashMap<>();
+        for (Map.Entry<String, Long> entry : entries.subList(0, Math.min(n, entries.size()))) {
+            top.put(entry.getKey(), entry.getValue());
+        }
+        return top;
+    }
+
+    /**
+     * Ids of the largest expenses matching a query
+     * @param query Expense query
+     * @param n Maximum number of expenses
+     * @return Expense ids, largest amount first
+     */
+    public int[] topExpenseIds(ExpenseQuery query, int n) {
+        int category = categoryFilter(query);
+        if (n <= 0 || (category == CategoryDictionary.NONE && query.getCategory() != null)) {
+            return new int[0];
+        }
+
+        // Min-heap of row indexes holding the n largest amounts seen so far
+        PriorityQueue<Integer> heap;
+        lock.readLock().lock();
+        try {
+            heap = new PriorityQueue<>(n, Comparator.comparingLong(i -> amounts[i]));
+            int from = lowerBound(query), to = upperBound(query);
+            for (int i = from; i < to; i++) {
+                if (category != CategoryDictionary.NONE && (categoryOrdinals[i] & 0xFF) != category) {
+                    continue;
+                }
+                if (heap.size() < n) {
+                    heap.add(i);
+                } else if (amounts[i] > amounts[heap.peek()]) {
+                    heap.poll();
+                    heap.add(i);
+                }
+            }
+
+            int[] top = new int[heap.size()];
+            for (int k = top.length - 1; k >= 0; k--) {
+                top[k] = ids[heap.poll()];
+            }
+            return top;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private int categoryFilter(ExpenseQuery query) {
+        return query.getCategory() == null ? CategoryDictionary.NONE : categories.find(query.getCategory());
+    }
+
+    private int lowerBound(ExpenseQuery query) {
+        return query.getFromDate() == null ? 0 : firstIndexOfDay((int) query.getFromDate().toEpochDay());
+    }
+
+    private int upperBound(ExpenseQuery query) {
+        return query.getToDate() == null ? size : firstIndexOfDay((int) query.getToDate().toEpochDay());
+    }
+
+    /**
+     * First index whose day is at least the given day
+     */
+    private int firstIndexOfDay(int epochDay) {
+        return insertionPoint(epochDay, Integer.MIN_VALUE);
+    }
+
+    /**
+     * First index whose (day, id) is at least the given key
+     */
+    private int insertionPoint(int epochDay, int id) {
+        int low = 0, high = size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (epochDays[mid] < epochDay || (epochDays[mid] == epochDay && ids[mid] < id)) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private void set(int index, int id, int epochDay, long amount, int ordinal) {
+        ids[index] = id;
+        epochDays[index] = epochDay;
+        amounts[index] = amount;
+        categoryOrdinals[index] = (byte) ordinal;
+    }
+
+    private void ensureCapacity(int needed) {
+        if (needed <= ids.length) {
+            return;
+        }
+        int capacity = Math.max(needed, ids.length + (ids.length >> 1));
+        ids = Arrays.copyOf(ids, capacity);
+        epochDays = Arrays.copyOf(epochDays, capacity);
+        amounts = Arrays.copyOf(amounts, capacity);
+        categoryOrdinals = Arrays.copyOf(categoryOrdinals, capacity);
+    }
+}
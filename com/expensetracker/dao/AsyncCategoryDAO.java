@@ -0,0 +1,39 @@
+package dao;
+
+import model.Category;
+import util.DatabaseExecutor;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+/**
+ * Asynchronous Category Data Access Object
+ * Runs CategoryDAO operations on the database executor and returns futures
+ */
+public class AsyncCategoryDAO {
+    private final CategoryDAO categoryDAO;
+
+    public AsyncCategoryDAO() {
+        this(new CategoryDAO());
+    }
+
+    public AsyncCategoryDAO(CategoryDAO categoryDAO) {
+        this.categoryDAO = categoryDAO;
+    }
+
+    public CompletableFuture<List<Category>> getCategories(int userId) {
+        return submit(() -> categoryDAO.getCategories(userId));
+    }
+
+    /**
+     * @return Future completing with the new or existing category, or null if it could not be added
+     */
+    public CompletableFuture<Category> addCategory(int userId, String name) {
+        return submit(() -> categoryDAO.addCategory(userId, name));
+    }
+
+    private <T> CompletableFuture<T> submit(Supplier<T> work) {
+        return CompletableFuture.supplyAsync(work, DatabaseExecutor.get());
+    }
+}
@@ -0,0 +1,146 @@
+package dao;
+
+import model.DashboardSummary;
+import model.Expense;
+import model.ExpenseCursor;
+import model.ExpensePage;
+import util.DatabaseExecutor;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Asynchronous Expense Data Access Object
+ * Runs ExpenseDAO operations on the database executor and returns futures,
+ * so callers on the Event Dispatch Thread never block on JDBC.
+ * Single adds, updates and deletes go through the shared ExpenseWriteQueue unless
+ * expensetracker.writeQueue.enabled is false; their futures complete once committed.
+ */
+public class AsyncExpenseDAO {
+    private final ExpenseDAO expenseDAO;
+    private final ExpenseWriteQueue writeQueue;
+
+    public AsyncExpenseDAO() {
+        this(new ExpenseDAO(), ExpenseWriteQueue.isEnabled() ? ExpenseWriteQueue.getInstance() : null);
+    }
+
+    /**
+     * @param expenseDAO DAO for reads and bulk updates
+     * @param writeQueue Queue for single writes, or null to write through expenseDAO
+     */
+    public AsyncExpenseDAO(ExpenseDAO expenseDAO, ExpenseWriteQueue writeQueue) {
+        this.expenseDAO = expenseDAO;
+        this.writeQueue = writeQueue;
+    }
+
+    public CompletableFuture<Boolean> addExpense(Expense expense) {
+        if (writeQueue != null) {
+            return enqueue(() -> writeQueue.add(expense));
+        }
+        return submit(() -> expenseDAO.addExpense(expense));
+    }
+
+    public CompletableFuture<Expense> findById(int userId, int expenseId) {
+        return submit(() -> expenseDAO.findById(userId, expenseId));
+    }
+
+    public CompletableFuture<List<Expense>> getAllExpenses(int userId) {
+        return submit(() -> expenseDAO.getAllExpenses(userId));
+    }
+
+    public CompletableFuture<List<Expense>> findExpenses(ExpenseQuery query) {
+        return submit(() -> expenseDAO.findExpenses(query));
+    }
+
+    public CompletableFuture<ExpensePage> getExpensePage(ExpenseQuery query, ExpenseCursor after, int limit) {
+        return submit(() -> expenseDAO.getExpensePage(query, after, limit));
+    }
+
+    public CompletableFuture<Integer> countExpenses(ExpenseQuery query) {
+        return submit(() -> expenseDAO.countExpenses(query));
+    }
+
+    public CompletableFuture<Boolean> updateExpense(Expense expense) {
+        if (writeQueue != null) {
+            return enqueue(() -> writeQueue.update(expense));
+        }
+        return submit(() -> expenseDAO.updateExpense(expense));
+    }
+
+    public CompletableFuture<Boolean> deleteExpense(int userId, int expenseId) {
+        if (writeQueue != null) {
+            return enqueue(() -> writeQueue.delete(userId, List.of(expenseId))).thenApply(deleted -> deleted > 0);
+        }
+        return submit(() -> expenseDAO.deleteExpense(userId, expenseId));
+    }
+
+    public CompletableFuture<Integer> deleteExpenses(int userId, Collection<Integer> expenseIds) {
+        if (writeQueue != null) {
+            return enqueue(() -> writeQueue.delete(userId, expenseIds));
+        }
+        return submit(() -> expenseDAO.deleteExpenses(userId, expenseIds));
+    }
+
+    public CompletableFuture<Integer> updateCategory(int userId, Collection<Integer> expenseIds, String category) {
+        return submit(() -> expenseDAO.updateCategory(userId, expenseIds, category));
+    }
+
+    public CompletableFuture<Integer> shiftDates(int userId, Collection<Integer> expenseIds, int days) {
+        return submit(() -> expenseDAO.shiftDates(userId, expenseIds, days));
+    }
+
+    public CompletableFuture<Long> getMonthlyTotal(int userId) {
+        return submit(() -> expenseDAO.getMonthlyTotal(userId));
+    }
+
+    public CompletableFuture<Long> getTodayTotal(int userId) {
+        return submit(() -> expenseDAO.getTodayTotal(userId));
+    }
+
+    public CompletableFuture<Long> getTotal(ExpenseQuery query) {
+        return submit(() -> expenseDAO.getTotal(query));
+    }
+
+    public CompletableFuture<Map<String, Long>> getCategoryTotals(int userId) {
+        return submit(() -> expenseDAO.getCategoryTotals(userId));
+    }
+
+    public CompletableFuture<Map<String, Long>> getTopCategories(ExpenseQuery query, int limit) {
+        return submit(() -> expenseDAO.getTopCategories(query, limit));
+    }
+
+    public CompletableFuture<List<Expense>> search(int userId, String text, int limit) {
+        return submit(() -> expenseDAO.search(userId, text, limit));
+    }
+
+    public CompletableFuture<List<Expense>> search(ExpenseQuery query, int limit, int offset) {
+        return submit(() -> expenseDAO.search(query, limit, offset));
+    }
+
+    public CompletableFuture<DashboardSummary> getDashboardSummary(int userId) {
+        return submit(() -> DashboardSummaryService.getInstance().getSummary(userId));
+    }
+
+    /**
+     * Get the wrapped synchronous DAO, for code that already runs off the EDT
+     * @return ExpenseDAO object
+     */
+    public ExpenseDAO getExpenseDAO() {
+        return expenseDAO;
+    }
+
+    private <T> CompletableFuture<T> submit(Supplier<T> work) {
+        return CompletableFuture.supplyAsync(work, DatabaseExecutor.get());
+    }
+
+    /**
+     * Add to the write queue from the database executor, since adding blocks while the queue is full
+     */
+    private <T> CompletableFuture<T> enqueue(Supplier<CompletableFuture<T>> write) {
+        return submit(write).thenCompose(Function.identity());
+    }
+}
@@ -0,0 +1,46 @@
+package dao;
+
+import model.User;
+import util.DatabaseExecutor;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+/**
+ * Asynchronous User Data Access Object
+ * Runs UserDAO operations on the database executor and returns futures
+ */
+public class AsyncUserDAO {
+    private final UserDAO userDAO;
+
+    public AsyncUserDAO() {
+        this(new UserDAO());
+    }
+
+    public AsyncUserDAO(UserDAO userDAO) {
+        this.userDAO = userDAO;
+    }
+
+    public CompletableFuture<Boolean> registerUser(User user) {
+        return submit(() -> userDAO.registerUser(user));
+    }
+
+    /**
+     * @return Future completing with the logged in user, or null if the credentials are wrong
+     */
+    public CompletableFuture<User> loginUser(String username, String password) {
+        return submit(() -> userDAO.loginUser(username, password));
+    }
+
+    public CompletableFuture<Boolean> usernameExists(String username) {
+        return submit(() -> userDAO.usernameExists(username));
+    }
+
+    public CompletableFuture<Boolean> emailExists(String email) {
+        return submit(() -> userDAO.emailExists(email));
+    }
+
+    private <T> CompletableFuture<T> submit(Supplier<T> work) {
+        return CompletableFuture.supplyAsync(work, DatabaseExecutor.get());
+    }
+}
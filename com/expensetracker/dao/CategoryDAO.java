@@ -0,0 +1,179 @@
+package dao;
+
+import metrics.MetricsRegistry;
+import metrics.OperationMetrics;
+import model.Category;
+import model.CategoryRegistry;
+import util.DatabaseUtil;
+import util.ShardRouter;
+
+import java.sql.*;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Category Data Access Object
+ * Handles all database operations for Category entity and keeps CategoryRegistry filled
+ */
+public class CategoryDAO {
+    private static final int CUSTOM_SORT_ORDER = 100;
+
+    // Resolves a name to the id of the built-in or the user's own category with that name
+    static final String CATEGORY_ID_SUBQUERY = "(SELECT category_id FROM categories " +
+            "WHERE name = ? AND (user_id IS NULL OR user_id = ?))";
+
+    private static final MetricsRegistry METRICS = MetricsRegistry.getInstance();
+    private static final OperationMetrics GET_CATEGORIES = METRICS.operation("CategoryDAO.getCategories");
+    private static final OperationMetrics ADD_CATEGORY = METRICS.operation("CategoryDAO.addCategory");
+
+    private final CategoryRegistry registry = CategoryRegistry.getInstance();
+
+    /**
+     * Get the categories a user can choose from, loading them once per user
+     * @param userId User ID
+     * @return Built-in categories followed by the user's custom ones
+     */
+    public List<Category> getCategories(int userId) {
+        if (registry.isLoaded(userId)) {
+            return registry.forUser(userId);
+        }
+
+        String sql = "SELECT * FROM categories WHERE user_id IS NULL OR user_id = ?";
+
+        try (OperationMetrics.Call call = GET_CATEGORIES.start();
+             Connection conn = DatabaseUtil.getConnection(userId);
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+            pstmt.setInt(1, userId);
+            ResultSet rs = pstmt.executeQuery();
+
+            while (rs.next()) {
+                registry.register(extractCategoryFromResultSet(rs));
+                call.rows(1);
+            }
+            registry.markLoaded(userId);
+
+        } catch (SQLException e) {
+            GET_CATEGORIES.failed(e);
+            System.err.println("Error getting categories: " + e.getMessage());
+        }
+
+        return registry.forUser(userId);
+    }
+
+    /**
+     * Add a custom category for a user. A name matching an existing category,
+     * ignoring case, returns that category instead.
+     * @param userId User ID
+     * @param name Category name
+     * @return Category object, or null if it could not be added
+     */
+    public Category addCategory(int userId, String name) {
+        if (name == null || name.isBlank()) {
+            return null;
+        }
+
+        try (OperationMetrics.Call call = ADD_CATEGORY.start();
+             Connection conn = DatabaseUtil.getConnection(userId)) {
+            call.rows(ensureCategories(conn, userId, List.of(name.trim())));
+            return registry.find(userId, name.trim());
+        } catch (SQLException e) {
+            ADD_CATEGORY.failed(e);
+            System.err.println("Error adding category: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Make sure every name is a category the user can see, creating custom categories
+     * for new names. Runs in its own transaction when the connection is in autocommit mode.
+     * @param conn Database connection
+     * @param userId User ID
+     * @param names Category names
+     * @return Number of categories created
+     */
+    int ensureCategories(Connection conn, int userId, Collection<String> names) throws SQLException {
+        String insert = "INSERT OR IGNORE INTO categories (category_id, user_id, name, sort_order) " +
+                "VALUES (" + ShardRouter.nextIdSql("categories") + ", ?, ?, ?)";
+        String select = "SELECT * FROM categories WHERE name = ? AND (user_id IS NULL OR user_id = ?)";
+        int created = 0;
+
+        for (String name : names) {
+            if (registry.find(userId, name) != null) {
+                continue;
+            }
+
+            Category category = findCategory(conn, select, userId, name);
+            if (category == null) {
+                try (PreparedStatement pstmt = conn.prepareStatement(insert)) {
+                    pstmt.setInt(1, userId);
+                    pstmt.setString(2, name);
+                    pstmt.setInt(3, CUSTOM_SORT_ORDER);
+                    created += pstmt.executeUpdate();
+                }
+                category = findCategory(conn, select, userId, name);
+            }
+            if (category != null) {
+                registry.register(category);
+            }
+        }
+        return created;
+    }
+
+    /**
+     * Get a category by id, from the registry or else the database
+     * @param conn Database connection
+     * @param categoryId Category ID
+     * @return Category object, or null if it does not exist
+     */
+    Category getCategory(Connection conn, int categoryId) throws SQLException {
+        Category cached = registry.get(categoryId);
+        if (cached != null) {
+            return cached;
+        }
+
+        try (PreparedStatement pstmt = conn.prepareStatement("SELECT * FROM categories WHERE category_id = ?")) {
+            pstmt.setInt(1, categoryId);
+            ResultSet rs = pstmt.executeQuery();
+            return rs.next() ? registry.register(extractCategoryFromResultSet(rs)) : null;
+        }
+    }
+
+    /**
+     * Get the name of a category by id
+     * @param conn Database connection
+     * @param categoryId Category ID
+     * @return Interned category name
+     */
+    String getCategoryName(Connection conn, int categoryId) throws SQLException {
+        Category category = getCategory(conn, categoryId);
+        if (category == null) {
+            throw new SQLException("Unknown category id " + categoryId);
+        }
+        return category.getName();
+    }
+
+    private Category findCategory(Connection conn, String sql, int userId, String name) throws SQLException {
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setString(1, name);
+            pstmt.setInt(2, userId);
+            ResultSet rs = pstmt.executeQuery();
+            return rs.next() ? extractCategoryFromResultSet(rs) : null;
+        }
+    }
+
+    /**
+     * Helper method to extract Category from ResultSet
+     */
+    private Category extractCategoryFromResultSet(ResultSet rs) throws SQLException {
+        // wasNull() refers to the last column read, so check it before reading the next one
+        int userId = rs.getInt("user_id");
+        Integer owner = rs.wasNull() ? null : userId;
+        return new Category(
+                rs.getInt("category_id"),
+                owner,
+                rs.getString("name"),
+                rs.getInt("sort_order")
+        );
+    }
+}
@@ -0,0 +1,194 @@
+package dao;
+
+import metrics.MetricsRegistry;
+import metrics.OperationMetrics;
+import model.DashboardSummary;
+import model.Expense;
+import util.DatabaseUtil;
+
+import java.sql.*;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Dashboard Summary Service
+ * Computes a user's dashboard figures in a single pass over their expenses and keeps
+ * them cached. Writes made through ExpenseDAO are applied to the cache as deltas, so
+ * refreshing the dashboard after an add, edit or delete does not touch the database.
+ * A load is cached only if no write of the user overlapped it, since it may already
+ * include a change whose event is still to come.
+ */
+public class DashboardSummaryService implements ExpenseChangeListener {
+    private static final DashboardSummaryService INSTANCE = new DashboardSummaryService();
+
+    static {
+        ExpenseEventBus.getInstance().subscribe(INSTANCE);
+    }
+
+    private static final MetricsRegistry METRICS = MetricsRegistry.getInstance();
+    private static final OperationMetrics LOAD_SUMMARY = METRICS.operation("DashboardSummaryService.load");
+
+    private final CategoryDAO categoryDAO = new CategoryDAO();
+    private final ExpenseEventBus events = ExpenseEventBus.getInstance();
+    // Installed and updated only through compute(), so a load and an event never interleave
+    private final Map<Integer, Aggregate> cache = new ConcurrentHashMap<>();
+
+    private DashboardSummaryService() {}
+
+    public static DashboardSummaryService getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Get the dashboard summary of a user for today
+     * @param userId User ID
+     * @return DashboardSummary object
+     */
+    public DashboardSummary getSummary(int userId) {
+        LocalDate today = LocalDate.now();
+        Aggregate aggregate = cache.get(userId);
+
+        // Monthly and daily buckets are relative to today, so a new day starts from scratch
+        if (aggregate == null || !aggregate.asOf.equals(today)) {
+            long stamp = events.writeStamp(userId);
+            Aggregate loaded = load(userId, today);
+            if (loaded == null) {
+                return new DashboardSummary(today, 0, 0, new TreeMap<>());
+            }
+            // Otherwise answer from what was read, and load again next time
+            cache.compute(userId, (id, cached) -> events.isUnchangedSince(userId, stamp) ? loaded : cached);
+            aggregate = loaded;
+        }
+
+        return aggregate.snapshot();
+    }
+
+    /**
+     * Get the dashboard summary of a user only if it can be answered from memory
+     * @param userId User ID
+     * @return DashboardSummary object, or null if it would need a database read
+     */
+    public DashboardSummary getCachedSummary(int userId) {
+        Aggregate aggregate = cache.get(userId);
+        return aggregate != null && aggregate.asOf.equals(LocalDate.now()) ? aggregate.snapshot() : null;
+    }
+
+    /**
+     * Drop a user's cached summary, e.g. after changes made outside ExpenseDAO
+     * @param userId User ID
+     */
+    public void invalidate(int userId) {
+        cache.remove(userId);
+    }
+
+    @Override
+    public void expenseAdded(Expense expense) {
+        apply(expense, 1);
+    }
+
+    @Override
+    public void expenseUpdated(Expense before, Expense after) {
+        apply(before, -1);
+        apply(after, 1);
+    }
+
+    @Override
+    public void expenseDeleted(Expense expense) {
+        apply(expense, -1);
+    }
+
+    private void apply(Expense expense, int sign) {
+        cache.computeIfPresent(expense.getUserId(), (id, aggregate) -> {
+            aggregate.apply(expense, sign);
+            return aggregate;
+        });
+    }
+
+    /**
+     * Compute all dashboard figures from the monthly rollups plus today's rows,
+     * so the cost follows months x categories rather than the length of the history
+     */
+    private Aggregate load(int userId, LocalDate today) {
+        String rollupSql = "SELECT category_id, SUM(count) AS row_count, SUM(total) AS total, " +
+                "SUM(CASE WHEN year_month = ? THEN total ELSE 0 END) AS month_total " +
+                "FROM expense_rollups WHERE user_id = ? GROUP BY category_id";
+        String todaySql = "SELECT SUM(amount_minor) FROM expenses WHERE user_id = ? AND expense_date = ?";
+
+        try (OperationMetrics.Call call = LOAD_SUMMARY.start();
+             Connection conn = DatabaseUtil.getConnection(userId);
+             PreparedStatement rollupStmt = conn.prepareStatement(rollupSql);
+             PreparedStatement todayStmt = conn.prepareStatement(todaySql)) {
+
+            Aggregate aggregate = new Aggregate(today);
+
+            rollupStmt.setString(1, YearMonth.from(today).toString());
+            rollupStmt.setInt(2, userId);
+            ResultSet rs = rollupStmt.executeQuery();
+            while (rs.next()) {
+                String category = categoryDAO.getCategoryName(conn, rs.getInt("category_id"));
+                aggregate.categoryTotals.put(category, rs.getLong("total"));
+                aggregate.categoryCounts.put(category, rs.getInt("row_count"));
+                aggregate.monthlyTotal += rs.getLong("month_total");
+                call.rows(1);
+            }
+
+            todayStmt.setInt(1, userId);
+            todayStmt.setString(2, today.toString());
+            ResultSet todayRs = todayStmt.executeQuery();
+            if (todayRs.next()) {
+                aggregate.todayTotal = todayRs.getLong(1);
+            }
+            return aggregate;
+
+        } catch (SQLException e) {
+            LOAD_SUMMARY.failed(e);
+            System.err.println("Error loading dashboard summary: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Mutable running totals of one user, guarded by its own monitor
+     */
+    private static class Aggregate {
+        private final LocalDate asOf;
+        private final YearMonth month;
+        private long monthlyTotal;
+        private long todayTotal;
+        private final Map<String, Long> categoryTotals = new TreeMap<>();
+        private final Map<String, Integer> categoryCounts = new TreeMap<>();
+
+        private Aggregate(LocalDate asOf) {
+            this.asOf = asOf;
+            this.month = YearMonth.from(asOf);
+        }
+
+        private synchronized void apply(Expense expense, int sign) {
+            long amount = sign * expense.getAmount();
+            String category = expense.getCategory();
+
+            int count = categoryCounts.getOrDefault(category, 0) + sign;
+            if (count <= 0) {
+                categoryCounts.remove(category);
+                categoryTotals.remove(category);
+            } else {
+                categoryCounts.put(category, count);
+                categoryTotals.merge(category, amount, Long::sum);
+            }
+
+            if (YearMonth.from(expense.getExpenseDate()).equals(month)) {
+                monthlyTotal += amount;
+            }
+            if (expense.getExpenseDate().equals(asOf)) {
+                todayTotal += amount;
+            }
+        }
+
+        private synchronized DashboardSummary snapshot() {
+            return new DashboardSummary(asOf, monthlyTotal, todayTotal, new TreeMap<>(categoryTotals));
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package dao;
+
+import model.Expense;
+
+import java.util.List;
+
+/**
+ * Expense Change Listener
+ * Subscribed to the ExpenseEventBus and notified after a write has been committed, with
+ * enough detail to apply the change as a delta instead of re-reading the database
+ */
+public interface ExpenseChangeListener {
+
+    void expenseAdded(Expense expense);
+
+    /**
+     * @param before Expense as stored before the update
+     * @param after Expense as stored after the update
+     */
+    void expenseUpdated(Expense before, Expense after);
+
+    void expenseDeleted(Expense expense);
+
+    /**
+     * Called once per committed write with all of its changes, e.g. a chunk of a bulk insert
+     * or a multi-row delete. Hands each change to the methods above; override it to apply
+     * a burst as a whole.
+     * @param events Changes in the order they were made
+     */
+    default void expensesChanged(List<ExpenseEvent> events) {
+        for (ExpenseEvent event : events) {
+            switch (event.getType()) {
+                case ADDED:
+                    expenseAdded(event.getAfter());
+                    break;
+                case UPDATED:
+                    expenseUpdated(event.getBefore(), event.getAfter());
+                    break;
+                case DELETED:
+                    expenseDeleted(event.getBefore());
+                    break;
+                default:
+                    break;
+            }
+        }
+    }
+}
@@ -1,46 +1,424 @@
 package dao;
 
+import analytics.ColumnarExpenseStore;
+import analytics.ExpenseColumns;
+import metrics.MetricsRegistry;
+import metrics.OperationMetrics;
+import model.BatchResult;
+import model.Category;
+import model.CategoryRegistry;
 import model.Expense;
+import model.ExpenseCursor;
+import model.ExpensePage;
 import util.DatabaseUtil;
+import util.ShardRouter;
 
+import java.io.IOException;
 import java.sql.*;
 import java.time.LocalDate;
+import java.time.YearMonth;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
 /**
  * Expense Data Access Object
  * Handles all database operations for Expense entity
  */
 public class ExpenseDAO {
+    public static final int DEFAULT_BATCH_SIZE = 500;
+
+    // Ids come from the shard's own id block, see ShardRouter.nextIdSql()
+    private static final String INSERT_SQL =
+            "INSERT INTO expenses (expense_id, user_id, title, amount_minor, category_id, expense_date, description) " +
+            "VALUES (" + ShardRouter.nextIdSql("expenses") + ", ?, ?, ?, " + CategoryDAO.CATEGORY_ID_SUBQUERY + ", ?, ?)";
+
+    // Scoped to the owner as well as the id, so one user can never load another's expense
+    static final String FIND_BY_ID_SQL = "SELECT * FROM expenses WHERE expense_id = ? AND user_id = ?";
+
+    // Id sets are bound as one JSON array, so a batch of any size is a single statement with fixed text
+    private static final String ID_SET_PREDICATE = "user_id = ? AND expense_id IN (SELECT value FROM json_each(?))";
+
+    // Read path SQL for every query shape, built once so repeated calls reuse the same text
+    // and therefore the same cached prepared statement (see ExpenseQuery.shape())
+    private static final String[] SELECT_SQL = forEachShape(where ->
+            "SELECT * FROM expenses WHERE " + where + " ORDER BY expense_date DESC");
+    private static final String[] TOTAL_SQL = forEachShape(where ->
+            "SELECT SUM(amount_minor) FROM expenses WHERE " + where);
+    // Keyset paging, per listing order and then per shape (see ExpenseOrder)
+    private static final String[][] PAGE_SQL = forEachOrder((order, where) ->
+            "SELECT * FROM expenses WHERE " + where +
+            " ORDER BY " + order.orderBy("") + " LIMIT ?");
+    private static final String[][] PAGE_AFTER_SQL = forEachOrder((order, where) ->
+            "SELECT * FROM expenses WHERE " + where + order.cursorPredicate() +
+            " ORDER BY " + order.orderBy("") + " LIMIT ?");
+    private static final String[][] PAGE_END_SQL = forEachOrder((order, where) ->
+            "SELECT " + order.keyColumn() + ", expense_id FROM expenses WHERE " + where +
+            " ORDER BY " + order.orderBy("") + " LIMIT 1 OFFSET ?");
+    private static final String[][] PAGE_END_AFTER_SQL = forEachOrder((order, where) ->
+            "SELECT " + order.keyColumn() + ", expense_id FROM expenses WHERE " + where + order.cursorPredicate() +
+            " ORDER BY " + order.orderBy("") + " LIMIT 1 OFFSET ?");
+    private static final String[] COUNT_SQL = forEachShape(where ->
+            "SELECT COUNT(*) FROM expenses WHERE " + where);
+    private static final String[] CATEGORY_TOTALS_SQL = forEachShape(where ->
+            "SELECT category_id, SUM(amount_minor) as total FROM expenses WHERE " + where + " GROUP BY category_id");
+
+    private static final String[] TOP_CATEGORIES_SQL = forEachShape(where ->
+            "SELECT category_id, SUM(amount_minor) as total FROM expenses WHERE " + where +
+            " GROUP BY category_id ORDER BY total DESC, category_id LIMIT ?");
+
+    // Oldest first, in idx_expenses_user_date order (the index ends in the rowid), so streaming needs no sort
+    private static final String[] STREAM_SQL = forEachShape(where ->
+            "SELECT * FROM expenses WHERE " + where + " ORDER BY expense_date, expense_id");
+
+    // Aggregates over whole months read the trigger-maintained expense_rollups table instead, so they
+    // cost one row per month and category rather than one per expense (see ExpenseQuery.isMonthAligned())
+    private static final String[] ROLLUP_TOTAL_SQL = forEachRollupShape(where ->
+            "SELECT SUM(total) FROM expense_rollups WHERE " + where);
+    private static final String[] ROLLUP_COUNT_SQL = forEachRollupShape(where ->
+            "SELECT IFNULL(SUM(count), 0) FROM expense_rollups WHERE " + where);
+    private static final String[] ROLLUP_CATEGORY_TOTALS_SQL = forEachRollupShape(where ->
+            "SELECT category_id, SUM(total) as total FROM expense_rollups WHERE " + where +
+            " GROUP BY category_id");
+    private static final String[] ROLLUP_TOP_CATEGORIES_SQL = forEachRollupShape(where ->
+            "SELECT category_id, SUM(total) as total FROM expense_rollups WHERE " + where +
+            " GROUP BY category_id ORDER BY total DESC, category_id LIMIT ?");
+
+    // Ranked search starts from the full-text index and joins each hit to its row by primary key;
+    // CROSS JOIN pins that order and NOT INDEXED keeps the join on the primary key, so each hit costs
+    // one row lookup instead of an index range scan.
+    // Title hits weigh ten times description hits; ties fall back to newest first.
+    private static final String[] SEARCH_SQL = buildSearchSql(
+            "bm25(expenses_fts, 10.0, 1.0), expense_date DESC, expense_id DESC");
+    // Searches sorted by a column instead, per ExpenseOrder and then per shape
+    private static final String[][] ORDERED_SEARCH_SQL = new String[ExpenseOrder.values().length][];
+
+    static {
+        for (ExpenseOrder order : ExpenseOrder.values()) {
+            ORDERED_SEARCH_SQL[order.ordinal()] = buildSearchSql(order.orderBy("expenses."));
+        }
+    }
+
+    private static final MetricsRegistry METRICS = MetricsRegistry.getInstance();
+    private static final OperationMetrics ADD_EXPENSE = METRICS.operation("ExpenseDAO.addExpense");
+    private static final OperationMetrics ADD_EXPENSES = METRICS.operation("ExpenseDAO.addExpenses");
+    private static final OperationMetrics FIND_BY_ID = METRICS.operation("ExpenseDAO.findById");
+    private static final OperationMetrics FIND_EXPENSES = METRICS.operation("ExpenseDAO.findExpenses");
+    private static final OperationMetrics STREAM_EXPENSES = METRICS.operation("ExpenseDAO.streamExpenses");
+    private static final OperationMetrics GET_EXPENSE_PAGE = METRICS.operation("ExpenseDAO.getExpensePage");
+    private static final OperationMetrics FIND_PAGE_END = METRICS.operation("ExpenseDAO.findPageEnd");
+    private static final OperationMetrics COUNT_EXPENSES = METRICS.operation("ExpenseDAO.countExpenses");
+    private static final OperationMetrics UPDATE_EXPENSE = METRICS.operation("ExpenseDAO.updateExpense");
+    private static final OperationMetrics DELETE_EXPENSE = METRICS.operation("ExpenseDAO.deleteExpense");
+    private static final OperationMetrics DELETE_EXPENSES = METRICS.operation("ExpenseDAO.deleteExpenses");
+    private static final OperationMetrics UPDATE_CATEGORY = METRICS.operation("ExpenseDAO.updateCategory");
+    private static final OperationMetrics SHIFT_DATES = METRICS.operation("ExpenseDAO.shiftDates");
+    private static final OperationMetrics GET_TOTAL = METRICS.operation("ExpenseDAO.getTotal");
+    private static final OperationMetrics GET_CATEGORY_TOTALS = METRICS.operation("ExpenseDAO.getCategoryTotals");
+    private static final OperationMetrics GET_TOP_CATEGORIES = METRICS.operation("ExpenseDAO.getTopCategories");
+    private static final OperationMetrics SEARCH = METRICS.operation("ExpenseDAO.search");
+
+    private static final ExpenseEventBus EVENTS = ExpenseEventBus.getInstance();
+
+    private final CategoryDAO categoryDAO = new CategoryDAO();
+
 
     /**
-     * Add a new expense
+     * Add a new expense. On success the generated id is set on the expense.
      * @param expense Expense object
      * @return true if successful
      */
     public boolean addExpense(Expense expense) {
-        String sql = "INSERT INTO expenses (user_id, title, amount, category, expense_date, description) " +
-                "VALUES (?, ?, ?, ?, ?, ?)";
-
-        try (Connection conn = DatabaseUtil.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+        EVENTS.beginWrite(expense.getUserId());
+        try (OperationMetrics.Call call = ADD_EXPENSE.start();
+             Connection conn = DatabaseUtil.getConnection(expense.getUserId())) {
 
-            pstmt.setInt(1, expense.getUserId());
-            pstmt.setString(2, expense.getTitle());
-            pstmt.setDouble(3, expense.getAmount());
-            pstmt.setString(4, expense.getCategory());
-            pstmt.setString(5, expense.getExpenseDate().toString());
-            pstmt.setString(6, expense.getDescription());
-
-            int rowsAffected = pstmt.executeUpdate();
-            return rowsAffected > 0;
+            ensureCategory(conn, expense);
+            ExpenseEvent event = insert(conn, expense);
+            if (event == null) {
+                return false;
+            }
+            call.rows(1);
+            EVENTS.publish(List.of(event));
+            return true;
 
         } catch (SQLException e) {
+            ADD_EXPENSE.failed(e);
             System.err.println("Error adding expense: " + e.getMessage());
             return false;
+        } finally {
+            EVENTS.endWrite(expense.getUserId());
+        }
+    }
+
+    /**
+     * Add many expenses using the default chunk size
+     * @param expenses Expenses to add, consumed once in order
+     * @return BatchResult with per-row failures
+     */
+    public BatchResult addExpenses(Iterable<Expense> expenses) {
+        return addExpenses(expenses, DEFAULT_BATCH_SIZE);
+    }
+
+    /**
+     * Add many expenses with JDBC batching, committing one transaction per chunk.
+     * The input is consumed as a stream, so at most one chunk is held in memory.
+     * A row that fails validation or violates a constraint is reported and skipped
+     * without failing the rest of its chunk.
+     * Expenses of users on different shards may be mixed; a chunk ends wherever the shard changes.
+     * @param expenses Expenses to add, consumed once in order
+     * @param chunkSize Rows per transaction
+     * @return BatchResult with per-row failures
+     */
+    public BatchResult addExpenses(Iterable<Expense> expenses, int chunkSize) {
+        if (chunkSize < 1) {
+            throw new IllegalArgumentException("Chunk size must be at least 1");
         }
+
+        BatchResult result = new BatchResult();
+        List<Expense> chunk = new ArrayList<>(chunkSize);
+        Iterator<Expense> rows = expenses.iterator();
+        int chunkStart = 0;
+        int index = 0;
+        ShardRouter router = DatabaseUtil.getShardRouter();
+        int shard = -1;
+        Connection conn = null;
+        PreparedStatement pstmt = null;
+
+        try (OperationMetrics.Call call = ADD_EXPENSES.start()) {
+            try {
+                while (rows.hasNext()) {
+                    Expense expense = rows.next();
+                    String problem = validate(expense);
+                    if (problem != null) {
+                        result.addFailure(index++, problem);
+                        continue;
+                    }
+
+                    int expenseShard = router.shardOf(expense.getUserId());
+                    if (expenseShard != shard) {
+                        if (conn != null) {
+                            flushChunk(conn, pstmt, chunk, chunkStart, result);
+                            pstmt.close();
+                            pstmt = null;
+                            conn.close();
+                            conn = null;
+                        }
+                        conn = router.getPool(expenseShard).getConnection();
+                        conn.setAutoCommit(false);
+                        pstmt = conn.prepareStatement(INSERT_SQL, Statement.RETURN_GENERATED_KEYS);
+                        shard = expenseShard;
+                    }
+
+                    if (chunk.isEmpty()) {
+                        chunkStart = index;
+                    }
+                    chunk.add(expense);
+                    index++;
+
+                    if (chunk.size() == chunkSize) {
+                        flushChunk(conn, pstmt, chunk, chunkStart, result);
+                    }
+                }
+                if (conn != null) {
+                    flushChunk(conn, pstmt, chunk, chunkStart, result);
+                }
+                call.rows(result.getSuccessCount());
+            } finally {
+                if (pstmt != null) {
+                    pstmt.close();
+                }
+                if (conn != null) {
+                    conn.close();
+                }
+            }
+
+        } catch (SQLException e) {
+            // No connection to write with: report the pending chunk and every row not read yet
+            ADD_EXPENSES.failed(e);
+            System.err.println("Error adding expenses: " + e.getMessage());
+            for (int i = 0; i < chunk.size(); i++) {
+                result.addFailure(chunkStart + i, e.getMessage());
+            }
+            index = Math.max(index, chunkStart + chunk.size());
+            while (rows.hasNext()) {
+                rows.next();
+                result.addFailure(index++, e.getMessage());
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Write one chunk in a single transaction. If the batch fails, the chunk is rolled
+     * back and retried row by row so only the offending rows are rejected. If the chunk
+     * cannot be written at all, e.g. the commit fails, all its rows are reported and the
+     * caller goes on with the next chunk.
+     * @param conn Connection with autocommit off, as addExpenses() opens it, so each commit
+     *             below ends exactly the work of this chunk
+     */
+    private void flushChunk(Connection conn, PreparedStatement pstmt, List<Expense> chunk,
+                            int chunkStart, BatchResult result) {
+        if (chunk.isEmpty()) {
+            return;
+        }
+
+        Set<Integer> users = new HashSet<>();
+        for (Expense expense : chunk) {
+            users.add(expense.getUserId());
+        }
+        users.forEach(EVENTS::beginWrite);
+        try {
+            List<Expense> added = new ArrayList<>(chunk.size());
+            // Row errors are only reported once the rest of the chunk is committed
+            Map<Integer, String> rowErrors = new LinkedHashMap<>();
+            try {
+                // New category names are committed first, so a rolled back batch cannot take them along
+                for (Expense expense : chunk) {
+                    categoryDAO.ensureCategories(conn, expense.getUserId(), List.of(expense.getCategory()));
+                }
+                conn.commit();
+
+                try {
+                    for (Expense expense : chunk) {
+                        bindInsert(pstmt, expense);
+                        pstmt.addBatch();
+                    }
+                    pstmt.executeBatch();
+
+                    // The chunk was written by this connection inside one write transaction, so
+                    // the id counter handed out consecutive ids ending at last_insert_rowid()
+                    int lastId = lastInsertId(conn);
+                    for (int i = 0; i < chunk.size(); i++) {
+                        Expense expense = chunk.get(i);
+                        expense.setExpenseId(lastId - chunk.size() + 1 + i);
+                        added.add(expense);
+                    }
+                    conn.commit();
+
+                } catch (SQLException e) {
+                    conn.rollback();
+                    pstmt.clearBatch();
+                    added.clear();
+
+                    for (int i = 0; i < chunk.size(); i++) {
+                        Expense expense = chunk.get(i);
+                        expense.setExpenseId(0);
+                        try {
+                            bindInsert(pstmt, expense);
+                            pstmt.executeUpdate();
+                            ResultSet keys = pstmt.getGeneratedKeys();
+                            if (keys.next()) {
+                                expense.setExpenseId(keys.getInt(1));
+                            }
+                            added.add(expense);
+                        } catch (SQLException rowError) {
+                            rowErrors.put(i, rowError.getMessage());
+                        }
+                    }
+                    conn.commit();
+                }
+
+            } catch (SQLException e) {
+                ADD_EXPENSES.failed(e);
+                System.err.println("Error adding a chunk of expenses: " + e.getMessage());
+                rollback(conn);
+                added.clear();
+                for (int i = 0; i < chunk.size(); i++) {
+                    chunk.get(i).setExpenseId(0);
+                    rowErrors.putIfAbsent(i, e.getMessage());
+                }
+            }
+
+            for (Map.Entry<Integer, String> error : rowErrors.entrySet()) {
+                result.addFailure(chunkStart + error.getKey(), error.getValue());
+            }
+            result.addSuccesses(added.size());
+            chunk.clear();
+
+            List<ExpenseEvent> events = new ArrayList<>(added.size());
+            for (Expense expense : added) {
+                events.add(ExpenseEvent.added(expense));
+            }
+            EVENTS.publish(events);
+        } finally {
+            users.forEach(EVENTS::endWrite);
+        }
+    }
+
+    private void rollback(Connection conn) {
+        try {
+            conn.rollback();
+        } catch (SQLException e) {
+            System.err.println("Error rolling back expenses: " + e.getMessage());
+        }
+    }
+
+    private int lastInsertId(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT last_insert_rowid()")) {
+            return rs.next() ? rs.getInt(1) : 0;
+        }
+    }
+
+    /**
+     * Check the fields the expenses table requires
+     * @return Problem description, or null if the expense can be inserted
+     */
+    private String validate(Expense expense) {
+        if (expense == null) {
+            return "Missing expense";
+        }
+        if (expense.getTitle() == null || expense.getTitle().isBlank()) {
+            return "Missing title";
+        }
+        if (expense.getCategory() == null || expense.getCategory().isBlank()) {
+            return "Missing category";
+        }
+        if (expense.getExpenseDate() == null) {
+            return "Missing date";
+        }
+        if (!(expense.getAmount() > 0)) {
+            return "Amount must be positive";
+        }
+        return null;
+    }
+
+    /**
+     * Get one expense by id
+     * @param userId User ID of the owner, so one user can never load another's expense
+     * @param expenseId Expense ID
+     * @return Expense object, or null if it does not exist
+     */
+    public Expense findById(int userId, int expenseId) {
+        try (OperationMetrics.Call call = FIND_BY_ID.start();
+             Connection conn = DatabaseUtil.getConnection(userId);
+             PreparedStatement pstmt = conn.prepareStatement(FIND_BY_ID_SQL)) {
+
+            pstmt.setInt(1, expenseId);
+            pstmt.setInt(2, userId);
+            ResultSet rs = pstmt.executeQuery();
+
+            if (rs.next()) {
+                call.rows(1);
+                return extractExpenseFromResultSet(conn, rs);
+            }
+
+        } catch (SQLException e) {
+            FIND_BY_ID.failed(e);
+            System.err.println("Error finding expense: " + e.getMessage());
+        }
+
+        return null;
     }
 
     /**
@@ -49,151 +427,466 @@ public class ExpenseDAO {
      * @return List of expenses
      */
     public List<Expense> getAllExpenses(int userId) {
+        return findExpenses(ExpenseQuery.forUser(userId));
+    }
+
+    /**
+     * Get the expenses matching a query, newest first
+     * @param query Expense query
+     * @return List of expenses
+     */
+    public List<Expense> findExpenses(ExpenseQuery query) {
         List<Expense> expenses = new ArrayList<>();
-        String sql = "SELECT * FROM expenses WHERE user_id = ? ORDER BY expense_date DESC";
 
-        try (Connection conn = DatabaseUtil.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+        try (OperationMetrics.Call call = FIND_EXPENSES.start();
+             Connection conn = DatabaseUtil.getConnection(query.getUserId());
+             PreparedStatement pstmt = conn.prepareStatement(selectSql(query))) {
 
-            pstmt.setInt(1, userId);
+            query.bind(pstmt, 1);
             ResultSet rs = pstmt.executeQuery();
 
             while (rs.next()) {
-                Expense expense = extractExpenseFromResultSet(rs);
+                Expense expense = extractExpenseFromResultSet(conn, rs);
                 expenses.add(expense);
             }
+            call.rows(expenses.size());
 
         } catch (SQLException e) {
+            FIND_EXPENSES.failed(e);
             System.err.println("Error getting expenses: " + e.getMessage());
         }
 
         return expenses;
     }
 
+    /**
+     * Stream the expenses matching a query to a handler, oldest first, without collecting them.
+     * Rows are read from a forward-only cursor, so memory use does not grow with the result.
+     * Unlike the other read methods, failures are thrown: a half-finished stream must not
+     * look like a complete one.
+     * @param query Expense query
+     * @param fetchSize Rows the driver may read ahead per round trip
+     * @param handler Receives each expense; returning false stops the stream
+     * @return Number of expenses handed to the handler
+     */
+    public long streamExpenses(ExpenseQuery query, int fetchSize, ExpenseHandler handler)
+            throws SQLException, IOException {
+        long count = 0;
+
+        try (OperationMetrics.Call call = STREAM_EXPENSES.start();
+             Connection conn = DatabaseUtil.getConnection(query.getUserId());
+             PreparedStatement pstmt = conn.prepareStatement(streamSql(query),
+                     ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+
+            query.bind(pstmt, 1);
+            pstmt.setFetchSize(fetchSize);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    if (!handler.handle(extractExpenseFromResultSet(conn, rs))) {
+                        break;
+                    }
+                    count++;
+                }
+            }
+            call.rows(count);
+        } catch (SQLException | IOException | RuntimeException e) {
+            STREAM_EXPENSES.failed(e);
+            throw e;
+        }
+
+        return count;
+    }
+
+    /**
+     * Get one page of the expenses matching a query, newest first unless the query picks
+     * another order. Pages are addressed by keyset on (sort key, expense_id) rather than
+     * OFFSET, so fetching a deep page costs the same as fetching the first one.
+     * @param query Expense query
+     * @param after Cursor returned with the previous page, or null for the first page
+     * @param limit Maximum number of expenses in the page
+     * @return ExpensePage object
+     */
+    public ExpensePage getExpensePage(ExpenseQuery query, ExpenseCursor after, int limit) {
+        List<Expense> expenses = new ArrayList<>(limit);
+        boolean hasMore = false;
+
+        try (OperationMetrics.Call call = GET_EXPENSE_PAGE.start();
+             Connection conn = DatabaseUtil.getConnection(query.getUserId());
+             PreparedStatement pstmt = conn.prepareStatement(pageSql(query, after != null))) {
+
+            int paramIndex = query.bind(pstmt, 1);
+            paramIndex = bindCursor(pstmt, paramIndex, after);
+            // Read one extra row to learn whether another page follows
+            pstmt.setInt(paramIndex, limit + 1);
+            ResultSet rs = pstmt.executeQuery();
+
+            while (rs.next()) {
+                if (expenses.size() == limit) {
+                    hasMore = true;
+                    break;
+                }
+                expenses.add(extractExpenseFromResultSet(conn, rs));
+            }
+            call.rows(expenses.size());
+
+        } catch (SQLException e) {
+            GET_EXPENSE_PAGE.failed(e);
+            System.err.println("Error getting expense page: " + e.getMessage());
+        }
+
+        ExpenseCursor next = hasMore ? query.getListingOrder().cursorAfter(expenses.get(expenses.size() - 1)) : null;
+        return new ExpensePage(expenses, next);
+    }
+
+    /**
+     * Find the cursor that ends a run of rows starting after a given cursor, without
+     * loading the rows. One OFFSET over index entries only, so a caller can seek any
+     * number of pages ahead in a single query.
+     * @param query Expense query
+     * @param after Cursor the run starts after, or null for the top of the listing
+     * @param rows Number of expenses in the run, e.g. a page size times the pages to skip
+     * @return Cursor of the last expense in the run, or null if fewer rows remain
+     */
+    public ExpenseCursor findPageEnd(ExpenseQuery query, ExpenseCursor after, int rows) {
+        try (OperationMetrics.Call call = FIND_PAGE_END.start();
+             Connection conn = DatabaseUtil.getConnection(query.getUserId());
+             PreparedStatement pstmt = conn.prepareStatement(pageEndSql(query, after != null))) {
+
+            int paramIndex = query.bind(pstmt, 1);
+            paramIndex = bindCursor(pstmt, paramIndex, after);
+            pstmt.setInt(paramIndex, rows - 1);
+            ResultSet rs = pstmt.executeQuery();
+
+            if (rs.next()) {
+                call.rows(1);
+                return query.getListingOrder().readCursor(rs);
+            }
+
+        } catch (SQLException e) {
+            FIND_PAGE_END.failed(e);
+            System.err.println("Error finding page end: " + e.getMessage());
+        }
+
+        return null;
+    }
+
+    /**
+     * Count the expenses matching a query
+     * @param query Expense query
+     * @return Number of expenses
+     */
+    public int countExpenses(ExpenseQuery query) {
+        ExpenseColumns columns = ColumnarExpenseStore.columnsIfEnabled(query);
+        if (columns != null) {
+            // Timed like the SQL path, so the operation's metrics cover every call
+            try (OperationMetrics.Call call = COUNT_EXPENSES.start()) {
+                call.rows(1);
+                return columns.count(query);
+            }
+        }
+
+        try (OperationMetrics.Call call = COUNT_EXPENSES.start();
+             Connection conn = DatabaseUtil.getConnection(query.getUserId());
+             PreparedStatement pstmt = conn.prepareStatement(countSql(query))) {
+
+            query.bind(pstmt, 1);
+            ResultSet rs = pstmt.executeQuery();
+
+            if (rs.next()) {
+                call.rows(1);
+                return rs.getInt(1);
+            }
+
+        } catch (SQLException e) {
+            COUNT_EXPENSES.failed(e);
+            System.err.println("Error counting expenses: " + e.getMessage());
+        }
+
+        return 0;
+    }
+
     /**
      * Update an existing expense
      * @param expense Expense object with updated data
      * @return true if successful
      */
     public boolean updateExpense(Expense expense) {
-        String sql = "UPDATE expenses SET title = ?, amount = ?, category = ?, " +
-                "expense_date = ?, description = ? WHERE expense_id = ?";
+        EVENTS.beginWrite(expense.getUserId());
+        try (OperationMetrics.Call call = UPDATE_EXPENSE.start();
+             Connection conn = DatabaseUtil.getConnection(expense.getUserId())) {
+            ensureCategory(conn, expense);
+            conn.setAutoCommit(false);
 
-        try (Connection conn = DatabaseUtil.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
-
-            pstmt.setString(1, expense.getTitle());
-            pstmt.setDouble(2, expense.getAmount());
-            pstmt.setString(3, expense.getCategory());
-            pstmt.setString(4, expense.getExpenseDate().toString());
-            pstmt.setString(5, expense.getDescription());
-            pstmt.setInt(6, expense.getExpenseId());
+            ExpenseEvent event = update(conn, expense);
+            if (event == null) {
+                return false;
+            }
+            conn.commit();
+            call.rows(1);
 
-            int rowsAffected = pstmt.executeUpdate();
-            return rowsAffected > 0;
+            EVENTS.publish(List.of(event));
+            return true;
 
         } catch (SQLException e) {
+            UPDATE_EXPENSE.failed(e);
             System.err.println("Error updating expense: " + e.getMessage());
             return false;
+        } finally {
+            EVENTS.endWrite(expense.getUserId());
         }
     }
 
     /**
      * Delete an expense
+     * @param userId User ID of the owner, which also picks the shard the expense lives on
      * @param expenseId Expense ID
      * @return true if successful
      */
-    public boolean deleteExpense(int expenseId) {
-        String sql = "DELETE FROM expenses WHERE expense_id = ?";
+    public boolean deleteExpense(int userId, int expenseId) {
+        EVENTS.beginWrite(userId);
+        try (OperationMetrics.Call call = DELETE_EXPENSE.start();
+             Connection conn = DatabaseUtil.getConnection(userId)) {
+            conn.setAutoCommit(false);
 
-        try (Connection conn = DatabaseUtil.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            List<ExpenseEvent> events = delete(conn, userId, List.of(expenseId));
+            if (events.isEmpty()) {
+                return false;
+            }
+            conn.commit();
+            call.rows(events.size());
 
-            pstmt.setInt(1, expenseId);
-            int rowsAffected = pstmt.executeUpdate();
-            return rowsAffected > 0;
+            EVENTS.publish(events);
+            return true;
 
         } catch (SQLException e) {
+            DELETE_EXPENSE.failed(e);
             System.err.println("Error deleting expense: " + e.getMessage());
             return false;
+        } finally {
+            EVENTS.endWrite(userId);
         }
     }
 
     /**
-     * Get total expenses for current month
-     * @param userId User ID
-     * @return Total amount
+     * Delete many expenses of a user in one transaction
+     * @param userId User ID; ids of other users' expenses are ignored
+     * @param expenseIds Expense IDs
+     * @return Number of expenses deleted, 0 if the transaction failed
      */
-    public double getMonthlyTotal(int userId) {
-        LocalDate now = LocalDate.now();
-        String sql = "SELECT SUM(amount) FROM expenses WHERE user_id = ? " +
-                "AND strftime('%Y-%m', expense_date) = ?";
+    public int deleteExpenses(int userId, Collection<Integer> expenseIds) {
+        if (expenseIds.isEmpty()) {
+            return 0;
+        }
 
-        try (Connection conn = DatabaseUtil.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+        EVENTS.beginWrite(userId);
+        try (OperationMetrics.Call call = DELETE_EXPENSES.start();
+             Connection conn = DatabaseUtil.getConnection(userId)) {
+            conn.setAutoCommit(false);
 
-            pstmt.setInt(1, userId);
-            pstmt.setString(2, String.format("%04d-%02d", now.getYear(), now.getMonthValue()));
-            ResultSet rs = pstmt.executeQuery();
+            List<ExpenseEvent> events = delete(conn, userId, expenseIds);
+            conn.commit();
+            call.rows(events.size());
 
-            if (rs.next()) {
-                return rs.getDouble(1);
+            EVENTS.publish(events);
+            return events.size();
+
+        } catch (SQLException e) {
+            DELETE_EXPENSES.failed(e);
+            System.err.println("Error deleting expenses: " + e.getMessage());
+            return 0;
+        } finally {
+            EVENTS.endWrite(userId);
+        }
+    }
+
+    /**
+     * Move many expenses of a user to one category in one transaction
+     * @param userId User ID; ids of other users' expenses are ignored
+     * @param expenseIds Expense IDs
+     * @param category Category name; a new name becomes a custom category
+     * @return Number of expenses updated, 0 if the transaction failed
+     */
+    public int updateCategory(int userId, Collection<Integer> expenseIds, String category) {
+        if (expenseIds.isEmpty()) {
+            return 0;
+        }
+        String ids = toJsonArray(expenseIds);
+        String sql = "UPDATE expenses SET category_id = " + CategoryDAO.CATEGORY_ID_SUBQUERY +
+                " WHERE " + ID_SET_PREDICATE;
+
+        EVENTS.beginWrite(userId);
+        try (OperationMetrics.Call call = UPDATE_CATEGORY.start();
+             Connection conn = DatabaseUtil.getConnection(userId)) {
+            categoryDAO.ensureCategories(conn, userId, List.of(category));
+            conn.setAutoCommit(false);
+
+            List<Expense> before = findByIds(conn, userId, ids);
+            try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                pstmt.setString(1, category);
+                pstmt.setInt(2, userId);
+                pstmt.setInt(3, userId);
+                pstmt.setString(4, ids);
+                call.rows(pstmt.executeUpdate());
+            }
+            conn.commit();
+
+            List<ExpenseEvent> events = new ArrayList<>(before.size());
+            for (Expense expense : before) {
+                Expense after = new Expense(expense);
+                after.setCategory(category);
+                canonicalizeCategory(after);
+                events.add(ExpenseEvent.updated(expense, after));
+            }
+            EVENTS.publish(events);
+            return before.size();
+
+        } catch (SQLException e) {
+            UPDATE_CATEGORY.failed(e);
+            System.err.println("Error updating expense categories: " + e.getMessage());
+            return 0;
+        } finally {
+            EVENTS.endWrite(userId);
+        }
+    }
+
+    /**
+     * Move the dates of many expenses of a user by the same number of days in one transaction
+     * @param userId User ID; ids of other users' expenses are ignored
+     * @param expenseIds Expense IDs
+     * @param days Days to add; negative moves expenses earlier
+     * @return Number of expenses updated, 0 if the transaction failed
+     */
+    public int shiftDates(int userId, Collection<Integer> expenseIds, int days) {
+        if (expenseIds.isEmpty() || days == 0) {
+            return 0;
+        }
+        String ids = toJsonArray(expenseIds);
+        String sql = "UPDATE expenses SET expense_date = date(expense_date, ?) WHERE " + ID_SET_PREDICATE;
+
+        EVENTS.beginWrite(userId);
+        try (OperationMetrics.Call call = SHIFT_DATES.start();
+             Connection conn = DatabaseUtil.getConnection(userId)) {
+            conn.setAutoCommit(false);
+
+            List<Expense> before = findByIds(conn, userId, ids);
+            try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                pstmt.setString(1, String.format("%+d days", days));
+                pstmt.setInt(2, userId);
+                pstmt.setString(3, ids);
+                call.rows(pstmt.executeUpdate());
+            }
+            conn.commit();
+
+            List<ExpenseEvent> events = new ArrayList<>(before.size());
+            for (Expense expense : before) {
+                Expense after = new Expense(expense);
+                after.setExpenseDate(expense.getExpenseDate().plusDays(days));
+                events.add(ExpenseEvent.updated(expense, after));
             }
+            EVENTS.publish(events);
+            return before.size();
 
         } catch (SQLException e) {
-            System.err.println("Error getting monthly total: " + e.getMessage());
+            SHIFT_DATES.failed(e);
+            System.err.println("Error shifting expense dates: " + e.getMessage());
+            return 0;
+        } finally {
+            EVENTS.endWrite(userId);
         }
+    }
 
-        return 0.0;
+    /**
+     * Get total expenses for current month
+     * @param userId User ID
+     * @return Total amount in paise
+     */
+    public long getMonthlyTotal(int userId) {
+        return getTotal(ExpenseQuery.forUser(userId).inMonth(YearMonth.now()));
     }
 
     /**
      * Get total expenses for today
      * @param userId User ID
-     * @return Total amount
+     * @return Total amount in paise
      */
-    public double getTodayTotal(int userId) {
-        String sql = "SELECT SUM(amount) FROM expenses WHERE user_id = ? AND expense_date = ?";
+    public long getTodayTotal(int userId) {
+        return getTotal(ExpenseQuery.forUser(userId).onDate(LocalDate.now()));
+    }
 
-        try (Connection conn = DatabaseUtil.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+    /**
+     * Get the total amount of the expenses matching a query
+     * @param query Expense query
+     * @return Total amount in paise
+     */
+    public long getTotal(ExpenseQuery query) {
+        ExpenseColumns columns = ColumnarExpenseStore.columnsIfEnabled(query);
+        if (columns != null) {
+            try (OperationMetrics.Call call = GET_TOTAL.start()) {
+                call.rows(1);
+                return columns.total(query);
+            }
+        }
 
-            pstmt.setInt(1, userId);
-            pstmt.setString(2, LocalDate.now().toString());
+        try (OperationMetrics.Call call = GET_TOTAL.start();
+             Connection conn = DatabaseUtil.getConnection(query.getUserId());
+             PreparedStatement pstmt = conn.prepareStatement(totalSql(query))) {
+
+            query.bind(pstmt, 1);
             ResultSet rs = pstmt.executeQuery();
 
             if (rs.next()) {
-                return rs.getDouble(1);
+                call.rows(1);
+                return rs.getLong(1);
             }
 
         } catch (SQLException e) {
-            System.err.println("Error getting today's total: " + e.getMessage());
+            GET_TOTAL.failed(e);
+            System.err.println("Error getting total: " + e.getMessage());
         }
 
-        return 0.0;
+        return 0;
     }
 
     /**
      * Get expenses grouped by category
      * @param userId User ID
-     * @return Map of category to total amount
+     * @return Map of category to total amount in paise
      */
-    public Map<String, Double> getCategoryTotals(int userId) {
-        Map<String, Double> categoryTotals = new HashMap<>();
-        String sql = "SELECT category, SUM(amount) as total FROM expenses " +
-                "WHERE user_id = ? GROUP BY category";
+    public Map<String, Long> getCategoryTotals(int userId) {
+        return getCategoryTotals(ExpenseQuery.forUser(userId));
+    }
 
-        try (Connection conn = DatabaseUtil.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+    /**
+     * Get the expenses matching a query grouped by category
+     * @param query Expense query
+     * @return Map of category to total amount in paise
+     */
+    public Map<String, Long> getCategoryTotals(ExpenseQuery query) {
+        ExpenseColumns columns = ColumnarExpenseStore.columnsIfEnabled(query);
+        if (columns != null) {
+            try (OperationMetrics.Call call = GET_CATEGORY_TOTALS.start()) {
+                Map<String, Long> categoryTotals = columns.categoryTotals(query);
+                call.rows(categoryTotals.size());
+                return categoryTotals;
+            }
+        }
 
-            pstmt.setInt(1, userId);
+        Map<String, Long> categoryTotals = new HashMap<>();
+
+        try (OperationMetrics.Call call = GET_CATEGORY_TOTALS.start();
+             Connection conn = DatabaseUtil.getConnection(query.getUserId());
+             PreparedStatement pstmt = conn.prepareStatement(categoryTotalsSql(query))) {
+
+            query.bind(pstmt, 1);
             ResultSet rs = pstmt.executeQuery();
 
             while (rs.next()) {
-                categoryTotals.put(rs.getString("category"), rs.getDouble("total"));
+                categoryTotals.put(categoryDAO.getCategoryName(conn, rs.getInt("category_id")), rs.getLong("total"));
             }
+            call.rows(categoryTotals.size());
 
         } catch (SQLException e) {
+            GET_CATEGORY_TOTALS.failed(e);
             System.err.println("Error getting category totals: " + e.getMessage());
         }
 
@@ -201,61 +894,401 @@ public class ExpenseDAO {
     }
 
     /**
-     * Filter expenses by month and category
+     * Get the categories with the largest totals among the expenses matching a query
+     * @param query Expense query
+     * @param limit Maximum number of categories
+     * @return Map of category to total amount in paise, largest first
+     */
+    public Map<String, Long> getTopCategories(ExpenseQuery query, int limit) {
+        ExpenseColumns columns = ColumnarExpenseStore.columnsIfEnabled(query);
+        if (columns != null) {
+            try (OperationMetrics.Call call = GET_TOP_CATEGORIES.start()) {
+                Map<String, Long> topCategories = columns.topCategories(query, limit);
+                call.rows(topCategories.size());
+                return topCategories;
+            }
+        }
+
+        Map<String, Long> topCategories = new LinkedHashMap<>();
+
+        try (OperationMetrics.Call call = GET_TOP_CATEGORIES.start();
+             Connection conn = DatabaseUtil.getConnection(query.getUserId());
+             PreparedStatement pstmt = conn.prepareStatement(topCategoriesSql(query))) {
+
+            int paramIndex = query.bind(pstmt, 1);
+            pstmt.setInt(paramIndex, limit);
+            ResultSet rs = pstmt.executeQuery();
+
+            while (rs.next()) {
+                topCategories.put(categoryDAO.getCategoryName(conn, rs.getInt("category_id")), rs.getLong("total"));
+            }
+            call.rows(topCategories.size());
+
+        } catch (SQLException e) {
+            GET_TOP_CATEGORIES.failed(e);
+            System.err.println("Error getting top categories: " + e.getMessage());
+        }
+
+        return topCategories;
+    }
+
+    /**
+     * Search a user's expenses by title and description, best matches first
+     * @param userId User ID
+     * @param text Search text as typed by the user
+     * @param limit Maximum number of expenses
+     * @return List of expenses, empty if the text has no searchable words
+     */
+    public List<Expense> search(int userId, String text, int limit) {
+        return search(userId, text, limit, 0);
+    }
+
+    /**
+     * Get one page of a user's search results, best matches first
+     * @param userId User ID
+     * @param text Search text as typed by the user
+     * @param limit Maximum number of expenses in the page
+     * @param offset Number of better matches to skip
+     * @return List of expenses, empty if the text has no searchable words
+     */
+    public List<Expense> search(int userId, String text, int limit, int offset) {
+        return search(ExpenseQuery.forUser(userId).matching(text), limit, offset);
+    }
+
+    /**
+     * Get one page of the expenses matching a query with a search text, best matches first
+     * unless the query picks an order. Only the matches are sorted, and ranked results have
+     * no stable keyset, so pages are addressed by offset.
+     * @param query Expense query with a search text and any other filters
+     * @param limit Maximum number of expenses in the page
+     * @param offset Number of better matches to skip
+     * @return List of expenses, empty if the query has no search text
+     */
+    public List<Expense> search(ExpenseQuery query, int limit, int offset) {
+        List<Expense> expenses = new ArrayList<>(Math.min(limit, 256));
+        if (query.getMatchExpression() == null) {
+            return expenses;
+        }
+
+        try (OperationMetrics.Call call = SEARCH.start();
+             Connection conn = DatabaseUtil.getConnection(query.getUserId());
+             PreparedStatement pstmt = conn.prepareStatement(searchSql(query))) {
+
+            int paramIndex = query.bind(pstmt, 1);
+            pstmt.setInt(paramIndex++, limit);
+            pstmt.setInt(paramIndex, offset);
+            ResultSet rs = pstmt.executeQuery();
+
+            while (rs.next()) {
+                expenses.add(extractExpenseFromResultSet(conn, rs));
+            }
+            call.rows(expenses.size());
+
+        } catch (SQLException e) {
+            SEARCH.failed(e);
+            System.err.println("Error searching expenses: " + e.getMessage());
+        }
+
+        return expenses;
+    }
+
+    /**
+     * Filter expenses by month of the current year and category
      * @param userId User ID
      * @param month Month (1-12) or 0 for all
      * @param category Category or "All"
      * @return Filtered list of expenses
      */
     public List<Expense> filterExpenses(int userId, int month, String category) {
-        List<Expense> expenses = new ArrayList<>();
-        StringBuilder sql = new StringBuilder("SELECT * FROM expenses WHERE user_id = ?");
+        return filterExpenses(userId, LocalDate.now().getYear(), month, category);
+    }
 
+    /**
+     * Filter expenses by month and category
+     * @param userId User ID
+     * @param year Year the month belongs to
+     * @param month Month (1-12) or 0 for all
+     * @param category Category or "All"
+     * @return Filtered list of expenses
+     */
+    public List<Expense> filterExpenses(int userId, int year, int month, String category) {
+        ExpenseQuery query = ExpenseQuery.forUser(userId).inCategory(category);
         if (month > 0) {
-            sql.append(" AND strftime('%m', expense_date) = ?");
+            query.inMonth(year, month);
+        }
+        return findExpenses(query);
+    }
+
+    // SQL for each read path, shared with QueryPlanTest
+
+    static String selectSql(ExpenseQuery query) {
+        return SELECT_SQL[query.shape()];
+    }
+
+    static String totalSql(ExpenseQuery query) {
+        return (query.isMonthAligned() ? ROLLUP_TOTAL_SQL : TOTAL_SQL)[query.shape()];
+    }
+
+    static String pageSql(ExpenseQuery query, boolean hasCursor) {
+        return (hasCursor ? PAGE_AFTER_SQL : PAGE_SQL)[query.getListingOrder().ordinal()][query.shape()];
+    }
+
+    static String pageEndSql(ExpenseQuery query, boolean hasCursor) {
+        return (hasCursor ? PAGE_END_AFTER_SQL : PAGE_END_SQL)[query.getListingOrder().ordinal()][query.shape()];
+    }
+
+    static String countSql(ExpenseQuery query) {
+        return (query.isMonthAligned() ? ROLLUP_COUNT_SQL : COUNT_SQL)[query.shape()];
+    }
+
+    static String categoryTotalsSql(ExpenseQuery query) {
+        return (query.isMonthAligned() ? ROLLUP_CATEGORY_TOTALS_SQL : CATEGORY_TOTALS_SQL)[query.shape()];
+    }
+
+    static String topCategoriesSql(ExpenseQuery query) {
+        return (query.isMonthAligned() ? ROLLUP_TOP_CATEGORIES_SQL : TOP_CATEGORIES_SQL)[query.shape()];
+    }
+
+    static String streamSql(ExpenseQuery query) {
+        return STREAM_SQL[query.shape()];
+    }
+
+    static String searchSql(ExpenseQuery query) {
+        return query.getOrder() == null
+                ? SEARCH_SQL[query.shape()]
+                : ORDERED_SEARCH_SQL[query.getOrder().ordinal()][query.shape()];
+    }
+
+    /**
+     * Build the SQL of one read path for every query shape
+     */
+    private static String[] forEachShape(Function<String, String> sqlForWhere) {
+        String[] sql = new String[ExpenseQuery.SHAPE_COUNT];
+        for (int shape = 0; shape < sql.length; shape++) {
+            sql[shape] = sqlForWhere.apply(ExpenseQuery.whereClause(shape));
         }
-        if (!category.equals("All")) {
-            sql.append(" AND category = ?");
+        return sql;
+    }
+
+    /**
+     * Build the SQL of one paged read path for every listing order and query shape
+     */
+    private static String[][] forEachOrder(BiFunction<ExpenseOrder, String, String> sqlForOrderAndWhere) {
+        String[][] sql = new String[ExpenseOrder.values().length][];
+        for (ExpenseOrder order : ExpenseOrder.values()) {
+            sql[order.ordinal()] = forEachShape(where -> sqlForOrderAndWhere.apply(order, where));
         }
-        sql.append(" ORDER BY expense_date DESC");
+        return sql;
+    }
 
-        try (Connection conn = DatabaseUtil.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql.toString())) {
+    /**
+     * Build the SQL of one rollup read path for every query shape without a search text
+     */
+    private static String[] forEachRollupShape(Function<String, String> sqlForWhere) {
+        String[] sql = new String[ExpenseQuery.SHAPE_COUNT];
+        for (int shape = 0; shape < sql.length; shape++) {
+            if ((shape & ExpenseQuery.HAS_TEXT) == 0) {
+                sql[shape] = sqlForWhere.apply(ExpenseQuery.rollupWhereClause(shape));
+            }
+        }
+        return sql;
+    }
+
+    /**
+     * Build the search SQL for every query shape that has a search text.
+     * The MATCH goes last, where ExpenseQuery.bind() puts the match expression.
+     */
+    private static String[] buildSearchSql(String orderBy) {
+        String[] sql = new String[ExpenseQuery.SHAPE_COUNT];
+        for (int shape = 0; shape < sql.length; shape++) {
+            if ((shape & ExpenseQuery.HAS_TEXT) != 0) {
+                sql[shape] = "SELECT expenses.* FROM expenses_fts " +
+                        "CROSS JOIN expenses NOT INDEXED ON expenses.expense_id = expenses_fts.rowid " +
+                        "WHERE " + ExpenseQuery.whereClause(shape & ~ExpenseQuery.HAS_TEXT) +
+                        " AND expenses_fts MATCH ?" +
+                        " ORDER BY " + orderBy +
+                        " LIMIT ? OFFSET ?";
+            }
+        }
+        return sql;
+    }
 
-            int paramIndex = 1;
-            pstmt.setInt(paramIndex++, userId);
+    /**
+     * Make sure the expense's category exists, creating a custom one for a new name.
+     * Call it in autocommit mode, before the write that uses the category, so rolling
+     * that write back cannot take a category along that CategoryRegistry already holds.
+     */
+    void ensureCategory(Connection conn, Expense expense) throws SQLException {
+        categoryDAO.ensureCategories(conn, expense.getUserId(), List.of(expense.getCategory()));
+    }
 
-            if (month > 0) {
-                pstmt.setString(paramIndex++, String.format("%02d", month));
+    /**
+     * Insert one expense on the caller's connection and transaction, setting its generated id
+     * @return The change to publish once committed, or null if nothing was inserted
+     */
+    ExpenseEvent insert(Connection conn, Expense expense) throws SQLException {
+        try (PreparedStatement pstmt = conn.prepareStatement(INSERT_SQL, Statement.RETURN_GENERATED_KEYS)) {
+            bindInsert(pstmt, expense);
+            if (pstmt.executeUpdate() == 0) {
+                return null;
             }
-            if (!category.equals("All")) {
-                pstmt.setString(paramIndex++, category);
+            ResultSet keys = pstmt.getGeneratedKeys();
+            if (keys.next()) {
+                expense.setExpenseId(keys.getInt(1));
             }
+            return ExpenseEvent.added(expense);
+        }
+    }
 
-            ResultSet rs = pstmt.executeQuery();
+    /**
+     * Update one expense on the caller's connection and transaction
+     * @return The change to publish once committed, or null if the user has no expense with that id
+     */
+    ExpenseEvent update(Connection conn, Expense expense) throws SQLException {
+        String sql = "UPDATE expenses SET title = ?, amount_minor = ?, category_id = " +
+                CategoryDAO.CATEGORY_ID_SUBQUERY + ", expense_date = ?, description = ? WHERE expense_id = ? AND user_id = ?";
 
-            while (rs.next()) {
-                Expense expense = extractExpenseFromResultSet(rs);
-                expenses.add(expense);
+        canonicalizeCategory(expense);
+
+        // Read the stored row in the same transaction so listeners get an exact delta
+        Expense before = findById(conn, expense.getUserId(), expense.getExpenseId());
+        if (before == null) {
+            return null;
+        }
+
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setString(1, expense.getTitle());
+            pstmt.setLong(2, expense.getAmount());
+            pstmt.setString(3, expense.getCategory());
+            pstmt.setInt(4, expense.getUserId());
+            pstmt.setString(5, expense.getExpenseDate().toString());
+            pstmt.setString(6, expense.getDescription());
+            pstmt.setInt(7, expense.getExpenseId());
+            pstmt.setInt(8, expense.getUserId());
+            if (pstmt.executeUpdate() == 0) {
+                return null;
             }
+        }
+        return ExpenseEvent.updated(before, expense);
+    }
 
-        } catch (SQLException e) {
-            System.err.println("Error filtering expenses: " + e.getMessage());
+    /**
+     * Delete expenses of a user on the caller's connection and transaction
+     * @return One change per deleted expense, to publish once committed
+     */
+    List<ExpenseEvent> delete(Connection conn, int userId, Collection<Integer> expenseIds) throws SQLException {
+        String ids = toJsonArray(expenseIds);
+
+        List<Expense> before = findByIds(conn, userId, ids);
+        try (PreparedStatement pstmt = conn.prepareStatement("DELETE FROM expenses WHERE " + ID_SET_PREDICATE)) {
+            pstmt.setInt(1, userId);
+            pstmt.setString(2, ids);
+            pstmt.executeUpdate();
         }
 
+        List<ExpenseEvent> events = new ArrayList<>(before.size());
+        for (Expense expense : before) {
+            events.add(ExpenseEvent.deleted(expense));
+        }
+        return events;
+    }
+
+    /**
+     * Helper method to bind the columns of INSERT_SQL
+     */
+    private void bindInsert(PreparedStatement pstmt, Expense expense) throws SQLException {
+        canonicalizeCategory(expense);
+        pstmt.setInt(1, expense.getUserId());
+        pstmt.setString(2, expense.getTitle());
+        pstmt.setLong(3, expense.getAmount());
+        pstmt.setString(4, expense.getCategory());
+        pstmt.setInt(5, expense.getUserId());
+        pstmt.setString(6, expense.getExpenseDate().toString());
+        pstmt.setString(7, expense.getDescription());
+    }
+
+    /**
+     * Helper method to give an expense the registered spelling and id of its category,
+     * so listeners see "Food" rather than whatever case the user typed
+     */
+    private void canonicalizeCategory(Expense expense) {
+        Category category = CategoryRegistry.getInstance().find(expense.getUserId(), expense.getCategory());
+        if (category != null) {
+            expense.setCategory(category.getName());
+            expense.setCategoryId(category.getCategoryId());
+        }
+    }
+
+    /**
+     * Helper method to read the stored rows of an id set, inside the caller's transaction
+     */
+    private List<Expense> findByIds(Connection conn, int userId, String idsJson) throws SQLException {
+        List<Expense> expenses = new ArrayList<>();
+        try (PreparedStatement pstmt = conn.prepareStatement(
+                "SELECT * FROM expenses WHERE " + ID_SET_PREDICATE)) {
+            pstmt.setInt(1, userId);
+            pstmt.setString(2, idsJson);
+            ResultSet rs = pstmt.executeQuery();
+            while (rs.next()) {
+                expenses.add(extractExpenseFromResultSet(conn, rs));
+            }
+        }
         return expenses;
     }
 
+    /**
+     * Helper method to format an id set for ID_SET_PREDICATE
+     */
+    private static String toJsonArray(Collection<Integer> ids) {
+        StringBuilder json = new StringBuilder(ids.size() * 8).append('[');
+        for (Integer id : ids) {
+            if (json.length() > 1) {
+                json.append(',');
+            }
+            json.append(id.intValue());
+        }
+        return json.append(']').toString();
+    }
+
+    /**
+     * Helper method to read one of a user's expenses by id on an open connection
+     */
+    private Expense findById(Connection conn, int userId, int expenseId) throws SQLException {
+        try (PreparedStatement pstmt = conn.prepareStatement(FIND_BY_ID_SQL)) {
+            pstmt.setInt(1, expenseId);
+            pstmt.setInt(2, userId);
+            ResultSet rs = pstmt.executeQuery();
+            return rs.next() ? extractExpenseFromResultSet(conn, rs) : null;
+        }
+    }
+
+    /**
+     * Helper method to bind a keyset cursor, if any
+     */
+    private int bindCursor(PreparedStatement pstmt, int paramIndex, ExpenseCursor after) throws SQLException {
+        if (after != null) {
+            if (after.getSortKey() instanceof Long) {
+                pstmt.setLong(paramIndex++, (Long) after.getSortKey());
+            } else {
+                // Dates are stored as ISO text, which sorts like the dates themselves
+                pstmt.setString(paramIndex++, after.getSortKey().toString());
+            }
+            pstmt.setInt(paramIndex++, after.getExpenseId());
+        }
+        return paramIndex;
+    }
+
     /**
      * Helper method to extract Expense from ResultSet
      */
-    private Expense extractExpenseFromResultSet(ResultSet rs) throws SQLException {
+    private Expense extractExpenseFromResultSet(Connection conn, ResultSet rs) throws SQLException {
         Expense expense = new Expense();
         expense.setExpenseId(rs.getInt("expense_id"));
         expense.setUserId(rs.getInt("user_id"));
         expense.setTitle(rs.getString("title"));
-        expense.setAmount(rs.getDouble("amount"));
-        expense.setCategory(rs.getString("category"));
+        expense.setAmount(rs.getLong("amount_minor"));
+        expense.setCategoryId(rs.getInt("category_id"));
+        expense.setCategory(categoryDAO.getCategoryName(conn, expense.getCategoryId()));
         expense.setExpenseDate(LocalDate.parse(rs.getString("expense_date")));
         expense.setDescription(rs.getString("description"));
         return expense;
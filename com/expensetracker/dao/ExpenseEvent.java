@@ -0,0 +1,73 @@
+package dao;
+
+import model.Expense;
+
+/**
+ * Expense Event
+ * One committed change to an expense: the row as it was before and as it is after.
+ * Added expenses have no before state and deleted ones no after state.
+ */
+public final class ExpenseEvent {
+
+    public enum Type {
+        ADDED,
+        UPDATED,
+        DELETED
+    }
+
+    private final Type type;
+    private final Expense before;
+    private final Expense after;
+
+    private ExpenseEvent(Type type, Expense before, Expense after) {
+        this.type = type;
+        this.before = before;
+        this.after = after;
+    }
+
+    public static ExpenseEvent added(Expense expense) {
+        return new ExpenseEvent(Type.ADDED, null, expense);
+    }
+
+    public static ExpenseEvent updated(Expense before, Expense after) {
+        return new ExpenseEvent(Type.UPDATED, before, after);
+    }
+
+    public static ExpenseEvent deleted(Expense expense) {
+        return new ExpenseEvent(Type.DELETED, expense, null);
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    /**
+     * @return Expense as stored before the change, or null if it was added
+     */
+    public Expense getBefore() {
+        return before;
+    }
+
+    /**
+     * @return Expense as stored after the change, or null if it was deleted
+     */
+    public Expense getAfter() {
+        return after;
+    }
+
+    /**
+     * @return The added or updated expense, or the deleted one
+     */
+    public Expense getExpense() {
+        return after != null ? after : before;
+    }
+
+    public int getUserId() {
+        return getExpense().getUserId();
+    }
+
+    @Override
+    public String toString() {
+        return "ExpenseEvent{" + type + " " + getExpense().getExpenseId() + '}';
+    }
+}
@@ -0,0 +1,111 @@
+package dao;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Expense Event Bus
+ * Carries committed expense changes from ExpenseDAO to everything that keeps a copy of
+ * them: summary caches, the identity map and open windows. Each write is published as one
+ * batch, on the thread that made it, after its transaction has committed; a group commit
+ * from ExpenseWriteQueue is published as one batch on its writer thread.
+ *
+ * A write commits before its events are published, so a listener that loads its own copy
+ * of a user's expenses could read a change and then be handed it again. Writers therefore
+ * bracket each write with beginWrite() and endWrite(), and such a listener keeps a copy
+ * only if no write of the user overlapped the load (see writeStamp()).
+ */
+public class ExpenseEventBus {
+    private static final ExpenseEventBus INSTANCE = new ExpenseEventBus();
+
+    public static final long NO_STAMP = -1;
+
+    // Users share counters by stripe; a collision only makes a load less likely to be kept
+    private static final int STRIPES = 64;
+
+    private final List<ExpenseChangeListener> listeners = new CopyOnWriteArrayList<>();
+    private final AtomicLongArray writesBegun = new AtomicLongArray(STRIPES);
+    private final AtomicLongArray writesEnded = new AtomicLongArray(STRIPES);
+
+    private ExpenseEventBus() {}
+
+    public static ExpenseEventBus getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Register a listener for committed expense changes
+     * @param listener Listener to notify
+     */
+    public void subscribe(ExpenseChangeListener listener) {
+        listeners.add(listener);
+    }
+
+    public void unsubscribe(ExpenseChangeListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Note that a write of a user's expenses is starting. Call it before the write's
+     * transaction, and call endWrite() once its events are published or it has failed.
+     * @param userId User ID
+     */
+    public void beginWrite(int userId) {
+        writesBegun.incrementAndGet(stripe(userId));
+    }
+
+    /**
+     * @param userId User ID given to the matching beginWrite()
+     */
+    public void endWrite(int userId) {
+        writesEnded.incrementAndGet(stripe(userId));
+    }
+
+    /**
+     * Take before loading a copy of a user's expenses
+     * @param userId User ID
+     * @return Stamp for isUnchangedSince(), or NO_STAMP if a write of the user is in progress
+     */
+    public long writeStamp(int userId) {
+        int stripe = stripe(userId);
+        // Read ended first: if begun still equals it, no write was in progress
+        long ended = writesEnded.get(stripe);
+        long begun = writesBegun.get(stripe);
+        return begun == ended ? begun : NO_STAMP;
+    }
+
+    /**
+     * Whether a copy loaded after writeStamp() is exact: every write it saw has been published,
+     * and every later write will be. Check it atomically with installing the copy, against the
+     * same lock the copy's listener applies events under.
+     * @param userId User ID
+     * @param stamp Stamp taken before the load
+     * @return true if no write of the user has begun since the stamp was taken
+     */
+    public boolean isUnchangedSince(int userId, long stamp) {
+        return stamp != NO_STAMP && writesBegun.get(stripe(userId)) == stamp;
+    }
+
+    private static int stripe(int userId) {
+        return Math.floorMod(userId, STRIPES);
+    }
+
+    /**
+     * Hand the changes of one committed write to every listener.
+     * A failing listener is reported and does not stop the others.
+     * @param events Changes in the order they were made
+     */
+    public void publish(List<ExpenseEvent> events) {
+        if (events.isEmpty()) {
+            return;
+        }
+        for (ExpenseChangeListener listener : listeners) {
+            try {
+                listener.expensesChanged(events);
+            } catch (RuntimeException e) {
+                System.err.println("Error notifying expense change listener: " + e.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package dao;
+
+import model.Expense;
+
+import java.io.IOException;
+
+/**
+ * Expense Handler
+ * Receives expenses one at a time from ExpenseDAO.streamExpenses, e.g. to write them to a file
+ */
+@FunctionalInterface
+public interface ExpenseHandler {
+
+    /**
+     * Handle one expense. The instance is not kept by the DAO, so it may be discarded right away.
+     * @param expense Expense read from the database
+     * @return true to continue, false to stop streaming
+     */
+    boolean handle(Expense expense) throws IOException;
+}
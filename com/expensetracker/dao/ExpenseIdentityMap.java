@@ -0,0 +1,131 @@
+package dao;
+
+import model.Expense;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Expense Identity Map
+ * Session-wide cache of the expenses one user has loaded, keyed by id. Every loaded row
+ * passes through here, so the same id resolves to the same instance everywhere in the
+ * session and a selected row can be looked up without going back to the database.
+ * Kept current through ExpenseChangeListener; open it at login and close it at logout.
+ */
+public class ExpenseIdentityMap implements ExpenseChangeListener {
+    private static final int DEFAULT_CAPACITY = 5000;
+
+    private final int userId;
+    private final ExpenseDAO expenseDAO;
+    private final Map<Integer, Expense> expenses;
+
+    public ExpenseIdentityMap(int userId) {
+        this(userId, new ExpenseDAO(), DEFAULT_CAPACITY);
+    }
+
+    public ExpenseIdentityMap(int userId, ExpenseDAO expenseDAO, int capacity) {
+        this.userId = userId;
+        this.expenseDAO = expenseDAO;
+        // Least recently used entries go first, so long scrolling sessions stay bounded
+        this.expenses = new LinkedHashMap<>(64, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, Expense> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    /**
+     * Start following changes made through ExpenseDAO
+     */
+    public void open() {
+        ExpenseEventBus.getInstance().subscribe(this);
+    }
+
+    /**
+     * Stop following changes and drop everything cached
+     */
+    public void close() {
+        ExpenseEventBus.getInstance().unsubscribe(this);
+        synchronized (expenses) {
+            expenses.clear();
+        }
+    }
+
+    public int getUserId() {
+        return userId;
+    }
+
+    /**
+     * Look up an expense in memory only
+     * @param expenseId Expense ID
+     * @return Cached expense, or null if it has not been loaded this session
+     */
+    public Expense get(int expenseId) {
+        synchronized (expenses) {
+            return expenses.get(expenseId);
+        }
+    }
+
+    /**
+     * Look up an expense, loading it by id on a miss. Blocks on a miss, so call it off the EDT.
+     * @param expenseId Expense ID
+     * @return Expense object, or null if the user has no such expense
+     */
+    public Expense find(int expenseId) {
+        Expense cached = get(expenseId);
+        if (cached != null) {
+            return cached;
+        }
+
+        Expense loaded = expenseDAO.findById(userId, expenseId);
+        return loaded == null ? null : register(loaded);
+    }
+
+    /**
+     * Record a freshly loaded expense
+     * @param expense Expense read from the database
+     * @return The instance now held for its id
+     */
+    public Expense register(Expense expense) {
+        if (expense.getUserId() != userId) {
+            return expense;
+        }
+        synchronized (expenses) {
+            expenses.put(expense.getExpenseId(), expense);
+        }
+        return expense;
+    }
+
+    /**
+     * Record a list of freshly loaded expenses, e.g. a page of the expense table
+     * @param loaded Expenses read from the database
+     * @return The instances now held, in the same order
+     */
+    public List<Expense> registerAll(List<Expense> loaded) {
+        List<Expense> registered = new ArrayList<>(loaded.size());
+        for (Expense expense : loaded) {
+            registered.add(register(expense));
+        }
+        return registered;
+    }
+
+    @Override
+    public void expenseAdded(Expense expense) {
+        register(expense);
+    }
+
+    @Override
+    public void expenseUpdated(Expense before, Expense after) {
+        register(after);
+    }
+
+    @Override
+    public void expenseDeleted(Expense expense) {
+        synchronized (expenses) {
+            expenses.remove(expense.getExpenseId());
+        }
+    }
+}
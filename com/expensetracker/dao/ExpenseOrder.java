@@ -0,0 +1,111 @@
+package dao;
+
+import model.Expense;
+import model.ExpenseCursor;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+
+/**
+ * Expense Order
+ * Orders a listing can be paged in. Each is a keyset on (sort key, expense_id) read in
+ * the order of an index that leads with user_id (idx_expenses_user_date, _amount or _title),
+ * so a deep page costs the same as the first. Titles sort without regard to case.
+ */
+public enum ExpenseOrder {
+    NEWEST_FIRST("expense_date", "expense_date", true),
+    OLDEST_FIRST("expense_date", "expense_date", false),
+    LARGEST_FIRST("amount_minor", "amount_minor", true),
+    SMALLEST_FIRST("amount_minor", "amount_minor", false),
+    TITLE_A_TO_Z("title", "title COLLATE NOCASE", false),
+    TITLE_Z_TO_A("title", "title COLLATE NOCASE", true);
+
+    private final String column;
+    private final String key;
+    private final boolean descending;
+
+    ExpenseOrder(String column, String key, boolean descending) {
+        this.column = column;
+        this.key = key;
+        this.descending = descending;
+    }
+
+    /**
+     * Get the ORDER BY terms (without the keywords), ties broken by expense_id
+     * @param qualifier Table name and dot to put before each column, or "" for none
+     * @return SQL ORDER BY terms
+     */
+    String orderBy(String qualifier) {
+        String direction = descending ? " DESC" : "";
+        return qualifier + key + direction + ", " + qualifier + "expense_id" + direction;
+    }
+
+    /**
+     * Get the predicate selecting the rows after a cursor, taking the sort key and expense_id
+     * @return SQL predicate starting with " AND "
+     */
+    String cursorPredicate() {
+        return " AND (" + key + ", expense_id) " + (descending ? "<" : ">") + " (?, ?)";
+    }
+
+    /**
+     * @return Column holding the sort key, to select when only the position is needed
+     */
+    String keyColumn() {
+        return column;
+    }
+
+    public boolean isDescending() {
+        return descending;
+    }
+
+    /**
+     * Read the cursor of the current row of a result that selects keyColumn() and expense_id
+     */
+    ExpenseCursor readCursor(ResultSet rs) throws SQLException {
+        Object sortKey;
+        switch (column) {
+            case "expense_date":
+                sortKey = LocalDate.parse(rs.getString(column));
+                break;
+            case "amount_minor":
+                sortKey = rs.getLong(column);
+                break;
+            default:
+                sortKey = rs.getString(column);
+        }
+        return new ExpenseCursor(sortKey, rs.getInt("expense_id"));
+    }
+
+    /**
+     * Cursor positioned on an expense in this order, so the next page starts right after it
+     * @param expense Last expense of the current page
+     * @return ExpenseCursor object
+     */
+    public ExpenseCursor cursorAfter(Expense expense) {
+        return new ExpenseCursor(sortKey(expense), expense.getExpenseId());
+    }
+
+    /**
+     * Whether an edit leaves an expense in the same place in this order
+     * @param before Expense as it was
+     * @param after Expense as it is now
+     * @return true if both have the same sort key. A case-only title change counts as a
+     *         move, which costs a reload but never leaves a row out of place.
+     */
+    public boolean sameKey(Expense before, Expense after) {
+        return sortKey(before).equals(sortKey(after));
+    }
+
+    private Object sortKey(Expense expense) {
+        switch (column) {
+            case "expense_date":
+                return expense.getExpenseDate();
+            case "amount_minor":
+                return expense.getAmount();
+            default:
+                return expense.getTitle();
+        }
+    }
+}
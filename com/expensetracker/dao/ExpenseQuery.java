@@ -0,0 +1,310 @@
+package dao;
+
+import model.CategoryRegistry;
+import model.Expense;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.YearMonth;
+
+/**
+ * Expense Query
+ * Describes which of a user's expenses to read. Date filters are always expressed as
+ * half-open ranges on the bare column (expense_date >= ? AND expense_date < ?) so that
+ * SQLite can answer them from the (user_id, expense_date) indexes.
+ * Text filters go through the expenses_fts full-text index, never LIKE '%x%'.
+ * Aggregates over whole months are answered from the expense_rollups summary table.
+ * Listings are newest first, and searches best match first, unless orderBy() picks a column.
+ */
+public class ExpenseQuery {
+    // Bits of shape(): which optional predicates a query carries
+    static final int HAS_CATEGORY = 1;
+    static final int HAS_FROM = 2;
+    static final int HAS_TO = 4;
+    static final int HAS_TEXT = 8;
+    static final int SHAPE_COUNT = 16;
+
+    // Longer inputs are cut to this many words; each one narrows the match anyway
+    private static final int MAX_SEARCH_TERMS = 8;
+
+    private static final String[] WHERE_CLAUSES = new String[SHAPE_COUNT];
+
+    static {
+        for (int shape = 0; shape < SHAPE_COUNT; shape++) {
+            WHERE_CLAUSES[shape] = whereClause(shape);
+        }
+    }
+
+    private final int userId;
+    private LocalDate fromDate;
+    private LocalDate toDate;
+    private String category;
+    private String searchText;
+    private String matchExpression;
+    private ExpenseOrder order;
+
+    private ExpenseQuery(int userId) {
+        this.userId = userId;
+    }
+
+    /**
+     * Start a query over all expenses of a user
+     * @param userId User ID
+     * @return ExpenseQuery object
+     */
+    public static ExpenseQuery forUser(int userId) {
+        return new ExpenseQuery(userId);
+    }
+
+    /**
+     * Restrict to a date range
+     * @param from First day included, or null for no lower bound
+     * @param toExclusive First day excluded, or null for no upper bound
+     * @return this query
+     */
+    public ExpenseQuery between(LocalDate from, LocalDate toExclusive) {
+        if (from != null && toExclusive != null && toExclusive.isBefore(from)) {
+            throw new IllegalArgumentException("Date range ends before it starts: " + from + " to " + toExclusive);
+        }
+        this.fromDate = from;
+        this.toDate = toExclusive;
+        return this;
+    }
+
+    public ExpenseQuery onDate(LocalDate date) {
+        return between(date, date.plusDays(1));
+    }
+
+    public ExpenseQuery inMonth(YearMonth month) {
+        return between(month.atDay(1), month.plusMonths(1).atDay(1));
+    }
+
+    public ExpenseQuery inMonth(int year, int month) {
+        return inMonth(YearMonth.of(year, month));
+    }
+
+    public ExpenseQuery inYear(int year) {
+        return between(LocalDate.of(year, 1, 1), LocalDate.of(year + 1, 1, 1));
+    }
+
+    /**
+     * Restrict to one category
+     * @param category Category name, or null / "All" for every category
+     * @return this query
+     */
+    public ExpenseQuery inCategory(String category) {
+        this.category = (category == null || category.equals("All")) ? null : category;
+        return this;
+    }
+
+    /**
+     * Restrict to expenses whose title or description contains every word of a search text.
+     * Words match as prefixes, so a partially typed word already finds results.
+     * @param text Search text as typed by the user, or null / blank for no text filter
+     * @return this query
+     */
+    public ExpenseQuery matching(String text) {
+        this.matchExpression = toMatchExpression(text);
+        this.searchText = matchExpression == null ? null : text.trim();
+        return this;
+    }
+
+    /**
+     * Sort the listing by a column instead of the default order
+     * @param order Order to page in, or null for the default
+     * @return this query
+     */
+    public ExpenseQuery orderBy(ExpenseOrder order) {
+        this.order = order;
+        return this;
+    }
+
+    /**
+     * Turn free text into an FTS5 match expression. Every word is quoted, so characters
+     * the user types are never read as FTS5 operators or column filters.
+     * @param text Search text
+     * @return Match expression, or null if the text has no searchable words
+     */
+    static String toMatchExpression(String text) {
+        if (text == null) {
+            return null;
+        }
+        StringBuilder expression = new StringBuilder();
+        int terms = 0;
+        for (String word : text.split("[^\\p{L}\\p{N}]+")) {
+            if (word.isEmpty() || terms == MAX_SEARCH_TERMS) {
+                continue;
+            }
+            if (terms++ > 0) {
+                expression.append(' ');
+            }
+            expression.append('"').append(word).append("\"*");
+        }
+        return terms == 0 ? null : expression.toString();
+    }
+
+    /**
+     * Which optional predicates this query has. Queries of the same shape share their SQL text,
+     * so there are only SHAPE_COUNT distinct statements per read path.
+     * @return Combination of HAS_CATEGORY, HAS_FROM, HAS_TO and HAS_TEXT
+     */
+    int shape() {
+        return (category != null ? HAS_CATEGORY : 0)
+                | (fromDate != null ? HAS_FROM : 0)
+                | (toDate != null ? HAS_TO : 0)
+                | (matchExpression != null ? HAS_TEXT : 0);
+    }
+
+    /**
+     * Whether expense_rollups can answer aggregates of this query: no search text,
+     * and each date bound, if any, falls on the first day of a month
+     * @return true if every matching expense lies in whole months the query covers
+     */
+    boolean isMonthAligned() {
+        return matchExpression == null
+                && (fromDate == null || fromDate.getDayOfMonth() == 1)
+                && (toDate == null || toDate.getDayOfMonth() == 1);
+    }
+
+    /**
+     * Check an expense against the user, category and date filters in memory,
+     * e.g. to decide whether a change affects a listing without re-running it.
+     * The search text is not checked; only the full-text index can decide that.
+     * @param expense Expense object
+     * @return true if the expense passes every filter but the search text
+     */
+    public boolean matches(Expense expense) {
+        LocalDate date = expense.getExpenseDate();
+        return expense.getUserId() == userId
+                && (category == null || CategoryRegistry.foldName(category)
+                        .equals(CategoryRegistry.foldName(expense.getCategory())))
+                && (fromDate == null || !date.isBefore(fromDate))
+                && (toDate == null || date.isBefore(toDate));
+    }
+
+    /**
+     * Get the WHERE clause (without the keyword) for this query
+     * @return SQL predicate with positional parameters
+     */
+    String toWhereClause() {
+        return WHERE_CLAUSES[shape()];
+    }
+
+    /**
+     * Build the WHERE clause (without the keyword) for a query shape
+     */
+    static String whereClause(int shape) {
+        StringBuilder where = new StringBuilder("user_id = ?");
+        if ((shape & HAS_CATEGORY) != 0) {
+            where.append(" AND category_id = ").append(CategoryDAO.CATEGORY_ID_SUBQUERY);
+        }
+        if ((shape & HAS_FROM) != 0) {
+            where.append(" AND expense_date >= ?");
+        }
+        if ((shape & HAS_TO) != 0) {
+            where.append(" AND expense_date < ?");
+        }
+        if ((shape & HAS_TEXT) != 0) {
+            where.append(" AND expense_id IN (SELECT rowid FROM expenses_fts WHERE expenses_fts MATCH ?)");
+        }
+        return where.toString();
+    }
+
+    /**
+     * Build the WHERE clause (without the keyword) over expense_rollups for a query shape.
+     * Takes the same parameters as {@link #whereClause(int)}: month bounds are cut from the
+     * bound dates, so both forms share {@link #bind(PreparedStatement, int)}.
+     */
+    static String rollupWhereClause(int shape) {
+        if ((shape & HAS_TEXT) != 0) {
+            throw new IllegalArgumentException("Rollups cannot answer text queries");
+        }
+        StringBuilder where = new StringBuilder("user_id = ?");
+        if ((shape & HAS_CATEGORY) != 0) {
+            where.append(" AND category_id = ").append(CategoryDAO.CATEGORY_ID_SUBQUERY);
+        }
+        if ((shape & HAS_FROM) != 0) {
+            where.append(" AND year_month >= substr(?, 1, 7)");
+        }
+        if ((shape & HAS_TO) != 0) {
+            where.append(" AND year_month < substr(?, 1, 7)");
+        }
+        return where.toString();
+    }
+
+    /**
+     * Bind this query's parameters in the order used by {@link #toWhereClause()}
+     * @param pstmt Statement to bind
+     * @param index Index of the first parameter
+     * @return Index of the next unbound parameter
+     */
+    int bind(PreparedStatement pstmt, int index) throws SQLException {
+        pstmt.setInt(index++, userId);
+        if (category != null) {
+            pstmt.setString(index++, category);
+            pstmt.setInt(index++, userId);
+        }
+        if (fromDate != null) {
+            pstmt.setString(index++, fromDate.toString());
+        }
+        if (toDate != null) {
+            pstmt.setString(index++, toDate.toString());
+        }
+        if (matchExpression != null) {
+            pstmt.setString(index++, matchExpression);
+        }
+        return index;
+    }
+
+    // Getters
+    public int getUserId() {
+        return userId;
+    }
+
+    public LocalDate getFromDate() {
+        return fromDate;
+    }
+
+    public LocalDate getToDate() {
+        return toDate;
+    }
+
+    public String getCategory() {
+        return category;
+    }
+
+    public String getSearchText() {
+        return searchText;
+    }
+
+    String getMatchExpression() {
+        return matchExpression;
+    }
+
+    /**
+     * @return Order chosen with orderBy(), or null for the default
+     */
+    public ExpenseOrder getOrder() {
+        return order;
+    }
+
+    /**
+     * @return Order keyset pages are read in: the chosen one, or newest first
+     */
+    public ExpenseOrder getListingOrder() {
+        return order != null ? order : ExpenseOrder.NEWEST_FIRST;
+    }
+
+    @Override
+    public String toString() {
+        return "ExpenseQuery{" +
+                "userId=" + userId +
+                ", fromDate=" + fromDate +
+                ", toDate=" + toDate +
+                ", category='" + category + '\'' +
+                ", searchText='" + searchText + '\'' +
+                ", order=" + order +
+                '}';
+    }
+}
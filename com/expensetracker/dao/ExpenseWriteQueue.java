@@ -0,0 +1,491 @@
+package dao;
+
+import metrics.MetricsRegistry;
+import metrics.OperationMetrics;
+import model.Expense;
+import util.AppConfig;
+import util.DatabaseUtil;
+import util.ShardRouter;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Expense Write Queue
+ * Write-behind path for interactive adds, updates and deletes. Each shard gets one writer
+ * thread fed by a bounded queue that any number of threads add to. The writer takes everything
+ * pending, up to maxBatch writes, and applies the group in one transaction: writes that arrive
+ * while a commit is running share the next one, instead of each taking the SQLite write lock,
+ * and syncing the WAL, for a single row. The busier the shard, the bigger the groups. A positive
+ * lingerMillis makes the writer wait that long for more writes before committing; it only pays
+ * when many producers do not wait for their acknowledgements, since it delays every group.
+ *
+ * A group is applied as is; only if one of its writes fails is the transaction rolled back
+ * and the group replayed with a savepoint per write, so the failing write is rolled back and
+ * reported without failing the rest. A write's future completes only after the group's
+ * transaction has committed and its expense events are published. Like ExpenseDAO, a failed
+ * write completes with false or 0 and is logged; an unexpected exception fails only the
+ * writes it hit, and the writer carries on with the next group. When a shard's queue is full,
+ * adding waits up to offerTimeoutMillis and then fails with RejectedExecutionException, so
+ * a burst slows its producers down instead of growing without bound. Interrupting a writer
+ * thread makes it finish its queue and exit; the next write to its shard starts a new one.
+ *
+ * Committed is as durable as expensetracker.sqlite.synchronous makes it: with the default
+ * NORMAL an acknowledged write survives the app crashing, but the last commits before a power
+ * loss can be lost. Set it to FULL where that matters; group commits keep the cost low.
+ * The writer threads are daemons, so every entry point must call DatabaseUtil.shutdown()
+ * on exit, or writes still queued are lost.
+ */
+public class ExpenseWriteQueue {
+    private static final MetricsRegistry METRICS = MetricsRegistry.getInstance();
+    // Time producers spend waiting for room in a queue; rejections count as errors
+    private static final OperationMetrics ENQUEUE = METRICS.operation("ExpenseWriteQueue.enqueue");
+    // One sample per group commit, with the number of writes in the group as rows
+    private static final OperationMetrics COMMIT = METRICS.operation("ExpenseWriteQueue.commit");
+    // From adding a write to its acknowledgement
+    private static final OperationMetrics WRITE = METRICS.operation("ExpenseWriteQueue.write");
+
+    private static final long IDLE_POLL_MILLIS = 100;
+
+    private static volatile ExpenseWriteQueue instance;
+
+    private final ShardRouter router;
+    private final ExpenseDAO expenseDAO = new ExpenseDAO();
+    private final ExpenseEventBus events = ExpenseEventBus.getInstance();
+    private final int capacity;
+    private final int maxBatch;
+    private final long lingerNanos;
+    private final long offerTimeoutMillis;
+    private final ShardWriter[] writers;
+    private volatile boolean stopping;
+
+    /**
+     * @param router Shard router; one writer is started per shard on first use
+     * @param capacity Writes each shard's queue holds before producers have to wait
+     * @param maxBatch Most writes committed in one transaction
+     * @param lingerMillis How long a writer waits for more writes before committing a partial group
+     * @param offerTimeoutMillis How long a producer waits for room before its write is rejected
+     */
+    public ExpenseWriteQueue(ShardRouter router, int capacity, int maxBatch, long lingerMillis, long offerTimeoutMillis) {
+        this.router = router;
+        this.capacity = Math.max(1, capacity);
+        this.maxBatch = Math.max(1, maxBatch);
+        this.lingerNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, lingerMillis));
+        this.offerTimeoutMillis = Math.max(0, offerTimeoutMillis);
+        this.writers = new ShardWriter[router.getShardCount()];
+    }
+
+    /**
+     * Get the shared queue, configured from "expensetracker.writeQueue.*" settings.
+     * Queued writes are finished by DatabaseUtil.shutdown() before the pools close.
+     * @return ExpenseWriteQueue object
+     */
+    public static ExpenseWriteQueue getInstance() {
+        ExpenseWriteQueue current = instance;
+        if (current == null) {
+            synchronized (ExpenseWriteQueue.class) {
+                current = instance;
+                if (current == null) {
+                    Properties props = AppConfig.get();
+                    current = new ExpenseWriteQueue(DatabaseUtil.getShardRouter(),
+                            AppConfig.getInt(props, "expensetracker.writeQueue.capacity", 1024),
+                            AppConfig.getInt(props, "expensetracker.writeQueue.maxBatch", 256),
+                            AppConfig.getLong(props, "expensetracker.writeQueue.lingerMillis", 0),
+                            AppConfig.getLong(props, "expensetracker.writeQueue.offerTimeoutMillis", 1000));
+                    DatabaseUtil.addShutdownTask(current::shutdown);
+                    instance = current;
+                }
+            }
+        }
+        return current;
+    }
+
+    /**
+     * Whether interactive writes should go through the shared queue (expensetracker.writeQueue.enabled)
+     */
+    public static boolean isEnabled() {
+        return Boolean.parseBoolean(AppConfig.getString(AppConfig.get(), "expensetracker.writeQueue.enabled", "true"));
+    }
+
+    /**
+     * Queue a new expense. Its generated id is set before the future completes.
+     * May block while the shard's queue is full.
+     * @param expense Expense object
+     * @return Future completing with true once the expense is committed
+     * @throws RejectedExecutionException if the queue stayed full or is shut down
+     */
+    public CompletableFuture<Boolean> add(Expense expense) {
+        return submit(new Write<>(expense.getUserId(), false) {
+            @Override
+            void prepare(Connection conn) throws SQLException {
+                expenseDAO.ensureCategory(conn, expense);
+            }
+
+            @Override
+            Boolean apply(Connection conn, List<ExpenseEvent> changes) throws SQLException {
+                ExpenseEvent event = expenseDAO.insert(conn, expense);
+                if (event == null) {
+                    return false;
+                }
+                changes.add(event);
+                return true;
+            }
+        });
+    }
+
+    /**
+     * Queue an update of an existing expense. May block while the shard's queue is full.
+     * @param expense Expense object with updated data
+     * @return Future completing with true once the update is committed, false if the expense is gone
+     * @throws RejectedExecutionException if the queue stayed full or is shut down
+     */
+    public CompletableFuture<Boolean> update(Expense expense) {
+        return submit(new Write<>(expense.getUserId(), false) {
+            @Override
+            void prepare(Connection conn) throws SQLException {
+                expenseDAO.ensureCategory(conn, expense);
+            }
+
+            @Override
+            Boolean apply(Connection conn, List<ExpenseEvent> changes) throws SQLException {
+                ExpenseEvent event = expenseDAO.update(conn, expense);
+                if (event == null) {
+                    return false;
+                }
+                changes.add(event);
+                return true;
+            }
+        });
+    }
+
+    /**
+     * Queue the deletion of expenses of a user. They are deleted together or not at all.
+     * May block while the shard's queue is full.
+     * @param userId User ID; ids of other users' expenses are ignored
+     * @param expenseIds Expense IDs
+     * @return Future completing with the number of expenses deleted once committed
+     * @throws RejectedExecutionException if the queue stayed full or is shut down
+     */
+    public CompletableFuture<Integer> delete(int userId, Collection<Integer> expenseIds) {
+        if (expenseIds.isEmpty()) {
+            return CompletableFuture.completedFuture(0);
+        }
+        List<Integer> ids = List.copyOf(expenseIds);
+        return submit(new Write<>(userId, 0) {
+            @Override
+            Integer apply(Connection conn, List<ExpenseEvent> changes) throws SQLException {
+                List<ExpenseEvent> deleted = expenseDAO.delete(conn, userId, ids);
+                changes.addAll(deleted);
+                return deleted.size();
+            }
+        });
+    }
+
+    /**
+     * Stop taking writes and wait for the writers to commit everything already queued
+     */
+    public void shutdown() {
+        stopping = true;
+        for (ShardWriter writer : snapshotWriters()) {
+            try {
+                writer.thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            // A write that slipped in while its writer was exiting is not left hanging
+            Write<?> write;
+            while ((write = writer.queue.poll()) != null) {
+                write.future.completeExceptionally(new RejectedExecutionException("Expense write queue is shut down"));
+            }
+        }
+    }
+
+    /**
+     * @return Writes waiting in all queues
+     */
+    public int getPendingCount() {
+        int pending = 0;
+        for (ShardWriter writer : snapshotWriters()) {
+            pending += writer.queue.size();
+        }
+        return pending;
+    }
+
+    private <T> CompletableFuture<T> submit(Write<T> write) {
+        if (stopping) {
+            throw new RejectedExecutionException("Expense write queue is shut down");
+        }
+
+        int shard;
+        try {
+            shard = router.shardOf(write.userId);
+        } catch (SQLException e) {
+            System.err.println("Error queueing expense write: " + e.getMessage());
+            write.future.complete(write.failedResult);
+            return write.future;
+        }
+
+        ShardWriter writer = writerFor(shard);
+        long start = System.nanoTime();
+        boolean queued;
+        try {
+            queued = writer.queue.offer(write, offerTimeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            queued = false;
+        }
+        ENQUEUE.record(System.nanoTime() - start, 0);
+        if (!queued) {
+            RejectedExecutionException rejected = new RejectedExecutionException("Too many pending expense writes, try again");
+            ENQUEUE.failed(rejected);
+            throw rejected;
+        }
+        // A writer takes everything queued before it saw it had to stop; if it may have
+        // missed this write, take the write back rather than leave it unanswered
+        if (writer.isExiting() && writer.queue.remove(write)) {
+            throw new RejectedExecutionException("Expense writer of shard " + shard + " stopped, try again");
+        }
+        return write.future;
+    }
+
+    /**
+     * The writer of a shard, starting one if there is none or the last one was interrupted
+     */
+    private synchronized ShardWriter writerFor(int shard) {
+        ShardWriter writer = writers[shard];
+        if (writer == null || (writer.interrupted && !writer.thread.isAlive())) {
+            writer = new ShardWriter(shard);
+            writer.thread.start();
+            writers[shard] = writer;
+        }
+        return writer;
+    }
+
+    private synchronized List<ShardWriter> snapshotWriters() {
+        List<ShardWriter> started = new ArrayList<>();
+        for (ShardWriter writer : writers) {
+            if (writer != null) {
+                started.add(writer);
+            }
+        }
+        return started;
+    }
+
+    /**
+     * One queued write and the future that acknowledges it
+     */
+    private abstract static class Write<T> {
+        private final int userId;
+        private final CompletableFuture<T> future = new CompletableFuture<>();
+        private final T failedResult;
+        private final long queuedAt = System.nanoTime();
+        private T result;
+        private Exception error;
+
+        Write(int userId, T failedResult) {
+            this.userId = userId;
+            this.failedResult = failedResult;
+        }
+
+        /**
+         * Work that must be committed before the group's transaction starts, e.g. new categories
+         */
+        void prepare(Connection conn) throws SQLException {
+        }
+
+        /**
+         * Apply the write inside the group's transaction, adding the changes to publish
+         */
+        abstract T apply(Connection conn, List<ExpenseEvent> changes) throws SQLException;
+
+        private void acknowledge() {
+            WRITE.record(System.nanoTime() - queuedAt, 1);
+            if (error != null) {
+                WRITE.failed(error);
+                System.err.println("Error writing expense: " + error.getMessage());
+                future.complete(failedResult);
+            } else {
+                future.complete(result);
+            }
+        }
+    }
+
+    /**
+     * The single consumer of one shard's queue
+     */
+    private final class ShardWriter implements Runnable {
+        private final int shard;
+        private final BlockingQueue<Write<?>> queue = new ArrayBlockingQueue<>(capacity);
+        private final Thread thread;
+        private volatile boolean interrupted;
+
+        private ShardWriter(int shard) {
+            this.shard = shard;
+            this.thread = new Thread(this, "expense-writer-" + shard);
+            this.thread.setDaemon(true);
+        }
+
+        private boolean isExiting() {
+            return interrupted || stopping;
+        }
+
+        @Override
+        public void run() {
+            List<Write<?>> group = new ArrayList<>(maxBatch);
+            while (true) {
+                try {
+                    Write<?> first = queue.poll(IDLE_POLL_MILLIS, TimeUnit.MILLISECONDS);
+                    if (first == null) {
+                        if (isExiting()) {
+                            return;
+                        }
+                        continue;
+                    }
+                    group.add(first);
+                    collect(group);
+                } catch (InterruptedException e) {
+                    // Stop this writer once its queue is empty; writerFor() starts a new one
+                    interrupted = true;
+                }
+                if (!group.isEmpty()) {
+                    for (Write<?> write : group) {
+                        events.beginWrite(write.userId);
+                    }
+                    try {
+                        commit(group);
+                    } catch (Throwable e) {
+                        // A bug must not end the shard's only writer or leave its callers waiting
+                        COMMIT.failed(e);
+                        System.err.println("Error in expense writer of shard " + shard + ": " + e);
+                        for (Write<?> write : group) {
+                            write.future.completeExceptionally(e);
+                        }
+                    } finally {
+                        for (Write<?> write : group) {
+                            events.endWrite(write.userId);
+                        }
+                    }
+                    group.clear();
+                }
+            }
+        }
+
+        /**
+         * Take what is pending, then wait out the linger time for more while the group has room
+         */
+        private void collect(List<Write<?>> group) throws InterruptedException {
+            queue.drainTo(group, maxBatch - group.size());
+            long deadline = System.nanoTime() + lingerNanos;
+            while (group.size() < maxBatch && !isExiting()) {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    return;
+                }
+                Write<?> next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                if (next == null) {
+                    return;
+                }
+                group.add(next);
+                queue.drainTo(group, maxBatch - group.size());
+            }
+        }
+
+        private void commit(List<Write<?>> group) {
+            List<ExpenseEvent> changes = new ArrayList<>();
+            long start = System.nanoTime();
+
+            try (Connection conn = router.getPool(shard).getConnection()) {
+                // New categories are committed first, so a rolled back write cannot take them along
+                for (Write<?> write : group) {
+                    try {
+                        write.prepare(conn);
+                    } catch (SQLException | RuntimeException e) {
+                        write.error = e;
+                    }
+                }
+
+                // On failure autocommit stays off: turning it back on would commit what was
+                // applied so far, and the pool rolls back and resets the connection anyway
+                conn.setAutoCommit(false);
+                try {
+                    if (!applyAll(conn, group, changes)) {
+                        // Something failed: start over with a savepoint per write to single it out
+                        conn.rollback();
+                        changes.clear();
+                        for (Write<?> write : group) {
+                            if (write.error == null) {
+                                applyIsolated(conn, write, changes);
+                            }
+                        }
+                    }
+                    conn.commit();
+                } catch (SQLException | RuntimeException e) {
+                    conn.rollback();
+                    throw e;
+                }
+                conn.setAutoCommit(true);
+
+            } catch (SQLException | RuntimeException e) {
+                COMMIT.failed(e);
+                System.err.println("Error committing expense writes: " + e.getMessage());
+                for (Write<?> write : group) {
+                    write.error = e;
+                    write.acknowledge();
+                }
+                return;
+            }
+
+            COMMIT.record(System.nanoTime() - start, group.size());
+            events.publish(changes);
+            for (Write<?> write : group) {
+                write.acknowledge();
+            }
+        }
+
+        /**
+         * Apply the group without savepoints, which almost always succeeds
+         * @return false if a write failed and the transaction has to be rolled back
+         */
+        private boolean applyAll(Connection conn, List<Write<?>> group, List<ExpenseEvent> changes) {
+            for (Write<?> write : group) {
+                if (write.error == null) {
+                    try {
+                        apply(conn, write, changes);
+                    } catch (SQLException | RuntimeException e) {
+                        return false;
+                    }
+                }
+            }
+            return true;
+        }
+
+        private <T> void apply(Connection conn, Write<T> write, List<ExpenseEvent> changes) throws SQLException {
+            write.result = write.apply(conn, changes);
+        }
+
+        private <T> void applyIsolated(Connection conn, Write<T> write, List<ExpenseEvent> changes) throws SQLException {
+            int published = changes.size();
+            Savepoint savepoint = conn.setSavepoint();
+            try {
+                write.result = write.apply(conn, changes);
+                conn.releaseSavepoint(savepoint);
+            } catch (SQLException | RuntimeException e) {
+                conn.rollback(savepoint);
+                conn.releaseSavepoint(savepoint);
+                changes.subList(published, changes.size()).clear();
+                write.error = e;
+            }
+        }
+    }
+}
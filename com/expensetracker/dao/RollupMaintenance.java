@@ -0,0 +1,109 @@
+package dao;
+
+import util.DatabaseUtil;
+import util.ShardRouter;
+
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Rollup Maintenance
+ * Checks expense_rollups against a fresh aggregation of the expenses table and
+ * rebuilds it when they disagree, e.g. after rows were edited with the triggers dropped.
+ * With sharding on, every shard is checked.
+ *
+ * Usage: mvn -q compile exec:java -Dexec.mainClass=dao.RollupMaintenance -Dexec.args="[verify|rebuild]"
+ */
+public class RollupMaintenance {
+    private static final String AGGREGATE_SQL =
+            "SELECT user_id, substr(expense_date, 1, 7) AS year_month, category_id, " +
+            "SUM(amount_minor) AS total, COUNT(*) AS count " +
+            "FROM expenses GROUP BY user_id, substr(expense_date, 1, 7), category_id";
+
+    // Rows on either side without a match on the other show up with zeros there
+    private static final String MISMATCH_SQL =
+            "SELECT user_id, year_month, category_id, " +
+            "SUM(rollup_total) AS rollup_total, SUM(rollup_count) AS rollup_count, " +
+            "SUM(actual_total) AS actual_total, SUM(actual_count) AS actual_count FROM (" +
+            "SELECT user_id, year_month, category_id, total AS rollup_total, count AS rollup_count, " +
+            "0 AS actual_total, 0 AS actual_count FROM expense_rollups " +
+            "UNION ALL " +
+            "SELECT user_id, year_month, category_id, 0, 0, total, count FROM (" + AGGREGATE_SQL + ")" +
+            ") GROUP BY user_id, year_month, category_id " +
+            "HAVING SUM(rollup_total) <> SUM(actual_total) OR SUM(rollup_count) <> SUM(actual_count)";
+
+    /**
+     * Compare every rollup row with the expenses it summarizes
+     * @param conn Database connection
+     * @return One line per disagreeing group, empty when the rollups are exact
+     */
+    public List<String> verify(Connection conn) throws SQLException {
+        List<String> problems = new ArrayList<>();
+
+        try (PreparedStatement pstmt = conn.prepareStatement(MISMATCH_SQL)) {
+            ResultSet rs = pstmt.executeQuery();
+            while (rs.next()) {
+                problems.add("user " + rs.getInt("user_id") +
+                        ", month " + rs.getString("year_month") +
+                        ", category " + rs.getInt("category_id") +
+                        ": rollup " + rs.getLong("rollup_total") + " in " + rs.getLong("rollup_count") + " rows" +
+                        ", expenses " + rs.getLong("actual_total") + " in " + rs.getLong("actual_count") + " rows");
+            }
+        }
+
+        return problems;
+    }
+
+    /**
+     * Recompute expense_rollups from the expenses table in one transaction
+     * @param conn Database connection in autocommit mode
+     * @return Number of rollup rows written
+     */
+    public int rebuild(Connection conn) throws SQLException {
+        conn.setAutoCommit(false);
+        try (Statement stmt = conn.createStatement()) {
+            stmt.executeUpdate("DELETE FROM expense_rollups");
+            int rows = stmt.executeUpdate(
+                    "INSERT INTO expense_rollups (user_id, year_month, category_id, total, count) " + AGGREGATE_SQL);
+            conn.commit();
+            return rows;
+        } catch (SQLException e) {
+            conn.rollback();
+            throw e;
+        } finally {
+            conn.setAutoCommit(true);
+        }
+    }
+
+    public static void main(String[] args) throws SQLException {
+        boolean rebuild = args.length > 0 && args[0].equals("rebuild");
+        DatabaseUtil.initializeDatabase();
+
+        // Rollups live next to the expenses they summarize, so every shard is checked on its own
+        RollupMaintenance maintenance = new RollupMaintenance();
+        ShardRouter shards = DatabaseUtil.getShardRouter();
+        List<String> problems = new ArrayList<>();
+        for (int shard = 0; shard < shards.getShardCount(); shard++) {
+            String prefix = shards.getShardCount() > 1 ? "shard " + shard + ", " : "";
+            try (Connection conn = shards.getPool(shard).getConnection()) {
+                if (rebuild) {
+                    System.out.println("Rebuilt " + maintenance.rebuild(conn) + " rollup rows" +
+                            (prefix.isEmpty() ? "." : " on shard " + shard + "."));
+                }
+                for (String problem : maintenance.verify(conn)) {
+                    problems.add(prefix + problem);
+                }
+            }
+        }
+
+        if (problems.isEmpty()) {
+            System.out.println("Expense rollups match the expenses table.");
+            return;
+        }
+
+        problems.forEach(System.err::println);
+        System.err.println(problems.size() + " rollup groups are out of date; run with 'rebuild' to fix them.");
+        System.exit(1);
+    }
+}
@@ -1,16 +1,38 @@
 package dao;
 
+import metrics.MetricsRegistry;
+import metrics.OperationMetrics;
 import model.User;
+import security.PasswordService;
 import util.DatabaseUtil;
-import util.PasswordUtil;
 
 import java.sql.*;
+import java.util.concurrent.RejectedExecutionException;
 
 /**
  * User Data Access Object
  * Handles all database operations for User entity
  */
 public class UserDAO {
+    private static final MetricsRegistry METRICS = MetricsRegistry.getInstance();
+    private static final OperationMetrics REGISTER_USER = METRICS.operation("UserDAO.registerUser");
+    private static final OperationMetrics LOGIN_USER = METRICS.operation("UserDAO.loginUser");
+    // Password work runs outside the connection, so it is timed separately from the queries
+    private static final OperationMetrics HASH_PASSWORD = METRICS.operation("UserDAO.hashPassword");
+    private static final OperationMetrics VERIFY_PASSWORD = METRICS.operation("UserDAO.verifyPassword");
+    private static final OperationMetrics UPGRADE_PASSWORD_HASH = METRICS.operation("UserDAO.upgradePasswordHash");
+    private static final OperationMetrics USERNAME_EXISTS = METRICS.operation("UserDAO.usernameExists");
+    private static final OperationMetrics EMAIL_EXISTS = METRICS.operation("UserDAO.emailExists");
+
+    private final PasswordService passwordService;
+
+    public UserDAO() {
+        this(PasswordService.getInstance());
+    }
+
+    public UserDAO(PasswordService passwordService) {
+        this.passwordService = passwordService;
+    }
 
     /**
      * Register a new user
@@ -20,55 +42,139 @@ public class UserDAO {
     public boolean registerUser(User user) {
         String sql = "INSERT INTO users (username, email, password) VALUES (?, ?, ?)";
 
-        try (Connection conn = DatabaseUtil.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+        // Hash before borrowing a connection, since hashing takes a while
+        String passwordHash;
+        try (OperationMetrics.Call call = HASH_PASSWORD.start()) {
+            passwordHash = passwordService.hash(user.getPassword());
+            call.rows(1);
+        } catch (RejectedExecutionException e) {
+            HASH_PASSWORD.failed(e);
+            System.err.println("Error registering user: too many requests, try again");
+            return false;
+        } catch (RuntimeException e) {
+            HASH_PASSWORD.failed(e);
+            System.err.println("Error registering user: " + e.getMessage());
+            return false;
+        }
+
+        try (OperationMetrics.Call call = REGISTER_USER.start();
+             Connection conn = DatabaseUtil.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
 
             pstmt.setString(1, user.getUsername());
             pstmt.setString(2, user.getEmail());
-            pstmt.setString(3, PasswordUtil.hashPassword(user.getPassword()));
+            pstmt.setString(3, passwordHash);
 
             int rowsAffected = pstmt.executeUpdate();
+            call.rows(rowsAffected);
+            if (rowsAffected > 0) {
+                ResultSet keys = pstmt.getGeneratedKeys();
+                if (keys.next()) {
+                    assignShard(keys.getInt(1));
+                }
+            }
             return rowsAffected > 0;
 
         } catch (SQLException e) {
+            REGISTER_USER.failed(e);
             System.err.println("Error registering user: " + e.getMessage());
             return false;
         }
     }
 
     /**
-     * Login user with username and password
+     * Place a new user on a shard right away, so the directory does not depend on which
+     * request happens to touch their expenses first. A failure here is not fatal: the
+     * user is placed on their first expense instead.
+     */
+    private void assignShard(int userId) {
+        try {
+            DatabaseUtil.getShardRouter().assign(userId);
+        } catch (SQLException e) {
+            System.err.println("Error placing user " + userId + " on a shard: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Login user with username and password.
+     * A password stored in an outdated format is re-hashed with the current one on success.
      * @param username Username
      * @param password Plain text password
      * @return User object if login successful, null otherwise
      */
     public User loginUser(String username, String password) {
         String sql = "SELECT user_id, username, email, password FROM users WHERE username = ?";
+        User user = null;
+        String storedHash = null;
 
-        try (Connection conn = DatabaseUtil.getConnection();
+        try (OperationMetrics.Call call = LOGIN_USER.start();
+             Connection conn = DatabaseUtil.getConnection();
              PreparedStatement pstmt = conn.prepareStatement(sql)) {
 
             pstmt.setString(1, username);
             ResultSet rs = pstmt.executeQuery();
 
             if (rs.next()) {
-                String storedHash = rs.getString("password");
-
-                // Verify password
-                if (PasswordUtil.verifyPassword(password, storedHash)) {
-                    User user = new User();
-                    user.setUserId(rs.getInt("user_id"));
-                    user.setUsername(rs.getString("username"));
-                    user.setEmail(rs.getString("email"));
-                    return user;
-                }
+                call.rows(1);
+                storedHash = rs.getString("password");
+                user = new User();
+                user.setUserId(rs.getInt("user_id"));
+                user.setUsername(rs.getString("username"));
+                user.setEmail(rs.getString("email"));
             }
 
         } catch (SQLException e) {
+            LOGIN_USER.failed(e);
+            System.err.println("Error logging in user: " + e.getMessage());
+            return null;
+        }
+
+        // Verify after the connection is back in the pool; unknown users cost the same as wrong passwords
+        PasswordService.Verification verification;
+        try (OperationMetrics.Call call = VERIFY_PASSWORD.start()) {
+            verification = user != null
+                    ? passwordService.verify(password, storedHash)
+                    : passwordService.verifyUnknownUser(password);
+            call.rows(1);
+        } catch (RejectedExecutionException e) {
+            VERIFY_PASSWORD.failed(e);
+            System.err.println("Error logging in user: too many concurrent logins, try again");
+            return null;
+        } catch (RuntimeException e) {
+            VERIFY_PASSWORD.failed(e);
             System.err.println("Error logging in user: " + e.getMessage());
+            return null;
         }
 
-        return null;
+        if (!verification.isMatched()) {
+            return null;
+        }
+        if (verification.getUpgradedHash() != null) {
+            upgradePasswordHash(user.getUserId(), storedHash, verification.getUpgradedHash());
+        }
+        return user;
+    }
+
+    /**
+     * Replace an outdated password hash, unless the password changed in the meantime
+     */
+    private void upgradePasswordHash(int userId, String oldHash, String newHash) {
+        String sql = "UPDATE users SET password = ? WHERE user_id = ? AND password = ?";
+
+        try (OperationMetrics.Call call = UPGRADE_PASSWORD_HASH.start();
+             Connection conn = DatabaseUtil.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+            pstmt.setString(1, newHash);
+            pstmt.setInt(2, userId);
+            pstmt.setString(3, oldHash);
+            call.rows(pstmt.executeUpdate());
+
+        } catch (SQLException e) {
+            UPGRADE_PASSWORD_HASH.failed(e);
+            // Not fatal: the old hash still works and the upgrade is retried on the next login
+            System.err.println("Error upgrading password hash: " + e.getMessage());
+        }
     }
 
     /**
@@ -79,17 +185,20 @@ public class UserDAO {
     public boolean usernameExists(String username) {
         String sql = "SELECT COUNT(*) FROM users WHERE username = ?";
 
-        try (Connection conn = DatabaseUtil.getConnection();
+        try (OperationMetrics.Call call = USERNAME_EXISTS.start();
+             Connection conn = DatabaseUtil.getConnection();
              PreparedStatement pstmt = conn.prepareStatement(sql)) {
 
             pstmt.setString(1, username);
             ResultSet rs = pstmt.executeQuery();
 
             if (rs.next()) {
+                call.rows(1);
                 return rs.getInt(1) > 0;
             }
 
         } catch (SQLException e) {
+            USERNAME_EXISTS.failed(e);
             System.err.println("Error checking username: " + e.getMessage());
         }
 
@@ -104,17 +213,20 @@ public class UserDAO {
     public boolean emailExists(String email) {
         String sql = "SELECT COUNT(*) FROM users WHERE email = ?";
 
-        try (Connection conn = DatabaseUtil.getConnection();
+        try (OperationMetrics.Call call = EMAIL_EXISTS.start();
+             Connection conn = DatabaseUtil.getConnection();
              PreparedStatement pstmt = conn.prepareStatement(sql)) {
 
             pstmt.setString(1, email);
             ResultSet rs = pstmt.executeQuery();
 
             if (rs.next()) {
+                call.rows(1);
                 return rs.getInt(1) > 0;
             }
 
         } catch (SQLException e) {
+            EMAIL_EXISTS.failed(e);
             System.err.println("Error checking email: " + e.getMessage());
         }
 
@@ -0,0 +1,72 @@
+package exporter;
+
+import model.Expense;
+import model.Money;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * CSV Expense Writer
+ * Writes expenses as CSV with the columns CsvExpenseReader recognises (date, title, amount,
+ * category, description), so an export can be imported again. Fields containing commas,
+ * quotes or line breaks are quoted, with quotes doubled.
+ */
+public class CsvExpenseWriter extends ExpenseWriter {
+    private static final String HEADER = "date,title,amount,category,description";
+
+    public CsvExpenseWriter(Writer out) {
+        super(out);
+    }
+
+    @Override
+    public void writeHeader() throws IOException {
+        out.write(HEADER);
+        out.write('\n');
+    }
+
+    @Override
+    public void write(Expense expense) throws IOException {
+        out.write(expense.getExpenseDate().toString());
+        out.write(',');
+        writeField(expense.getTitle());
+        out.write(',');
+        out.write(Money.toPlainString(expense.getAmount()));
+        out.write(',');
+        writeField(expense.getCategory());
+        out.write(',');
+        writeField(expense.getDescription());
+        out.write('\n');
+    }
+
+    private void writeField(String value) throws IOException {
+        if (value == null || value.isEmpty()) {
+            return;
+        }
+        if (!needsQuotes(value)) {
+            out.write(value);
+            return;
+        }
+
+        out.write('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"') {
+                out.write('"');
+            }
+            out.write(c);
+        }
+        out.write('"');
+    }
+
+    private static boolean needsQuotes(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == ',' || c == '"' || c == '\n' || c == '\r') {
+                return true;
+            }
+        }
+        // Leading or trailing spaces would be trimmed on import
+        return Character.isWhitespace(value.charAt(0)) || Character.isWhitespace(value.charAt(value.length() - 1));
+    }
+}
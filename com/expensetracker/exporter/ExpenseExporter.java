@@ -0,0 +1,275 @@
+package exporter;
+
+import dao.ExpenseDAO;
+import dao.ExpenseQuery;
+import util.AppConfig;
+import util.DatabaseUtil;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.sql.SQLException;
+import java.util.Locale;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Expense Exporter
+ * Streams the expenses matching a query from the database straight into a CSV or JSON Lines
+ * file, optionally gzipped. Rows flow from a forward-only cursor through a fixed-size buffer
+ * into a FileChannel, so heap use stays flat however long the history is.
+ * The file is written under a temporary name and only moved into place once complete.
+ *
+ * Usage: mvn -q compile exec:java -Dexec.mainClass=exporter.ExpenseExporter -Dexec.args="userId file [fetchSize]"
+ */
+public class ExpenseExporter {
+    public static final int DEFAULT_FETCH_SIZE = AppConfig.getInt(AppConfig.get(),
+            "expensetracker.export.fetchSize", 1000);
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int PROGRESS_INTERVAL = 1000;
+
+    /**
+     * Export file formats
+     */
+    public enum Format {
+        CSV(".csv"),
+        JSON_LINES(".jsonl");
+
+        private final String extension;
+
+        Format(String extension) {
+            this.extension = extension;
+        }
+
+        public String getExtension() {
+            return extension;
+        }
+
+        /**
+         * Pick the format from a file name such as "expenses.csv" or "expenses.jsonl.gz"
+         * @param fileName File name
+         * @return Format, or null if the extension is not recognised
+         */
+        public static Format fromFileName(String fileName) {
+            String name = stripGzip(fileName.toLowerCase(Locale.ROOT));
+            if (name.endsWith(".csv")) {
+                return CSV;
+            }
+            if (name.endsWith(".jsonl") || name.endsWith(".ndjson")) {
+                return JSON_LINES;
+            }
+            return null;
+        }
+
+        public ExpenseWriter newWriter(Writer out) {
+            return this == CSV ? new CsvExpenseWriter(out) : new JsonLinesExpenseWriter(out);
+        }
+    }
+
+    /**
+     * Receives progress updates from a running export, on the exporting thread
+     */
+    public interface ProgressListener {
+
+        /**
+         * @param written Expenses written so far
+         * @param total Expenses the export is expected to write
+         */
+        void progress(long written, long total);
+
+        /**
+         * Polled between records; returning true abandons the export and deletes the partial file
+         */
+        default boolean isCancelled() {
+            return false;
+        }
+    }
+
+    private final ExpenseDAO expenseDAO;
+    private final int fetchSize;
+
+    public ExpenseExporter() {
+        this(new ExpenseDAO(), DEFAULT_FETCH_SIZE);
+    }
+
+    public ExpenseExporter(ExpenseDAO expenseDAO, int fetchSize) {
+        this.expenseDAO = expenseDAO;
+        this.fetchSize = fetchSize;
+    }
+
+    /**
+     * Export to a file, choosing the format from its extension and gzipping if it ends in .gz
+     * @param query Expenses to export
+     * @param file Target file
+     * @param progress Progress listener, or null
+     * @return Export report
+     */
+    public ExportReport exportFile(ExpenseQuery query, Path file, ProgressListener progress)
+            throws IOException, SQLException {
+        String name = file.getFileName().toString();
+        Format format = Format.fromFileName(name);
+        if (format == null) {
+            throw new IOException("Unsupported export format: " + name);
+        }
+        return export(query, file, format, isGzip(name), progress);
+    }
+
+    /**
+     * Export the expenses matching a query, oldest first
+     * @param query Expenses to export
+     * @param file Target file; replaced only if the export completes
+     * @param format File format
+     * @param gzip Whether to gzip the output
+     * @param progress Progress listener, or null
+     * @return Export report
+     */
+    public ExportReport export(ExpenseQuery query, Path file, Format format, boolean gzip,
+                               ProgressListener progress) throws IOException, SQLException {
+        long start = System.nanoTime();
+        // Taken from the rollups for whole months, so it is cheap next to the export itself
+        long total = expenseDAO.countExpenses(query);
+        Path partial = file.resolveSibling(file.getFileName() + ".part");
+
+        long written;
+        boolean cancelled;
+        try (ExpenseWriter writer = format.newWriter(openWriter(partial, gzip))) {
+            writer.writeHeader();
+            long[] count = new long[1];
+            written = expenseDAO.streamExpenses(query, fetchSize, expense -> {
+                if (progress != null && progress.isCancelled()) {
+                    return false;
+                }
+                writer.write(expense);
+                if (progress != null && ++count[0] % PROGRESS_INTERVAL == 0) {
+                    progress.progress(count[0], Math.max(total, count[0]));
+                }
+                return true;
+            });
+            cancelled = progress != null && progress.isCancelled();
+        } catch (IOException | SQLException | RuntimeException e) {
+            Files.deleteIfExists(partial);
+            throw e;
+        }
+
+        if (cancelled) {
+            Files.deleteIfExists(partial);
+            return new ExportReport(file, written, 0, millisSince(start), true);
+        }
+
+        try {
+            Files.move(partial, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(partial, file, StandardCopyOption.REPLACE_EXISTING);
+        }
+        if (progress != null) {
+            progress.progress(written, written);
+        }
+        return new ExportReport(file, written, Files.size(file), millisSince(start), false);
+    }
+
+    public static boolean isGzip(String fileName) {
+        return fileName.toLowerCase(Locale.ROOT).endsWith(".gz");
+    }
+
+    private static String stripGzip(String fileName) {
+        return isGzip(fileName) ? fileName.substring(0, fileName.length() - 3) : fileName;
+    }
+
+    /**
+     * Character writer over a FileChannel. Characters are encoded into a fixed buffer and reach
+     * the channel in large writes; gzip, when enabled, sits between the encoder and the channel.
+     */
+    private static Writer openWriter(Path file, boolean gzip) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+        OutputStream out = new BufferedOutputStream(Channels.newOutputStream(channel), BUFFER_SIZE);
+        if (gzip) {
+            out = new GZIPOutputStream(out, BUFFER_SIZE);
+        }
+        return new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), BUFFER_SIZE);
+    }
+
+    private static long millisSince(long startNanos) {
+        return (System.nanoTime() - startNanos) / 1_000_000;
+    }
+
+    /**
+     * Outcome of an export
+     */
+    public static class ExportReport {
+        private final Path file;
+        private final long exportedCount;
+        private final long bytes;
+        private final long millis;
+        private final boolean cancelled;
+
+        public ExportReport(Path file, long exportedCount, long bytes, long millis, boolean cancelled) {
+            this.file = file;
+            this.exportedCount = exportedCount;
+            this.bytes = bytes;
+            this.millis = millis;
+            this.cancelled = cancelled;
+        }
+
+        public Path getFile() {
+            return file;
+        }
+
+        public long getExportedCount() {
+            return exportedCount;
+        }
+
+        public long getBytes() {
+            return bytes;
+        }
+
+        public long getMillis() {
+            return millis;
+        }
+
+        public boolean isCancelled() {
+            return cancelled;
+        }
+
+        @Override
+        public String toString() {
+            return "ExportReport{" +
+                    "file=" + file +
+                    ", exported=" + exportedCount +
+                    ", bytes=" + bytes +
+                    ", millis=" + millis +
+                    ", cancelled=" + cancelled +
+                    '}';
+        }
+    }
+
+    public static void main(String[] args) throws IOException, SQLException {
+        if (args.length < 2) {
+            System.err.println("Usage: ExpenseExporter userId file [fetchSize]");
+            System.exit(2);
+        }
+
+        DatabaseUtil.initializeDatabase();
+        int fetchSize = args.length > 2 ? Integer.parseInt(args[2]) : DEFAULT_FETCH_SIZE;
+        ExpenseExporter exporter = new ExpenseExporter(new ExpenseDAO(), fetchSize);
+
+        ExportReport report = exporter.exportFile(ExpenseQuery.forUser(Integer.parseInt(args[0])),
+                Paths.get(args[1]), null);
+        Runtime runtime = Runtime.getRuntime();
+        System.out.println(report);
+        System.out.println("Heap in use: " + (runtime.totalMemory() - runtime.freeMemory()) / (1024 * 1024) + " MiB");
+        DatabaseUtil.shutdown();
+    }
+}
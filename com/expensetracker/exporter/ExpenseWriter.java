@@ -0,0 +1,37 @@
+package exporter;
+
+import model.Expense;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Expense Writer
+ * Writes expenses to an export file one record at a time. Nothing is kept after a
+ * record is written, so memory use does not depend on how many expenses are exported.
+ */
+public abstract class ExpenseWriter implements Closeable {
+    protected final Writer out;
+
+    protected ExpenseWriter(Writer out) {
+        this.out = out;
+    }
+
+    /**
+     * Write whatever precedes the first record, e.g. a header row
+     */
+    public void writeHeader() throws IOException {
+    }
+
+    /**
+     * Write one expense
+     * @param expense Expense object
+     */
+    public abstract void write(Expense expense) throws IOException;
+
+    @Override
+    public void close() throws IOException {
+        out.close();
+    }
+}
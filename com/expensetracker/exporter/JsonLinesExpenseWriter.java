@@ -0,0 +1,91 @@
+package exporter;
+
+import model.Expense;
+import model.Money;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * JSON Lines Expense Writer
+ * Writes one JSON object per line, e.g.
+ * {"id":7,"date":"2024-03-01","title":"Lunch","amount":"120.50","amountMinor":12050,"category":"Food","description":null}
+ * The amount is given both as a decimal string and as exact paise.
+ * The same object form is used by the REST API, through the static helpers.
+ */
+public class JsonLinesExpenseWriter extends ExpenseWriter {
+
+    public JsonLinesExpenseWriter(Writer out) {
+        super(out);
+    }
+
+    @Override
+    public void write(Expense expense) throws IOException {
+        writeObject(out, expense);
+        out.write('\n');
+    }
+
+    /**
+     * Append an expense as one JSON object, without a line break
+     * @param out Target
+     * @param expense Expense to write
+     */
+    public static void writeObject(Appendable out, Expense expense) throws IOException {
+        out.append("{\"id\":");
+        out.append(Integer.toString(expense.getExpenseId()));
+        out.append(",\"date\":\"");
+        out.append(expense.getExpenseDate().toString());
+        out.append("\",\"title\":");
+        writeString(out, expense.getTitle());
+        out.append(",\"amount\":\"");
+        out.append(Money.toPlainString(expense.getAmount()));
+        out.append("\",\"amountMinor\":");
+        out.append(Long.toString(expense.getAmount()));
+        out.append(",\"category\":");
+        writeString(out, expense.getCategory());
+        out.append(",\"description\":");
+        writeString(out, expense.getDescription());
+        out.append('}');
+    }
+
+    /**
+     * Append a JSON string literal, or null
+     * @param out Target
+     * @param value String to quote and escape
+     */
+    public static void writeString(Appendable out, String value) throws IOException {
+        if (value == null) {
+            out.append("null");
+            return;
+        }
+
+        out.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"':
+                    out.append("\\\"");
+                    break;
+                case '\\':
+                    out.append("\\\\");
+                    break;
+                case '\n':
+                    out.append("\\n");
+                    break;
+                case '\r':
+                    out.append("\\r");
+                    break;
+                case '\t':
+                    out.append("\\t");
+                    break;
+                default:
+                    if (c < 0x20) {
+                        out.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        out.append(c);
+                    }
+            }
+        }
+        out.append('"');
+    }
+}
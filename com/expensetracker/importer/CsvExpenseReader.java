@@ -0,0 +1,155 @@
+package importer;
+
+import model.Expense;
+import model.Money;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * CSV Expense Reader
+ * Reads expenses from a CSV file with a header row. Recognised columns (any order,
+ * case-insensitive): date, title, amount, category, description. Date, title and amount
+ * are required; category defaults to "Other". Quoted fields may contain commas, doubled
+ * quotes and line breaks, and keep their leading and trailing spaces; unquoted fields are trimmed.
+ */
+public class CsvExpenseReader extends ExpenseReader {
+    private static final String DEFAULT_CATEGORY = "Other";
+
+    private Map<String, Integer> columns;
+
+    public CsvExpenseReader(BufferedReader reader, int userId) {
+        super(reader, userId);
+    }
+
+    @Override
+    protected Expense readNext() throws IOException {
+        if (columns == null && !readHeader()) {
+            return null;
+        }
+
+        List<String> fields;
+        while ((fields = readRecord()) != null) {
+            int recordLine = lineNumber;
+            if (fields.size() == 1 && fields.get(0).isBlank()) {
+                continue;
+            }
+
+            try {
+                return toExpense(fields);
+            } catch (IllegalArgumentException | DateTimeParseException e) {
+                reportFailure(recordLine, e.getMessage());
+            }
+        }
+        return null;
+    }
+
+    private boolean readHeader() throws IOException {
+        List<String> header = readRecord();
+        if (header == null) {
+            return false;
+        }
+
+        columns = new HashMap<>();
+        for (int i = 0; i < header.size(); i++) {
+            columns.put(header.get(i).trim().toLowerCase(Locale.ROOT), i);
+        }
+        for (String required : new String[]{"date", "title", "amount"}) {
+            if (!columns.containsKey(required)) {
+                throw new IOException("CSV header is missing the '" + required + "' column");
+            }
+        }
+        return true;
+    }
+
+    private Expense toExpense(List<String> fields) {
+        String amountText = field(fields, "amount");
+        if (amountText == null || amountText.isEmpty()) {
+            throw new IllegalArgumentException("Missing amount");
+        }
+
+        String dateText = field(fields, "date");
+        if (dateText == null || dateText.isEmpty()) {
+            throw new IllegalArgumentException("Missing date");
+        }
+
+        String category = field(fields, "category");
+        return new Expense(
+                userId,
+                field(fields, "title"),
+                Money.parse(amountText),
+                category == null || category.isEmpty() ? DEFAULT_CATEGORY : category,
+                LocalDate.parse(dateText),
+                field(fields, "description")
+        );
+    }
+
+    private String field(List<String> fields, String column) {
+        Integer index = columns.get(column);
+        return index == null || index >= fields.size() ? null : fields.get(index);
+    }
+
+    /**
+     * Read one CSV record, which may span several lines when a quoted field contains line breaks
+     * @return Fields of the record, quoted ones as written and the rest trimmed, or null at end of input
+     */
+    private List<String> readRecord() throws IOException {
+        String line = readLine();
+        if (line == null) {
+            return null;
+        }
+
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        // Whether the current field opened with a quote, so spaces around the quotes are dropped
+        boolean quotedField = false;
+
+        while (true) {
+            for (int i = 0; i < line.length(); i++) {
+                char c = line.charAt(i);
+                if (quoted) {
+                    if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                        field.append('"');
+                        i++;
+                    } else if (c == '"') {
+                        quoted = false;
+                    } else {
+                        field.append(c);
+                    }
+                } else if (c == '"') {
+                    if (!quotedField && field.toString().isBlank()) {
+                        field.setLength(0);
+                        quotedField = true;
+                    }
+                    quoted = true;
+                } else if (c == ',') {
+                    fields.add(quotedField ? field.toString() : field.toString().trim());
+                    field.setLength(0);
+                    quotedField = false;
+                } else if (!quotedField || !Character.isWhitespace(c)) {
+                    field.append(c);
+                }
+            }
+
+            if (!quoted) {
+                break;
+            }
+            line = readLine();
+            if (line == null) {
+                break;
+            }
+            field.append('\n');
+        }
+
+        fields.add(quotedField ? field.toString() : field.toString().trim());
+        return fields;
+    }
+}
@@ -0,0 +1,128 @@
+package importer;
+
+import dao.ExpenseDAO;
+import model.BatchResult;
+import util.DatabaseUtil;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Locale;
+
+/**
+ * Expense Importer
+ * Streams a CSV or OFX statement into ExpenseDAO.addExpenses. The file is parsed lazily
+ * while batches are written, so memory use is bounded by the chunk size, not the file size.
+ *
+ * Usage: mvn -q compile exec:java -Dexec.mainClass=importer.ExpenseImporter -Dexec.args="userId file [chunkSize]"
+ */
+public class ExpenseImporter {
+    private final ExpenseDAO expenseDAO;
+    private final int chunkSize;
+
+    public ExpenseImporter() {
+        this(new ExpenseDAO(), ExpenseDAO.DEFAULT_BATCH_SIZE);
+    }
+
+    public ExpenseImporter(ExpenseDAO expenseDAO, int chunkSize) {
+        this.expenseDAO = expenseDAO;
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Import a statement file, choosing the format from its extension (.csv, .ofx or .qfx)
+     * @param file Statement file
+     * @param userId User the expenses belong to
+     * @return Import report
+     */
+    public ImportReport importFile(Path file, int userId) throws IOException {
+        String name = file.getFileName().toString().toLowerCase(Locale.ROOT);
+        BufferedReader reader = new BufferedReader(
+                new InputStreamReader(Files.newInputStream(file), StandardCharsets.UTF_8));
+
+        if (name.endsWith(".csv")) {
+            return importFrom(new CsvExpenseReader(reader, userId));
+        }
+        if (name.endsWith(".ofx") || name.endsWith(".qfx")) {
+            return importFrom(new OfxExpenseReader(reader, userId));
+        }
+
+        reader.close();
+        throw new IOException("Unsupported statement format: " + file.getFileName());
+    }
+
+    /**
+     * Import everything a reader yields
+     * @param expenseReader Reader positioned at the start of its input; closed afterwards
+     * @return Import report
+     */
+    public ImportReport importFrom(ExpenseReader expenseReader) throws IOException {
+        try (ExpenseReader reader = expenseReader) {
+            BatchResult insertResult = expenseDAO.addExpenses(reader, chunkSize);
+            return new ImportReport(reader.getParseFailures(), insertResult);
+        }
+    }
+
+    /**
+     * Outcome of an import: lines that could not be parsed, and rows the database rejected
+     */
+    public static class ImportReport {
+        private final BatchResult parseFailures;
+        private final BatchResult insertResult;
+
+        public ImportReport(BatchResult parseFailures, BatchResult insertResult) {
+            this.parseFailures = parseFailures;
+            this.insertResult = insertResult;
+        }
+
+        public int getImportedCount() {
+            return insertResult.getSuccessCount();
+        }
+
+        /**
+         * @return Unparseable records; each failure index is a line number
+         */
+        public BatchResult getParseFailures() {
+            return parseFailures;
+        }
+
+        /**
+         * @return Insert outcome; each failure index is the record's position among parsed records
+         */
+        public BatchResult getInsertResult() {
+            return insertResult;
+        }
+
+        @Override
+        public String toString() {
+            return "ImportReport{" +
+                    "imported=" + getImportedCount() +
+                    ", parseFailures=" + parseFailures.getFailures().size() +
+                    ", insertFailures=" + insertResult.getFailures().size() +
+                    '}';
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: ExpenseImporter userId file [chunkSize]");
+            System.exit(2);
+        }
+
+        DatabaseUtil.initializeDatabase();
+        int chunkSize = args.length > 2 ? Integer.parseInt(args[2]) : ExpenseDAO.DEFAULT_BATCH_SIZE;
+        ExpenseImporter importer = new ExpenseImporter(new ExpenseDAO(), chunkSize);
+
+        long start = System.nanoTime();
+        ImportReport report = importer.importFile(Paths.get(args[1]), Integer.parseInt(args[0]));
+        long millis = (System.nanoTime() - start) / 1_000_000;
+
+        System.out.println(report + " in " + millis + " ms");
+        report.getParseFailures().getFailures().forEach(f -> System.err.println("Line " + f.getIndex() + ": " + f.getMessage()));
+        report.getInsertResult().getFailures().forEach(System.err::println);
+    }
+}
@@ -0,0 +1,103 @@
+package importer;
+
+import model.BatchResult;
+import model.Expense;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Expense Reader
+ * Streams expenses out of a statement file one record at a time. Records that cannot be
+ * parsed are skipped and collected as failures keyed by line number, so a few bad lines
+ * do not stop an import.
+ */
+public abstract class ExpenseReader implements Iterable<Expense>, Closeable {
+    protected final BufferedReader reader;
+    protected final int userId;
+    protected int lineNumber;
+
+    private final BatchResult parseFailures = new BatchResult();
+    private boolean iterated;
+
+    protected ExpenseReader(BufferedReader reader, int userId) {
+        this.reader = reader;
+        this.userId = userId;
+    }
+
+    /**
+     * Read the next expense
+     * @return Expense object, or null at end of input
+     */
+    protected abstract Expense readNext() throws IOException;
+
+    /**
+     * Read one line, keeping the line counter up to date
+     */
+    protected String readLine() throws IOException {
+        String line = reader.readLine();
+        if (line != null) {
+            lineNumber++;
+        }
+        return line;
+    }
+
+    protected void reportFailure(int line, String message) {
+        parseFailures.addFailure(line, message);
+    }
+
+    /**
+     * @return Records skipped so far; the index of each failure is its line number
+     */
+    public BatchResult getParseFailures() {
+        return parseFailures;
+    }
+
+    /**
+     * Iterate the file once. The reader is single-pass, so a second call fails.
+     */
+    @Override
+    public Iterator<Expense> iterator() {
+        if (iterated) {
+            throw new IllegalStateException("An expense reader can only be iterated once");
+        }
+        iterated = true;
+
+        return new Iterator<>() {
+            private Expense next;
+            private boolean done;
+
+            @Override
+            public boolean hasNext() {
+                if (next == null && !done) {
+                    try {
+                        next = readNext();
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                    done = next == null;
+                }
+                return next != null;
+            }
+
+            @Override
+            public Expense next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                Expense expense = next;
+                next = null;
+                return expense;
+            }
+        };
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+}
@@ -0,0 +1,132 @@
+package importer;
+
+import model.Expense;
+import model.Money;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * OFX Expense Reader
+ * Reads debit transactions (STMTTRN with a negative TRNAMT) from an OFX bank statement,
+ * either SGML (OFX 1.x) or XML (OFX 2.x). Credits are skipped. The payee NAME becomes the
+ * title and MEMO the description; imported expenses are filed under "Other".
+ */
+public class OfxExpenseReader extends ExpenseReader {
+    private static final String DEFAULT_CATEGORY = "Other";
+    private static final Pattern TAG = Pattern.compile("<(/?)([A-Za-z0-9.]+)>([^<]*)");
+
+    private int skippedCredits;
+
+    public OfxExpenseReader(BufferedReader reader, int userId) {
+        super(reader, userId);
+    }
+
+    @Override
+    protected Expense readNext() throws IOException {
+        Transaction transaction = null;
+        String line;
+
+        while ((line = readLine()) != null) {
+            Matcher matcher = TAG.matcher(line);
+            while (matcher.find()) {
+                boolean closing = !matcher.group(1).isEmpty();
+                String tag = matcher.group(2).toUpperCase();
+                String value = matcher.group(3).trim();
+
+                if (tag.equals("STMTTRN")) {
+                    if (!closing) {
+                        transaction = new Transaction(lineNumber);
+                        continue;
+                    }
+                    if (transaction != null) {
+                        Expense expense = toExpense(transaction);
+                        transaction = null;
+                        if (expense != null) {
+                            return expense;
+                        }
+                    }
+                } else if (transaction != null && !closing) {
+                    transaction.set(tag, value);
+                }
+            }
+        }
+        return null;
+    }
+
+    private Expense toExpense(Transaction transaction) {
+        try {
+            if (transaction.amount == null || transaction.posted == null) {
+                throw new IllegalArgumentException("Transaction without TRNAMT or DTPOSTED");
+            }
+
+            long amount = Money.parse(transaction.amount);
+            if (amount >= 0) {
+                skippedCredits++;
+                return null;
+            }
+
+            // DTPOSTED is YYYYMMDD optionally followed by time and zone
+            String date = transaction.posted;
+            if (date.length() < 8) {
+                throw new IllegalArgumentException("Invalid DTPOSTED: " + date);
+            }
+            LocalDate postedDate = LocalDate.parse(
+                    date.substring(0, 4) + "-" + date.substring(4, 6) + "-" + date.substring(6, 8));
+
+            String title = transaction.name != null && !transaction.name.isEmpty()
+                    ? transaction.name
+                    : transaction.memo;
+            return new Expense(userId, title, -amount, DEFAULT_CATEGORY, postedDate, transaction.memo);
+
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            reportFailure(transaction.startLine, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * @return Number of credit transactions ignored so far
+     */
+    public int getSkippedCredits() {
+        return skippedCredits;
+    }
+
+    /**
+     * Fields of the STMTTRN aggregate being read
+     */
+    private static class Transaction {
+        private final int startLine;
+        private String amount;
+        private String posted;
+        private String name;
+        private String memo;
+
+        private Transaction(int startLine) {
+            this.startLine = startLine;
+        }
+
+        private void set(String tag, String value) {
+            switch (tag) {
+                case "TRNAMT":
+                    amount = value;
+                    break;
+                case "DTPOSTED":
+                    posted = value;
+                    break;
+                case "NAME":
+                    name = value;
+                    break;
+                case "MEMO":
+                    memo = value;
+                    break;
+                default:
+                    break;
+            }
+        }
+    }
+}
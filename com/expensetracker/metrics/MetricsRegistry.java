@@ -0,0 +1,116 @@
+package metrics;
+
+import util.AppConfig;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Metrics Registry
+ * Process-wide set of operation metrics, created on first use by name.
+ * Each operation is also published as an MBean under "expensetracker:type=Operation",
+ * so p50/p99 per DAO call can be watched live in JConsole or VisualVM.
+ */
+public class MetricsRegistry {
+    private static final String JMX_DOMAIN = "expensetracker";
+
+    private static final MetricsRegistry INSTANCE = new MetricsRegistry(
+            Boolean.parseBoolean(AppConfig.getString(AppConfig.get(), "expensetracker.metrics.jmx", "true")));
+
+    private final ConcurrentMap<String, OperationMetrics> operations = new ConcurrentHashMap<>();
+    private final boolean jmx;
+
+    MetricsRegistry(boolean jmx) {
+        this.jmx = jmx;
+    }
+
+    public static MetricsRegistry getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Get the metrics of an operation, creating them on first use.
+     * Callers on hot paths should look the operation up once and keep it in a static field.
+     * @param name Operation name, e.g. "ExpenseDAO.findById"
+     * @return OperationMetrics object
+     */
+    public OperationMetrics operation(String name) {
+        return operations.computeIfAbsent(name, this::create);
+    }
+
+    private OperationMetrics create(String name) {
+        OperationMetrics metrics = new OperationMetrics(name);
+        if (jmx) {
+            try {
+                MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+                ObjectName objectName = new ObjectName(JMX_DOMAIN + ":type=Operation,name=" + ObjectName.quote(name));
+                if (!server.isRegistered(objectName)) {
+                    server.registerMBean(metrics, objectName);
+                }
+            } catch (JMException e) {
+                System.err.println("Error registering metrics MBean for " + name + ": " + e.getMessage());
+            }
+        }
+        return metrics;
+    }
+
+    /**
+     * @return All operations, sorted by name
+     */
+    public List<OperationMetrics> getOperations() {
+        List<OperationMetrics> sorted = new ArrayList<>(operations.values());
+        sorted.sort(Comparator.comparing(OperationMetrics::getName));
+        return sorted;
+    }
+
+    /**
+     * Reset every operation
+     */
+    public void reset() {
+        operations.values().forEach(OperationMetrics::reset);
+    }
+
+    /**
+     * Render every operation that has been called as one line of JSON
+     * @return JSON object with a timestamp and per-operation counters and latencies in microseconds
+     */
+    public String toJson() {
+        StringBuilder json = new StringBuilder(256);
+        json.append("{\"time\":\"").append(Instant.now()).append("\",\"operations\":{");
+        boolean first = true;
+        for (OperationMetrics operation : getOperations()) {
+            LatencyHistogram.Snapshot snapshot = operation.snapshot();
+            if (snapshot.getCount() == 0 && operation.getErrorCount() == 0) {
+                continue;
+            }
+            if (!first) {
+                json.append(',');
+            }
+            first = false;
+            json.append('"').append(operation.getName()).append("\":{")
+                    .append("\"count\":").append(snapshot.getCount())
+                    .append(",\"errors\":").append(operation.getErrorCount())
+                    .append(",\"rows\":").append(operation.getRowCount())
+                    .append(",\"meanMicros\":").append(micros(Math.round(snapshot.getMean())))
+                    .append(",\"p50Micros\":").append(micros(snapshot.getValueAtPercentile(50)))
+                    .append(",\"p90Micros\":").append(micros(snapshot.getValueAtPercentile(90)))
+                    .append(",\"p99Micros\":").append(micros(snapshot.getValueAtPercentile(99)))
+                    .append(",\"maxMicros\":").append(micros(snapshot.getMax()))
+                    .append('}');
+        }
+        return json.append("}}").toString();
+    }
+
+    private static String micros(long nanos) {
+        return String.format(Locale.ROOT, "%.1f", nanos / 1000.0);
+    }
+}
@@ -0,0 +1,84 @@
+package metrics;
+
+import util.AppConfig;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Properties;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Metrics Reporter
+ * Writes the registry as one JSON line at a fixed interval and once more at shutdown,
+ * either appended to a file or to standard output.
+ */
+public class MetricsReporter {
+    private static volatile MetricsReporter started;
+
+    private final MetricsRegistry registry;
+    private final Path file;
+    private final ScheduledExecutorService scheduler;
+
+    /**
+     * @param registry Registry to report
+     * @param file File to append to, or null for standard output
+     */
+    public MetricsReporter(MetricsRegistry registry, Path file) {
+        this.registry = registry;
+        this.file = file;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "metrics-reporter");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Start the shared reporter if expensetracker.metrics.dumpIntervalSeconds is positive.
+     * Calling it again has no effect.
+     */
+    public static synchronized void startFromConfig() {
+        if (started != null) {
+            return;
+        }
+        Properties props = AppConfig.get();
+        long interval = AppConfig.getLong(props, "expensetracker.metrics.dumpIntervalSeconds", 0);
+        if (interval <= 0) {
+            return;
+        }
+        String file = AppConfig.getString(props, "expensetracker.metrics.dumpFile", null);
+        started = new MetricsReporter(MetricsRegistry.getInstance(), file == null ? null : Paths.get(file));
+        started.start(interval, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Report every interval until the JVM exits, plus a final report at shutdown
+     */
+    public void start(long interval, TimeUnit unit) {
+        scheduler.scheduleWithFixedDelay(this::report, interval, interval, unit);
+        Runtime.getRuntime().addShutdownHook(new Thread(this::report, "metrics-reporter-shutdown"));
+    }
+
+    /**
+     * Write one report now
+     */
+    public void report() {
+        String line = registry.toJson();
+        if (file == null) {
+            System.out.println("metrics " + line);
+            return;
+        }
+        try {
+            Files.writeString(file, line + System.lineSeparator(), StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND, StandardOpenOption.WRITE);
+        } catch (IOException e) {
+            System.err.println("Error writing metrics to " + file + ": " + e.getMessage());
+        }
+    }
+}
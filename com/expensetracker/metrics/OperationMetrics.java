@@ -0,0 +1,144 @@
+package metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Operation Metrics
+ * Latency histogram plus call, row and error counters for one operation, such as a DAO method.
+ * Time a call by opening it as the first resource of the method's try block:
+ *
+ *   try (OperationMetrics.Call call = FIND_BY_ID.start();
+ *        Connection conn = DatabaseUtil.getConnection()) {
+ *       ...
+ *       call.rows(1);
+ *   } catch (SQLException e) {
+ *       FIND_BY_ID.failed(e);
+ *   }
+ */
+public class OperationMetrics implements OperationMetricsMBean {
+    private final String name;
+    private final LatencyHistogram latency = new LatencyHistogram();
+    private final LongAdder errors = new LongAdder();
+    private final LongAdder rows = new LongAdder();
+    private volatile String lastError;
+
+    OperationMetrics(String name) {
+        this.name = name;
+    }
+
+    /**
+     * Start timing a call
+     * @return Call that records its latency when closed
+     */
+    public Call start() {
+        return new Call(System.nanoTime());
+    }
+
+    /**
+     * Record a finished call
+     * @param nanos Latency in nanoseconds
+     * @param rowCount Rows the call read or wrote
+     */
+    public void record(long nanos, long rowCount) {
+        latency.record(nanos);
+        if (rowCount > 0) {
+            rows.add(rowCount);
+        }
+    }
+
+    /**
+     * Count a failed call
+     * @param e What went wrong
+     */
+    public void failed(Throwable e) {
+        errors.increment();
+        lastError = e.getClass().getSimpleName() + ": " + e.getMessage();
+    }
+
+    public LatencyHistogram.Snapshot snapshot() {
+        return latency.snapshot();
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public long getCount() {
+        return latency.snapshot().getCount();
+    }
+
+    @Override
+    public long getErrorCount() {
+        return errors.sum();
+    }
+
+    @Override
+    public long getRowCount() {
+        return rows.sum();
+    }
+
+    @Override
+    public double getMeanMicros() {
+        return latency.snapshot().getMean() / 1000.0;
+    }
+
+    @Override
+    public double getP50Micros() {
+        return latency.snapshot().getValueAtPercentile(50) / 1000.0;
+    }
+
+    @Override
+    public double getP90Micros() {
+        return latency.snapshot().getValueAtPercentile(90) / 1000.0;
+    }
+
+    @Override
+    public double getP99Micros() {
+        return latency.snapshot().getValueAtPercentile(99) / 1000.0;
+    }
+
+    @Override
+    public double getMaxMicros() {
+        return latency.snapshot().getMax() / 1000.0;
+    }
+
+    @Override
+    public String getLastError() {
+        return lastError;
+    }
+
+    @Override
+    public void reset() {
+        latency.reset();
+        errors.reset();
+        rows.reset();
+        lastError = null;
+    }
+
+    /**
+     * One timed call; closing it records the elapsed time, including when the call failed
+     */
+    public final class Call implements AutoCloseable {
+        private final long startNanos;
+        private long rowCount;
+
+        private Call(long startNanos) {
+            this.startNanos = startNanos;
+        }
+
+        /**
+         * Add to the rows this call read or wrote
+         * @param count Number of rows
+         */
+        public void rows(long count) {
+            rowCount += count;
+        }
+
+        @Override
+        public void close() {
+            record(System.nanoTime() - startNanos, rowCount);
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package metrics;
+
+/**
+ * Operation Metrics MBean
+ * JMX view of one instrumented operation. Latencies are in microseconds.
+ */
+public interface OperationMetricsMBean {
+    String getName();
+
+    long getCount();
+
+    long getErrorCount();
+
+    long getRowCount();
+
+    double getMeanMicros();
+
+    double getP50Micros();
+
+    double getP90Micros();
+
+    double getP99Micros();
+
+    double getMaxMicros();
+
+    String getLastError();
+
+    void reset();
+}
@@ -0,0 +1,72 @@
+package model;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Batch Result Model Class
+ * Outcome of a bulk write: how many rows succeeded and why the others failed
+ */
+public class BatchResult {
+    private int successCount;
+    private final List<RowFailure> failures = new ArrayList<>();
+
+    public void addSuccesses(int count) {
+        successCount += count;
+    }
+
+    public void addFailure(int index, String message) {
+        failures.add(new RowFailure(index, message));
+    }
+
+    // Getters
+    public int getSuccessCount() {
+        return successCount;
+    }
+
+    public List<RowFailure> getFailures() {
+        return Collections.unmodifiableList(failures);
+    }
+
+    public boolean hasFailures() {
+        return !failures.isEmpty();
+    }
+
+    @Override
+    public String toString() {
+        return "BatchResult{" +
+                "successCount=" + successCount +
+                ", failures=" + failures.size() +
+                '}';
+    }
+
+    /**
+     * A row that could not be written
+     */
+    public static class RowFailure {
+        private final int index;
+        private final String message;
+
+        public RowFailure(int index, String message) {
+            this.index = index;
+            this.message = message;
+        }
+
+        /**
+         * @return Zero-based position of the row in the input
+         */
+        public int getIndex() {
+            return index;
+        }
+
+        public String getMessage() {
+            return message;
+        }
+
+        @Override
+        public String toString() {
+            return "Row " + index + ": " + message;
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package model;
+
+/**
+ * Category Model Class
+ * Represents an expense category. Built-in categories have no owner and are shared by
+ * every user; custom categories belong to one user.
+ * Instances are immutable and interned by CategoryRegistry, one per id.
+ */
+public final class Category {
+    private final int categoryId;
+    // Null for built-in categories
+    private final Integer userId;
+    private final String name;
+    private final int sortOrder;
+
+    public Category(int categoryId, Integer userId, String name, int sortOrder) {
+        this.categoryId = categoryId;
+        this.userId = userId;
+        this.name = name;
+        this.sortOrder = sortOrder;
+    }
+
+    // Getters
+    public int getCategoryId() {
+        return categoryId;
+    }
+
+    /**
+     * @return Owner's user ID, or null for a built-in category
+     */
+    public Integer getUserId() {
+        return userId;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getSortOrder() {
+        return sortOrder;
+    }
+
+    public boolean isBuiltIn() {
+        return userId == null;
+    }
+
+    /**
+     * @param user User ID
+     * @return true if the user may file expenses under this category
+     */
+    public boolean isVisibleTo(int user) {
+        return userId == null || userId == user;
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
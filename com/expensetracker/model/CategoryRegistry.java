@@ -0,0 +1,124 @@
+package model;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Category Registry
+ * Process-wide cache of categories, one interned Category per id. Rows read from the
+ * database carry only a category id; the registry turns it into a shared name without
+ * allocating a String per row. Filled by CategoryDAO, which is the only writer.
+ * Categories are also indexed by owner and name, matching names the way the database's
+ * NOCASE collation does, so finding one by name does not scan every user's categories.
+ */
+public final class CategoryRegistry {
+    private static final CategoryRegistry INSTANCE = new CategoryRegistry();
+
+    private static final Comparator<Category> DISPLAY_ORDER = Comparator
+            .comparing(Category::isBuiltIn).reversed()
+            .thenComparingInt(Category::getSortOrder)
+            .thenComparing(Category::getName, String.CASE_INSENSITIVE_ORDER);
+
+    // Owner of built-in categories, as in the idx_categories_owner_name index
+    private static final int BUILT_IN_OWNER = 0;
+
+    private final Map<Integer, Category> byId = new ConcurrentHashMap<>();
+    // Owner, then folded name
+    private final Map<Integer, Map<String, Category>> byOwner = new ConcurrentHashMap<>();
+    // Users whose complete category list has been loaded
+    private final Set<Integer> loadedUsers = ConcurrentHashMap.newKeySet();
+
+    private CategoryRegistry() {}
+
+    public static CategoryRegistry getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Add a category, keeping the instance already registered for its id if there is one
+     * @param category Category read from the database
+     * @return The interned instance
+     */
+    public Category register(Category category) {
+        Category existing = byId.putIfAbsent(category.getCategoryId(), category);
+        if (existing != null) {
+            return existing;
+        }
+        byOwner.computeIfAbsent(ownerOf(category), owner -> new ConcurrentHashMap<>())
+                .putIfAbsent(foldName(category.getName()), category);
+        return category;
+    }
+
+    /**
+     * @param categoryId Category ID
+     * @return Category, or null if it has not been registered
+     */
+    public Category get(int categoryId) {
+        return byId.get(categoryId);
+    }
+
+    /**
+     * Find a category a user can see by name, ignoring case; a built-in wins over a custom one
+     * @param userId User ID
+     * @param name Category name
+     * @return Category, or null if none is registered
+     */
+    public Category find(int userId, String name) {
+        String key = foldName(name);
+        Category category = lookup(BUILT_IN_OWNER, key);
+        return category != null ? category : lookup(userId, key);
+    }
+
+    /**
+     * Categories a user can see: built-ins first, then custom ones by name
+     * @param userId User ID
+     * @return Categories in display order
+     */
+    public List<Category> forUser(int userId) {
+        List<Category> categories = new ArrayList<>(byOwner.getOrDefault(BUILT_IN_OWNER, Map.of()).values());
+        categories.addAll(byOwner.getOrDefault(userId, Map.of()).values());
+        categories.sort(DISPLAY_ORDER);
+        return categories;
+    }
+
+    public boolean isLoaded(int userId) {
+        return loadedUsers.contains(userId);
+    }
+
+    public void markLoaded(int userId) {
+        loadedUsers.add(userId);
+    }
+
+    /**
+     * Fold a category name the way SQLite's NOCASE collation compares it: only ASCII letters
+     * are case-insensitive, while accented letters keep their case
+     * @param name Category name
+     * @return Name with A-Z lowered, the same instance if there were none
+     */
+    public static String foldName(String name) {
+        char[] folded = null;
+        for (int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+            if (c >= 'A' && c <= 'Z') {
+                if (folded == null) {
+                    folded = name.toCharArray();
+                }
+                folded[i] = (char) (c + ('a' - 'A'));
+            }
+        }
+        return folded != null ? new String(folded) : name;
+    }
+
+    private Category lookup(int owner, String key) {
+        Map<String, Category> names = byOwner.get(owner);
+        return names != null ? names.get(key) : null;
+    }
+
+    private static int ownerOf(Category category) {
+        return category.isBuiltIn() ? BUILT_IN_OWNER : category.getUserId();
+    }
+}
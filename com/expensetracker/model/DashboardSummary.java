@@ -0,0 +1,52 @@
+package model;
+
+import java.time.LocalDate;
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * Dashboard Summary Model Class
+ * Monthly total, today's total and per-category totals of a user as of a given day
+ */
+public class DashboardSummary {
+    private final LocalDate asOf;
+    // Amounts in paise, see Money
+    private final long monthlyTotal;
+    private final long todayTotal;
+    private final Map<String, Long> categoryTotals;
+
+    public DashboardSummary(LocalDate asOf, long monthlyTotal, long todayTotal,
+                            Map<String, Long> categoryTotals) {
+        this.asOf = asOf;
+        this.monthlyTotal = monthlyTotal;
+        this.todayTotal = todayTotal;
+        this.categoryTotals = Collections.unmodifiableMap(categoryTotals);
+    }
+
+    // Getters
+    public LocalDate getAsOf() {
+        return asOf;
+    }
+
+    public long getMonthlyTotal() {
+        return monthlyTotal;
+    }
+
+    public long getTodayTotal() {
+        return todayTotal;
+    }
+
+    public Map<String, Long> getCategoryTotals() {
+        return categoryTotals;
+    }
+
+    @Override
+    public String toString() {
+        return "DashboardSummary{" +
+                "asOf=" + asOf +
+                ", monthlyTotal=" + monthlyTotal +
+                ", todayTotal=" + todayTotal +
+                ", categoryTotals=" + categoryTotals +
+                '}';
+    }
+}
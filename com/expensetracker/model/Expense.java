@@ -10,15 +10,18 @@ public class Expense {
     private int expenseId;
     private int userId;
     private String title;
-    private double amount;
+    // Amount in paise, see Money
+    private long amount;
+    // Category name; categoryId is filled in once the expense has been stored
     private String category;
+    private int categoryId;
     private LocalDate expenseDate;
     private String description;
 
     // Constructors
     public Expense() {}
 
-    public Expense(int userId, String title, double amount, String category,
+    public Expense(int userId, String title, long amount, String category,
                    LocalDate expenseDate, String description) {
         this.userId = userId;
         this.title = title;
@@ -28,6 +31,21 @@ public class Expense {
         this.description = description;
     }
 
+    /**
+     * Copy an expense, e.g. so a form can edit it without touching the shared instance
+     * @param other Expense to copy
+     */
+    public Expense(Expense other) {
+        this.expenseId = other.expenseId;
+        this.userId = other.userId;
+        this.title = other.title;
+        this.amount = other.amount;
+        this.category = other.category;
+        this.categoryId = other.categoryId;
+        this.expenseDate = other.expenseDate;
+        this.description = other.description;
+    }
+
     // Getters and Setters
     public int getExpenseId() {
         return expenseId;
@@ -53,11 +71,14 @@ public class Expense {
         this.title = title;
     }
 
-    public double getAmount() {
+    /**
+     * @return Amount in paise
+     */
+    public long getAmount() {
         return amount;
     }
 
-    public void setAmount(double amount) {
+    public void setAmount(long amount) {
         this.amount = amount;
     }
 
@@ -69,6 +90,14 @@ public class Expense {
         this.category = category;
     }
 
+    public int getCategoryId() {
+        return categoryId;
+    }
+
+    public void setCategoryId(int categoryId) {
+        this.categoryId = categoryId;
+    }
+
     public LocalDate getExpenseDate() {
         return expenseDate;
     }
@@ -90,7 +119,7 @@ public class Expense {
         return "Expense{" +
                 "expenseId=" + expenseId +
                 ", title='" + title + '\'' +
-                ", amount=" + amount +
+                ", amount=" + Money.format(amount) +
                 ", category='" + category + '\'' +
                 ", expenseDate=" + expenseDate +
                 '}';
@@ -0,0 +1,56 @@
+package model;
+
+import java.time.LocalDate;
+
+/**
+ * Expense Cursor
+ * Position in an expense listing, ordered by (sort key, expense_id). The sort key is the
+ * expense_date of a listing by date (the default, newest first), the amount in minor units
+ * of one by amount, and the title of one by title; see dao.ExpenseOrder.
+ */
+public class ExpenseCursor {
+    private final Object sortKey;
+    private final int expenseId;
+
+    public ExpenseCursor(LocalDate expenseDate, int expenseId) {
+        this((Object) expenseDate, expenseId);
+    }
+
+    public ExpenseCursor(Object sortKey, int expenseId) {
+        this.sortKey = sortKey;
+        this.expenseId = expenseId;
+    }
+
+    /**
+     * Cursor positioned on an expense in a newest-first listing, so the next page starts right after it
+     * @param expense Last expense of the current page
+     * @return ExpenseCursor object
+     */
+    public static ExpenseCursor after(Expense expense) {
+        return new ExpenseCursor(expense.getExpenseDate(), expense.getExpenseId());
+    }
+
+    // Getters
+    public Object getSortKey() {
+        return sortKey;
+    }
+
+    /**
+     * @return Date of the position in a listing by date, or null in any other order
+     */
+    public LocalDate getExpenseDate() {
+        return sortKey instanceof LocalDate ? (LocalDate) sortKey : null;
+    }
+
+    public int getExpenseId() {
+        return expenseId;
+    }
+
+    @Override
+    public String toString() {
+        return "ExpenseCursor{" +
+                "sortKey=" + sortKey +
+                ", expenseId=" + expenseId +
+                '}';
+    }
+}
@@ -0,0 +1,41 @@
+package model;
+
+import java.util.List;
+
+/**
+ * Expense Page
+ * One page of a keyset-paginated expense listing
+ */
+public class ExpensePage {
+    private final List<Expense> expenses;
+    private final ExpenseCursor nextCursor;
+
+    public ExpensePage(List<Expense> expenses, ExpenseCursor nextCursor) {
+        this.expenses = expenses;
+        this.nextCursor = nextCursor;
+    }
+
+    // Getters
+    public List<Expense> getExpenses() {
+        return expenses;
+    }
+
+    /**
+     * @return Cursor to pass for the following page, or null if this is the last page
+     */
+    public ExpenseCursor getNextCursor() {
+        return nextCursor;
+    }
+
+    public boolean hasMore() {
+        return nextCursor != null;
+    }
+
+    @Override
+    public String toString() {
+        return "ExpensePage{" +
+                "size=" + expenses.size() +
+                ", nextCursor=" + nextCursor +
+                '}';
+    }
+}
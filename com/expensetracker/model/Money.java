@@ -0,0 +1,97 @@
+package model;
+
+import java.math.BigDecimal;
+
+/**
+ * Money Class
+ * Fixed-point rupee amounts stored as a long count of paise (minor units).
+ * Hot paths pass the raw long around and use the static helpers; the value type
+ * is there for code that wants an object.
+ */
+public final class Money implements Comparable<Money> {
+    public static final int MINOR_UNITS_PER_MAJOR = 100;
+    public static final String SYMBOL = "₹";
+
+    public static final Money ZERO = new Money(0);
+
+    private final long minorUnits;
+
+    private Money(long minorUnits) {
+        this.minorUnits = minorUnits;
+    }
+
+    public static Money ofMinor(long minorUnits) {
+        return minorUnits == 0 ? ZERO : new Money(minorUnits);
+    }
+
+    /**
+     * Parse a decimal amount such as "120", "120.5" or "120.50" into paise
+     * @param text Amount in rupees with at most two decimal places
+     * @return Amount in paise
+     * @throws NumberFormatException if the text is not a valid amount
+     */
+    public static long parse(String text) {
+        BigDecimal value = new BigDecimal(text.trim());
+        if (value.stripTrailingZeros().scale() > 2) {
+            throw new NumberFormatException("More than two decimal places: " + text);
+        }
+        try {
+            return value.movePointRight(2).longValueExact();
+        } catch (ArithmeticException e) {
+            throw new NumberFormatException("Amount out of range: " + text);
+        }
+    }
+
+    /**
+     * Format paise for display, e.g. 12345 -> "₹123.45"
+     * @param minorUnits Amount in paise
+     * @return Formatted amount with currency symbol
+     */
+    public static String format(long minorUnits) {
+        return (minorUnits < 0 ? "-" : "") + SYMBOL + toPlainString(Math.abs(minorUnits));
+    }
+
+    /**
+     * Format paise without a currency symbol, e.g. 12345 -> "123.45", for editable fields
+     * @param minorUnits Amount in paise
+     * @return Plain decimal amount
+     */
+    public static String toPlainString(long minorUnits) {
+        long abs = Math.abs(minorUnits);
+        long major = abs / MINOR_UNITS_PER_MAJOR;
+        long minor = abs % MINOR_UNITS_PER_MAJOR;
+        return (minorUnits < 0 ? "-" : "") + major + (minor < 10 ? ".0" : ".") + minor;
+    }
+
+    public long getMinorUnits() {
+        return minorUnits;
+    }
+
+    public Money plus(Money other) {
+        return ofMinor(Math.addExact(minorUnits, other.minorUnits));
+    }
+
+    public Money minus(Money other) {
+        return ofMinor(Math.subtractExact(minorUnits, other.minorUnits));
+    }
+
+    @Override
+    public int compareTo(Money other) {
+        return Long.compare(minorUnits, other.minorUnits);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof Money && ((Money) o).minorUnits == minorUnits;
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(minorUnits);
+    }
+
+    @Override
+    public String toString() {
+        return format(minorUnits);
+    }
+}
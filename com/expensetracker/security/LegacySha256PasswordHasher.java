@@ -0,0 +1,52 @@
+package security;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+/**
+ * Legacy SHA-256 Password Hasher
+ * Unsalted SHA-256 as hex, the format used before PBKDF2. Kept only so existing
+ * accounts can log in once and have their hash upgraded; new hashes should never use it.
+ */
+public class LegacySha256PasswordHasher implements PasswordHasher {
+    private static final int HEX_LENGTH = 64;
+    private static final HexFormat HEX = HexFormat.of();
+
+    @Override
+    public String hash(String password) {
+        return HEX.formatHex(digest(password));
+    }
+
+    @Override
+    public boolean supports(String encodedHash) {
+        if (encodedHash == null || encodedHash.length() != HEX_LENGTH) {
+            return false;
+        }
+        for (int i = 0; i < HEX_LENGTH; i++) {
+            if (Character.digit(encodedHash.charAt(i), 16) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public boolean verify(String password, String encodedHash) {
+        return MessageDigest.isEqual(digest(password), HEX.parseHex(encodedHash.toLowerCase()));
+    }
+
+    @Override
+    public boolean needsRehash(String encodedHash) {
+        return true;
+    }
+
+    private static byte[] digest(String password) {
+        try {
+            // Matches the old PasswordUtil, which used the platform default charset
+            return MessageDigest.getInstance("SHA-256").digest(password.getBytes());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("Error hashing password", e);
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package security;
+
+/**
+ * Password Hasher
+ * One password hashing scheme. Encoded hashes are self-describing, so the scheme
+ * that produced a stored hash can be recognised and verified later.
+ */
+public interface PasswordHasher {
+
+    /**
+     * Hash a password with a fresh salt
+     * @param password Plain text password
+     * @return Encoded hash, including every parameter needed to verify it
+     */
+    String hash(String password);
+
+    /**
+     * @param encodedHash Stored hash
+     * @return true if this hasher produced the hash
+     */
+    boolean supports(String encodedHash);
+
+    /**
+     * Check a password against a stored hash in time independent of where they differ
+     * @param password Plain text password
+     * @param encodedHash Stored hash, which this hasher supports
+     * @return true if the password matches
+     */
+    boolean verify(String password, String encodedHash);
+
+    /**
+     * @param encodedHash Stored hash, which this hasher supports
+     * @return true if the hash was made with weaker settings than this hasher now uses
+     */
+    boolean needsRehash(String encodedHash);
+}
@@ -0,0 +1,203 @@
+package security;
+
+import util.AppConfig;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Password Service
+ * Hashes new passwords with the current hasher and verifies stored hashes with whichever
+ * hasher produced them, reporting when a hash should be upgraded. Hashing is deliberately
+ * slow, so it runs on a small bounded worker pool: a burst of logins queues up to a limit
+ * and is then rejected, instead of starving every other thread of CPU.
+ */
+public class PasswordService {
+    private static volatile PasswordService instance;
+
+    private final PasswordHasher currentHasher;
+    private final List<PasswordHasher> hashers = new ArrayList<>();
+    private final ThreadPoolExecutor workers;
+    // Hashed up front, so the first unknown-user login takes as long as every later one
+    private final String dummyHash;
+
+    /**
+     * @param currentHasher Hasher for new hashes
+     * @param legacyHashers Hashers still accepted for verification only
+     * @param threads Number of hashing threads
+     * @param queueSize Number of requests that may wait for a thread before new ones are rejected
+     */
+    public PasswordService(PasswordHasher currentHasher, List<PasswordHasher> legacyHashers,
+                           int threads, int queueSize) {
+        this.currentHasher = currentHasher;
+        this.hashers.add(currentHasher);
+        this.hashers.addAll(legacyHashers);
+
+        AtomicInteger counter = new AtomicInteger();
+        this.workers = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, queueSize)), r -> {
+                    Thread thread = new Thread(r, "password-worker-" + counter.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }, new ThreadPoolExecutor.AbortPolicy());
+        this.dummyHash = currentHasher.hash("unknown-user");
+    }
+
+    /**
+     * Get the shared service, configured from "expensetracker.auth.*" settings
+     * @return PasswordService object
+     */
+    public static PasswordService getInstance() {
+        PasswordService current = instance;
+        if (current == null) {
+            synchronized (PasswordService.class) {
+                current = instance;
+                if (current == null) {
+                    current = fromProperties(AppConfig.get());
+                    instance = current;
+                }
+            }
+        }
+        return current;
+    }
+
+    /**
+     * Build a service from "expensetracker.auth.*" settings
+     * @param props Settings, see AppConfig
+     * @return PasswordService object
+     */
+    public static PasswordService fromProperties(Properties props) {
+        int iterations = AppConfig.getInt(props, "expensetracker.auth.pbkdf2Iterations",
+                Pbkdf2PasswordHasher.DEFAULT_ITERATIONS);
+        int threads = AppConfig.getInt(props, "expensetracker.auth.verifyThreads",
+                Math.max(1, Runtime.getRuntime().availableProcessors() / 2));
+        int queueSize = AppConfig.getInt(props, "expensetracker.auth.verifyQueueSize", 64);
+        return new PasswordService(new Pbkdf2PasswordHasher(iterations),
+                List.of(new LegacySha256PasswordHasher()), Math.max(1, threads), queueSize);
+    }
+
+    /**
+     * Hash a password on the worker pool
+     * @param password Plain text password
+     * @return Future completing with the encoded hash
+     */
+    public CompletableFuture<String> hashAsync(String password) {
+        return CompletableFuture.supplyAsync(() -> currentHasher.hash(password), workers);
+    }
+
+    /**
+     * Hash a password, blocking until a worker has done it
+     * @param password Plain text password
+     * @return Encoded hash
+     * @throws java.util.concurrent.RejectedExecutionException if too many requests are waiting
+     */
+    public String hash(String password) {
+        return join(hashAsync(password));
+    }
+
+    /**
+     * Verify a password on the worker pool
+     * @param password Plain text password
+     * @param storedHash Stored hash in any supported format
+     * @return Future completing with the outcome
+     */
+    public CompletableFuture<Verification> verifyAsync(String password, String storedHash) {
+        return CompletableFuture.supplyAsync(() -> verifyNow(password, storedHash), workers);
+    }
+
+    /**
+     * Verify a password, blocking until a worker has done it
+     * @param password Plain text password
+     * @param storedHash Stored hash in any supported format
+     * @return Verification outcome
+     * @throws java.util.concurrent.RejectedExecutionException if too many requests are waiting
+     */
+    public Verification verify(String password, String storedHash) {
+        return join(verifyAsync(password, storedHash));
+    }
+
+    /**
+     * Spend the same effort as a real verification and fail. Used for unknown usernames
+     * so response time does not reveal which usernames exist.
+     * @param password Plain text password
+     * @return Failed verification
+     */
+    public Verification verifyUnknownUser(String password) {
+        verify(password, dummyHash);
+        return Verification.FAILED;
+    }
+
+    private Verification verifyNow(String password, String storedHash) {
+        for (PasswordHasher hasher : hashers) {
+            if (hasher.supports(storedHash)) {
+                if (!hasher.verify(password, storedHash)) {
+                    return Verification.FAILED;
+                }
+                boolean upgrade = hasher != currentHasher || currentHasher.needsRehash(storedHash);
+                return new Verification(true, upgrade ? currentHasher.hash(password) : null);
+            }
+        }
+        System.err.println("Unrecognised password hash format");
+        return Verification.FAILED;
+    }
+
+    private static <T> T join(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    public PasswordHasher getCurrentHasher() {
+        return currentHasher;
+    }
+
+    public int getActiveCount() {
+        return workers.getActiveCount();
+    }
+
+    public int getQueuedCount() {
+        return workers.getQueue().size();
+    }
+
+    public void shutdown() {
+        workers.shutdown();
+    }
+
+    /**
+     * Outcome of checking a password against a stored hash
+     */
+    public static final class Verification {
+        public static final Verification FAILED = new Verification(false, null);
+
+        private final boolean matched;
+        private final String upgradedHash;
+
+        private Verification(boolean matched, String upgradedHash) {
+            this.matched = matched;
+            this.upgradedHash = upgradedHash;
+        }
+
+        public boolean isMatched() {
+            return matched;
+        }
+
+        /**
+         * @return Replacement hash in the current format when the stored one is outdated, otherwise null
+         */
+        public String getUpgradedHash() {
+            return upgradedHash;
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package security;
+
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Base64;
+
+/**
+ * PBKDF2 Password Hasher
+ * Salted PBKDF2-HMAC-SHA256 from the JDK. Hashes are encoded as
+ * $pbkdf2-sha256$iterations$salt$hash with Base64 salt and hash,
+ * so the iteration count can be raised without invalidating stored hashes.
+ */
+public class Pbkdf2PasswordHasher implements PasswordHasher {
+    public static final String PREFIX = "$pbkdf2-sha256$";
+    public static final int DEFAULT_ITERATIONS = 310_000;
+
+    private static final String ALGORITHM = "PBKDF2WithHmacSHA256";
+    private static final int SALT_BYTES = 16;
+    private static final int HASH_BYTES = 32;
+
+    private final int iterations;
+    private final SecureRandom random = new SecureRandom();
+
+    public Pbkdf2PasswordHasher() {
+        this(DEFAULT_ITERATIONS);
+    }
+
+    public Pbkdf2PasswordHasher(int iterations) {
+        if (iterations < 1) {
+            throw new IllegalArgumentException("Iterations must be at least 1");
+        }
+        this.iterations = iterations;
+    }
+
+    public int getIterations() {
+        return iterations;
+    }
+
+    @Override
+    public String hash(String password) {
+        byte[] salt = new byte[SALT_BYTES];
+        random.nextBytes(salt);
+        byte[] hash = derive(password, salt, iterations, HASH_BYTES);
+
+        Base64.Encoder base64 = Base64.getEncoder().withoutPadding();
+        return PREFIX + iterations + "$" + base64.encodeToString(salt) + "$" + base64.encodeToString(hash);
+    }
+
+    @Override
+    public boolean supports(String encodedHash) {
+        return encodedHash != null && encodedHash.startsWith(PREFIX);
+    }
+
+    @Override
+    public boolean verify(String password, String encodedHash) {
+        Parsed parsed = Parsed.of(encodedHash);
+        if (parsed == null) {
+            return false;
+        }
+        byte[] actual = derive(password, parsed.salt, parsed.iterations, parsed.hash.length);
+        return MessageDigest.isEqual(actual, parsed.hash);
+    }
+
+    @Override
+    public boolean needsRehash(String encodedHash) {
+        Parsed parsed = Parsed.of(encodedHash);
+        return parsed == null || parsed.iterations < iterations || parsed.hash.length < HASH_BYTES;
+    }
+
+    private static byte[] derive(String password, byte[] salt, int iterations, int length) {
+        PBEKeySpec spec = new PBEKeySpec(password.toCharArray(), salt, iterations, length * 8);
+        try {
+            return SecretKeyFactory.getInstance(ALGORITHM).generateSecret(spec).getEncoded();
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Error hashing password", e);
+        } finally {
+            spec.clearPassword();
+        }
+    }
+
+    /**
+     * Fields of an encoded hash
+     */
+    private static final class Parsed {
+        private final int iterations;
+        private final byte[] salt;
+        private final byte[] hash;
+
+        private Parsed(int iterations, byte[] salt, byte[] hash) {
+            this.iterations = iterations;
+            this.salt = salt;
+            this.hash = hash;
+        }
+
+        /**
+         * @return Parsed hash, or null if the text is not a well-formed PBKDF2 hash
+         */
+        private static Parsed of(String encodedHash) {
+            if (encodedHash == null || !encodedHash.startsWith(PREFIX)) {
+                return null;
+            }
+            String[] parts = encodedHash.substring(PREFIX.length()).split("\\$");
+            if (parts.length != 3) {
+                return null;
+            }
+            try {
+                int iterations = Integer.parseInt(parts[0]);
+                Base64.Decoder base64 = Base64.getDecoder();
+                byte[] salt = base64.decode(parts[1]);
+                byte[] hash = base64.decode(parts[2]);
+                return iterations > 0 && salt.length > 0 && hash.length > 0 ? new Parsed(iterations, salt, hash) : null;
+            } catch (IllegalArgumentException e) {
+                return null;
+            }
+        }
+    }
+}
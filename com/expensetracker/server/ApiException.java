@@ -0,0 +1,27 @@
+package server;
+
+/**
+ * API Exception
+ * Ends a request with an HTTP error status and a message for the client,
+ * sent as {"error": "..."}.
+ */
+public class ApiException extends RuntimeException {
+    private final int status;
+
+    public ApiException(int status, String message) {
+        super(message);
+        this.status = status;
+    }
+
+    public static ApiException badRequest(String message) {
+        return new ApiException(400, message);
+    }
+
+    public static ApiException notFound(String message) {
+        return new ApiException(404, message);
+    }
+
+    public int getStatus() {
+        return status;
+    }
+}
@@ -0,0 +1,188 @@
+package server;
+
+import com.sun.net.httpserver.HttpExchange;
+import exporter.JsonLinesExpenseWriter;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * API Exchange
+ * One request as seen by a route: the logged-in user, path and query parameters,
+ * the JSON body, and helpers for sending the response.
+ * Bad parameters throw ApiException with status 400.
+ */
+public class ApiExchange {
+    // JSON bodies beyond this are refused; bulk data goes through the streaming import
+    private static final int MAX_JSON_BODY = 1024 * 1024;
+
+    private final HttpExchange exchange;
+    private final List<String> pathParams;
+    private final TokenStore.Session session;
+    private Map<String, String> queryParams;
+
+    ApiExchange(HttpExchange exchange, List<String> pathParams, TokenStore.Session session) {
+        this.exchange = exchange;
+        this.pathParams = pathParams;
+        this.session = session;
+    }
+
+    public HttpExchange getHttpExchange() {
+        return exchange;
+    }
+
+    /**
+     * @return Logged-in session; only null on routes that do not require a login
+     */
+    public TokenStore.Session getSession() {
+        return session;
+    }
+
+    public int getUserId() {
+        return session.getUserId();
+    }
+
+    /**
+     * Get a numeric path parameter, e.g. the id in /api/expenses/{id}
+     * @param index Position among the path's parameters
+     * @return Parameter value
+     */
+    public int pathInt(int index) {
+        String value = pathParams.get(index);
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw ApiException.notFound("No such resource: " + exchange.getRequestURI().getPath());
+        }
+    }
+
+    /**
+     * Get a query parameter
+     * @param name Parameter name
+     * @return Value, or null if missing or empty
+     */
+    public String query(String name) {
+        if (queryParams == null) {
+            queryParams = parseQuery(exchange.getRequestURI().getRawQuery());
+        }
+        String value = queryParams.get(name);
+        return value == null || value.isEmpty() ? null : value;
+    }
+
+    public int queryInt(String name, int defaultValue, int min, int max) {
+        String value = query(name);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            int parsed = Integer.parseInt(value);
+            if (parsed < min || parsed > max) {
+                throw ApiException.badRequest(name + " must be between " + min + " and " + max);
+            }
+            return parsed;
+        } catch (NumberFormatException e) {
+            throw ApiException.badRequest(name + " must be a number");
+        }
+    }
+
+    public LocalDate queryDate(String name) {
+        return parseDate(name, query(name));
+    }
+
+    static LocalDate parseDate(String name, String value) {
+        if (value == null) {
+            return null;
+        }
+        try {
+            return LocalDate.parse(value);
+        } catch (DateTimeParseException e) {
+            throw ApiException.badRequest(name + " must be a date like 2024-03-01");
+        }
+    }
+
+    /**
+     * Read the request body as a JSON object
+     * @return Fields of the object
+     */
+    @SuppressWarnings("unchecked")
+    public Map<String, Object> readJsonObject() throws IOException {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        try (InputStream in = exchange.getRequestBody()) {
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                body.write(buffer, 0, read);
+                if (body.size() > MAX_JSON_BODY) {
+                    throw new ApiException(413, "Request body is too large");
+                }
+            }
+        }
+
+        Object value;
+        try {
+            value = Json.parse(body.toString(StandardCharsets.UTF_8));
+        } catch (IllegalArgumentException e) {
+            throw ApiException.badRequest("Invalid JSON: " + e.getMessage());
+        }
+        if (!(value instanceof Map)) {
+            throw ApiException.badRequest("Expected a JSON object");
+        }
+        return (Map<String, Object>) value;
+    }
+
+    /**
+     * Send a complete JSON response
+     * @param status HTTP status
+     * @param json Response body
+     */
+    public void sendJson(int status, CharSequence json) throws IOException {
+        byte[] bytes = json.toString().getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    public void sendNoContent() throws IOException {
+        exchange.sendResponseHeaders(204, -1);
+        exchange.close();
+    }
+
+    /**
+     * Send {"error": message}
+     */
+    public void sendError(int status, String message) throws IOException {
+        StringBuilder json = new StringBuilder("{\"error\":");
+        JsonLinesExpenseWriter.writeString(json, message);
+        sendJson(status, json.append('}'));
+    }
+
+    private static Map<String, String> parseQuery(String rawQuery) {
+        Map<String, String> params = new HashMap<>();
+        if (rawQuery == null) {
+            return params;
+        }
+        for (String pair : rawQuery.split("&")) {
+            int eq = pair.indexOf('=');
+            String name = eq < 0 ? pair : pair.substring(0, eq);
+            String value = eq < 0 ? "" : pair.substring(eq + 1);
+            try {
+                params.putIfAbsent(URLDecoder.decode(name, StandardCharsets.UTF_8),
+                        URLDecoder.decode(value, StandardCharsets.UTF_8));
+            } catch (IllegalArgumentException e) {
+                throw ApiException.badRequest("Malformed query string");
+            }
+        }
+        return params;
+    }
+}
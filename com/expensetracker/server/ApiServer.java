@@ -0,0 +1,291 @@
+package server;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import dao.UserDAO;
+import exporter.JsonLinesExpenseWriter;
+import metrics.MetricsRegistry;
+import metrics.OperationMetrics;
+import model.User;
+import util.AppConfig;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * API Server
+ * Headless JSON API over the DAOs, on the JDK's built-in HttpServer. Requests run on the
+ * server's own pool of expensetracker.server.threads workers, apart from DatabaseExecutor,
+ * so a burst of requests blocked on SQLite or the connection pool cannot starve the
+ * desktop UI's or the DAOs' background work, and vice versa.
+ * Every route except /api/login needs an "Authorization: Bearer <token>" header,
+ * and each one is timed in the metrics registry as "Api.<route name>".
+ *
+ *   POST   /api/login                 {"username", "password"} -> {"token", ...}
+ *   POST   /api/logout
+ *   GET    /api/expenses              filters, limit, cursor -> {"expenses", "next"}
+ *   POST   /api/expenses              {"title", "amount", "category", "date", "description"}
+ *   GET    /api/expenses/export       filters, format=csv|jsonl (streamed)
+ *   GET    /api/expenses/{id}
+ *   PUT    /api/expenses/{id}         fields to change
+ *   DELETE /api/expenses/{id}
+ *   POST   /api/import                CSV or OFX statement body, format=csv|ofx
+ *   GET    /api/summary               filters -> count, total and per-category totals
+ *   GET    /api/summary/top           filters, limit
+ *   GET    /api/summary/dashboard
+ *   GET    /api/categories
+ *   POST   /api/categories            {"name"}
+ *   GET    /api/metrics
+ *
+ * Filters are the query parameters from, to (exclusive), month (2024-03), category and q.
+ */
+public class ApiServer {
+    private static final MetricsRegistry METRICS = MetricsRegistry.getInstance();
+
+    private final String host;
+    private final int port;
+    private final int backlog;
+    private final int threads;
+    private final TokenStore tokens;
+    private final UserDAO userDAO = new UserDAO();
+    private final List<Route> routes = new ArrayList<>();
+    private HttpServer server;
+    private ExecutorService executor;
+
+    /**
+     * Handles the requests of one route
+     */
+    @FunctionalInterface
+    public interface Handler {
+        void handle(ApiExchange exchange) throws IOException;
+    }
+
+    public ApiServer(String host, int port, int backlog, int threads, long tokenTtlMillis) {
+        this.host = host;
+        this.port = port;
+        this.backlog = backlog;
+        this.threads = threads;
+        this.tokens = new TokenStore(tokenTtlMillis);
+
+        ExpenseResource expenses = new ExpenseResource();
+        SummaryResource summaries = new SummaryResource();
+
+        route("POST", "/api/login", "login", false, this::login);
+        route("POST", "/api/logout", "logout", true, this::logout);
+        route("GET", "/api/expenses", "listExpenses", true, expenses::list);
+        route("POST", "/api/expenses", "createExpense", true, expenses::create);
+        // Before /api/expenses/{id}, which would otherwise take "export" as an id
+        route("GET", "/api/expenses/export", "exportExpenses", true, expenses::export);
+        route("GET", "/api/expenses/{id}", "getExpense", true, expenses::get);
+        route("PUT", "/api/expenses/{id}", "updateExpense", true, expenses::update);
+        route("DELETE", "/api/expenses/{id}", "deleteExpense", true, expenses::delete);
+        route("POST", "/api/import", "importExpenses", true, expenses::importStatement);
+        route("GET", "/api/summary", "summary", true, summaries::summary);
+        route("GET", "/api/summary/top", "topCategories", true, summaries::topCategories);
+        route("GET", "/api/summary/dashboard", "dashboard", true, summaries::dashboard);
+        route("GET", "/api/categories", "listCategories", true, summaries::categories);
+        route("POST", "/api/categories", "addCategory", true, summaries::addCategory);
+        route("GET", "/api/metrics", "metrics", true, summaries::metrics);
+    }
+
+    /**
+     * Create a server from the expensetracker.server.* settings
+     * @return ApiServer object, not yet started
+     */
+    public static ApiServer fromConfig() {
+        Properties props = AppConfig.get();
+        return new ApiServer(
+                AppConfig.getString(props, "expensetracker.server.host", "127.0.0.1"),
+                AppConfig.getInt(props, "expensetracker.server.port", 8080),
+                AppConfig.getInt(props, "expensetracker.server.backlog", 128),
+                AppConfig.getInt(props, "expensetracker.server.threads", 32),
+                AppConfig.getLong(props, "expensetracker.server.tokenTtlMinutes", 60) * 60_000);
+    }
+
+    /**
+     * Bind the port and start serving
+     */
+    public synchronized void start() throws IOException {
+        // The JDK server writes headers and body separately; with Nagle's algorithm on, every
+        // small response then waits out the client's delayed ACK (~40 ms). Read once, at first use.
+        if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+        }
+        server = HttpServer.create(new InetSocketAddress(host, port), backlog);
+        server.createContext("/api/", this::dispatch);
+        AtomicInteger counter = new AtomicInteger();
+        executor = Executors.newFixedThreadPool(threads, r -> {
+            Thread thread = new Thread(r, "api-worker-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        server.setExecutor(executor);
+        server.start();
+    }
+
+    /**
+     * Stop accepting requests, giving running ones a moment to finish
+     * @param delaySeconds Longest time to wait for running requests
+     */
+    public synchronized void stop(int delaySeconds) {
+        if (server != null) {
+            server.stop(delaySeconds);
+            server = null;
+            executor.shutdown();
+            executor = null;
+        }
+    }
+
+    /**
+     * @return Port the server listens on, which differs from the configured one when that was 0
+     */
+    public synchronized int getPort() {
+        return server != null ? server.getAddress().getPort() : port;
+    }
+
+    private void route(String method, String path, String name, boolean authenticated, Handler handler) {
+        routes.add(new Route(method, path, METRICS.operation("Api." + name), authenticated, handler));
+    }
+
+    private void dispatch(HttpExchange http) {
+        Route route = null;
+        try {
+            String[] segments = http.getRequestURI().getPath().split("/");
+            List<String> pathParams = null;
+            boolean pathMatched = false;
+            for (Route candidate : routes) {
+                List<String> params = candidate.match(segments);
+                if (params != null) {
+                    pathMatched = true;
+                    if (candidate.method.equals(http.getRequestMethod())) {
+                        route = candidate;
+                        pathParams = params;
+                        break;
+                    }
+                }
+            }
+            if (route == null) {
+                throw pathMatched
+                        ? new ApiException(405, "Method not allowed: " + http.getRequestMethod())
+                        : ApiException.notFound("No such resource: " + http.getRequestURI().getPath());
+            }
+
+            TokenStore.Session session = null;
+            if (route.authenticated) {
+                session = tokens.authenticate(bearerToken(http));
+                if (session == null) {
+                    http.getResponseHeaders().set("WWW-Authenticate", "Bearer");
+                    throw new ApiException(401, "Missing or expired token");
+                }
+            }
+
+            long start = System.nanoTime();
+            try {
+                route.handler.handle(new ApiExchange(http, pathParams, session));
+            } finally {
+                route.metrics.record(System.nanoTime() - start, 0);
+            }
+
+        } catch (ApiException e) {
+            sendError(http, e.getStatus(), e.getMessage());
+        } catch (IOException e) {
+            // Usually the client went away mid-response
+            System.err.println("Error serving " + http.getRequestURI() + ": " + e.getMessage());
+        } catch (RuntimeException e) {
+            if (route != null) {
+                route.metrics.failed(e);
+            }
+            System.err.println("Error serving " + http.getRequestURI() + ": " + e);
+            sendError(http, 500, "Internal server error");
+        } finally {
+            http.close();
+        }
+    }
+
+    private void login(ApiExchange exchange) throws IOException {
+        Map<String, Object> body = exchange.readJsonObject();
+        Object username = body.get("username");
+        Object password = body.get("password");
+        if (!(username instanceof String) || !(password instanceof String)) {
+            throw ApiException.badRequest("username and password are required");
+        }
+
+        User user = userDAO.loginUser((String) username, (String) password);
+        if (user == null) {
+            throw new ApiException(401, "Invalid username or password");
+        }
+
+        StringBuilder json = new StringBuilder("{\"token\":");
+        JsonLinesExpenseWriter.writeString(json, tokens.issue(user.getUserId(), user.getUsername()));
+        json.append(",\"userId\":").append(user.getUserId()).append(",\"username\":");
+        JsonLinesExpenseWriter.writeString(json, user.getUsername());
+        json.append(",\"expiresInSeconds\":").append(tokens.getTtlMillis() / 1000).append('}');
+        exchange.sendJson(200, json);
+    }
+
+    private void logout(ApiExchange exchange) throws IOException {
+        tokens.revoke(bearerToken(exchange.getHttpExchange()));
+        exchange.sendNoContent();
+    }
+
+    private static String bearerToken(HttpExchange http) {
+        String header = http.getRequestHeaders().getFirst("Authorization");
+        if (header == null || !header.regionMatches(true, 0, "Bearer ", 0, 7)) {
+            return null;
+        }
+        return header.substring(7).trim();
+    }
+
+    private static void sendError(HttpExchange http, int status, String message) {
+        if (http.getResponseCode() != -1) {
+            // Headers are already out, e.g. an export failed part way; all we can do is stop
+            return;
+        }
+        try {
+            new ApiExchange(http, List.of(), null).sendError(status, message);
+        } catch (IOException e) {
+            System.err.println("Error sending error response: " + e.getMessage());
+        }
+    }
+
+    /**
+     * A method and path pattern; "{...}" segments match any value and become path parameters
+     */
+    private static class Route {
+        private final String method;
+        private final String[] segments;
+        private final OperationMetrics metrics;
+        private final boolean authenticated;
+        private final Handler handler;
+
+        private Route(String method, String path, OperationMetrics metrics, boolean authenticated, Handler handler) {
+            this.method = method;
+            this.segments = path.split("/");
+            this.metrics = metrics;
+            this.authenticated = authenticated;
+            this.handler = handler;
+        }
+
+        private List<String> match(String[] path) {
+            if (path.length != segments.length) {
+                return null;
+            }
+            List<String> params = new ArrayList<>(1);
+            for (int i = 0; i < segments.length; i++) {
+                if (segments[i].startsWith("{")) {
+                    params.add(path[i]);
+                } else if (!segments[i].equals(path[i])) {
+                    return null;
+                }
+            }
+            return params;
+        }
+    }
+}
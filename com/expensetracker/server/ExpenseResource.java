@@ -0,0 +1,384 @@
+package server;
+
+import com.sun.net.httpserver.HttpExchange;
+import dao.ExpenseDAO;
+import dao.ExpenseQuery;
+import dao.ExpenseWriteQueue;
+import exporter.ExpenseExporter;
+import exporter.ExpenseWriter;
+import exporter.JsonLinesExpenseWriter;
+import importer.CsvExpenseReader;
+import importer.ExpenseImporter;
+import importer.ExpenseReader;
+import importer.OfxExpenseReader;
+import model.BatchResult;
+import model.Expense;
+import model.ExpenseCursor;
+import model.ExpensePage;
+import model.Money;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.format.DateTimeParseException;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Supplier;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Expense Resource
+ * Routes under /api/expenses and /api/import. Listings are paged like the expense table:
+ * by (date, id) keyset normally, by offset when searching, with the next page's cursor
+ * returned as an opaque "next" string. Single creates, updates and deletes go through the
+ * shared ExpenseWriteQueue, so concurrent clients share group commits.
+ */
+class ExpenseResource {
+    private static final int DEFAULT_LIMIT = 50;
+    private static final int MAX_LIMIT = 500;
+    // Failures listed in an import report; the counts are always exact
+    private static final int MAX_REPORTED_FAILURES = 100;
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final ExpenseDAO expenseDAO = new ExpenseDAO();
+    private final ExpenseWriteQueue writeQueue = ExpenseWriteQueue.isEnabled() ? ExpenseWriteQueue.getInstance() : null;
+    private final ExpenseImporter importer = new ExpenseImporter(expenseDAO, ExpenseDAO.DEFAULT_BATCH_SIZE);
+
+    /**
+     * Build the query for the filter parameters shared by listings, exports and summaries
+     */
+    static ExpenseQuery filters(ApiExchange exchange) {
+        ExpenseQuery query = ExpenseQuery.forUser(exchange.getUserId());
+
+        String month = exchange.query("month");
+        try {
+            if (month != null) {
+                query.inMonth(YearMonth.parse(month));
+            } else {
+                query.between(exchange.queryDate("from"), exchange.queryDate("to"));
+            }
+        } catch (DateTimeParseException e) {
+            throw ApiException.badRequest("month must look like 2024-03");
+        } catch (IllegalArgumentException e) {
+            throw ApiException.badRequest(e.getMessage());
+        }
+
+        return query.inCategory(exchange.query("category")).matching(exchange.query("q"));
+    }
+
+    void list(ApiExchange exchange) throws IOException {
+        ExpenseQuery query = filters(exchange);
+        int limit = exchange.queryInt("limit", DEFAULT_LIMIT, 1, MAX_LIMIT);
+        String cursor = exchange.query("cursor");
+
+        List<Expense> expenses;
+        String next = null;
+        if (query.getSearchText() != null) {
+            int offset = parseOffset(cursor);
+            // One extra row tells whether there is another page
+            expenses = expenseDAO.search(query, limit + 1, offset);
+            if (expenses.size() > limit) {
+                expenses = expenses.subList(0, limit);
+                next = Integer.toString(offset + limit);
+            }
+        } else {
+            ExpensePage page = expenseDAO.getExpensePage(query, parseCursor(cursor), limit);
+            expenses = page.getExpenses();
+            if (page.hasMore()) {
+                ExpenseCursor nextCursor = page.getNextCursor();
+                next = nextCursor.getExpenseDate() + ":" + nextCursor.getExpenseId();
+            }
+        }
+
+        StringBuilder json = new StringBuilder(64 + expenses.size() * 160);
+        json.append("{\"expenses\":[");
+        for (int i = 0; i < expenses.size(); i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            JsonLinesExpenseWriter.writeObject(json, expenses.get(i));
+        }
+        json.append("],\"next\":");
+        JsonLinesExpenseWriter.writeString(json, next);
+        exchange.sendJson(200, json.append('}'));
+    }
+
+    void get(ApiExchange exchange) throws IOException {
+        sendExpense(exchange, 200, find(exchange));
+    }
+
+    void create(ApiExchange exchange) throws IOException {
+        Expense expense = new Expense();
+        expense.setUserId(exchange.getUserId());
+        expense.setExpenseDate(LocalDate.now());
+        applyFields(exchange.readJsonObject(), expense);
+        requireFields(expense);
+
+        boolean saved = writeQueue != null
+                ? await(() -> writeQueue.add(expense))
+                : expenseDAO.addExpense(expense);
+        if (!saved) {
+            throw new ApiException(500, "Could not save the expense");
+        }
+        exchange.getHttpExchange().getResponseHeaders().set("Location", "/api/expenses/" + expense.getExpenseId());
+        sendExpense(exchange, 201, expense);
+    }
+
+    /**
+     * Change the fields present in the body; the others keep their stored values
+     */
+    void update(ApiExchange exchange) throws IOException {
+        Expense expense = new Expense(find(exchange));
+        applyFields(exchange.readJsonObject(), expense);
+        requireFields(expense);
+
+        boolean saved = writeQueue != null
+                ? await(() -> writeQueue.update(expense))
+                : expenseDAO.updateExpense(expense);
+        if (!saved) {
+            throw new ApiException(500, "Could not save the expense");
+        }
+        sendExpense(exchange, 200, expense);
+    }
+
+    void delete(ApiExchange exchange) throws IOException {
+        int expenseId = exchange.pathInt(0);
+        // Scoped to the user, so another user's id deletes nothing and reads as missing
+        int deleted = writeQueue != null
+                ? await(() -> writeQueue.delete(exchange.getUserId(), List.of(expenseId)))
+                : expenseDAO.deleteExpenses(exchange.getUserId(), List.of(expenseId));
+        if (deleted == 0) {
+            throw ApiException.notFound("No expense " + expenseId);
+        }
+        exchange.sendNoContent();
+    }
+
+    /**
+     * Wait for a queued write to commit. This holds one of the server's worker threads for the
+     * length of a group commit, so at most expensetracker.server.threads requests wait at once and
+     * later ones queue in the server; a full write queue is answered with 503 so clients back off
+     * and retry.
+     */
+    private static <T> T await(Supplier<CompletableFuture<T>> write) {
+        try {
+            return write.get().join();
+        } catch (RejectedExecutionException e) {
+            throw new ApiException(503, e.getMessage());
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RejectedExecutionException) {
+                throw new ApiException(503, e.getCause().getMessage());
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Stream the matching expenses, oldest first, as CSV or JSON Lines. The body is chunked
+     * and written straight from the database cursor, so memory use does not grow with it.
+     * A failure after the first rows have gone out can only cut the stream short.
+     */
+    void export(ApiExchange exchange) throws IOException {
+        ExpenseQuery query = filters(exchange);
+        String formatName = exchange.query("format");
+        ExpenseExporter.Format format = formatName == null
+                ? ExpenseExporter.Format.JSON_LINES
+                : ExpenseExporter.Format.fromFileName("expenses." + formatName);
+        if (format == null) {
+            throw ApiException.badRequest("format must be csv or jsonl");
+        }
+
+        HttpExchange http = exchange.getHttpExchange();
+        String acceptEncoding = http.getRequestHeaders().getFirst("Accept-Encoding");
+        boolean gzip = acceptEncoding != null && acceptEncoding.contains("gzip");
+        http.getResponseHeaders().set("Content-Type", format == ExpenseExporter.Format.CSV
+                ? "text/csv; charset=utf-8" : "application/x-ndjson; charset=utf-8");
+        http.getResponseHeaders().set("Content-Disposition",
+                "attachment; filename=\"expenses" + format.getExtension() + "\"");
+        if (gzip) {
+            http.getResponseHeaders().set("Content-Encoding", "gzip");
+        }
+        http.sendResponseHeaders(200, 0);
+
+        OutputStream out = http.getResponseBody();
+        if (gzip) {
+            out = new GZIPOutputStream(out, BUFFER_SIZE);
+        }
+        try (ExpenseWriter writer = format.newWriter(new BufferedWriter(
+                new OutputStreamWriter(out, StandardCharsets.UTF_8), BUFFER_SIZE))) {
+            writer.writeHeader();
+            expenseDAO.streamExpenses(query, ExpenseExporter.DEFAULT_FETCH_SIZE, expense -> {
+                writer.write(expense);
+                return true;
+            });
+        } catch (SQLException e) {
+            throw new IOException("Export failed: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Import a CSV or OFX statement from the request body. The body is parsed while it
+     * arrives and written in batches, so a large statement never sits in memory whole.
+     */
+    void importStatement(ApiExchange exchange) throws IOException {
+        String format = exchange.query("format");
+        if (format == null) {
+            String contentType = exchange.getHttpExchange().getRequestHeaders().getFirst("Content-Type");
+            format = contentType != null && contentType.toLowerCase(Locale.ROOT).contains("ofx") ? "ofx" : "csv";
+        }
+
+        BufferedReader reader = new BufferedReader(new InputStreamReader(
+                exchange.getHttpExchange().getRequestBody(), StandardCharsets.UTF_8), BUFFER_SIZE);
+        ExpenseReader expenseReader;
+        switch (format.toLowerCase(Locale.ROOT)) {
+            case "csv":
+                expenseReader = new CsvExpenseReader(reader, exchange.getUserId());
+                break;
+            case "ofx":
+            case "qfx":
+                expenseReader = new OfxExpenseReader(reader, exchange.getUserId());
+                break;
+            default:
+                throw ApiException.badRequest("format must be csv or ofx");
+        }
+
+        ExpenseImporter.ImportReport report = importer.importFrom(expenseReader);
+        StringBuilder json = new StringBuilder("{\"imported\":").append(report.getImportedCount());
+        appendFailures(json, "parseFailures", report.getParseFailures());
+        appendFailures(json, "insertFailures", report.getInsertResult());
+        exchange.sendJson(200, json.append('}'));
+    }
+
+    private Expense find(ApiExchange exchange) {
+        int expenseId = exchange.pathInt(0);
+        Expense expense = expenseDAO.findById(exchange.getUserId(), expenseId);
+        if (expense == null) {
+            throw ApiException.notFound("No expense " + expenseId);
+        }
+        return expense;
+    }
+
+    private static void sendExpense(ApiExchange exchange, int status, Expense expense) throws IOException {
+        StringBuilder json = new StringBuilder(192);
+        JsonLinesExpenseWriter.writeObject(json, expense);
+        exchange.sendJson(status, json);
+    }
+
+    private static void applyFields(Map<String, Object> body, Expense expense) {
+        if (body.containsKey("title")) {
+            expense.setTitle(trimmed(stringField(body, "title")));
+        }
+        if (body.containsKey("amount")) {
+            expense.setAmount(amountField(body.get("amount")));
+        }
+        if (body.containsKey("category")) {
+            expense.setCategory(trimmed(stringField(body, "category")));
+        }
+        if (body.containsKey("date")) {
+            expense.setExpenseDate(ApiExchange.parseDate("date", stringField(body, "date")));
+        }
+        if (body.containsKey("description")) {
+            expense.setDescription(stringField(body, "description"));
+        }
+    }
+
+    private static void requireFields(Expense expense) {
+        if (expense.getTitle() == null || expense.getTitle().isEmpty()) {
+            throw ApiException.badRequest("title is required");
+        }
+        if (expense.getAmount() <= 0) {
+            throw ApiException.badRequest("amount must be positive");
+        }
+        if (expense.getCategory() == null || expense.getCategory().isEmpty()) {
+            throw ApiException.badRequest("category is required");
+        }
+        if (expense.getExpenseDate() == null) {
+            throw ApiException.badRequest("date is required");
+        }
+    }
+
+    private static String stringField(Map<String, Object> body, String name) {
+        Object value = body.get(name);
+        if (value != null && !(value instanceof String)) {
+            throw ApiException.badRequest(name + " must be a string");
+        }
+        return (String) value;
+    }
+
+    private static String trimmed(String value) {
+        return value == null ? null : value.trim();
+    }
+
+    /**
+     * Amounts may be sent as a number or a decimal string in rupees, e.g. 120.5 or "120.50"
+     */
+    private static long amountField(Object value) {
+        String text;
+        if (value instanceof BigDecimal) {
+            text = ((BigDecimal) value).toPlainString();
+        } else if (value instanceof String) {
+            text = (String) value;
+        } else {
+            throw ApiException.badRequest("amount must be a number");
+        }
+        try {
+            return Money.parse(text);
+        } catch (NumberFormatException e) {
+            throw ApiException.badRequest("amount is not a valid amount: " + text);
+        }
+    }
+
+    private static ExpenseCursor parseCursor(String cursor) {
+        if (cursor == null) {
+            return null;
+        }
+        int colon = cursor.lastIndexOf(':');
+        try {
+            return new ExpenseCursor(LocalDate.parse(cursor.substring(0, colon)),
+                    Integer.parseInt(cursor.substring(colon + 1)));
+        } catch (RuntimeException e) {
+            throw ApiException.badRequest("Invalid cursor");
+        }
+    }
+
+    private static int parseOffset(String cursor) {
+        if (cursor == null) {
+            return 0;
+        }
+        try {
+            int offset = Integer.parseInt(cursor);
+            if (offset >= 0) {
+                return offset;
+            }
+        } catch (NumberFormatException e) {
+            // Falls through to the error below
+        }
+        throw ApiException.badRequest("Invalid cursor");
+    }
+
+    private static void appendFailures(StringBuilder json, String name, BatchResult result) throws IOException {
+        List<BatchResult.RowFailure> failures = result.getFailures();
+        json.append(",\"").append(name).append("Count\":").append(failures.size());
+        json.append(",\"").append(name).append("\":[");
+        for (int i = 0; i < Math.min(failures.size(), MAX_REPORTED_FAILURES); i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append("{\"index\":").append(failures.get(i).getIndex()).append(",\"message\":");
+            JsonLinesExpenseWriter.writeString(json, failures.get(i).getMessage());
+            json.append('}');
+        }
+        json.append(']');
+    }
+}
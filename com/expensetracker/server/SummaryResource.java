@@ -0,0 +1,129 @@
+package server;
+
+import dao.CategoryDAO;
+import dao.DashboardSummaryService;
+import dao.ExpenseDAO;
+import dao.ExpenseQuery;
+import exporter.JsonLinesExpenseWriter;
+import metrics.MetricsRegistry;
+import model.Category;
+import model.DashboardSummary;
+import model.Money;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Summary Resource
+ * Aggregate routes: totals and per-category totals for any filter, the dashboard summary,
+ * categories, and the server's own metrics. Amounts are given both as a decimal string
+ * and as exact paise, the same way expenses are.
+ */
+class SummaryResource {
+    private static final int DEFAULT_TOP_LIMIT = 5;
+    private static final int MAX_TOP_LIMIT = 50;
+
+    private final ExpenseDAO expenseDAO = new ExpenseDAO();
+    private final CategoryDAO categoryDAO = new CategoryDAO();
+    private final DashboardSummaryService summaryService = DashboardSummaryService.getInstance();
+
+    void summary(ApiExchange exchange) throws IOException {
+        ExpenseQuery query = ExpenseResource.filters(exchange);
+
+        StringBuilder json = new StringBuilder("{\"count\":").append(expenseDAO.countExpenses(query));
+        appendMoney(json.append(','), "total", expenseDAO.getTotal(query));
+        appendCategories(json.append(','), sortedByTotal(expenseDAO.getCategoryTotals(query)));
+        exchange.sendJson(200, json.append('}'));
+    }
+
+    void topCategories(ApiExchange exchange) throws IOException {
+        ExpenseQuery query = ExpenseResource.filters(exchange);
+        int limit = exchange.queryInt("limit", DEFAULT_TOP_LIMIT, 1, MAX_TOP_LIMIT);
+
+        StringBuilder json = new StringBuilder("{");
+        appendCategories(json, new ArrayList<>(expenseDAO.getTopCategories(query, limit).entrySet()));
+        exchange.sendJson(200, json.append('}'));
+    }
+
+    /**
+     * This month's and today's totals, answered from the summary cache once warm
+     */
+    void dashboard(ApiExchange exchange) throws IOException {
+        DashboardSummary summary = summaryService.getSummary(exchange.getUserId());
+
+        StringBuilder json = new StringBuilder("{\"asOf\":\"").append(summary.getAsOf()).append("\",");
+        appendMoney(json, "monthlyTotal", summary.getMonthlyTotal());
+        appendMoney(json.append(','), "todayTotal", summary.getTodayTotal());
+        appendCategories(json.append(','), sortedByTotal(summary.getCategoryTotals()));
+        exchange.sendJson(200, json.append('}'));
+    }
+
+    void categories(ApiExchange exchange) throws IOException {
+        List<Category> categories = categoryDAO.getCategories(exchange.getUserId());
+
+        StringBuilder json = new StringBuilder("[");
+        for (int i = 0; i < categories.size(); i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            appendCategory(json, categories.get(i));
+        }
+        exchange.sendJson(200, json.append(']'));
+    }
+
+    void addCategory(ApiExchange exchange) throws IOException {
+        Object name = exchange.readJsonObject().get("name");
+        if (!(name instanceof String) || ((String) name).isBlank()) {
+            throw ApiException.badRequest("name is required");
+        }
+
+        Category category = categoryDAO.addCategory(exchange.getUserId(), (String) name);
+        if (category == null) {
+            throw new ApiException(500, "Could not add the category");
+        }
+        StringBuilder json = new StringBuilder();
+        appendCategory(json, category);
+        exchange.sendJson(201, json);
+    }
+
+    void metrics(ApiExchange exchange) throws IOException {
+        exchange.sendJson(200, MetricsRegistry.getInstance().toJson());
+    }
+
+    private static List<Map.Entry<String, Long>> sortedByTotal(Map<String, Long> totals) {
+        List<Map.Entry<String, Long>> entries = new ArrayList<>(totals.entrySet());
+        entries.sort(Map.Entry.<String, Long>comparingByValue().reversed());
+        return entries;
+    }
+
+    private static void appendCategories(StringBuilder json, List<Map.Entry<String, Long>> totals)
+            throws IOException {
+        json.append("\"categories\":[");
+        for (int i = 0; i < totals.size(); i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append("{\"category\":");
+            JsonLinesExpenseWriter.writeString(json, totals.get(i).getKey());
+            appendMoney(json.append(','), "total", totals.get(i).getValue());
+            json.append('}');
+        }
+        json.append(']');
+    }
+
+    private static void appendCategory(StringBuilder json, Category category) throws IOException {
+        json.append("{\"id\":").append(category.getCategoryId()).append(",\"name\":");
+        JsonLinesExpenseWriter.writeString(json, category.getName());
+        json.append(",\"builtIn\":").append(category.isBuiltIn()).append('}');
+    }
+
+    /**
+     * Append "name":"123.45","nameMinor":12345
+     */
+    private static void appendMoney(StringBuilder json, String name, long minorUnits) {
+        json.append('"').append(name).append("\":\"").append(Money.toPlainString(minorUnits))
+                .append("\",\"").append(name).append("Minor\":").append(minorUnits);
+    }
+}
@@ -0,0 +1,107 @@
+package server;
+
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Token Store
+ * Bearer tokens handed out by /api/login. Tokens are 256 random bits and live only in
+ * memory, so restarting the server logs every client out. A session expires after it
+ * has gone unused for the configured time-to-live.
+ */
+public class TokenStore {
+    private static final int TOKEN_BYTES = 32;
+
+    private final SecureRandom random = new SecureRandom();
+    private final Base64.Encoder encoder = Base64.getUrlEncoder().withoutPadding();
+    private final Map<String, Session> sessions = new ConcurrentHashMap<>();
+    private final long ttlMillis;
+
+    public TokenStore(long ttlMillis) {
+        this.ttlMillis = ttlMillis;
+    }
+
+    /**
+     * Start a session for a user who has just logged in
+     * @param userId User ID
+     * @param username Username
+     * @return New token
+     */
+    public String issue(int userId, String username) {
+        // Logins are rare next to other requests, so expired sessions are swept here
+        long now = System.currentTimeMillis();
+        sessions.values().removeIf(session -> session.isExpired(now));
+
+        byte[] bytes = new byte[TOKEN_BYTES];
+        random.nextBytes(bytes);
+        String token = encoder.encodeToString(bytes);
+        sessions.put(token, new Session(userId, username, now + ttlMillis));
+        return token;
+    }
+
+    /**
+     * Look up the session of a token, extending it
+     * @param token Token from the Authorization header
+     * @return Session, or null if the token is unknown or has expired
+     */
+    public Session authenticate(String token) {
+        if (token == null) {
+            return null;
+        }
+        Session session = sessions.get(token);
+        if (session == null) {
+            return null;
+        }
+
+        long now = System.currentTimeMillis();
+        if (session.isExpired(now)) {
+            sessions.remove(token, session);
+            return null;
+        }
+        session.expiresAt = now + ttlMillis;
+        return session;
+    }
+
+    /**
+     * End a session
+     * @param token Token to forget
+     */
+    public void revoke(String token) {
+        if (token != null) {
+            sessions.remove(token);
+        }
+    }
+
+    public long getTtlMillis() {
+        return ttlMillis;
+    }
+
+    /**
+     * A logged-in user
+     */
+    public static class Session {
+        private final int userId;
+        private final String username;
+        private volatile long expiresAt;
+
+        private Session(int userId, String username, long expiresAt) {
+            this.userId = userId;
+            this.username = username;
+            this.expiresAt = expiresAt;
+        }
+
+        public int getUserId() {
+            return userId;
+        }
+
+        public String getUsername() {
+            return username;
+        }
+
+        private boolean isExpired(long now) {
+            return now >= expiresAt;
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Properties;
+
+/**
+ * Application Configuration
+ * Settings are layered, later layers winning:
+ * the bundled expense_tracker.properties, an expense_tracker.properties in the working
+ * directory (or the file named by -Dexpensetracker.config), then JVM system properties.
+ */
+public class AppConfig {
+    public static final String FILE_NAME = "expense_tracker.properties";
+
+    private static volatile Properties properties;
+
+    private AppConfig() {}
+
+    /**
+     * Get the effective settings, loading them on first use
+     * @return Properties object
+     */
+    public static Properties get() {
+        Properties current = properties;
+        if (current == null) {
+            synchronized (AppConfig.class) {
+                current = properties;
+                if (current == null) {
+                    current = load();
+                    properties = current;
+                }
+            }
+        }
+        return current;
+    }
+
+    private static Properties load() {
+        Properties loaded = new Properties();
+
+        try (InputStream in = AppConfig.class.getResourceAsStream("/" + FILE_NAME)) {
+            if (in != null) {
+                loaded.load(in);
+            }
+        } catch (IOException e) {
+            System.err.println("Error reading bundled " + FILE_NAME + ": " + e.getMessage());
+        }
+
+        Path file = Paths.get(System.getProperty("expensetracker.config", FILE_NAME));
+        if (Files.isRegularFile(file)) {
+            try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+                loaded.load(reader);
+            } catch (IOException e) {
+                System.err.println("Error reading " + file.toAbsolutePath() + ": " + e.getMessage());
+            }
+        }
+
+        for (String name : System.getProperties().stringPropertyNames()) {
+            if (name.startsWith("expensetracker.")) {
+                loaded.setProperty(name, System.getProperty(name));
+            }
+        }
+        return loaded;
+    }
+
+    public static String getString(Properties props, String key, String defaultValue) {
+        String value = props.getProperty(key);
+        return value == null || value.isBlank() ? defaultValue : value.trim();
+    }
+
+    public static int getInt(Properties props, String key, int defaultValue) {
+        return (int) getLong(props, key, defaultValue);
+    }
+
+    public static long getLong(Properties props, String key, long defaultValue) {
+        String value = getString(props, key, null);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            System.err.println("Ignoring invalid value for " + key + ": " + value);
+            return defaultValue;
+        }
+    }
+}
@@ -0,0 +1,381 @@
+package util;
+
+import metrics.MetricsRegistry;
+import metrics.OperationMetrics;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Connection Pool
+ * Bounded pool of JDBC connections with validation, idle eviction and leak detection.
+ * Borrowed connections are proxies whose close() hands the physical connection back to the pool.
+ */
+public class ConnectionPool {
+    // Time from asking for a connection to holding one, including opening a new one; timeouts count as errors
+    private static final OperationMetrics BORROW = MetricsRegistry.getInstance().operation("ConnectionPool.getConnection");
+
+    private final String url;
+    private final PoolConfig config;
+    private final Initializer initializer;
+
+    private final LinkedBlockingDeque<PooledConnection> idle = new LinkedBlockingDeque<>();
+    private final Set<PooledConnection> borrowed = ConcurrentHashMap.newKeySet();
+    private final Semaphore permits;
+    private final ScheduledExecutorService housekeeper;
+
+    private final AtomicLong created = new AtomicLong();
+    private final AtomicLong evicted = new AtomicLong();
+    private final AtomicLong leaksDetected = new AtomicLong();
+    private final StatementCache.Stats statementStats = new StatementCache.Stats();
+    private volatile boolean closed;
+
+    /**
+     * Prepares each physical connection once, right after it is opened
+     */
+    @FunctionalInterface
+    public interface Initializer {
+        void initialize(Connection conn) throws SQLException;
+    }
+
+    public ConnectionPool(String url, PoolConfig config) {
+        this(url, config, conn -> {});
+    }
+
+    public ConnectionPool(String url, PoolConfig config, Initializer initializer) {
+        this.url = url;
+        this.config = config;
+        this.initializer = initializer;
+        this.permits = new Semaphore(config.getMaxSize(), true);
+        this.housekeeper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "connection-pool-housekeeper");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long interval = config.getHousekeepingIntervalMillis();
+        housekeeper.scheduleWithFixedDelay(this::houseKeep, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Borrow a connection, waiting up to the configured borrow timeout
+     * @return Connection that returns to the pool when closed
+     */
+    public Connection getConnection() throws SQLException {
+        if (closed) {
+            throw new SQLException("Connection pool is closed");
+        }
+
+        long waitStart = System.nanoTime();
+        try {
+            if (!permits.tryAcquire(config.getBorrowTimeoutMillis(), TimeUnit.MILLISECONDS)) {
+                SQLException timeout = new SQLException("Timed out after " + config.getBorrowTimeoutMillis() +
+                        " ms waiting for a database connection (" + borrowed.size() + " in use)");
+                BORROW.failed(timeout);
+                throw timeout;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a database connection", e);
+        }
+
+        try {
+            PooledConnection pooled = takeIdle();
+            if (pooled == null) {
+                pooled = new PooledConnection(openConnection());
+                created.incrementAndGet();
+            }
+            pooled.borrowedAt = System.currentTimeMillis();
+            // Leaks are found by borrow time alone; the call site is only captured when debugging
+            pooled.borrowSite = config.getLeakThresholdMillis() > 0 && config.isLeakStackTraces()
+                    ? new Throwable("Connection borrowed here") : null;
+            pooled.leakReported = false;
+            borrowed.add(pooled);
+            BORROW.record(System.nanoTime() - waitStart, 1);
+            return pooled.newHandle();
+        } catch (SQLException | RuntimeException e) {
+            BORROW.failed(e);
+            permits.release();
+            throw e;
+        }
+    }
+
+    /**
+     * Open and initialize a new physical connection
+     */
+    private Connection openConnection() throws SQLException {
+        Connection physical = DriverManager.getConnection(url);
+        try {
+            initializer.initialize(physical);
+            return physical;
+        } catch (SQLException | RuntimeException e) {
+            physical.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Take the most recently used idle connection, discarding any that fail validation
+     */
+    private PooledConnection takeIdle() {
+        PooledConnection pooled;
+        while ((pooled = idle.pollFirst()) != null) {
+            long idleFor = System.currentTimeMillis() - pooled.lastReturnedAt;
+            if (idleFor < config.getValidationIntervalMillis() || isUsable(pooled)) {
+                return pooled;
+            }
+            closeQuietly(pooled);
+        }
+        return null;
+    }
+
+    private boolean isUsable(PooledConnection pooled) {
+        try {
+            return !pooled.physical.isClosed() && pooled.physical.isValid(2);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Return a physical connection to the pool, resetting any state left by the borrower
+     */
+    private void release(PooledConnection pooled) {
+        if (!borrowed.remove(pooled)) {
+            return;
+        }
+
+        try {
+            if (pooled.statements != null) {
+                pooled.statements.releaseAll();
+            }
+            boolean reusable = !closed && !pooled.physical.isClosed();
+            if (reusable && !pooled.physical.getAutoCommit()) {
+                pooled.physical.rollback();
+                pooled.physical.setAutoCommit(true);
+            }
+            if (reusable) {
+                pooled.lastReturnedAt = System.currentTimeMillis();
+                pooled.borrowSite = null;
+                idle.offerFirst(pooled);
+            } else {
+                closeQuietly(pooled);
+            }
+        } catch (SQLException e) {
+            System.err.println("Discarding pooled connection: " + e.getMessage());
+            closeQuietly(pooled);
+        } finally {
+            permits.release();
+        }
+    }
+
+    /**
+     * Evict connections idle longer than the idle timeout and report suspected leaks
+     */
+    private void houseKeep() {
+        long now = System.currentTimeMillis();
+
+        Iterator<PooledConnection> it = idle.descendingIterator();
+        while (it.hasNext() && idle.size() > config.getMinIdle()) {
+            PooledConnection pooled = it.next();
+            if (now - pooled.lastReturnedAt > config.getIdleTimeoutMillis() && idle.remove(pooled)) {
+                closeQuietly(pooled);
+                evicted.incrementAndGet();
+            }
+        }
+
+        long threshold = config.getLeakThresholdMillis();
+        if (threshold > 0) {
+            for (PooledConnection pooled : borrowed) {
+                if (!pooled.leakReported && now - pooled.borrowedAt > threshold) {
+                    pooled.leakReported = true;
+                    leaksDetected.incrementAndGet();
+                    System.err.println("Possible connection leak: connection held for " +
+                            (now - pooled.borrowedAt) + " ms");
+                    if (pooled.borrowSite != null) {
+                        pooled.borrowSite.printStackTrace();
+                    } else {
+                        System.err.println("Set expensetracker.pool.leakStackTraces=true to log where it was borrowed");
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Close all idle connections and stop handing out new ones.
+     * Borrowed connections are closed as they are returned.
+     */
+    public void shutdown() {
+        closed = true;
+        housekeeper.shutdownNow();
+        PooledConnection pooled;
+        while ((pooled = idle.pollFirst()) != null) {
+            closeQuietly(pooled);
+        }
+    }
+
+    private void closeQuietly(PooledConnection pooled) {
+        try {
+            if (pooled.statements != null) {
+                pooled.statements.closeAll();
+            }
+            pooled.physical.close();
+        } catch (SQLException e) {
+            System.err.println("Error closing pooled connection: " + e.getMessage());
+        }
+    }
+
+    public int getActiveCount() {
+        return borrowed.size();
+    }
+
+    public int getIdleCount() {
+        return idle.size();
+    }
+
+    public long getCreatedCount() {
+        return created.get();
+    }
+
+    public long getEvictedCount() {
+        return evicted.get();
+    }
+
+    public long getLeaksDetected() {
+        return leaksDetected.get();
+    }
+
+    public long getStatementCacheHits() {
+        return statementStats.getHits();
+    }
+
+    public long getStatementCacheMisses() {
+        return statementStats.getMisses();
+    }
+
+    public long getStatementCacheEvictions() {
+        return statementStats.getEvictions();
+    }
+
+    /**
+     * @return Fraction of prepareStatement calls served from the statement cache, 0 before any call
+     */
+    public double getStatementCacheHitRate() {
+        long hits = statementStats.getHits();
+        long total = hits + statementStats.getMisses();
+        return total == 0 ? 0 : (double) hits / total;
+    }
+
+    public PoolConfig getConfig() {
+        return config;
+    }
+
+    @Override
+    public String toString() {
+        return "ConnectionPool{" +
+                "active=" + getActiveCount() +
+                ", idle=" + getIdleCount() +
+                ", created=" + getCreatedCount() +
+                ", evicted=" + getEvictedCount() +
+                ", leaks=" + getLeaksDetected() +
+                ", statementCacheHitRate=" + String.format("%.3f", getStatementCacheHitRate()) +
+                '}';
+    }
+
+    /**
+     * A physical connection owned by the pool
+     */
+    private final class PooledConnection {
+        private final Connection physical;
+        // Null when statement caching is disabled
+        private final StatementCache statements;
+        private volatile long borrowedAt;
+        private volatile long lastReturnedAt = System.currentTimeMillis();
+        private volatile Throwable borrowSite;
+        private volatile boolean leakReported;
+
+        private PooledConnection(Connection physical) {
+            this.physical = physical;
+            int cacheSize = config.getStatementCacheSize();
+            this.statements = cacheSize > 0 ? new StatementCache(physical, cacheSize, statementStats) : null;
+        }
+
+        private Connection newHandle() {
+            return (Connection) Proxy.newProxyInstance(
+                    Connection.class.getClassLoader(),
+                    new Class<?>[]{Connection.class},
+                    new Handle(this));
+        }
+    }
+
+    /**
+     * Borrower's view of a pooled connection. Each borrow gets a fresh handle so a
+     * stale reference cannot touch a connection that has since been lent to someone else.
+     */
+    private final class Handle implements InvocationHandler {
+        private final PooledConnection pooled;
+        // Claimed by exactly one close(), so racing closes cannot release the connection twice
+        private final AtomicBoolean closed = new AtomicBoolean();
+
+        private Handle(PooledConnection pooled) {
+            this.pooled = pooled;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    if (closed.compareAndSet(false, true)) {
+                        release(pooled);
+                    }
+                    return null;
+                case "isClosed":
+                    return closed.get() || pooled.physical.isClosed();
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "PooledConnection[" + pooled.physical + "]";
+                default:
+                    break;
+            }
+
+            if (closed.get()) {
+                throw new SQLException("Connection has already been returned to the pool");
+            }
+
+            if (pooled.statements != null && method.getName().equals("prepareStatement")) {
+                Class<?>[] types = method.getParameterTypes();
+                if (types.length == 1) {
+                    return pooled.statements.prepare((Connection) proxy, (String) args[0], Statement.NO_GENERATED_KEYS);
+                }
+                if (types.length == 2 && types[1] == int.class) {
+                    return pooled.statements.prepare((Connection) proxy, (String) args[0], (Integer) args[1]);
+                }
+            }
+
+            try {
+                return method.invoke(pooled.physical, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package util;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Database Executor
+ * Shared executor that runs blocking JDBC work away from the Swing Event Dispatch Thread.
+ * Uses one virtual thread per task when the JDK supports it, otherwise a small pool of
+ * daemon platform threads sized to the connection pool.
+ */
+public class DatabaseExecutor {
+    private static final ExecutorService EXECUTOR = createExecutor();
+
+    private DatabaseExecutor() {}
+
+    /**
+     * Get the shared executor
+     * @return ExecutorService object
+     */
+    public static ExecutorService get() {
+        return EXECUTOR;
+    }
+
+    private static ExecutorService createExecutor() {
+        try {
+            // Looked up reflectively so the code still compiles and runs on JDKs before 21
+            Object executor = Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+            return (ExecutorService) executor;
+        } catch (ReflectiveOperationException e) {
+            AtomicInteger counter = new AtomicInteger();
+            int threads = AppConfig.getInt(AppConfig.get(), "expensetracker.pool.maxSize", 8);
+            return Executors.newFixedThreadPool(threads, r -> {
+                Thread thread = new Thread(r, "database-worker-" + counter.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+}
@@ -1,64 +1,205 @@
 package util;
 
 import java.sql.*;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 /**
  * Database Utility Class
- * Handles SQLite connection and table initialization
+ * Handles SQLite connection pooling, shard routing and table initialization
  */
 public class DatabaseUtil {
-    // SQLite database file path
-    private static final String DB_URL = "jdbc:sqlite:expense_tracker.db";
+    // SQLite database file path, see AppConfig for how to override it
+    private static final String DB_URL =
+            AppConfig.getString(AppConfig.get(), "expensetracker.db.url", "jdbc:sqlite:expense_tracker.db");
+
+    // PRAGMAs applied to every connection the pool opens
+    private static final SqliteProfile PROFILE = SqliteProfile.fromProperties(AppConfig.get());
+
+    // Shared pool, created on first use
+    private static volatile ConnectionPool pool;
+
+    // Maps users to shards, created on first use; shard 0 shares the pool above
+    private static volatile ShardRouter router;
+
+    // Run by shutdown() before any pool closes, e.g. to finish queued writes
+    private static final List<Runnable> SHUTDOWN_TASKS = new CopyOnWriteArrayList<>();
 
     /**
-     * Get database connection
+     * Get a pooled connection to the catalog database, which holds users and the shard directory.
+     * Closing the connection returns it to the pool.
      * @return Connection object
      */
     public static Connection getConnection() throws SQLException {
-        return DriverManager.getConnection(DB_URL);
+        return getPool().getConnection();
+    }
+
+    /**
+     * Get a pooled connection to the shard holding a user's expenses and categories.
+     * Closing the connection returns it to the pool.
+     * @param userId User ID
+     * @return Connection object
+     */
+    public static Connection getConnection(int userId) throws SQLException {
+        return getShardRouter().getConnection(userId);
+    }
+
+    /**
+     * Get the shared connection pool of the catalog database, creating it on first use
+     * @return ConnectionPool object
+     */
+    public static ConnectionPool getPool() {
+        ConnectionPool current = pool;
+        if (current == null) {
+            synchronized (DatabaseUtil.class) {
+                current = pool;
+                if (current == null) {
+                    current = new ConnectionPool(DB_URL, PoolConfig.fromProperties(AppConfig.get()), PROFILE::apply);
+                    Runtime.getRuntime().addShutdownHook(new Thread(DatabaseUtil::shutdown, "connection-pool-shutdown"));
+                    pool = current;
+                }
+            }
+        }
+        return current;
+    }
+
+    /**
+     * Get the shard router configured by expensetracker.shards.*, creating it on first use
+     * @return ShardRouter object
+     */
+    public static ShardRouter getShardRouter() {
+        ShardRouter current = router;
+        if (current == null) {
+            ConnectionPool catalog = getPool();
+            synchronized (DatabaseUtil.class) {
+                current = router;
+                if (current == null) {
+                    Properties props = AppConfig.get();
+                    String[] urls = ShardRouter.shardUrls(props, DB_URL);
+                    ConnectionPool[] pools = new ConnectionPool[urls.length];
+                    pools[0] = catalog;
+                    for (int shard = 1; shard < urls.length; shard++) {
+                        pools[shard] = new ConnectionPool(urls[shard], PoolConfig.fromProperties(props), PROFILE::apply);
+                    }
+                    current = new ShardRouter(urls, pools,
+                            AppConfig.getLong(props, "expensetracker.shards.directoryTtlSeconds", 5) * 1000);
+                    router = current;
+                }
+            }
+        }
+        return current;
+    }
+
+    /**
+     * Get the number of shards expenses are spread over
+     * @return Shard count, 1 when sharding is off
+     */
+    public static int getShardCount() {
+        return getShardRouter().getShardCount();
+    }
+
+    /**
+     * Get the JDBC URL of the catalog database
+     * @return JDBC URL
+     */
+    public static String getDatabaseUrl() {
+        return DB_URL;
     }
 
     /**
-     * Initialize database tables if they don't exist
+     * Get the PRAGMA profile applied to every connection
+     * @return SqliteProfile object
+     */
+    public static SqliteProfile getProfile() {
+        return PROFILE;
+    }
+
+    /**
+     * Register work that still needs the database when shutdown() is called. Tasks run in
+     * registration order before the pools close, and must tolerate being run more than once.
+     * @param task Work to run
+     */
+    public static void addShutdownTask(Runnable task) {
+        SHUTDOWN_TASKS.add(task);
+    }
+
+    /**
+     * Run the shutdown tasks, then close all pooled connections of every shard
+     */
+    public static void shutdown() {
+        for (Runnable task : SHUTDOWN_TASKS) {
+            try {
+                task.run();
+            } catch (RuntimeException e) {
+                System.err.println("Error running database shutdown task: " + e.getMessage());
+            }
+        }
+        ShardRouter currentRouter = router;
+        if (currentRouter != null) {
+            currentRouter.shutdown();
+        }
+        ConnectionPool current = pool;
+        if (current != null) {
+            current.shutdown();
+        }
+    }
+
+    /**
+     * Initialize database tables and indexes by applying any pending schema migrations,
+     * to the catalog first and then to every further shard
+     * @throws IllegalStateException if the catalog or a shard could not be brought up to date;
+     *         serving then would write to an old schema or hand out ids of another shard
      */
     public static void initializeDatabase() {
-        try (Connection conn = getConnection();
-             Statement stmt = conn.createStatement()) {
-
-            // Create users table
-            String createUsersTable = """
-                CREATE TABLE IF NOT EXISTS users (
-                    user_id INTEGER PRIMARY KEY AUTOINCREMENT,
-                    username TEXT UNIQUE NOT NULL,
-                    email TEXT UNIQUE NOT NULL,
-                    password TEXT NOT NULL,
-                    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
-                )
-                """;
-
-            // Create expenses table
-            String createExpensesTable = """
-                CREATE TABLE IF NOT EXISTS expenses (
-                    expense_id INTEGER PRIMARY KEY AUTOINCREMENT,
-                    user_id INTEGER NOT NULL,
-                    title TEXT NOT NULL,
-                    amount REAL NOT NULL,
-                    category TEXT NOT NULL,
-                    expense_date DATE NOT NULL,
-                    description TEXT,
-                    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
-                    FOREIGN KEY (user_id) REFERENCES users(user_id)
-                )
-                """;
-
-            stmt.execute(createUsersTable);
-            stmt.execute(createExpensesTable);
-
-            System.out.println("Database initialized successfully!");
+        ShardRouter shards = getShardRouter();
+        SchemaMigrator migrator = new SchemaMigrator(Migrations.all());
+
+        try (Connection conn = getConnection()) {
+
+            migrator.migrate(conn);
+
+            System.out.println("Database initialized successfully! (schema version " +
+                    migrator.getCurrentVersion(conn) + ")");
+            PROFILE.logEffective(conn);
+
+            if (shards.getShardCount() > 1) {
+                // Users created before sharding was turned on keep their expenses where they are
+                ShardRouter.pinExistingUsers(conn);
+                ShardRouter.reserveIdBlock(conn, 0);
+            } else {
+                warnAboutStrandedUsers(conn);
+            }
 
         } catch (SQLException e) {
-            System.err.println("Database initialization failed: " + e.getMessage());
-            e.printStackTrace();
+            throw new IllegalStateException("Database initialization failed: " + e.getMessage(), e);
+        }
+
+        for (int shard = 1; shard < shards.getShardCount(); shard++) {
+            try (Connection conn = shards.getPool(shard).getConnection()) {
+                migrator.migrate(conn);
+                ShardRouter.reserveIdBlock(conn, shard);
+            } catch (SQLException e) {
+                throw new IllegalStateException("Initialization of shard " + shard + " (" + shards.getUrl(shard) +
+                        ") failed: " + e.getMessage(), e);
+            }
+        }
+        if (shards.getShardCount() > 1) {
+            System.out.println("Expenses are spread over " + shards.getShardCount() + " shards");
+        }
+    }
+
+    /**
+     * With sharding off, users the directory places on another shard have their expenses
+     * out of reach; say so rather than showing them an empty list
+     */
+    private static void warnAboutStrandedUsers(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT COUNT(*) FROM user_shards WHERE shard > 0")) {
+            if (rs.next() && rs.getInt(1) > 0) {
+                System.err.println("Warning: " + rs.getInt(1) + " users live on shards beyond shard 0, " +
+                        "but expensetracker.shards.count is 1");
+            }
         }
     }
-}
\ No newline at end of file
+}
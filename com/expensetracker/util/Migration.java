@@ -0,0 +1,71 @@
+package util;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Schema Migration
+ * A single versioned, idempotent change to the database schema
+ */
+public class Migration {
+
+    /**
+     * Work performed by a migration inside its transaction
+     */
+    @FunctionalInterface
+    public interface Step {
+        void apply(Connection conn) throws SQLException;
+    }
+
+    private final int version;
+    private final String description;
+    private final Step step;
+
+    public Migration(int version, String description, Step step) {
+        if (version < 1) {
+            throw new IllegalArgumentException("Migration version must be positive: " + version);
+        }
+        this.version = version;
+        this.description = description;
+        this.step = step;
+    }
+
+    /**
+     * Create a migration that runs plain SQL statements in order
+     * @param version Schema version this migration produces
+     * @param description Human readable summary
+     * @param statements SQL statements, each written to be safe to re-run
+     * @return Migration object
+     */
+    public static Migration sql(int version, String description, String... statements) {
+        return new Migration(version, description, conn -> {
+            try (Statement stmt = conn.createStatement()) {
+                for (String sql : statements) {
+                    stmt.execute(sql);
+                }
+            }
+        });
+    }
+
+    public void apply(Connection conn) throws SQLException {
+        step.apply(conn);
+    }
+
+    // Getters
+    public int getVersion() {
+        return version;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    @Override
+    public String toString() {
+        return "Migration{" +
+                "version=" + version +
+                ", description='" + description + '\'' +
+                '}';
+    }
+}
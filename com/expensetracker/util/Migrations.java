@@ -0,0 +1,307 @@
+package util;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+
+/**
+ * Schema Migrations
+ * Ordered list of every schema change. Append new migrations at the end;
+ * never edit or renumber one that has shipped.
+ */
+public class Migrations {
+
+    private Migrations() {}
+
+    public static List<Migration> all() {
+        return List.of(
+                Migration.sql(1, "Create users and expenses tables",
+                        """
+                        CREATE TABLE IF NOT EXISTS users (
+                            user_id INTEGER PRIMARY KEY AUTOINCREMENT,
+                            username TEXT UNIQUE NOT NULL,
+                            email TEXT UNIQUE NOT NULL,
+                            password TEXT NOT NULL,
+                            created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+                        )
+                        """,
+                        """
+                        CREATE TABLE IF NOT EXISTS expenses (
+                            expense_id INTEGER PRIMARY KEY AUTOINCREMENT,
+                            user_id INTEGER NOT NULL,
+                            title TEXT NOT NULL,
+                            amount REAL NOT NULL,
+                            category TEXT NOT NULL,
+                            expense_date DATE NOT NULL,
+                            description TEXT,
+                            created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+                            FOREIGN KEY (user_id) REFERENCES users(user_id)
+                        )
+                        """),
+
+                // Per-user listings, date ranges and category filters all lead with user_id
+                Migration.sql(2, "Index expenses by user, date and category",
+                        "CREATE INDEX IF NOT EXISTS idx_expenses_user_date " +
+                                "ON expenses (user_id, expense_date)",
+                        "CREATE INDEX IF NOT EXISTS idx_expenses_user_category_date " +
+                                "ON expenses (user_id, category, expense_date)",
+                        "ANALYZE"),
+
+                // SQLite cannot change a column type in place, so the table is rebuilt
+                new Migration(3, "Store expense amounts as integer paise", conn -> {
+                    if (columnExists(conn, "expenses", "amount_minor")) {
+                        return;
+                    }
+                    try (Statement stmt = conn.createStatement()) {
+                        stmt.execute("""
+                            CREATE TABLE expenses_new (
+                                expense_id INTEGER PRIMARY KEY AUTOINCREMENT,
+                                user_id INTEGER NOT NULL,
+                                title TEXT NOT NULL,
+                                amount_minor INTEGER NOT NULL,
+                                category TEXT NOT NULL,
+                                expense_date DATE NOT NULL,
+                                description TEXT,
+                                created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+                                FOREIGN KEY (user_id) REFERENCES users(user_id)
+                            )
+                            """);
+                        stmt.execute("""
+                            INSERT INTO expenses_new (expense_id, user_id, title, amount_minor, category,
+                                                      expense_date, description, created_at)
+                            SELECT expense_id, user_id, title, CAST(ROUND(amount * 100) AS INTEGER), category,
+                                   expense_date, description, created_at
+                            FROM expenses
+                            """);
+                        stmt.execute("DROP TABLE expenses");
+                        stmt.execute("ALTER TABLE expenses_new RENAME TO expenses");
+                        stmt.execute("CREATE INDEX idx_expenses_user_date ON expenses (user_id, expense_date)");
+                        stmt.execute("CREATE INDEX idx_expenses_user_category_date " +
+                                "ON expenses (user_id, category, expense_date)");
+                    }
+                }),
+
+                // Categories become rows referenced by id: built-ins have no owner, custom ones belong to a user.
+                // Names compare without case, so "food" and "Food" are the same category.
+                new Migration(4, "Move expense categories into a categories table", conn -> {
+                    if (columnExists(conn, "expenses", "category_id")) {
+                        return;
+                    }
+                    try (Statement stmt = conn.createStatement()) {
+                        stmt.execute("""
+                            CREATE TABLE IF NOT EXISTS categories (
+                                category_id INTEGER PRIMARY KEY AUTOINCREMENT,
+                                user_id INTEGER,
+                                name TEXT NOT NULL COLLATE NOCASE,
+                                sort_order INTEGER NOT NULL DEFAULT 0,
+                                FOREIGN KEY (user_id) REFERENCES users(user_id)
+                            )
+                            """);
+                        stmt.execute("CREATE UNIQUE INDEX IF NOT EXISTS idx_categories_owner_name " +
+                                "ON categories (IFNULL(user_id, 0), name)");
+                        stmt.execute("CREATE INDEX IF NOT EXISTS idx_categories_name ON categories (name)");
+
+                        String[] builtIns = {"Food", "Travel", "Shopping", "Bills", "Entertainment", "Health", "Other"};
+                        try (PreparedStatement pstmt = conn.prepareStatement(
+                                "INSERT OR IGNORE INTO categories (user_id, name, sort_order) VALUES (NULL, ?, ?)")) {
+                            for (int i = 0; i < builtIns.length; i++) {
+                                pstmt.setString(1, builtIns[i]);
+                                pstmt.setInt(2, i + 1);
+                                pstmt.executeUpdate();
+                            }
+                        }
+
+                        // Any other category text already in use becomes a custom category of its user
+                        stmt.execute("""
+                            INSERT OR IGNORE INTO categories (user_id, name, sort_order)
+                            SELECT DISTINCT e.user_id, e.category, 100 FROM expenses e
+                            WHERE NOT EXISTS (SELECT 1 FROM categories c
+                                              WHERE c.name = e.category AND c.user_id IS NULL)
+                            """);
+
+                        stmt.execute("""
+                            CREATE TABLE expenses_new (
+                                expense_id INTEGER PRIMARY KEY AUTOINCREMENT,
+                                user_id INTEGER NOT NULL,
+                                title TEXT NOT NULL,
+                                amount_minor INTEGER NOT NULL,
+                                category_id INTEGER NOT NULL,
+                                expense_date DATE NOT NULL,
+                                description TEXT,
+                                created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+                                FOREIGN KEY (user_id) REFERENCES users(user_id),
+                                FOREIGN KEY (category_id) REFERENCES categories(category_id)
+                            )
+                            """);
+                        stmt.execute("""
+                            INSERT INTO expenses_new (expense_id, user_id, title, amount_minor, category_id,
+                                                      expense_date, description, created_at)
+                            SELECT e.expense_id, e.user_id, e.title, e.amount_minor,
+                                   (SELECT c.category_id FROM categories c
+                                    WHERE c.name = e.category AND (c.user_id IS NULL OR c.user_id = e.user_id)
+                                    ORDER BY c.user_id IS NULL LIMIT 1),
+                                   e.expense_date, e.description, e.created_at
+                            FROM expenses e
+                            """);
+                        stmt.execute("DROP TABLE expenses");
+                        stmt.execute("ALTER TABLE expenses_new RENAME TO expenses");
+                        stmt.execute("CREATE INDEX idx_expenses_user_date ON expenses (user_id, expense_date)");
+                        stmt.execute("CREATE INDEX idx_expenses_user_category_date " +
+                                "ON expenses (user_id, category_id, expense_date)");
+                        stmt.execute("ANALYZE");
+                    }
+                }),
+
+                // External-content FTS5 index over title and description: it stores only the index and
+                // reads text back from expenses. Triggers keep it in step with every insert, update and
+                // delete. Prefix indexes keep search-as-you-type prefix queries cheap.
+                Migration.sql(5, "Add full-text search over expense titles and descriptions",
+                        """
+                        CREATE VIRTUAL TABLE IF NOT EXISTS expenses_fts USING fts5(
+                            title, description,
+                            content = 'expenses', content_rowid = 'expense_id',
+                            tokenize = 'unicode61 remove_diacritics 2', prefix = '2 3'
+                        )
+                        """,
+                        """
+                        CREATE TRIGGER IF NOT EXISTS expenses_fts_insert AFTER INSERT ON expenses BEGIN
+                            INSERT INTO expenses_fts (rowid, title, description)
+                            VALUES (new.expense_id, new.title, new.description);
+                        END
+                        """,
+                        """
+                        CREATE TRIGGER IF NOT EXISTS expenses_fts_delete AFTER DELETE ON expenses BEGIN
+                            INSERT INTO expenses_fts (expenses_fts, rowid, title, description)
+                            VALUES ('delete', old.expense_id, old.title, old.description);
+                        END
+                        """,
+                        """
+                        CREATE TRIGGER IF NOT EXISTS expenses_fts_update AFTER UPDATE OF title, description ON expenses BEGIN
+                            INSERT INTO expenses_fts (expenses_fts, rowid, title, description)
+                            VALUES ('delete', old.expense_id, old.title, old.description);
+                            INSERT INTO expenses_fts (rowid, title, description)
+                            VALUES (new.expense_id, new.title, new.description);
+                        END
+                        """,
+                        "INSERT INTO expenses_fts (expenses_fts) VALUES ('rebuild')"),
+
+                // Per user, month and category sums kept exact by triggers, so aggregates over whole
+                // months read months x categories rows instead of every expense. A group whose last
+                // expense goes away is deleted rather than left at zero.
+                Migration.sql(6, "Add monthly expense rollups maintained by triggers",
+                        """
+                        CREATE TABLE IF NOT EXISTS expense_rollups (
+                            user_id INTEGER NOT NULL,
+                            year_month TEXT NOT NULL,
+                            category_id INTEGER NOT NULL,
+                            total INTEGER NOT NULL,
+                            count INTEGER NOT NULL,
+                            PRIMARY KEY (user_id, year_month, category_id)
+                        ) WITHOUT ROWID
+                        """,
+                        """
+                        CREATE TRIGGER IF NOT EXISTS expense_rollups_insert AFTER INSERT ON expenses BEGIN
+                            INSERT INTO expense_rollups (user_id, year_month, category_id, total, count)
+                            VALUES (new.user_id, substr(new.expense_date, 1, 7), new.category_id, new.amount_minor, 1)
+                            ON CONFLICT (user_id, year_month, category_id)
+                            DO UPDATE SET total = total + excluded.total, count = count + 1;
+                        END
+                        """,
+                        """
+                        CREATE TRIGGER IF NOT EXISTS expense_rollups_delete AFTER DELETE ON expenses BEGIN
+                            UPDATE expense_rollups SET total = total - old.amount_minor, count = count - 1
+                            WHERE user_id = old.user_id AND year_month = substr(old.expense_date, 1, 7)
+                              AND category_id = old.category_id;
+                            DELETE FROM expense_rollups
+                            WHERE user_id = old.user_id AND year_month = substr(old.expense_date, 1, 7)
+                              AND category_id = old.category_id AND count <= 0;
+                        END
+                        """,
+                        """
+                        CREATE TRIGGER IF NOT EXISTS expense_rollups_update
+                        AFTER UPDATE OF user_id, amount_minor, category_id, expense_date ON expenses BEGIN
+                            UPDATE expense_rollups SET total = total - old.amount_minor, count = count - 1
+                            WHERE user_id = old.user_id AND year_month = substr(old.expense_date, 1, 7)
+                              AND category_id = old.category_id;
+                            DELETE FROM expense_rollups
+                            WHERE user_id = old.user_id AND year_month = substr(old.expense_date, 1, 7)
+                              AND category_id = old.category_id AND count <= 0;
+                            INSERT INTO expense_rollups (user_id, year_month, category_id, total, count)
+                            VALUES (new.user_id, substr(new.expense_date, 1, 7), new.category_id, new.amount_minor, 1)
+                            ON CONFLICT (user_id, year_month, category_id)
+                            DO UPDATE SET total = total + excluded.total, count = count + 1;
+                        END
+                        """,
+                        "DELETE FROM expense_rollups",
+                        """
+                        INSERT INTO expense_rollups (user_id, year_month, category_id, total, count)
+                        SELECT user_id, substr(expense_date, 1, 7), category_id, SUM(amount_minor), COUNT(*)
+                        FROM expenses GROUP BY user_id, substr(expense_date, 1, 7), category_id
+                        """),
+
+                // user_shards is the shard directory and is only filled in the catalog (shard 0).
+                // moved_users marks, on any shard, users whose expenses are being or have been moved
+                // away; the triggers turn a write that was routed by a stale directory entry into an
+                // error instead of a row that silently lands on the wrong shard.
+                Migration.sql(7, "Add the shard directory and moved-user write guards",
+                        """
+                        CREATE TABLE IF NOT EXISTS user_shards (
+                            user_id INTEGER PRIMARY KEY,
+                            shard INTEGER NOT NULL,
+                            moved_at TIMESTAMP
+                        )
+                        """,
+                        """
+                        CREATE TABLE IF NOT EXISTS moved_users (
+                            user_id INTEGER PRIMARY KEY,
+                            shard INTEGER NOT NULL
+                        )
+                        """,
+                        """
+                        CREATE TRIGGER IF NOT EXISTS expenses_moved_insert BEFORE INSERT ON expenses
+                        WHEN EXISTS (SELECT 1 FROM moved_users WHERE user_id = new.user_id) BEGIN
+                            SELECT RAISE(ABORT, 'User has moved to another shard');
+                        END
+                        """,
+                        """
+                        CREATE TRIGGER IF NOT EXISTS expenses_moved_update BEFORE UPDATE ON expenses
+                        WHEN EXISTS (SELECT 1 FROM moved_users WHERE user_id = old.user_id) BEGIN
+                            SELECT RAISE(ABORT, 'User has moved to another shard');
+                        END
+                        """,
+                        """
+                        CREATE TRIGGER IF NOT EXISTS expenses_moved_delete BEFORE DELETE ON expenses
+                        WHEN EXISTS (SELECT 1 FROM moved_users WHERE user_id = old.user_id) BEGIN
+                            SELECT RAISE(ABORT, 'User has moved to another shard');
+                        END
+                        """),
+
+                // Listings sorted by amount or title page by keyset in index order, like the date
+                // listing does on idx_expenses_user_date (see dao.ExpenseOrder)
+                Migration.sql(8, "Index expenses by user and amount, and by user and title",
+                        "CREATE INDEX IF NOT EXISTS idx_expenses_user_amount " +
+                                "ON expenses (user_id, amount_minor)",
+                        "CREATE INDEX IF NOT EXISTS idx_expenses_user_title " +
+                                "ON expenses (user_id, title COLLATE NOCASE)",
+                        "ANALYZE")
+        );
+    }
+
+    /**
+     * Check whether a table has a column, so rebuild migrations can be re-run safely
+     */
+    static boolean columnExists(Connection conn, String table, String column) throws SQLException {
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("PRAGMA table_info(" + table + ")")) {
+            while (rs.next()) {
+                if (rs.getString("name").equalsIgnoreCase(column)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+}
@@ -1,44 +1,30 @@
 package util;
 
-import java.security.MessageDigest;
-import java.security.NoSuchAlgorithmException;
+import security.PasswordService;
 
 /**
  * Password Utility Class
- * Handles password hashing using SHA-256
+ * Shortcuts to the shared PasswordService for callers that only need a yes/no answer.
+ * Logins should go through UserDAO, which also upgrades outdated hashes.
  */
 public class PasswordUtil {
 
     /**
-     * Hash password using SHA-256
+     * Hash password with the current hasher (salted PBKDF2)
      * @param password Plain text password
-     * @return Hashed password as hex string
+     * @return Self-describing encoded hash
      */
     public static String hashPassword(String password) {
-        try {
-            MessageDigest md = MessageDigest.getInstance("SHA-256");
-            byte[] hashedBytes = md.digest(password.getBytes());
-
-            // Convert bytes to hex string
-            StringBuilder sb = new StringBuilder();
-            for (byte b : hashedBytes) {
-                sb.append(String.format("%02x", b));
-            }
-            return sb.toString();
-
-        } catch (NoSuchAlgorithmException e) {
-            throw new RuntimeException("Error hashing password", e);
-        }
+        return PasswordService.getInstance().hash(password);
     }
 
     /**
      * Verify password against stored hash
      * @param password Plain text password
-     * @param hashedPassword Stored hashed password
+     * @param hashedPassword Stored hashed password, in the current or a legacy format
      * @return true if passwords match
      */
     public static boolean verifyPassword(String password, String hashedPassword) {
-        String hashedInput = hashPassword(password);
-        return hashedInput.equals(hashedPassword);
+        return PasswordService.getInstance().verify(password, hashedPassword).isMatched();
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,154 @@
+package util;
+
+import java.util.Properties;
+
+/**
+ * Connection Pool Configuration
+ * Holds sizing, validation, eviction and leak detection settings
+ */
+public class PoolConfig {
+    private int maxSize = 8;
+    private int minIdle = 1;
+    private long borrowTimeoutMillis = 5000;
+    private long idleTimeoutMillis = 60000;
+    private long validationIntervalMillis = 30000;
+    private long leakThresholdMillis = 10000;
+    private boolean leakStackTraces = false;
+    private long housekeepingIntervalMillis = 15000;
+    private int statementCacheSize = 32;
+
+    // Constructors
+    public PoolConfig() {}
+
+    /**
+     * Build a configuration from "expensetracker.pool.*" system properties,
+     * falling back to the defaults above
+     * @return PoolConfig object
+     */
+    public static PoolConfig fromSystemProperties() {
+        return fromProperties(System.getProperties());
+    }
+
+    /**
+     * Build a configuration from "expensetracker.pool.*" settings, falling back to the defaults above
+     * @param props Settings, see AppConfig
+     * @return PoolConfig object
+     */
+    public static PoolConfig fromProperties(Properties props) {
+        PoolConfig config = new PoolConfig();
+        config.setMaxSize(AppConfig.getInt(props, "expensetracker.pool.maxSize", config.getMaxSize()));
+        config.setMinIdle(AppConfig.getInt(props, "expensetracker.pool.minIdle", config.getMinIdle()));
+        config.setBorrowTimeoutMillis(AppConfig.getLong(props, "expensetracker.pool.borrowTimeoutMillis",
+                config.getBorrowTimeoutMillis()));
+        config.setIdleTimeoutMillis(AppConfig.getLong(props, "expensetracker.pool.idleTimeoutMillis",
+                config.getIdleTimeoutMillis()));
+        config.setValidationIntervalMillis(AppConfig.getLong(props, "expensetracker.pool.validationIntervalMillis",
+                config.getValidationIntervalMillis()));
+        config.setLeakThresholdMillis(AppConfig.getLong(props, "expensetracker.pool.leakThresholdMillis",
+                config.getLeakThresholdMillis()));
+        config.setLeakStackTraces(Boolean.parseBoolean(AppConfig.getString(props,
+                "expensetracker.pool.leakStackTraces", String.valueOf(config.isLeakStackTraces()))));
+        config.setStatementCacheSize(AppConfig.getInt(props, "expensetracker.pool.statementCacheSize",
+                config.getStatementCacheSize()));
+        return config;
+    }
+
+    // Getters and Setters
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public void setMaxSize(int maxSize) {
+        if (maxSize < 1) {
+            throw new IllegalArgumentException("Pool size must be at least 1");
+        }
+        this.maxSize = maxSize;
+    }
+
+    public int getMinIdle() {
+        return minIdle;
+    }
+
+    public void setMinIdle(int minIdle) {
+        this.minIdle = Math.max(0, minIdle);
+    }
+
+    public long getBorrowTimeoutMillis() {
+        return borrowTimeoutMillis;
+    }
+
+    public void setBorrowTimeoutMillis(long borrowTimeoutMillis) {
+        this.borrowTimeoutMillis = borrowTimeoutMillis;
+    }
+
+    public long getIdleTimeoutMillis() {
+        return idleTimeoutMillis;
+    }
+
+    public void setIdleTimeoutMillis(long idleTimeoutMillis) {
+        this.idleTimeoutMillis = idleTimeoutMillis;
+    }
+
+    public long getValidationIntervalMillis() {
+        return validationIntervalMillis;
+    }
+
+    public void setValidationIntervalMillis(long validationIntervalMillis) {
+        this.validationIntervalMillis = validationIntervalMillis;
+    }
+
+    /**
+     * @return Time a connection may stay borrowed before it is reported as leaked, 0 disables
+     */
+    public long getLeakThresholdMillis() {
+        return leakThresholdMillis;
+    }
+
+    public void setLeakThresholdMillis(long leakThresholdMillis) {
+        this.leakThresholdMillis = leakThresholdMillis;
+    }
+
+    /**
+     * @return Whether to record where each connection is borrowed, so a leak report can show the
+     *         caller. Costs a stack trace per borrow, so it is meant for debugging only.
+     */
+    public boolean isLeakStackTraces() {
+        return leakStackTraces;
+    }
+
+    public void setLeakStackTraces(boolean leakStackTraces) {
+        this.leakStackTraces = leakStackTraces;
+    }
+
+    public long getHousekeepingIntervalMillis() {
+        return housekeepingIntervalMillis;
+    }
+
+    public void setHousekeepingIntervalMillis(long housekeepingIntervalMillis) {
+        this.housekeepingIntervalMillis = housekeepingIntervalMillis;
+    }
+
+    /**
+     * @return Prepared statements cached per connection, 0 disables the cache
+     */
+    public int getStatementCacheSize() {
+        return statementCacheSize;
+    }
+
+    public void setStatementCacheSize(int statementCacheSize) {
+        this.statementCacheSize = Math.max(0, statementCacheSize);
+    }
+
+    @Override
+    public String toString() {
+        return "PoolConfig{" +
+                "maxSize=" + maxSize +
+                ", minIdle=" + minIdle +
+                ", borrowTimeoutMillis=" + borrowTimeoutMillis +
+                ", idleTimeoutMillis=" + idleTimeoutMillis +
+                ", leakThresholdMillis=" + leakThresholdMillis +
+                ", leakStackTraces=" + leakStackTraces +
+                ", statementCacheSize=" + statementCacheSize +
+                '}';
+    }
+}
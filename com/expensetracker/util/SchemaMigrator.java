@@ -0,0 +1,108 @@
+package util;
+
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Schema Migrator
+ * Applies pending migrations in version order and records them in the schema_version table
+ */
+public class SchemaMigrator {
+    private final List<Migration> migrations;
+
+    public SchemaMigrator(List<Migration> migrations) {
+        List<Migration> sorted = new ArrayList<>(migrations);
+        sorted.sort(Comparator.comparingInt(Migration::getVersion));
+
+        for (int i = 1; i < sorted.size(); i++) {
+            if (sorted.get(i).getVersion() == sorted.get(i - 1).getVersion()) {
+                throw new IllegalArgumentException("Duplicate migration version " + sorted.get(i).getVersion());
+            }
+        }
+        this.migrations = sorted;
+    }
+
+    /**
+     * Bring the database up to the latest schema version.
+     * Each migration runs in its own transaction together with its schema_version row,
+     * so a failed migration leaves the database at the previous version.
+     * @param conn Database connection
+     * @return Number of migrations applied
+     */
+    public int migrate(Connection conn) throws SQLException {
+        createVersionTable(conn);
+        int current = getCurrentVersion(conn);
+        int applied = 0;
+
+        boolean autoCommit = conn.getAutoCommit();
+        try {
+            for (Migration migration : migrations) {
+                if (migration.getVersion() <= current) {
+                    continue;
+                }
+
+                conn.setAutoCommit(false);
+                try {
+                    migration.apply(conn);
+                    recordVersion(conn, migration);
+                    conn.commit();
+                } catch (SQLException e) {
+                    conn.rollback();
+                    throw new SQLException("Migration " + migration.getVersion() + " (" +
+                            migration.getDescription() + ") failed: " + e.getMessage(), e);
+                }
+
+                System.out.println("Applied migration " + migration.getVersion() + ": " + migration.getDescription());
+                applied++;
+            }
+        } finally {
+            conn.setAutoCommit(autoCommit);
+        }
+
+        return applied;
+    }
+
+    /**
+     * Get the highest applied schema version
+     * @param conn Database connection
+     * @return Schema version, or 0 for an empty database
+     */
+    public int getCurrentVersion(Connection conn) throws SQLException {
+        createVersionTable(conn);
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT MAX(version) FROM schema_version")) {
+            return rs.next() ? rs.getInt(1) : 0;
+        }
+    }
+
+    /**
+     * @return Latest version known to this migrator
+     */
+    public int getLatestVersion() {
+        return migrations.isEmpty() ? 0 : migrations.get(migrations.size() - 1).getVersion();
+    }
+
+    private void createVersionTable(Connection conn) throws SQLException {
+        String sql = """
+            CREATE TABLE IF NOT EXISTS schema_version (
+                version INTEGER PRIMARY KEY,
+                description TEXT NOT NULL,
+                applied_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+            )
+            """;
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute(sql);
+        }
+    }
+
+    private void recordVersion(Connection conn, Migration migration) throws SQLException {
+        String sql = "INSERT INTO schema_version (version, description) VALUES (?, ?)";
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setInt(1, migration.getVersion());
+            pstmt.setString(2, migration.getDescription());
+            pstmt.executeUpdate();
+        }
+    }
+}
@@ -0,0 +1,339 @@
+package util;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Shard Rebalancer
+ * Moves users whose shard in the directory differs from the one the hash ring proposes,
+ * e.g. after expensetracker.shards.count was raised. Runs while the app is in use: only
+ * the user being moved is affected, and their writes fail for the moment the copy takes.
+ *
+ * A move first marks the user as moved on the source shard, so the guard triggers reject
+ * further writes there, then copies their categories and expenses to the target in one
+ * transaction, then points the directory at the target. Ids are kept: shards allocate them
+ * from disjoint blocks, so the move aborts if the target already uses one, and the target's
+ * id counters are left where they were. The source rows stay until every process has had
+ * time to notice the new directory entry, and are then deleted.
+ *
+ * Usage: mvn -q compile exec:java -Dexec.mainClass=util.ShardRebalancer -Dexec.args="[plan|run [maxUsers]]"
+ */
+public class ShardRebalancer {
+    private static final String JDBC_PREFIX = "jdbc:sqlite:";
+
+    private final ShardRouter router;
+    private final SqliteProfile profile;
+
+    public ShardRebalancer(ShardRouter router, SqliteProfile profile) {
+        this.router = router;
+        this.profile = profile;
+    }
+
+    /**
+     * A user to move and where
+     */
+    public static class Move {
+        private final int userId;
+        private final int fromShard;
+        private final int toShard;
+        private int expenses;
+
+        public Move(int userId, int fromShard, int toShard) {
+            this.userId = userId;
+            this.fromShard = fromShard;
+            this.toShard = toShard;
+        }
+
+        public int getUserId() {
+            return userId;
+        }
+
+        public int getFromShard() {
+            return fromShard;
+        }
+
+        public int getToShard() {
+            return toShard;
+        }
+
+        public int getExpenses() {
+            return expenses;
+        }
+
+        @Override
+        public String toString() {
+            return "user " + userId + ": shard " + fromShard + " -> " + toShard;
+        }
+    }
+
+    /**
+     * List the users the ring places on another shard than the directory does
+     * @param limit Largest number of moves to return
+     * @return Moves, by user id
+     */
+    public List<Move> plan(int limit) throws SQLException {
+        List<Move> moves = new ArrayList<>();
+
+        try (Connection conn = router.getPool(0).getConnection();
+             PreparedStatement pstmt = conn.prepareStatement("SELECT user_id, shard FROM user_shards ORDER BY user_id")) {
+            ResultSet rs = pstmt.executeQuery();
+            while (rs.next() && moves.size() < limit) {
+                int userId = rs.getInt("user_id");
+                int shard = rs.getInt("shard");
+                int target = router.ringShard(userId);
+                if (shard != target && shard < router.getShardCount()) {
+                    moves.add(new Move(userId, shard, target));
+                }
+            }
+        }
+
+        return moves;
+    }
+
+    /**
+     * Copy a user to the target shard and switch the directory over. The source rows are
+     * left in place, guarded by the moved-user triggers, until purge() is called.
+     * @param move User and shards
+     */
+    public void move(Move move) throws SQLException {
+        setTombstone(move.fromShard, move.userId, move.toShard);
+        try {
+            copy(move);
+
+            try (Connection conn = router.getPool(0).getConnection();
+                 PreparedStatement pstmt = conn.prepareStatement(
+                         "UPDATE user_shards SET shard = ?, moved_at = CURRENT_TIMESTAMP " +
+                         "WHERE user_id = ? AND shard = ?")) {
+                pstmt.setInt(1, move.toShard);
+                pstmt.setInt(2, move.userId);
+                pstmt.setInt(3, move.fromShard);
+                if (pstmt.executeUpdate() == 0) {
+                    throw new SQLException("Directory entry of user " + move.userId + " changed during the move");
+                }
+            }
+        } catch (SQLException e) {
+            // The copy on the target is not referenced and is replaced by the next attempt
+            clearTombstone(move.fromShard, move.userId);
+            throw e;
+        }
+        router.moved(move.userId, move.toShard);
+    }
+
+    /**
+     * Delete a moved user's rows from the source shard, keeping the marker that rejects
+     * writes routed there by a stale directory entry
+     * @param move A completed move
+     */
+    public void purge(Move move) throws SQLException {
+        try (Connection conn = router.getPool(move.fromShard).getConnection()) {
+            conn.setAutoCommit(false);
+            try (PreparedStatement unmark = conn.prepareStatement("DELETE FROM moved_users WHERE user_id = ?");
+                 PreparedStatement expenses = conn.prepareStatement("DELETE FROM expenses WHERE user_id = ?");
+                 PreparedStatement categories = conn.prepareStatement("DELETE FROM categories WHERE user_id = ?");
+                 PreparedStatement mark = conn.prepareStatement(
+                         "INSERT INTO moved_users (user_id, shard) VALUES (?, ?)")) {
+                for (PreparedStatement pstmt : List.of(unmark, expenses, categories)) {
+                    pstmt.setInt(1, move.userId);
+                    pstmt.executeUpdate();
+                }
+                mark.setInt(1, move.userId);
+                mark.setInt(2, move.toShard);
+                mark.executeUpdate();
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        }
+    }
+
+    /**
+     * Copy in one transaction on a connection of its own, since ATTACH changes the connection
+     * for good and pooled connections are shared
+     */
+    private void copy(Move move) throws SQLException {
+        String source = router.getUrl(move.fromShard);
+        if (!source.startsWith(JDBC_PREFIX)) {
+            throw new SQLException("Cannot attach " + source);
+        }
+
+        try (Connection conn = DriverManager.getConnection(router.getUrl(move.toShard));
+             Statement stmt = conn.createStatement()) {
+            profile.apply(conn);
+            try (PreparedStatement attach = conn.prepareStatement("ATTACH DATABASE ? AS src")) {
+                attach.setString(1, source.substring(JDBC_PREFIX.length()));
+                attach.execute();
+            }
+
+            stmt.execute("BEGIN IMMEDIATE");
+            try {
+                int userId = move.userId;
+                update(conn, "DELETE FROM main.moved_users WHERE user_id = ?", userId);
+                update(conn, "DELETE FROM main.expenses WHERE user_id = ?", userId);
+                update(conn, "DELETE FROM main.categories WHERE user_id = ?", userId);
+
+                // Each shard allocates ids from its own block, so a clash means the target was
+                // written to outside the router; refuse rather than give the rows new ids
+                int clashes = count(conn, """
+                        SELECT (SELECT COUNT(*) FROM src.categories c WHERE c.user_id = ?1
+                                AND EXISTS (SELECT 1 FROM main.categories m WHERE m.category_id = c.category_id))
+                             + (SELECT COUNT(*) FROM src.expenses e WHERE e.user_id = ?1
+                                AND EXISTS (SELECT 1 FROM main.expenses m WHERE m.expense_id = e.expense_id))
+                        """, userId);
+                if (clashes > 0) {
+                    throw new SQLException(clashes + " category or expense ids of user " + userId +
+                            " are already used on shard " + move.toShard);
+                }
+
+                // The copied ids come from the source's block and would drag this shard's
+                // AUTOINCREMENT counters into it; they are put back after the copy
+                Long categorySeq = sequence(conn, "categories");
+                Long expenseSeq = sequence(conn, "expenses");
+
+                update(conn, """
+                        INSERT INTO main.categories (category_id, user_id, name, sort_order)
+                        SELECT c.category_id, c.user_id, c.name, c.sort_order
+                        FROM src.categories c WHERE c.user_id = ?
+                        """, userId);
+
+                // Default categories are seeded on every shard separately, so they are mapped by name
+                move.expenses = update(conn, """
+                        INSERT INTO main.expenses (expense_id, user_id, title, amount_minor, category_id,
+                                                   expense_date, description, created_at)
+                        SELECT e.expense_id, e.user_id, e.title, e.amount_minor,
+                               COALESCE((SELECT m.category_id FROM main.categories m
+                                         JOIN src.categories s ON s.name = m.name AND s.user_id IS NULL
+                                         WHERE m.user_id IS NULL AND s.category_id = e.category_id), e.category_id),
+                               e.expense_date, e.description, e.created_at
+                        FROM src.expenses e WHERE e.user_id = ? ORDER BY e.expense_id
+                        """, userId);
+
+                restoreSequence(conn, "categories", categorySeq);
+                restoreSequence(conn, "expenses", expenseSeq);
+                stmt.execute("COMMIT");
+            } catch (SQLException e) {
+                stmt.execute("ROLLBACK");
+                throw e;
+            } finally {
+                stmt.execute("DETACH DATABASE src");
+            }
+        }
+    }
+
+    /**
+     * @return AUTOINCREMENT counter of a table on the target, or null if it has none yet
+     */
+    private static Long sequence(Connection conn, String table) throws SQLException {
+        try (PreparedStatement pstmt = conn.prepareStatement("SELECT seq FROM main.sqlite_sequence WHERE name = ?")) {
+            pstmt.setString(1, table);
+            ResultSet rs = pstmt.executeQuery();
+            return rs.next() ? rs.getLong(1) : null;
+        }
+    }
+
+    private static void restoreSequence(Connection conn, String table, Long seq) throws SQLException {
+        String sql = seq == null
+                ? "DELETE FROM main.sqlite_sequence WHERE name = ?"
+                : "UPDATE main.sqlite_sequence SET seq = ? WHERE name = ?";
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            int index = 1;
+            if (seq != null) {
+                pstmt.setLong(index++, seq);
+            }
+            pstmt.setString(index, table);
+            pstmt.executeUpdate();
+        }
+    }
+
+    private void setTombstone(int shard, int userId, int movedTo) throws SQLException {
+        try (Connection conn = router.getPool(shard).getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(
+                     "INSERT OR REPLACE INTO moved_users (user_id, shard) VALUES (?, ?)")) {
+            pstmt.setInt(1, userId);
+            pstmt.setInt(2, movedTo);
+            pstmt.executeUpdate();
+        }
+    }
+
+    private void clearTombstone(int shard, int userId) {
+        try (Connection conn = router.getPool(shard).getConnection()) {
+            update(conn, "DELETE FROM moved_users WHERE user_id = ?", userId);
+        } catch (SQLException e) {
+            System.err.println("Error unblocking user " + userId + " on shard " + shard + ": " + e.getMessage());
+        }
+    }
+
+    private static int update(Connection conn, String sql, int userId) throws SQLException {
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setInt(1, userId);
+            return pstmt.executeUpdate();
+        }
+    }
+
+    private static int count(Connection conn, String sql, int userId) throws SQLException {
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setInt(1, userId);
+            ResultSet rs = pstmt.executeQuery();
+            return rs.next() ? rs.getInt(1) : 0;
+        }
+    }
+
+    public static void main(String[] args) throws SQLException, InterruptedException {
+        boolean run = args.length > 0 && args[0].equals("run");
+        int maxUsers = args.length > 1 ? Integer.parseInt(args[1]) : Integer.MAX_VALUE;
+
+        DatabaseUtil.initializeDatabase();
+        ShardRouter router = DatabaseUtil.getShardRouter();
+        if (router.getShardCount() == 1) {
+            System.out.println("Sharding is off (expensetracker.shards.count=1); nothing to rebalance.");
+            return;
+        }
+
+        ShardRebalancer rebalancer = new ShardRebalancer(router, DatabaseUtil.getProfile());
+        List<Move> moves = rebalancer.plan(maxUsers);
+        if (moves.isEmpty()) {
+            System.out.println("Every user is on the shard the ring proposes.");
+            return;
+        }
+        if (!run) {
+            moves.forEach(System.out::println);
+            System.out.println(moves.size() + " users would move; run with 'run' to move them.");
+            return;
+        }
+
+        List<Move> done = new ArrayList<>();
+        for (Move move : moves) {
+            try {
+                rebalancer.move(move);
+                done.add(move);
+                System.out.println(move + ", " + move.getExpenses() + " expenses");
+            } catch (SQLException e) {
+                System.err.println("Error moving " + move + ": " + e.getMessage());
+            }
+        }
+
+        // Other processes may route by the old directory entry until their cache expires
+        long grace = 2 * router.getCacheTtlMillis() + 1000;
+        System.out.println("Waiting " + grace + " ms before deleting moved rows from their old shards...");
+        Thread.sleep(grace);
+
+        for (Move move : done) {
+            try {
+                rebalancer.purge(move);
+            } catch (SQLException e) {
+                System.err.println("Error purging " + move + " from shard " + move.getFromShard() +
+                        ": " + e.getMessage() + "; the rows are no longer read and can be deleted by hand");
+            }
+        }
+        System.out.println("Moved " + done.size() + " of " + moves.size() + " users.");
+        DatabaseUtil.shutdown();
+    }
+}
@@ -0,0 +1,323 @@
+package util;
+
+import metrics.MetricsRegistry;
+import metrics.OperationMetrics;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Shard Router
+ * Spreads users' expenses over several SQLite files, so writers of different users do not
+ * queue on one database lock. Shard 0 is the catalog database, which also holds the users
+ * table and the user_shards directory; shards 1..n-1 are further files with the same schema.
+ * With a single shard everything stays in the catalog, exactly as before sharding.
+ *
+ * A new user is placed by consistent hashing: each shard owns VIRTUAL_NODES points on a
+ * 64-bit ring and a user goes to the first point after the hash of their id, so adding a
+ * shard only claims about 1/n of the users. The directory records where each user actually
+ * lives and always wins; ShardRebalancer moves users whose directory entry differs from the
+ * ring. Directory entries are cached for a few seconds, so moves made by another process
+ * are picked up without a restart.
+ */
+public class ShardRouter {
+    public static final int MAX_SHARDS = 16;
+
+    // AUTOINCREMENT on shard n hands out ids from n * ID_BLOCK + 1 up to (n + 1) * ID_BLOCK - 1,
+    // so ids from different shards do not meet; see reserveIdBlock()
+    static final int ID_BLOCK = 100_000_000;
+
+    private static final int VIRTUAL_NODES = 64;
+    private static final OperationMetrics LOOKUP = MetricsRegistry.getInstance().operation("ShardRouter.lookup");
+
+    private final String[] urls;
+    private final ConnectionPool[] pools;
+    private final long[] ringPoints;
+    private final int[] ringShards;
+    private final long cacheTtlNanos;
+    private final Map<Integer, Placement> placements = new ConcurrentHashMap<>();
+
+    /**
+     * @param urls JDBC URL of every shard; urls[0] is the catalog
+     * @param pools Connection pool of every shard, in the same order
+     * @param cacheTtlMillis How long a directory entry is trusted before it is read again
+     */
+    public ShardRouter(String[] urls, ConnectionPool[] pools, long cacheTtlMillis) {
+        if (urls.length < 1 || urls.length > MAX_SHARDS || urls.length != pools.length) {
+            throw new IllegalArgumentException("Shard count must be between 1 and " + MAX_SHARDS);
+        }
+        this.urls = urls.clone();
+        this.pools = pools.clone();
+        this.cacheTtlNanos = TimeUnit.MILLISECONDS.toNanos(cacheTtlMillis);
+
+        ringPoints = new long[urls.length * VIRTUAL_NODES];
+        ringShards = new int[ringPoints.length];
+        long[][] nodes = new long[ringPoints.length][];
+        for (int shard = 0; shard < urls.length; shard++) {
+            for (int node = 0; node < VIRTUAL_NODES; node++) {
+                nodes[shard * VIRTUAL_NODES + node] = new long[]{mix(((long) shard << 32) | node), shard};
+            }
+        }
+        Arrays.sort(nodes, (a, b) -> Long.compare(a[0], b[0]));
+        for (int i = 0; i < nodes.length; i++) {
+            ringPoints[i] = nodes[i][0];
+            ringShards[i] = (int) nodes[i][1];
+        }
+    }
+
+    /**
+     * JDBC URLs of the shards configured by expensetracker.shards.count and
+     * expensetracker.shards.urlPattern, whose "{n}" is replaced by the shard number
+     * @param props Settings
+     * @param catalogUrl URL of the catalog database, used for shard 0
+     * @return One URL per shard
+     */
+    public static String[] shardUrls(Properties props, String catalogUrl) {
+        int count = AppConfig.getInt(props, "expensetracker.shards.count", 1);
+        if (count < 1 || count > MAX_SHARDS) {
+            System.err.println("Ignoring expensetracker.shards.count=" + count + ", must be 1 to " + MAX_SHARDS);
+            count = 1;
+        }
+        String pattern = AppConfig.getString(props, "expensetracker.shards.urlPattern",
+                "jdbc:sqlite:expense_tracker-shard{n}.db");
+
+        String[] urls = new String[count];
+        urls[0] = catalogUrl;
+        for (int shard = 1; shard < count; shard++) {
+            urls[shard] = pattern.replace("{n}", Integer.toString(shard));
+        }
+        return urls;
+    }
+
+    public int getShardCount() {
+        return urls.length;
+    }
+
+    public String getUrl(int shard) {
+        return urls[shard];
+    }
+
+    public ConnectionPool getPool(int shard) {
+        return pools[shard];
+    }
+
+    public long getCacheTtlMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(cacheTtlNanos);
+    }
+
+    /**
+     * Borrow a connection to the shard a user's expenses live on
+     * @param userId User ID
+     * @return Pooled connection
+     */
+    public Connection getConnection(int userId) throws SQLException {
+        return pools[shardOf(userId)].getConnection();
+    }
+
+    /**
+     * Find the shard a user lives on, placing the user if the directory has no entry yet
+     * @param userId User ID
+     * @return Shard number
+     */
+    public int shardOf(int userId) throws SQLException {
+        if (urls.length == 1) {
+            return 0;
+        }
+
+        long now = System.nanoTime();
+        Placement placement = placements.get(userId);
+        if (placement != null && now - placement.loadedAt < cacheTtlNanos) {
+            return placement.shard;
+        }
+
+        int shard = lookup(userId);
+        if (shard >= urls.length) {
+            throw new SQLException("User " + userId + " lives on shard " + shard +
+                    ", beyond expensetracker.shards.count=" + urls.length);
+        }
+        placements.put(userId, new Placement(shard, now));
+        return shard;
+    }
+
+    /**
+     * Shard the hash ring proposes for a user, regardless of where the user lives now
+     * @param userId User ID
+     * @return Shard number
+     */
+    public int ringShard(int userId) {
+        long point = mix(userId + 0x9E3779B97F4A7C15L);
+        int index = Arrays.binarySearch(ringPoints, point);
+        if (index < 0) {
+            index = -index - 1;
+        }
+        return ringShards[index == ringPoints.length ? 0 : index];
+    }
+
+    /**
+     * Record the placement of a newly registered user, before any of their expenses exist
+     * @param userId User ID
+     */
+    public void assign(int userId) throws SQLException {
+        if (urls.length > 1) {
+            shardOf(userId);
+        }
+    }
+
+    /**
+     * Note that a user now lives on another shard, so this process routes there at once
+     * @param userId User ID
+     * @param shard New shard
+     */
+    public void moved(int userId, int shard) {
+        placements.put(userId, new Placement(shard, System.nanoTime()));
+    }
+
+    /**
+     * Read the user's directory entry, creating it from the ring if there is none.
+     * INSERT OR IGNORE lets concurrent first requests, even from other processes, agree.
+     */
+    private int lookup(int userId) throws SQLException {
+        String insert = "INSERT OR IGNORE INTO user_shards (user_id, shard) VALUES (?, ?)";
+        String select = "SELECT shard FROM user_shards WHERE user_id = ?";
+
+        try (OperationMetrics.Call call = LOOKUP.start();
+             Connection conn = pools[0].getConnection()) {
+            Integer shard = readShard(conn, select, userId);
+            if (shard == null) {
+                try (PreparedStatement pstmt = conn.prepareStatement(insert)) {
+                    pstmt.setInt(1, userId);
+                    pstmt.setInt(2, ringShard(userId));
+                    pstmt.executeUpdate();
+                }
+                shard = readShard(conn, select, userId);
+            }
+            call.rows(1);
+            return shard;
+        } catch (SQLException e) {
+            LOOKUP.failed(e);
+            throw e;
+        }
+    }
+
+    private static Integer readShard(Connection conn, String sql, int userId) throws SQLException {
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setInt(1, userId);
+            ResultSet rs = pstmt.executeQuery();
+            return rs.next() ? rs.getInt(1) : null;
+        }
+    }
+
+    /**
+     * Pin every user without a directory entry to shard 0, where their expenses were
+     * written before sharding was turned on
+     * @param catalog Connection to the catalog
+     * @return Number of users pinned
+     */
+    static int pinExistingUsers(Connection catalog) throws SQLException {
+        try (Statement stmt = catalog.createStatement()) {
+            return stmt.executeUpdate("INSERT OR IGNORE INTO user_shards (user_id, shard) " +
+                    "SELECT user_id, 0 FROM users");
+        }
+    }
+
+    /**
+     * SQL expression for the id of a new row of expenses or categories: one past the table's
+     * AUTOINCREMENT counter, or NULL, which lets AUTOINCREMENT choose, before the first insert.
+     * Left to itself, AUTOINCREMENT goes on from the largest id in the table, and after a move
+     * from a higher shard that id lies in the other shard's block.
+     * @param table Table name
+     * @return Scalar subquery for the id column of an INSERT
+     */
+    public static String nextIdSql(String table) {
+        return "(SELECT seq + 1 FROM sqlite_sequence WHERE name = '" + table + "')";
+    }
+
+    /**
+     * Start a shard's AUTOINCREMENT counters at the beginning of its id block, and make an
+     * insert fail once the block is used up instead of taking ids of the next shard.
+     * Inserts must take their ids from nextIdSql() for the counter to decide.
+     * The first id past a block is what AUTOINCREMENT hands out when the block is full, and no
+     * shard ever allocates it, so a trigger rejecting exactly that id caps new ids while rows
+     * copied in by ShardRebalancer keep their ids from any block. Also called at startup to
+     * repair a counter that an earlier copy pushed past the block.
+     * @param conn Connection to the shard
+     * @param shard Shard number
+     */
+    static void reserveIdBlock(Connection conn, int shard) throws SQLException {
+        long base = (long) shard * ID_BLOCK;
+        long end = base + ID_BLOCK;
+        String update = "UPDATE sqlite_sequence SET seq = ? WHERE name = ? AND seq < ?";
+        String insert = "INSERT INTO sqlite_sequence (name, seq) " +
+                "SELECT ?, ? WHERE NOT EXISTS (SELECT 1 FROM sqlite_sequence WHERE name = ?)";
+
+        for (String[] table : new String[][]{{"expenses", "expense_id"}, {"categories", "category_id"}}) {
+            String name = table[0];
+            String id = table[1];
+            try (PreparedStatement pstmt = conn.prepareStatement(update)) {
+                pstmt.setLong(1, base);
+                pstmt.setString(2, name);
+                pstmt.setLong(3, base);
+                pstmt.executeUpdate();
+            }
+            try (PreparedStatement pstmt = conn.prepareStatement(insert)) {
+                pstmt.setString(1, name);
+                pstmt.setLong(2, base);
+                pstmt.setString(3, name);
+                pstmt.executeUpdate();
+            }
+            try (PreparedStatement pstmt = conn.prepareStatement(
+                    "UPDATE sqlite_sequence SET seq = (SELECT MAX(?, IFNULL(MAX(" + id + "), 0)) FROM " + name +
+                    " WHERE " + id + " >= ? AND " + id + " < ?) WHERE name = ? AND seq >= ?")) {
+                pstmt.setLong(1, base);
+                pstmt.setLong(2, base);
+                pstmt.setLong(3, end);
+                pstmt.setString(4, name);
+                pstmt.setLong(5, end);
+                if (pstmt.executeUpdate() > 0) {
+                    System.err.println("Reset the " + name + " id counter of shard " + shard + " into its id block");
+                }
+            }
+            try (Statement stmt = conn.createStatement()) {
+                stmt.execute("CREATE TRIGGER IF NOT EXISTS " + name + "_id_block_end AFTER INSERT ON " + name +
+                        " WHEN new." + id + " = " + end + " BEGIN" +
+                        " SELECT RAISE(ABORT, 'The " + name + " ids of this shard are used up'); END");
+            }
+        }
+    }
+
+    /**
+     * Close the pools of shards 1..n-1; the catalog pool belongs to DatabaseUtil
+     */
+    void shutdown() {
+        for (int shard = 1; shard < pools.length; shard++) {
+            pools[shard].shutdown();
+        }
+    }
+
+    /**
+     * SplitMix64 finalizer: spreads consecutive ids and node numbers evenly over the ring
+     */
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    private static final class Placement {
+        private final int shard;
+        private final long loadedAt;
+
+        private Placement(int shard, long loadedAt) {
+            this.shard = shard;
+            this.loadedAt = loadedAt;
+        }
+    }
+}
@@ -0,0 +1,198 @@
+package util;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * SQLite Connection Profile
+ * PRAGMA settings applied to every new connection. The defaults favour a desktop app with
+ * concurrent readers and a single writer: WAL lets dashboard reads proceed while an
+ * expense is being written, and synchronous=NORMAL syncs at checkpoints rather than on
+ * every commit, which is still safe against corruption in WAL mode.
+ */
+public class SqliteProfile {
+    private static final String PREFIX = "expensetracker.sqlite.";
+
+    private String journalMode = "WAL";
+    private String synchronous = "NORMAL";
+    private long mmapSize = 256L * 1024 * 1024;
+    // Negative values are KiB, so -16384 is a 16 MiB page cache
+    private long cacheSize = -16384;
+    private String tempStore = "MEMORY";
+    private int busyTimeoutMillis = 5000;
+
+    // Constructors
+    public SqliteProfile() {}
+
+    /**
+     * Build a profile from "expensetracker.sqlite.*" settings, falling back to the defaults above
+     * @param props Settings, see AppConfig
+     * @return SqliteProfile object
+     */
+    public static SqliteProfile fromProperties(Properties props) {
+        SqliteProfile profile = new SqliteProfile();
+        profile.setJournalMode(AppConfig.getString(props, PREFIX + "journalMode", profile.getJournalMode()));
+        profile.setSynchronous(AppConfig.getString(props, PREFIX + "synchronous", profile.getSynchronous()));
+        profile.setMmapSize(AppConfig.getLong(props, PREFIX + "mmapSize", profile.getMmapSize()));
+        profile.setCacheSize(AppConfig.getLong(props, PREFIX + "cacheSize", profile.getCacheSize()));
+        profile.setTempStore(AppConfig.getString(props, PREFIX + "tempStore", profile.getTempStore()));
+        profile.setBusyTimeoutMillis(AppConfig.getInt(props, PREFIX + "busyTimeoutMillis",
+                profile.getBusyTimeoutMillis()));
+        return profile;
+    }
+
+    /**
+     * Apply the profile to a freshly opened connection
+     * @param conn Database connection
+     */
+    public void apply(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            // busy_timeout first, so switching the journal mode waits out other connections
+            stmt.execute("PRAGMA busy_timeout = " + busyTimeoutMillis);
+            stmt.execute("PRAGMA journal_mode = " + journalMode);
+            stmt.execute("PRAGMA synchronous = " + synchronous);
+            stmt.execute("PRAGMA mmap_size = " + mmapSize);
+            stmt.execute("PRAGMA cache_size = " + cacheSize);
+            stmt.execute("PRAGMA temp_store = " + tempStore);
+        }
+    }
+
+    /**
+     * Read back the settings actually in effect on a connection
+     * @param conn Database connection
+     * @return Map of pragma name to value
+     */
+    public static Map<String, String> readEffective(Connection conn) throws SQLException {
+        Map<String, String> effective = new LinkedHashMap<>();
+        try (Statement stmt = conn.createStatement()) {
+            for (String pragma : new String[]{"journal_mode", "synchronous", "mmap_size",
+                    "cache_size", "temp_store", "busy_timeout"}) {
+                try (ResultSet rs = stmt.executeQuery("PRAGMA " + pragma)) {
+                    effective.put(pragma, rs.next() ? rs.getString(1) : null);
+                }
+            }
+        }
+        return effective;
+    }
+
+    /**
+     * Log the effective settings and warn about any the database did not accept,
+     * e.g. WAL on an in-memory database or mmap on a build without it
+     * @param conn Database connection
+     */
+    public void logEffective(Connection conn) throws SQLException {
+        Map<String, String> effective = readEffective(conn);
+        System.out.println("SQLite settings: " + effective);
+
+        if (!journalMode.equalsIgnoreCase(effective.get("journal_mode"))) {
+            System.err.println("Warning: requested journal_mode=" + journalMode +
+                    " but the database uses " + effective.get("journal_mode"));
+        }
+        String expectedSynchronous = synchronousLevel(synchronous);
+        if (expectedSynchronous != null && !expectedSynchronous.equals(effective.get("synchronous"))) {
+            System.err.println("Warning: requested synchronous=" + synchronous +
+                    " but the connection uses " + effective.get("synchronous"));
+        }
+        if (!String.valueOf(mmapSize).equals(effective.get("mmap_size"))) {
+            System.err.println("Warning: requested mmap_size=" + mmapSize +
+                    " but the connection uses " + effective.get("mmap_size"));
+        }
+    }
+
+    /**
+     * PRAGMA synchronous reads back as a number
+     */
+    private static String synchronousLevel(String synchronous) {
+        switch (synchronous.toUpperCase()) {
+            case "OFF":
+                return "0";
+            case "NORMAL":
+                return "1";
+            case "FULL":
+                return "2";
+            case "EXTRA":
+                return "3";
+            default:
+                return synchronous.matches("\\d") ? synchronous : null;
+        }
+    }
+
+    // Getters and Setters
+    public String getJournalMode() {
+        return journalMode;
+    }
+
+    public void setJournalMode(String journalMode) {
+        this.journalMode = requireWord(journalMode, "journalMode");
+    }
+
+    public String getSynchronous() {
+        return synchronous;
+    }
+
+    public void setSynchronous(String synchronous) {
+        this.synchronous = requireWord(synchronous, "synchronous");
+    }
+
+    public long getMmapSize() {
+        return mmapSize;
+    }
+
+    public void setMmapSize(long mmapSize) {
+        this.mmapSize = Math.max(0, mmapSize);
+    }
+
+    /**
+     * @return Page cache size: pages if positive, KiB if negative
+     */
+    public long getCacheSize() {
+        return cacheSize;
+    }
+
+    public void setCacheSize(long cacheSize) {
+        this.cacheSize = cacheSize;
+    }
+
+    public String getTempStore() {
+        return tempStore;
+    }
+
+    public void setTempStore(String tempStore) {
+        this.tempStore = requireWord(tempStore, "tempStore");
+    }
+
+    public int getBusyTimeoutMillis() {
+        return busyTimeoutMillis;
+    }
+
+    public void setBusyTimeoutMillis(int busyTimeoutMillis) {
+        this.busyTimeoutMillis = Math.max(0, busyTimeoutMillis);
+    }
+
+    /**
+     * Values end up inside PRAGMA statements, so only plain words are accepted
+     */
+    private static String requireWord(String value, String name) {
+        if (value == null || !value.matches("[A-Za-z0-9_]+")) {
+            throw new IllegalArgumentException("Invalid SQLite " + name + ": " + value);
+        }
+        return value;
+    }
+
+    @Override
+    public String toString() {
+        return "SqliteProfile{" +
+                "journalMode=" + journalMode +
+                ", synchronous=" + synchronous +
+                ", mmapSize=" + mmapSize +
+                ", cacheSize=" + cacheSize +
+                ", tempStore=" + tempStore +
+                ", busyTimeoutMillis=" + busyTimeoutMillis +
+                '}';
+    }
+}
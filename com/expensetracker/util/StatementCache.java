@@ -0,0 +1,284 @@
+package util;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Statement Cache
+ * LRU cache of prepared statements for one physical connection, keyed by SQL text.
+ * Callers get a proxy whose close() resets the statement and keeps it for the next caller
+ * instead of finalizing it, so SQLite parses and plans each statement once per connection.
+ * Every statement handed out is tracked until it is closed, including ones evicted while in
+ * use and uncached copies for nested use, so releaseAll() can finish what a borrower left open.
+ */
+final class StatementCache {
+    private final Connection physical;
+    private final int capacity;
+    private final Stats stats;
+    private final Map<Key, Entry> entries;
+    // Statements handed out and not yet closed, whether or not they are still in entries
+    private final Set<Entry> borrowed = new HashSet<>();
+
+    StatementCache(Connection physical, int capacity, Stats stats) {
+        this.physical = physical;
+        this.capacity = capacity;
+        this.stats = stats;
+        this.entries = new LinkedHashMap<>(capacity * 2, 0.75f, true);
+    }
+
+    /**
+     * Get a prepared statement for the SQL, reusing a cached one when it is free
+     * @param owner Connection handle the statement should report as its connection
+     * @param sql SQL text
+     * @param autoGeneratedKeys Statement.RETURN_GENERATED_KEYS or Statement.NO_GENERATED_KEYS
+     * @return PreparedStatement whose close() returns it to the cache
+     */
+    synchronized PreparedStatement prepare(Connection owner, String sql, int autoGeneratedKeys) throws SQLException {
+        Key key = new Key(sql, autoGeneratedKeys);
+        Entry entry = entries.get(key);
+
+        if (entry != null && !entry.inUse) {
+            stats.hits.incrementAndGet();
+        } else {
+            stats.misses.incrementAndGet();
+            PreparedStatement statement = physical.prepareStatement(sql, autoGeneratedKeys);
+            if (entry != null) {
+                // Same SQL is already open on this connection (nested use): hand out an uncached copy
+                entry = new Entry(statement, false);
+            } else {
+                entry = new Entry(statement, true);
+                entries.put(key, entry);
+                evictOverflow();
+            }
+        }
+
+        entry.inUse = true;
+        borrowed.add(entry);
+        return newProxy(owner, entry);
+    }
+
+    /**
+     * Reset every statement a borrower left open; called when the connection returns to the pool
+     */
+    synchronized void releaseAll() {
+        for (Entry entry : new ArrayList<>(borrowed)) {
+            release(entry);
+        }
+    }
+
+    /**
+     * Close every cached statement; called before the physical connection is closed
+     */
+    synchronized void closeAll() {
+        for (Entry entry : entries.values()) {
+            closeQuietly(entry.statement);
+        }
+        entries.clear();
+    }
+
+    synchronized int size() {
+        return entries.size();
+    }
+
+    private void evictOverflow() {
+        Iterator<Entry> it = entries.values().iterator();
+        while (entries.size() > capacity && it.hasNext()) {
+            Entry eldest = it.next();
+            it.remove();
+            stats.evictions.incrementAndGet();
+            eldest.cached = false;
+            // A statement still in use stays in borrowed and is closed when it is released
+            if (!eldest.inUse) {
+                closeQuietly(eldest.statement);
+            }
+        }
+    }
+
+    private synchronized void release(Entry entry) {
+        borrowed.remove(entry);
+        entry.inUse = false;
+        entry.lease++;
+        if (!entry.cached) {
+            closeQuietly(entry.statement);
+            return;
+        }
+
+        try {
+            for (ResultSet rs : entry.openResults) {
+                rs.close();
+            }
+            entry.statement.clearParameters();
+            entry.statement.clearBatch();
+        } catch (SQLException e) {
+            // A statement that cannot be reset is not worth keeping
+            entries.values().remove(entry);
+            closeQuietly(entry.statement);
+        } finally {
+            entry.openResults.clear();
+        }
+    }
+
+    /**
+     * Remember a result set so it can be closed when the statement is returned,
+     * since callers often rely on Statement.close() to close it
+     */
+    private static void trackResult(Entry entry, ResultSet rs) throws SQLException {
+        if (entry.openResults.size() >= 8) {
+            Iterator<ResultSet> it = entry.openResults.iterator();
+            while (it.hasNext()) {
+                if (it.next().isClosed()) {
+                    it.remove();
+                }
+            }
+        }
+        entry.openResults.add(rs);
+    }
+
+    private PreparedStatement newProxy(Connection owner, Entry entry) {
+        return (PreparedStatement) Proxy.newProxyInstance(
+                PreparedStatement.class.getClassLoader(),
+                new Class<?>[]{PreparedStatement.class},
+                new Handle(owner, entry));
+    }
+
+    private static void closeQuietly(Statement statement) {
+        try {
+            statement.close();
+        } catch (SQLException e) {
+            System.err.println("Error closing cached statement: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Hit, miss and eviction counts shared by all connections of a pool
+     */
+    static final class Stats {
+        private final AtomicLong hits = new AtomicLong();
+        private final AtomicLong misses = new AtomicLong();
+        private final AtomicLong evictions = new AtomicLong();
+
+        long getHits() {
+            return hits.get();
+        }
+
+        long getMisses() {
+            return misses.get();
+        }
+
+        long getEvictions() {
+            return evictions.get();
+        }
+    }
+
+    private static final class Key {
+        private final String sql;
+        private final int autoGeneratedKeys;
+
+        private Key(String sql, int autoGeneratedKeys) {
+            this.sql = sql;
+            this.autoGeneratedKeys = autoGeneratedKeys;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return autoGeneratedKeys == other.autoGeneratedKeys && sql.equals(other.sql);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(sql, autoGeneratedKeys);
+        }
+    }
+
+    private static final class Entry {
+        private final PreparedStatement statement;
+        private final List<ResultSet> openResults = new ArrayList<>(1);
+        private boolean cached;
+        private boolean inUse;
+        // Bumped on every release, so handles from earlier leases stop working
+        private long lease;
+
+        private Entry(PreparedStatement statement, boolean cached) {
+            this.statement = statement;
+            this.cached = cached;
+        }
+    }
+
+    /**
+     * Borrower's view of a cached statement. Like a pooled connection handle, each
+     * prepare gets a fresh handle so a stale reference cannot reach a reused statement.
+     */
+    private final class Handle implements InvocationHandler {
+        private final Connection owner;
+        private final Entry entry;
+        private final long lease;
+        private boolean closed;
+
+        private Handle(Connection owner, Entry entry) {
+            this.owner = owner;
+            this.entry = entry;
+            this.lease = entry.lease;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    if (!closed) {
+                        closed = true;
+                        if (lease == entry.lease) {
+                            release(entry);
+                        }
+                    }
+                    return null;
+                case "isClosed":
+                    return closed || lease != entry.lease || entry.statement.isClosed();
+                case "getConnection":
+                    return owner;
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "CachedStatement[" + entry.statement + "]";
+                default:
+                    break;
+            }
+
+            if (closed || lease != entry.lease) {
+                throw new SQLException("Statement has already been closed");
+            }
+
+            Object result;
+            try {
+                result = method.invoke(entry.statement, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+            if (result instanceof ResultSet) {
+                trackResult(entry, (ResultSet) result);
+            }
+            return result;
+        }
+    }
+}
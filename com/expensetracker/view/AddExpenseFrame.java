@@ -1,7 +1,8 @@
 package view;
 
-import dao.ExpenseDAO;
+import dao.AsyncExpenseDAO;
 import model.Expense;
+import model.Money;
 import model.User;
 
 import javax.swing.*;
@@ -14,19 +15,18 @@ import java.time.LocalDate;
  */
 public class AddExpenseFrame extends JFrame {
     private User currentUser;
-    private DashboardFrame dashboardFrame;
-    private ExpenseDAO expenseDAO;
+    private AsyncExpenseDAO expenseDAO;
 
     private JTextField titleField;
     private JTextField amountField;
     private JComboBox<String> categoryCombo;
     private JTextField dateField;
     private JTextArea descriptionArea;
+    private JButton saveButton;
 
-    public AddExpenseFrame(User user, DashboardFrame dashboard) {
+    public AddExpenseFrame(User user) {
         this.currentUser = user;
-        this.dashboardFrame = dashboard;
-        this.expenseDAO = new ExpenseDAO();
+        this.expenseDAO = new AsyncExpenseDAO();
         initComponents();
     }
 
@@ -90,8 +90,10 @@ public class AddExpenseFrame extends JFrame {
         mainPanel.add(categoryLabel, gbc);
 
         gbc.gridx = 1;
-        String[] categories = {"Food", "Travel", "Shopping", "Bills", "Entertainment", "Health", "Other"};
-        categoryCombo = new JComboBox<>(categories);
+        // Editable so a new name becomes a custom category when the expense is saved
+        categoryCombo = new JComboBox<>();
+        categoryCombo.setEditable(true);
+        CategoryChoices.load(categoryCombo, currentUser.getUserId(), false, null);
         categoryCombo.setFont(new Font("Arial", Font.PLAIN, 14));
         mainPanel.add(categoryCombo, gbc);
 
@@ -135,7 +137,7 @@ public class AddExpenseFrame extends JFrame {
         JPanel buttonPanel = new JPanel(new FlowLayout(FlowLayout.CENTER, 15, 0));
         buttonPanel.setBackground(new Color(240, 240, 245));
 
-        JButton saveButton = new JButton("Save Expense");
+        saveButton = new JButton("Save Expense");
         saveButton.setFont(new Font("Arial", Font.BOLD, 14));
         saveButton.setBackground(new Color(46, 204, 113));
         saveButton.setForeground(Color.WHITE);
@@ -163,7 +165,7 @@ public class AddExpenseFrame extends JFrame {
     private void saveExpense() {
         String title = titleField.getText().trim();
         String amountStr = amountField.getText().trim();
-        String category = (String) categoryCombo.getSelectedItem();
+        String category = CategoryChoices.selectedName(categoryCombo);
         String dateStr = dateField.getText().trim();
         String description = descriptionArea.getText().trim();
 
@@ -176,9 +178,17 @@ public class AddExpenseFrame extends JFrame {
             return;
         }
 
-        double amount;
+        if (category.isEmpty()) {
+            JOptionPane.showMessageDialog(this,
+                    "Please choose or enter a category",
+                    "Validation Error",
+                    JOptionPane.WARNING_MESSAGE);
+            return;
+        }
+
+        long amount;
         try {
-            amount = Double.parseDouble(amountStr);
+            amount = Money.parse(amountStr);
             if (amount <= 0) {
                 throw new NumberFormatException();
             }
@@ -212,24 +222,29 @@ public class AddExpenseFrame extends JFrame {
         );
 
         // Save to database
-        boolean success = expenseDAO.addExpense(expense);
-
-        if (success) {
-            JOptionPane.showMessageDialog(this,
-                    "Expense added successfully!",
-                    "Success",
-                    JOptionPane.INFORMATION_MESSAGE);
-
-            // Refresh dashboard
-            dashboardFrame.refreshDashboard();
+        setSaving(true);
+        SwingAsync.onEdt(expenseDAO.addExpense(expense), this, success -> {
+            setSaving(false);
+            if (success) {
+                JOptionPane.showMessageDialog(this,
+                        "Expense added successfully!",
+                        "Success",
+                        JOptionPane.INFORMATION_MESSAGE);
+
+                // Close window
+                dispose();
+            } else {
+                JOptionPane.showMessageDialog(this,
+                        "Failed to add expense. Please try again.",
+                        "Error",
+                        JOptionPane.ERROR_MESSAGE);
+            }
+        });
+    }
 
-            // Close window
-            dispose();
-        } else {
-            JOptionPane.showMessageDialog(this,
-                    "Failed to add expense. Please try again.",
-                    "Error",
-                    JOptionPane.ERROR_MESSAGE);
-        }
+    private void setSaving(boolean saving) {
+        saveButton.setEnabled(!saving);
+        saveButton.setText(saving ? "Saving..." : "Save Expense");
+        setCursor(saving ? Cursor.getPredefinedCursor(Cursor.WAIT_CURSOR) : Cursor.getDefaultCursor());
     }
 }
\ No newline at end of file
@@ -0,0 +1,56 @@
+package view;
+
+import dao.AsyncCategoryDAO;
+import model.Category;
+
+import javax.swing.*;
+
+/**
+ * Category Choices Helper
+ * Fills category combo boxes from the categories table instead of a hardcoded list.
+ * Categories are cached per user by CategoryDAO, so only the first window of a session queries.
+ */
+public class CategoryChoices {
+    public static final String ALL = "All";
+
+    private static final AsyncCategoryDAO categoryDAO = new AsyncCategoryDAO();
+
+    private CategoryChoices() {}
+
+    /**
+     * Load a user's categories into a combo box in the background.
+     * The model is swapped in with its selection already set, so no action event fires.
+     * @param combo Combo box to fill
+     * @param userId User ID
+     * @param includeAll Whether to put an "All" entry first, for filters
+     * @param selected Name to select once loaded, or null for the first entry
+     */
+    public static void load(JComboBox<String> combo, int userId, boolean includeAll, String selected) {
+        SwingAsync.onEdt(categoryDAO.getCategories(userId), combo, categories -> {
+            DefaultComboBoxModel<String> model = new DefaultComboBoxModel<>();
+            if (includeAll) {
+                model.addElement(ALL);
+            }
+            for (Category category : categories) {
+                model.addElement(category.getName());
+            }
+            if (selected != null) {
+                if (model.getIndexOf(selected) < 0) {
+                    model.addElement(selected);
+                }
+                model.setSelectedItem(selected);
+            }
+            combo.setModel(model);
+        });
+    }
+
+    /**
+     * Read the category typed or picked in an editable combo box
+     * @param combo Combo box
+     * @return Trimmed category name, empty if nothing was entered
+     */
+    public static String selectedName(JComboBox<String> combo) {
+        Object item = combo.isEditable() ? combo.getEditor().getItem() : combo.getSelectedItem();
+        return item == null ? "" : item.toString().trim();
+    }
+}
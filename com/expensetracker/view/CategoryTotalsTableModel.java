@@ -0,0 +1,68 @@
+package view;
+
+import javax.swing.table.AbstractTableModel;
+import java.util.Map;
+
+/**
+ * Category Totals Table Model
+ * Category totals held in plain arrays, with the amount as Long paise so the
+ * table sorts it numerically and the currency renderer formats it when painted.
+ * Replacing the totals fires a single table-changed event.
+ */
+public class CategoryTotalsTableModel extends AbstractTableModel {
+    public static final int CATEGORY_COLUMN = 0;
+    public static final int TOTAL_COLUMN = 1;
+
+    private static final String[] COLUMN_NAMES = {"Category", "Total Amount"};
+
+    private String[] categories = new String[0];
+    private long[] totals = new long[0];
+
+    /**
+     * Replace the rows with new totals
+     * @param categoryTotals Total amount in paise per category, in display order
+     */
+    public void setTotals(Map<String, Long> categoryTotals) {
+        String[] newCategories = new String[categoryTotals.size()];
+        long[] newTotals = new long[categoryTotals.size()];
+        int row = 0;
+        for (Map.Entry<String, Long> entry : categoryTotals.entrySet()) {
+            newCategories[row] = entry.getKey();
+            newTotals[row] = entry.getValue();
+            row++;
+        }
+        categories = newCategories;
+        totals = newTotals;
+        fireTableDataChanged();
+    }
+
+    @Override
+    public int getRowCount() {
+        return categories.length;
+    }
+
+    @Override
+    public int getColumnCount() {
+        return COLUMN_NAMES.length;
+    }
+
+    @Override
+    public String getColumnName(int column) {
+        return COLUMN_NAMES[column];
+    }
+
+    @Override
+    public Class<?> getColumnClass(int column) {
+        return column == TOTAL_COLUMN ? Long.class : String.class;
+    }
+
+    @Override
+    public boolean isCellEditable(int row, int column) {
+        return false;
+    }
+
+    @Override
+    public Object getValueAt(int row, int column) {
+        return column == TOTAL_COLUMN ? (Object) totals[row] : categories[row];
+    }
+}
@@ -0,0 +1,48 @@
+package view;
+
+import model.Money;
+
+import javax.swing.*;
+import javax.swing.table.DefaultTableCellRenderer;
+
+/**
+ * Currency Cell Renderer
+ * Renders amounts held as Long paise, formatting only the cells being painted.
+ * Formatted text is kept in a small direct-mapped cache, so repainting or scrolling
+ * over the same amounts does not format or allocate again.
+ */
+public class CurrencyCellRenderer extends DefaultTableCellRenderer {
+    private static final int CACHE_SIZE = 1024;
+
+    private final long[] cachedAmounts = new long[CACHE_SIZE];
+    private final String[] cachedTexts = new String[CACHE_SIZE];
+
+    public CurrencyCellRenderer() {
+        setHorizontalAlignment(SwingConstants.RIGHT);
+    }
+
+    @Override
+    protected void setValue(Object value) {
+        if (value instanceof Long) {
+            setText(format((Long) value));
+        } else {
+            super.setValue(value);
+        }
+    }
+
+    /**
+     * Format paise with the currency symbol, reusing the text from an earlier call when possible
+     * @param amount Amount in paise
+     * @return Formatted amount
+     */
+    String format(long amount) {
+        int slot = (int) (amount ^ (amount >>> 32)) & (CACHE_SIZE - 1);
+        String text = cachedTexts[slot];
+        if (text == null || cachedAmounts[slot] != amount) {
+            text = Money.format(amount);
+            cachedAmounts[slot] = amount;
+            cachedTexts[slot] = text;
+        }
+        return text;
+    }
+}
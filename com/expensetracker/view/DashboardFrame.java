@@ -1,30 +1,42 @@
 package view;
 
-import dao.ExpenseDAO;
+import dao.AsyncExpenseDAO;
+import dao.DashboardSummaryService;
+import dao.ExpenseIdentityMap;
+import model.DashboardSummary;
+import model.Money;
 import model.User;
 
 import javax.swing.*;
-import javax.swing.table.DefaultTableModel;
 import java.awt.*;
-import java.util.Map;
 /**
  * Dashboard Window
  * Shows expense summary and navigation options
  */
 public class DashboardFrame extends JFrame {
     private User currentUser;
-    private ExpenseDAO expenseDAO;
+    private AsyncExpenseDAO expenseDAO;
+    // Expenses loaded during this login session, shared by the windows opened from here
+    private ExpenseIdentityMap identityMap;
 
     private JLabel monthlyTotalLabel;
     private JLabel todayTotalLabel;
     private JTable categoryTable;
-    private DefaultTableModel tableModel;
+    private CategoryTotalsTableModel tableModel;
+    private JLabel loadingLabel;
+
+    // A refresh requested while another is in flight supersedes it
+    private final LatestRequest<DashboardSummary> dashboardRequest = new LatestRequest<>();
+    private EdtExpenseListener expenseChanges;
 
     public DashboardFrame(User user) {
         this.currentUser = user;
-        this.expenseDAO = new ExpenseDAO();
+        this.expenseDAO = new AsyncExpenseDAO();
+        this.identityMap = new ExpenseIdentityMap(user.getUserId());
+        this.identityMap.open();
         initComponents();
         loadDashboardData();
+        expenseChanges = EdtExpenseListener.subscribe(user.getUserId(), events -> showChanges());
     }
 
     private void initComponents() {
@@ -88,14 +100,16 @@ public class DashboardFrame extends JFrame {
         categoryLabel.setForeground(new Color(52, 73, 94));
         categoryPanel.add(categoryLabel, BorderLayout.NORTH);
 
-        String[] columnNames = {"Category", "Total Amount"};
-        tableModel = new DefaultTableModel(columnNames, 0) {
-            @Override
-            public boolean isCellEditable(int row, int column) {
-                return false;
-            }
-        };
+        loadingLabel = new JLabel("Loading...");
+        loadingLabel.setFont(new Font("Arial", Font.ITALIC, 13));
+        loadingLabel.setForeground(new Color(127, 140, 141));
+        loadingLabel.setVisible(false);
+        categoryPanel.add(loadingLabel, BorderLayout.SOUTH);
+
+        tableModel = new CategoryTotalsTableModel();
         categoryTable = new JTable(tableModel);
+        categoryTable.setDefaultRenderer(Long.class, new CurrencyCellRenderer());
+        categoryTable.setAutoCreateRowSorter(true);
         categoryTable.setFont(new Font("Arial", Font.PLAIN, 13));
         categoryTable.setRowHeight(30);
         categoryTable.getTableHeader().setFont(new Font("Arial", Font.BOLD, 13));
@@ -168,32 +182,50 @@ public class DashboardFrame extends JFrame {
     }
 
     private void loadDashboardData() {
+        int userId = currentUser.getUserId();
+        loadingLabel.setVisible(true);
+
+        // One grouped query on first load; later refreshes are served from the incrementally
+        // maintained summary cache without touching the database
+        dashboardRequest.submit(() -> expenseDAO.getDashboardSummary(userId),
+                this::showDashboardData, () -> loadingLabel.setVisible(false));
+    }
+
+    private void showDashboardData(DashboardSummary summary) {
         // Load monthly total
-        double monthlyTotal = expenseDAO.getMonthlyTotal(currentUser.getUserId());
-        monthlyTotalLabel.setText(String.format("₹%.2f", monthlyTotal));
+        monthlyTotalLabel.setText(Money.format(summary.getMonthlyTotal()));
 
         // Load today's total
-        double todayTotal = expenseDAO.getTodayTotal(currentUser.getUserId());
-        todayTotalLabel.setText(String.format("₹%.2f", todayTotal));
+        todayTotalLabel.setText(Money.format(summary.getTodayTotal()));
 
         // Load category totals
-        Map<String, Double> categoryTotals = expenseDAO.getCategoryTotals(currentUser.getUserId());
-        tableModel.setRowCount(0);
-
-        for (Map.Entry<String, Double> entry : categoryTotals.entrySet()) {
-            tableModel.addRow(new Object[]{
-                    entry.getKey(),
-                    String.format("₹%.2f", entry.getValue())
-            });
+        tableModel.setTotals(summary.getCategoryTotals());
+    }
+
+    /**
+     * Show expense changes made anywhere in the session. The summary cache has already
+     * applied them as deltas, so this normally reads nothing from the database.
+     */
+    private void showChanges() {
+        if (dashboardRequest.isRunning()) {
+            // The load in flight may have started before the change; start over
+            loadDashboardData();
+            return;
+        }
+        DashboardSummary cached = DashboardSummaryService.getInstance().getCachedSummary(currentUser.getUserId());
+        if (cached != null) {
+            showDashboardData(cached);
+        } else {
+            loadDashboardData();
         }
     }
 
-    public void refreshDashboard() {
-        loadDashboardData();
+    public ExpenseIdentityMap getIdentityMap() {
+        return identityMap;
     }
 
     private void openAddExpense() {
-        AddExpenseFrame addExpenseFrame = new AddExpenseFrame(currentUser, this);
+        AddExpenseFrame addExpenseFrame = new AddExpenseFrame(currentUser);
         addExpenseFrame.setVisible(true);
     }
 
@@ -209,6 +241,9 @@ public class DashboardFrame extends JFrame {
                 JOptionPane.YES_NO_OPTION);
 
         if (choice == JOptionPane.YES_OPTION) {
+            dashboardRequest.cancel();
+            expenseChanges.close();
+            identityMap.close();
             LoginFrame loginFrame = new LoginFrame();
             loginFrame.setVisible(true);
             dispose();
@@ -1,7 +1,8 @@
 package view;
 
-import dao.ExpenseDAO;
+import dao.AsyncExpenseDAO;
 import model.Expense;
+import model.Money;
 
 import javax.swing.*;
 import java.awt.*;
@@ -12,21 +13,19 @@ import java.time.LocalDate;
  */
 public class EditExpenseFrame extends JFrame {
     private Expense expense;
-    private ViewExpensesFrame viewExpensesFrame;
-    private DashboardFrame dashboardFrame;
-    private ExpenseDAO expenseDAO;
+    private AsyncExpenseDAO expenseDAO;
 
     private JTextField titleField;
     private JTextField amountField;
     private JComboBox<String> categoryCombo;
     private JTextField dateField;
     private JTextArea descriptionArea;
+    private JButton updateButton;
 
-    public EditExpenseFrame(Expense expense, ViewExpensesFrame viewFrame, DashboardFrame dashboard) {
-        this.expense = expense;
-        this.viewExpensesFrame = viewFrame;
-        this.dashboardFrame = dashboard;
-        this.expenseDAO = new ExpenseDAO();
+    public EditExpenseFrame(Expense expense) {
+        // Edit a copy: the original is shared through the session's identity map
+        this.expense = new Expense(expense);
+        this.expenseDAO = new AsyncExpenseDAO();
         initComponents();
         populateFields();
     }
@@ -91,8 +90,9 @@ public class EditExpenseFrame extends JFrame {
         mainPanel.add(categoryLabel, gbc);
 
         gbc.gridx = 1;
-        String[] categories = {"Food", "Travel", "Shopping", "Bills", "Entertainment", "Health", "Other"};
-        categoryCombo = new JComboBox<>(categories);
+        categoryCombo = new JComboBox<>();
+        categoryCombo.setEditable(true);
+        CategoryChoices.load(categoryCombo, expense.getUserId(), false, expense.getCategory());
         categoryCombo.setFont(new Font("Arial", Font.PLAIN, 14));
         mainPanel.add(categoryCombo, gbc);
 
@@ -136,7 +136,7 @@ public class EditExpenseFrame extends JFrame {
         JPanel buttonPanel = new JPanel(new FlowLayout(FlowLayout.CENTER, 15, 0));
         buttonPanel.setBackground(new Color(240, 240, 245));
 
-        JButton updateButton = new JButton("Update Expense");
+        updateButton = new JButton("Update Expense");
         updateButton.setFont(new Font("Arial", Font.BOLD, 14));
         updateButton.setBackground(new Color(241, 196, 15));
         updateButton.setForeground(Color.WHITE);
@@ -163,7 +163,7 @@ public class EditExpenseFrame extends JFrame {
 
     private void populateFields() {
         titleField.setText(expense.getTitle());
-        amountField.setText(String.valueOf(expense.getAmount()));
+        amountField.setText(Money.toPlainString(expense.getAmount()));
         categoryCombo.setSelectedItem(expense.getCategory());
         dateField.setText(expense.getExpenseDate().toString());
         descriptionArea.setText(expense.getDescription());
@@ -172,7 +172,7 @@ public class EditExpenseFrame extends JFrame {
     private void updateExpense() {
         String title = titleField.getText().trim();
         String amountStr = amountField.getText().trim();
-        String category = (String) categoryCombo.getSelectedItem();
+        String category = CategoryChoices.selectedName(categoryCombo);
         String dateStr = dateField.getText().trim();
         String description = descriptionArea.getText().trim();
 
@@ -185,9 +185,17 @@ public class EditExpenseFrame extends JFrame {
             return;
         }
 
-        double amount;
+        if (category.isEmpty()) {
+            JOptionPane.showMessageDialog(this,
+                    "Please choose or enter a category",
+                    "Validation Error",
+                    JOptionPane.WARNING_MESSAGE);
+            return;
+        }
+
+        long amount;
         try {
-            amount = Double.parseDouble(amountStr);
+            amount = Money.parse(amountStr);
             if (amount <= 0) {
                 throw new NumberFormatException();
             }
@@ -218,25 +226,29 @@ public class EditExpenseFrame extends JFrame {
         expense.setDescription(description);
 
         // Update in database
-        boolean success = expenseDAO.updateExpense(expense);
-
-        if (success) {
-            JOptionPane.showMessageDialog(this,
-                    "Expense updated successfully!",
-                    "Success",
-                    JOptionPane.INFORMATION_MESSAGE);
-
-            // Refresh tables
-            viewExpensesFrame.refreshTable();
-            dashboardFrame.refreshDashboard();
+        setSaving(true);
+        SwingAsync.onEdt(expenseDAO.updateExpense(expense), this, success -> {
+            setSaving(false);
+            if (success) {
+                JOptionPane.showMessageDialog(this,
+                        "Expense updated successfully!",
+                        "Success",
+                        JOptionPane.INFORMATION_MESSAGE);
+
+                // Close window
+                dispose();
+            } else {
+                JOptionPane.showMessageDialog(this,
+                        "Failed to update expense. Please try again.",
+                        "Error",
+                        JOptionPane.ERROR_MESSAGE);
+            }
+        });
+    }
 
-            // Close window
-            dispose();
-        } else {
-            JOptionPane.showMessageDialog(this,
-                    "Failed to update expense. Please try again.",
-                    "Error",
-                    JOptionPane.ERROR_MESSAGE);
-        }
+    private void setSaving(boolean saving) {
+        updateButton.setEnabled(!saving);
+        updateButton.setText(saving ? "Updating..." : "Update Expense");
+        setCursor(saving ? Cursor.getPredefinedCursor(Cursor.WAIT_CURSOR) : Cursor.getDefaultCursor());
     }
 }
\ No newline at end of file
@@ -0,0 +1,94 @@
+package view;
+
+import dao.ExpenseChangeListener;
+import dao.ExpenseEvent;
+import dao.ExpenseEventBus;
+import model.Expense;
+
+import javax.swing.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * EDT Expense Listener
+ * Hands one user's expense changes to a window on the Event Dispatch Thread.
+ * Changes that arrive while a delivery is still queued join it, so a burst of writes
+ * reaches the window as one batch and costs one update rather than one per row.
+ */
+public class EdtExpenseListener implements ExpenseChangeListener {
+    private final int userId;
+    private final Consumer<List<ExpenseEvent>> target;
+
+    // Guarded by this; a delivery is queued whenever it is not empty
+    private List<ExpenseEvent> pending = new ArrayList<>();
+    private volatile boolean closed;
+
+    private EdtExpenseListener(int userId, Consumer<List<ExpenseEvent>> target) {
+        this.userId = userId;
+        this.target = target;
+    }
+
+    /**
+     * Start delivering a user's expense changes
+     * @param userId User whose changes to deliver
+     * @param target Called on the EDT with the changes since the previous call, in order
+     * @return Listener to close when the window goes away
+     */
+    public static EdtExpenseListener subscribe(int userId, Consumer<List<ExpenseEvent>> target) {
+        EdtExpenseListener listener = new EdtExpenseListener(userId, target);
+        ExpenseEventBus.getInstance().subscribe(listener);
+        return listener;
+    }
+
+    /**
+     * Stop delivering changes, including any already queued
+     */
+    public void close() {
+        closed = true;
+        ExpenseEventBus.getInstance().unsubscribe(this);
+    }
+
+    @Override
+    public void expensesChanged(List<ExpenseEvent> events) {
+        boolean schedule;
+        synchronized (this) {
+            schedule = pending.isEmpty();
+            for (ExpenseEvent event : events) {
+                if (event.getUserId() == userId) {
+                    pending.add(event);
+                }
+            }
+            schedule &= !pending.isEmpty();
+        }
+        if (schedule) {
+            SwingUtilities.invokeLater(this::deliver);
+        }
+    }
+
+    private void deliver() {
+        List<ExpenseEvent> batch;
+        synchronized (this) {
+            batch = pending;
+            pending = new ArrayList<>();
+        }
+        if (!closed) {
+            target.accept(batch);
+        }
+    }
+
+    @Override
+    public void expenseAdded(Expense expense) {
+        expensesChanged(List.of(ExpenseEvent.added(expense)));
+    }
+
+    @Override
+    public void expenseUpdated(Expense before, Expense after) {
+        expensesChanged(List.of(ExpenseEvent.updated(before, after)));
+    }
+
+    @Override
+    public void expenseDeleted(Expense expense) {
+        expensesChanged(List.of(ExpenseEvent.deleted(expense)));
+    }
+}
@@ -0,0 +1,111 @@
+package view;
+
+import model.Expense;
+
+import javax.swing.*;
+import javax.swing.event.TableModelEvent;
+import javax.swing.table.AbstractTableModel;
+import java.time.LocalDate;
+
+/**
+ * Expense Table Model
+ * Shows expenses with typed columns: cells hold the raw id, amount in paise and date,
+ * and renderers format only what is painted. Subclasses decide where rows come from.
+ */
+public abstract class ExpenseTableModel extends AbstractTableModel {
+    public static final int ID_COLUMN = 0;
+    public static final int TITLE_COLUMN = 1;
+    public static final int AMOUNT_COLUMN = 2;
+    public static final int CATEGORY_COLUMN = 3;
+    public static final int DATE_COLUMN = 4;
+    public static final int DESCRIPTION_COLUMN = 5;
+
+    private static final String[] COLUMN_NAMES = {"ID", "Title", "Amount", "Category", "Date", "Description"};
+    private static final Class<?>[] COLUMN_CLASSES = {
+            Integer.class, String.class, Long.class, String.class, LocalDate.class, String.class};
+
+    // A row is painted one cell at a time, so the row last looked up is usually asked for again
+    private int lastRow = -1;
+    private Expense lastExpense;
+
+    /**
+     * Get the expense shown in a row
+     * @param row Row index
+     * @return Expense object, or null if the row is not available yet
+     */
+    public abstract Expense getExpenseAt(int row);
+
+    /**
+     * Value shown in a cell whose expense is not available yet
+     */
+    protected Object getPlaceholder(int column) {
+        return null;
+    }
+
+    /**
+     * Give a table the renderers for this model's typed columns
+     * @param table Table showing an ExpenseTableModel
+     */
+    public static void installRenderers(JTable table) {
+        table.setDefaultRenderer(Long.class, new CurrencyCellRenderer());
+    }
+
+    @Override
+    public int getColumnCount() {
+        return COLUMN_NAMES.length;
+    }
+
+    @Override
+    public String getColumnName(int column) {
+        return COLUMN_NAMES[column];
+    }
+
+    @Override
+    public Class<?> getColumnClass(int column) {
+        return COLUMN_CLASSES[column];
+    }
+
+    @Override
+    public boolean isCellEditable(int row, int column) {
+        return false;
+    }
+
+    @Override
+    public Object getValueAt(int row, int column) {
+        Expense expense;
+        if (row == lastRow) {
+            expense = lastExpense;
+        } else {
+            expense = getExpenseAt(row);
+            if (expense == null) {
+                return getPlaceholder(column);
+            }
+            lastRow = row;
+            lastExpense = expense;
+        }
+
+        switch (column) {
+            case ID_COLUMN:
+                return expense.getExpenseId();
+            case TITLE_COLUMN:
+                return expense.getTitle();
+            case AMOUNT_COLUMN:
+                return expense.getAmount();
+            case CATEGORY_COLUMN:
+                return expense.getCategory();
+            case DATE_COLUMN:
+                return expense.getExpenseDate();
+            case DESCRIPTION_COLUMN:
+                return expense.getDescription();
+            default:
+                return null;
+        }
+    }
+
+    @Override
+    public void fireTableChanged(TableModelEvent e) {
+        lastRow = -1;
+        lastExpense = null;
+        super.fireTableChanged(e);
+    }
+}
@@ -0,0 +1,127 @@
+package view;
+
+import dao.ExpenseQuery;
+import exporter.ExpenseExporter;
+import util.DatabaseExecutor;
+
+import javax.swing.*;
+import java.awt.*;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Export Progress Dialog
+ * Runs an export in the background and shows how far it has got, with a Cancel button.
+ * Progress arrives every few thousand rows, so the EDT is not flooded on large exports.
+ */
+public class ExportProgressDialog extends JDialog {
+    private final AtomicBoolean cancelled = new AtomicBoolean();
+
+    private JProgressBar progressBar;
+    private JLabel statusLabel;
+    private JButton cancelButton;
+
+    private ExportProgressDialog(Frame owner, Path file) {
+        super(owner, "Exporting Expenses", false);
+        initComponents(file);
+    }
+
+    /**
+     * Show the dialog and start exporting
+     * @param owner Window the dialog belongs to
+     * @param query Expenses to export
+     * @param file Target file; its extension picks the format
+     */
+    public static void start(Frame owner, ExpenseQuery query, Path file) {
+        ExportProgressDialog dialog = new ExportProgressDialog(owner, file);
+        dialog.setVisible(true);
+        dialog.run(query, file);
+    }
+
+    private void initComponents(Path file) {
+        setSize(420, 170);
+        setDefaultCloseOperation(JDialog.DO_NOTHING_ON_CLOSE);
+        setLocationRelativeTo(getOwner());
+        setResizable(false);
+
+        JPanel mainPanel = new JPanel(new BorderLayout(10, 10));
+        mainPanel.setBorder(BorderFactory.createEmptyBorder(15, 20, 15, 20));
+
+        JLabel fileLabel = new JLabel("Exporting to " + file.getFileName());
+        fileLabel.setFont(new Font("Arial", Font.BOLD, 14));
+        mainPanel.add(fileLabel, BorderLayout.NORTH);
+
+        progressBar = new JProgressBar(0, 1000);
+        progressBar.setStringPainted(true);
+        progressBar.setIndeterminate(true);
+        mainPanel.add(progressBar, BorderLayout.CENTER);
+
+        JPanel bottomPanel = new JPanel(new BorderLayout());
+        statusLabel = new JLabel("Starting...");
+        statusLabel.setFont(new Font("Arial", Font.PLAIN, 13));
+        bottomPanel.add(statusLabel, BorderLayout.CENTER);
+
+        cancelButton = new JButton("Cancel");
+        cancelButton.addActionListener(e -> {
+            cancelled.set(true);
+            cancelButton.setEnabled(false);
+            statusLabel.setText("Cancelling...");
+        });
+        bottomPanel.add(cancelButton, BorderLayout.EAST);
+        mainPanel.add(bottomPanel, BorderLayout.SOUTH);
+
+        add(mainPanel);
+    }
+
+    private void run(ExpenseQuery query, Path file) {
+        ExpenseExporter.ProgressListener listener = new ExpenseExporter.ProgressListener() {
+            @Override
+            public void progress(long written, long total) {
+                SwingUtilities.invokeLater(() -> showProgress(written, total));
+            }
+
+            @Override
+            public boolean isCancelled() {
+                return cancelled.get();
+            }
+        };
+
+        CompletableFuture<ExpenseExporter.ExportReport> future = CompletableFuture.supplyAsync(() -> {
+            try {
+                return new ExpenseExporter().exportFile(query, file, listener);
+            } catch (IOException | SQLException e) {
+                throw new CompletionException(e);
+            }
+        }, DatabaseExecutor.get());
+
+        SwingAsync.onEdt(future, report -> {
+            dispose();
+            if (report.isCancelled()) {
+                return;
+            }
+            JOptionPane.showMessageDialog(getOwner(),
+                    "Exported " + report.getExportedCount() + " expenses to " + report.getFile(),
+                    "Export Complete",
+                    JOptionPane.INFORMATION_MESSAGE);
+        }, error -> {
+            dispose();
+            JOptionPane.showMessageDialog(getOwner(),
+                    "Export failed: " + error.getMessage(),
+                    "Error",
+                    JOptionPane.ERROR_MESSAGE);
+        });
+    }
+
+    private void showProgress(long written, long total) {
+        if (cancelled.get()) {
+            return;
+        }
+        progressBar.setIndeterminate(false);
+        progressBar.setValue(total == 0 ? 1000 : (int) (written * 1000 / total));
+        statusLabel.setText(written + " of " + total + " expenses");
+    }
+}
@@ -0,0 +1,68 @@
+package view;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Latest Request
+ * Keeps only the most recent background request of a kind relevant. Starting a new request
+ * supersedes the previous one, whose result is dropped when it arrives, e.g. when the user
+ * flips through filters faster than the queries return.
+ * Superseding does not stop the work: cancelling a CompletableFuture neither interrupts its
+ * thread nor reaches the JDBC statement, so a query already running finishes and holds its
+ * connection until then. Work is skipped only when the future is the executor task itself
+ * and that task has not started yet; a combined future such as thenCombine() does not pass
+ * the cancellation back to its sources. The queries behind these requests are indexed
+ * aggregates and single pages, so letting them run out costs less than threading
+ * Statement.cancel() through every DAO call.
+ * Must be used from the Event Dispatch Thread.
+ */
+public class LatestRequest<T> {
+    private CompletableFuture<T> current;
+    private long generation;
+
+    /**
+     * Start a request, superseding any request still in flight
+     * @param request Starts the background work
+     * @param onResult Called on the EDT with the result, only if no newer request was started
+     * @param onDone Called on the EDT when this request finishes either way, unless superseded
+     */
+    public void submit(Supplier<CompletableFuture<T>> request, Consumer<T> onResult, Runnable onDone) {
+        cancel();
+        long requestGeneration = ++generation;
+        CompletableFuture<T> future = request.get();
+        current = future;
+
+        SwingAsync.onEdt(future, result -> {
+            if (requestGeneration == generation) {
+                current = null;
+                onDone.run();
+                onResult.accept(result);
+            }
+        }, error -> {
+            if (requestGeneration == generation) {
+                current = null;
+                onDone.run();
+                System.err.println("Background request failed: " + error.getMessage());
+            }
+        });
+    }
+
+    /**
+     * Drop the result of the request in flight, if any; see the class comment for what
+     * happens to its work
+     */
+    public void cancel() {
+        generation++;
+        if (current != null) {
+            // CompletableFuture ignores mayInterruptIfRunning, so asking for an interrupt would mislead
+            current.cancel(false);
+            current = null;
+        }
+    }
+
+    public boolean isRunning() {
+        return current != null;
+    }
+}
@@ -1,6 +1,6 @@
 package view;
 
-import dao.UserDAO;
+import dao.AsyncUserDAO;
 import model.User;
 
 import javax.swing.*;
@@ -15,10 +15,10 @@ public class LoginFrame extends JFrame {
     private JPasswordField passwordField;
     private JButton loginButton;
     private JButton registerButton;
-    private UserDAO userDAO;
+    private AsyncUserDAO userDAO;
 
     public LoginFrame() {
-        userDAO = new UserDAO();
+        userDAO = new AsyncUserDAO();
         initComponents();
     }
 
@@ -121,9 +121,21 @@ public class LoginFrame extends JFrame {
             return;
         }
 
-        // Attempt login
-        User user = userDAO.loginUser(username, password);
+        // Attempt login off the EDT; keep the buttons disabled until it finishes
+        setBusy(true);
+        SwingAsync.onEdt(userDAO.loginUser(username, password), user -> {
+            setBusy(false);
+            onLoginResult(user);
+        }, error -> {
+            setBusy(false);
+            JOptionPane.showMessageDialog(this,
+                    "Login failed: " + error.getMessage(),
+                    "Error",
+                    JOptionPane.ERROR_MESSAGE);
+        });
+    }
 
+    private void onLoginResult(User user) {
         if (user != null) {
             JOptionPane.showMessageDialog(this,
                     "Login successful! Welcome, " + user.getUsername(),
@@ -145,6 +157,14 @@ public class LoginFrame extends JFrame {
         }
     }
 
+    private void setBusy(boolean busy) {
+        loginButton.setEnabled(!busy);
+        registerButton.setEnabled(!busy);
+        passwordField.setEnabled(!busy);
+        loginButton.setText(busy ? "Logging in..." : "Login");
+        setCursor(busy ? Cursor.getPredefinedCursor(Cursor.WAIT_CURSOR) : Cursor.getDefaultCursor());
+    }
+
     private void openRegisterWindow() {
         RegisterFrame registerFrame = new RegisterFrame();
         registerFrame.setVisible(true);
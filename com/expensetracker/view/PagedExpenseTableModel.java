@@ -0,0 +1,254 @@
+package view;
+
+import dao.AsyncExpenseDAO;
+import dao.ExpenseDAO;
+import dao.ExpenseEvent;
+import dao.ExpenseIdentityMap;
+import dao.ExpenseQuery;
+import model.Expense;
+import model.ExpenseCursor;
+import model.ExpensePage;
+import util.DatabaseExecutor;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Paged Expense Table Model
+ * Loads expenses page by page as the table asks for rows, keeping only a few
+ * pages in memory no matter how long the user's history is.
+ * Pages are fetched in the background; rows show a placeholder until their page arrives.
+ * Loaded rows go through the session's identity map, so selections resolve from memory.
+ * Pages are read in the query's order (see ExpenseQuery.orderBy()); queries with a search
+ * text are sorted among their matches only and paged by offset instead.
+ * Committed changes are applied as deltas: an edit that keeps its row in place is
+ * repainted from memory, and only changes that move rows drop the loaded pages.
+ * All methods must be called on the Event Dispatch Thread.
+ */
+public class PagedExpenseTableModel extends ExpenseTableModel {
+    private static final int DEFAULT_PAGE_SIZE = 200;
+    private static final int MAX_CACHED_PAGES = 8;
+
+    private static final String LOADING = "Loading...";
+
+    private final AsyncExpenseDAO asyncDAO;
+    private final ExpenseIdentityMap identityMap;
+    private final int pageSize;
+
+    private ExpenseQuery query;
+    private int rowCount;
+    // Bumped whenever the query changes so pages of an old query are ignored
+    private long generation;
+
+    // pageStarts.get(n) is the cursor page n starts after, where known; page 0 starts at the top (null).
+    // A page far from any known start is reached with one seek from the nearest one before it.
+    private final TreeMap<Integer, ExpenseCursor> pageStarts = new TreeMap<>();
+    private final Set<Integer> pagesLoading = new HashSet<>();
+    private final Map<Integer, List<Expense>> pages = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, List<Expense>> eldest) {
+            return size() > MAX_CACHED_PAGES;
+        }
+    };
+
+    public PagedExpenseTableModel(AsyncExpenseDAO asyncDAO, ExpenseIdentityMap identityMap) {
+        this(asyncDAO, identityMap, DEFAULT_PAGE_SIZE);
+    }
+
+    public PagedExpenseTableModel(AsyncExpenseDAO asyncDAO, ExpenseIdentityMap identityMap, int pageSize) {
+        this.asyncDAO = asyncDAO;
+        this.identityMap = identityMap;
+        this.pageSize = pageSize;
+    }
+
+    /**
+     * Show the expenses matching a query, discarding any loaded pages
+     * @param query Expense query
+     * @param rowCount Number of expenses matching the query
+     */
+    public void setQuery(ExpenseQuery query, int rowCount) {
+        this.query = query;
+        this.rowCount = rowCount;
+        dropPages();
+        fireTableDataChanged();
+    }
+
+    private void dropPages() {
+        generation++;
+        pageStarts.clear();
+        pageStarts.put(0, null);
+        pages.clear();
+        pagesLoading.clear();
+    }
+
+    public ExpenseQuery getQuery() {
+        return query;
+    }
+
+    /**
+     * Apply committed changes to the rows shown. Must not be used for queries with a
+     * search text, since whether a changed row still matches is up to the full-text index.
+     * @param events Changes in the order they were made
+     */
+    public void applyChanges(List<ExpenseEvent> events) {
+        if (query == null) {
+            return;
+        }
+
+        boolean rowsMoved = false;
+        for (ExpenseEvent event : events) {
+            Expense before = event.getBefore();
+            Expense after = event.getAfter();
+            boolean wasShown = before != null && query.matches(before);
+            boolean isShown = after != null && query.matches(after);
+
+            if (wasShown && isShown && query.getListingOrder().sameKey(before, after)) {
+                // Rows are ordered by the sort key then id, so the row keeps its place
+                replaceLoaded(after);
+            } else if (wasShown || isShown) {
+                rowCount += (isShown ? 1 : 0) - (wasShown ? 1 : 0);
+                rowsMoved = true;
+            }
+        }
+
+        if (rowsMoved) {
+            // Page boundaries have shifted; the visible pages are reloaded as the table asks for them
+            dropPages();
+            fireTableDataChanged();
+        }
+    }
+
+    /**
+     * Swap the loaded copy of an expense for its new state and repaint its row
+     */
+    private void replaceLoaded(Expense expense) {
+        for (Map.Entry<Integer, List<Expense>> entry : pages.entrySet()) {
+            List<Expense> page = entry.getValue();
+            for (int offset = 0; offset < page.size(); offset++) {
+                if (page.get(offset).getExpenseId() == expense.getExpenseId()) {
+                    page.set(offset, expense);
+                    int row = entry.getKey() * pageSize + offset;
+                    fireTableRowsUpdated(row, row);
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Get the expense shown in a row if its page is loaded, otherwise start loading it
+     * @param row Row index
+     * @return Expense object, or null if the page is still loading or the row no longer exists.
+     *         An expense edited since its page loaded is returned as last saved.
+     */
+    @Override
+    public Expense getExpenseAt(int row) {
+        int pageIndex = row / pageSize;
+        List<Expense> page = pages.get(pageIndex);
+        if (page == null) {
+            requestPage(pageIndex);
+            return null;
+        }
+        int offset = row % pageSize;
+        if (offset >= page.size()) {
+            return null;
+        }
+        Expense expense = page.get(offset);
+        Expense current = identityMap.get(expense.getExpenseId());
+        return current != null ? current : expense;
+    }
+
+    private void requestPage(int pageIndex) {
+        if (query == null || !pagesLoading.add(pageIndex)) {
+            return;
+        }
+
+        // Hand the background task the nearest known start; it seeks forward from there
+        Map.Entry<Integer, ExpenseCursor> known = pageStarts.floorEntry(pageIndex);
+
+        long requestGeneration = generation;
+        ExpenseQuery requestQuery = query;
+        int fromIndex = known.getKey();
+        ExpenseCursor fromStart = known.getValue();
+        CompletableFuture<PageLoad> future = CompletableFuture.supplyAsync(
+                () -> fetchPage(requestQuery, fromIndex, fromStart, pageIndex),
+                DatabaseExecutor.get());
+
+        SwingAsync.onEdt(future, load -> {
+            if (requestGeneration != generation) {
+                return;
+            }
+            pagesLoading.remove(pageIndex);
+            for (Map.Entry<Integer, ExpenseCursor> start : load.pageStarts.entrySet()) {
+                pageStarts.putIfAbsent(start.getKey(), start.getValue());
+            }
+            pages.put(pageIndex, load.expenses);
+
+            int firstRow = pageIndex * pageSize;
+            int lastRow = Math.min(rowCount, firstRow + pageSize) - 1;
+            if (lastRow >= firstRow) {
+                fireTableRowsUpdated(firstRow, lastRow);
+            }
+        }, error -> {
+            pagesLoading.remove(pageIndex);
+            System.err.println("Error loading expense page: " + error.getMessage());
+        });
+    }
+
+    /**
+     * Runs off the EDT: seek from a known page start to the requested page, then load it.
+     * The seek is a single OFFSET over index entries however many pages it skips.
+     */
+    private PageLoad fetchPage(ExpenseQuery query, int fromIndex, ExpenseCursor fromStart, int pageIndex) {
+        ExpenseDAO expenseDAO = asyncDAO.getExpenseDAO();
+        PageLoad load = new PageLoad();
+
+        if (query.getSearchText() != null) {
+            // Ranked results have no date keyset to walk, so the page is read by offset
+            load.expenses = identityMap.registerAll(expenseDAO.search(query, pageSize, pageIndex * pageSize));
+            return load;
+        }
+
+        ExpenseCursor start = fromStart;
+        if (fromIndex < pageIndex) {
+            start = expenseDAO.findPageEnd(query, fromStart, (pageIndex - fromIndex) * pageSize);
+            if (start == null) {
+                // Rows were deleted since the count was taken
+                load.expenses = List.of();
+                return load;
+            }
+            load.pageStarts.put(pageIndex, start);
+        }
+
+        ExpensePage page = expenseDAO.getExpensePage(query, start, pageSize);
+        load.expenses = identityMap.registerAll(page.getExpenses());
+        if (page.hasMore()) {
+            load.pageStarts.put(pageIndex + 1, page.getNextCursor());
+        }
+        return load;
+    }
+
+    /**
+     * Result of a background page load: the page plus the page starts found on the way
+     */
+    private static class PageLoad {
+        private final Map<Integer, ExpenseCursor> pageStarts = new HashMap<>();
+        private List<Expense> expenses;
+    }
+
+    @Override
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    @Override
+    protected Object getPlaceholder(int column) {
+        return column == TITLE_COLUMN ? LOADING : null;
+    }
+}
@@ -1,10 +1,11 @@
 package view;
 
-import dao.UserDAO;
+import dao.AsyncUserDAO;
 import model.User;
 
 import javax.swing.*;
 import java.awt.*;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Registration Window
@@ -17,10 +18,10 @@ public class RegisterFrame extends JFrame {
     private JPasswordField confirmPasswordField;
     private JButton registerButton;
     private JButton backButton;
-    private UserDAO userDAO;
+    private AsyncUserDAO userDAO;
 
     public RegisterFrame() {
-        userDAO = new UserDAO();
+        userDAO = new AsyncUserDAO();
         initComponents();
     }
 
@@ -176,45 +177,79 @@ public class RegisterFrame extends JFrame {
             return;
         }
 
-        // Check if username exists
-        if (userDAO.usernameExists(username)) {
-            JOptionPane.showMessageDialog(this,
-                    "Username already exists. Please choose another.",
-                    "Registration Error",
-                    JOptionPane.ERROR_MESSAGE);
-            return;
-        }
-
-        // Check if email exists
-        if (userDAO.emailExists(email)) {
-            JOptionPane.showMessageDialog(this,
-                    "Email already registered. Please use another.",
-                    "Registration Error",
-                    JOptionPane.ERROR_MESSAGE);
-            return;
-        }
-
-        // Register user
+        // Check availability and register off the EDT, one step after another
         User newUser = new User(username, email, password);
-        boolean success = userDAO.registerUser(newUser);
+        CompletableFuture<RegistrationResult> registration = userDAO.usernameExists(username)
+                .thenCompose(usernameTaken -> {
+                    if (usernameTaken) {
+                        return CompletableFuture.completedFuture(RegistrationResult.USERNAME_TAKEN);
+                    }
+                    return userDAO.emailExists(email).thenCompose(emailTaken -> {
+                        if (emailTaken) {
+                            return CompletableFuture.completedFuture(RegistrationResult.EMAIL_TAKEN);
+                        }
+                        return userDAO.registerUser(newUser).thenApply(success ->
+                                success ? RegistrationResult.REGISTERED : RegistrationResult.FAILED);
+                    });
+                });
+
+        setBusy(true);
+        SwingAsync.onEdt(registration, result -> {
+            setBusy(false);
+            showRegistrationResult(result);
+        }, error -> {
+            setBusy(false);
+            showRegistrationResult(RegistrationResult.FAILED);
+        });
+    }
 
-        if (success) {
-            JOptionPane.showMessageDialog(this,
-                    "Registration successful! Please log in.",
-                    "Success",
-                    JOptionPane.INFORMATION_MESSAGE);
-            backToLogin();
-        } else {
-            JOptionPane.showMessageDialog(this,
-                    "Registration failed. Please try again.",
-                    "Error",
-                    JOptionPane.ERROR_MESSAGE);
+    private void showRegistrationResult(RegistrationResult result) {
+        switch (result) {
+            case USERNAME_TAKEN:
+                JOptionPane.showMessageDialog(this,
+                        "Username already exists. Please choose another.",
+                        "Registration Error",
+                        JOptionPane.ERROR_MESSAGE);
+                break;
+            case EMAIL_TAKEN:
+                JOptionPane.showMessageDialog(this,
+                        "Email already registered. Please use another.",
+                        "Registration Error",
+                        JOptionPane.ERROR_MESSAGE);
+                break;
+            case REGISTERED:
+                JOptionPane.showMessageDialog(this,
+                        "Registration successful! Please log in.",
+                        "Success",
+                        JOptionPane.INFORMATION_MESSAGE);
+                backToLogin();
+                break;
+            default:
+                JOptionPane.showMessageDialog(this,
+                        "Registration failed. Please try again.",
+                        "Error",
+                        JOptionPane.ERROR_MESSAGE);
+                break;
         }
     }
 
+    private void setBusy(boolean busy) {
+        registerButton.setEnabled(!busy);
+        backButton.setEnabled(!busy);
+        registerButton.setText(busy ? "Registering..." : "Register");
+        setCursor(busy ? Cursor.getPredefinedCursor(Cursor.WAIT_CURSOR) : Cursor.getDefaultCursor());
+    }
+
     private void backToLogin() {
         LoginFrame loginFrame = new LoginFrame();
         loginFrame.setVisible(true);
         dispose();
     }
+
+    private enum RegistrationResult {
+        USERNAME_TAKEN,
+        EMAIL_TAKEN,
+        REGISTERED,
+        FAILED
+    }
 }
\ No newline at end of file
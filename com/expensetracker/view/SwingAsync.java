@@ -0,0 +1,59 @@
+package view;
+
+import javax.swing.*;
+import java.awt.Component;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Consumer;
+
+/**
+ * Swing Async Helper
+ * Delivers the results of background futures back on the Event Dispatch Thread
+ */
+public class SwingAsync {
+
+    private SwingAsync() {}
+
+    /**
+     * Run a callback on the EDT once a future completes.
+     * Cancelled futures are dropped silently; failures are reported with a dialog.
+     * @param future Background work
+     * @param parent Component to anchor the error dialog to
+     * @param onSuccess Called on the EDT with the result
+     */
+    public static <T> void onEdt(CompletableFuture<T> future, Component parent, Consumer<T> onSuccess) {
+        onEdt(future, onSuccess, error -> JOptionPane.showMessageDialog(parent,
+                "Database error: " + error.getMessage(),
+                "Error",
+                JOptionPane.ERROR_MESSAGE));
+    }
+
+    /**
+     * Run a callback on the EDT once a future completes
+     * @param future Background work
+     * @param onSuccess Called on the EDT with the result
+     * @param onError Called on the EDT with the failure cause
+     */
+    public static <T> void onEdt(CompletableFuture<T> future, Consumer<T> onSuccess, Consumer<Throwable> onError) {
+        future.whenComplete((result, error) -> {
+            if (future.isCancelled()) {
+                return;
+            }
+            SwingUtilities.invokeLater(() -> {
+                if (error == null) {
+                    onSuccess.accept(result);
+                } else {
+                    Throwable cause = unwrap(error);
+                    if (!(cause instanceof CancellationException)) {
+                        onError.accept(cause);
+                    }
+                }
+            });
+        });
+    }
+
+    private static Throwable unwrap(Throwable error) {
+        return error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+    }
+}
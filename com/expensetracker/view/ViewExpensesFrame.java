@@ -4,33 +4,63 @@ package view;
 
 import model.User;
 import model.Expense;
-import dao.ExpenseDAO;
+import model.Money;
+import dao.AsyncExpenseDAO;
+import dao.ExpenseEvent;
+import dao.ExpenseOrder;
+import dao.ExpenseQuery;
+import exporter.ExpenseExporter;
 import javax.swing.*;
-import javax.swing.table.DefaultTableModel;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
+import javax.swing.filechooser.FileNameExtensionFilter;
 import java.awt.*;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.io.File;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.time.LocalDate;
 
 /**
  * View Expenses Window
- * Displays all expenses in a table with edit/delete options
+ * Displays all expenses in a table with edit/delete options. Clicking the Title, Amount
+ * or Date header sorts by that column in the database, and clicking it again reverses
+ * the order; the table still loads only the pages it shows.
  */
 public class ViewExpensesFrame extends JFrame {
     private User currentUser;
     private DashboardFrame dashboardFrame;
-    private ExpenseDAO expenseDAO;
+    private AsyncExpenseDAO expenseDAO;
 
     private JTable expenseTable;
-    private DefaultTableModel tableModel;
+    private PagedExpenseTableModel tableModel;
     private JComboBox<String> monthFilterCombo;
     private JComboBox<String> categoryFilterCombo;
+    private JTextField searchField;
     private JLabel totalLabel;
+    private JLabel loadingLabel;
+    // Total of the rows shown, kept current as expenses change
+    private long listingTotal;
+    private EdtExpenseListener expenseChanges;
+    // Order picked by clicking a column header, or null for newest first (best match first when searching)
+    private ExpenseOrder order;
+
+    // Superseded when the user changes filters before the previous query returns
+    private final LatestRequest<ListingTotals> listingRequest = new LatestRequest<>();
+
+    // Search runs once typing pauses rather than on every keystroke
+    private static final int SEARCH_DELAY_MS = 250;
+    private Timer searchTimer;
 
     public ViewExpensesFrame(User user, DashboardFrame dashboard) {
         this.currentUser = user;
         this.dashboardFrame = dashboard;
-        this.expenseDAO = new ExpenseDAO();
+        this.expenseDAO = new AsyncExpenseDAO();
         initComponents();
         loadExpenses();
+        expenseChanges = EdtExpenseListener.subscribe(user.getUserId(), this::showChanges);
     }
 
     private void initComponents() {
@@ -69,36 +99,79 @@ public class ViewExpensesFrame extends JFrame {
         categoryLabel.setFont(new Font("Arial", Font.PLAIN, 14));
         filterPanel.add(categoryLabel);
 
-        String[] categories = {"All", "Food", "Travel", "Shopping", "Bills", "Entertainment", "Health", "Other"};
-        categoryFilterCombo = new JComboBox<>(categories);
+        categoryFilterCombo = new JComboBox<>(new String[]{CategoryChoices.ALL});
+        CategoryChoices.load(categoryFilterCombo, currentUser.getUserId(), true, CategoryChoices.ALL);
         categoryFilterCombo.setFont(new Font("Arial", Font.PLAIN, 14));
         categoryFilterCombo.addActionListener(e -> applyFilters());
         filterPanel.add(categoryFilterCombo);
 
+        JLabel searchLabel = new JLabel("Search:");
+        searchLabel.setFont(new Font("Arial", Font.PLAIN, 14));
+        filterPanel.add(searchLabel);
+
+        searchField = new JTextField(15);
+        searchField.setFont(new Font("Arial", Font.PLAIN, 14));
+        searchField.setToolTipText("Search titles and descriptions");
+        searchTimer = new Timer(SEARCH_DELAY_MS, e -> applyFilters());
+        searchTimer.setRepeats(false);
+        searchField.getDocument().addDocumentListener(new DocumentListener() {
+            @Override
+            public void insertUpdate(DocumentEvent e) {
+                searchTimer.restart();
+            }
+
+            @Override
+            public void removeUpdate(DocumentEvent e) {
+                searchTimer.restart();
+            }
+
+            @Override
+            public void changedUpdate(DocumentEvent e) {
+                searchTimer.restart();
+            }
+        });
+        // Enter searches straight away
+        searchField.addActionListener(e -> {
+            searchTimer.stop();
+            applyFilters();
+        });
+        filterPanel.add(searchField);
+
+        loadingLabel = new JLabel("Loading...");
+        loadingLabel.setFont(new Font("Arial", Font.ITALIC, 13));
+        loadingLabel.setForeground(new Color(127, 140, 141));
+        loadingLabel.setVisible(false);
+        filterPanel.add(loadingLabel);
+
         // Table panel
         JPanel tablePanel = new JPanel(new BorderLayout(0, 10));
         tablePanel.setBackground(new Color(240, 240, 245));
         tablePanel.add(filterPanel, BorderLayout.NORTH);
 
-        String[] columnNames = {"ID", "Title", "Amount", "Category", "Date", "Description"};
-        tableModel = new DefaultTableModel(columnNames, 0) {
-            @Override
-            public boolean isCellEditable(int row, int column) {
-                return false;
-            }
-        };
+        tableModel = new PagedExpenseTableModel(expenseDAO, dashboardFrame.getIdentityMap());
         expenseTable = new JTable(tableModel);
         expenseTable.setFont(new Font("Arial", Font.PLAIN, 13));
         expenseTable.setRowHeight(30);
         expenseTable.getTableHeader().setFont(new Font("Arial", Font.BOLD, 13));
         expenseTable.getTableHeader().setBackground(new Color(52, 152, 219));
         expenseTable.getTableHeader().setForeground(Color.WHITE);
-        expenseTable.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+        expenseTable.setSelectionMode(ListSelectionModel.MULTIPLE_INTERVAL_SELECTION);
+        expenseTable.setComponentPopupMenu(createBulkMenu());
+        ExpenseTableModel.installRenderers(expenseTable);
+        expenseTable.getTableHeader().addMouseListener(new MouseAdapter() {
+            @Override
+            public void mouseClicked(MouseEvent e) {
+                int column = expenseTable.columnAtPoint(e.getPoint());
+                if (column >= 0) {
+                    sortBy(expenseTable.convertColumnIndexToModel(column));
+                }
+            }
+        });
 
         // Hide ID column
-        expenseTable.getColumnModel().getColumn(0).setMinWidth(0);
-        expenseTable.getColumnModel().getColumn(0).setMaxWidth(0);
-        expenseTable.getColumnModel().getColumn(0).setWidth(0);
+        expenseTable.getColumnModel().getColumn(ExpenseTableModel.ID_COLUMN).setMinWidth(0);
+        expenseTable.getColumnModel().getColumn(ExpenseTableModel.ID_COLUMN).setMaxWidth(0);
+        expenseTable.getColumnModel().getColumn(ExpenseTableModel.ID_COLUMN).setWidth(0);
 
         JScrollPane scrollPane = new JScrollPane(expenseTable);
         tablePanel.add(scrollPane, BorderLayout.CENTER);
@@ -142,6 +215,16 @@ public class ViewExpensesFrame extends JFrame {
         deleteButton.addActionListener(e -> deleteSelectedExpense());
         buttonPanel.add(deleteButton);
 
+        JButton exportButton = new JButton("Export...");
+        exportButton.setFont(new Font("Arial", Font.PLAIN, 14));
+        exportButton.setBackground(new Color(46, 204, 113));
+        exportButton.setForeground(Color.WHITE);
+        exportButton.setFocusPainted(false);
+        exportButton.setCursor(new Cursor(Cursor.HAND_CURSOR));
+        exportButton.setPreferredSize(new Dimension(120, 35));
+        exportButton.addActionListener(e -> exportExpenses());
+        buttonPanel.add(exportButton);
+
         JButton refreshButton = new JButton("Refresh");
         refreshButton.setFont(new Font("Arial", Font.PLAIN, 14));
         refreshButton.setBackground(new Color(52, 152, 219));
@@ -168,108 +251,358 @@ public class ViewExpensesFrame extends JFrame {
     }
 
     private void loadExpenses() {
-        List<Expense> expenses = expenseDAO.getAllExpenses(currentUser.getUserId());
-        displayExpenses(expenses);
+        displayExpenses(ExpenseQuery.forUser(currentUser.getUserId()).orderBy(order));
+    }
+
+    /**
+     * Sort by a table column, reversing the order if the listing is already sorted by it.
+     * Columns without an index to page them in order are not sortable.
+     */
+    private void sortBy(int column) {
+        ExpenseOrder[] orders = ordersFor(column);
+        if (orders == null) {
+            return;
+        }
+        ExpenseOrder current = order != null ? order : ExpenseOrder.NEWEST_FIRST;
+        order = current == orders[0] ? orders[1] : orders[0];
+        showSortIndicator();
+        applyFilters();
+    }
+
+    /**
+     * The order a first and a second click on a column header select, or null if it is not sortable
+     */
+    private static ExpenseOrder[] ordersFor(int column) {
+        switch (column) {
+            case ExpenseTableModel.TITLE_COLUMN:
+                return new ExpenseOrder[]{ExpenseOrder.TITLE_A_TO_Z, ExpenseOrder.TITLE_Z_TO_A};
+            case ExpenseTableModel.AMOUNT_COLUMN:
+                return new ExpenseOrder[]{ExpenseOrder.LARGEST_FIRST, ExpenseOrder.SMALLEST_FIRST};
+            case ExpenseTableModel.DATE_COLUMN:
+                return new ExpenseOrder[]{ExpenseOrder.NEWEST_FIRST, ExpenseOrder.OLDEST_FIRST};
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * Mark the sorted column's header with an arrow pointing the way values grow
+     */
+    private void showSortIndicator() {
+        for (int column = 0; column < tableModel.getColumnCount(); column++) {
+            String name = tableModel.getColumnName(column);
+            ExpenseOrder[] orders = ordersFor(column);
+            if (orders != null && (order == orders[0] || order == orders[1])) {
+                name += order.isDescending() ? " \u25BC" : " \u25B2";
+            }
+            expenseTable.getColumnModel().getColumn(expenseTable.convertColumnIndexToView(column)).setHeaderValue(name);
+        }
+        expenseTable.getTableHeader().repaint();
     }
 
     private void applyFilters() {
         int monthIndex = monthFilterCombo.getSelectedIndex();
         String category = (String) categoryFilterCombo.getSelectedItem();
 
-        List<Expense> expenses = expenseDAO.filterExpenses(
-                currentUser.getUserId(),
-                monthIndex,
-                category
-        );
-        displayExpenses(expenses);
+        ExpenseQuery query = ExpenseQuery.forUser(currentUser.getUserId())
+                .inCategory(category)
+                .matching(searchField.getText())
+                .orderBy(order);
+        if (monthIndex > 0) {
+            query.inMonth(LocalDate.now().getYear(), monthIndex);
+        }
+        displayExpenses(query);
     }
 
-    private void displayExpenses(List<Expense> expenses) {
-        tableModel.setRowCount(0);
-        double total = 0.0;
-
-        for (Expense expense : expenses) {
-            tableModel.addRow(new Object[]{
-                    expense.getExpenseId(),
-                    expense.getTitle(),
-                    String.format("₹%.2f", expense.getAmount()),
-                    expense.getCategory(),
-                    expense.getExpenseDate().toString(),
-                    expense.getDescription()
-            });
-            total += expense.getAmount();
-        }
+    private void displayExpenses(ExpenseQuery query) {
+        // Rows are fetched page by page as the table scrolls; only count and total are computed up front
+        setLoading(true);
+        listingRequest.submit(
+                () -> expenseDAO.countExpenses(query).thenCombine(expenseDAO.getTotal(query), ListingTotals::new),
+                totals -> {
+                    tableModel.setQuery(query, totals.count);
+                    listingTotal = totals.total;
+                    totalLabel.setText(Money.format(listingTotal));
+                },
+                () -> setLoading(false));
+    }
 
-        totalLabel.setText(String.format("₹%.2f", total));
+    private void setLoading(boolean loading) {
+        loadingLabel.setVisible(loading);
+        setCursor(loading ? Cursor.getPredefinedCursor(Cursor.WAIT_CURSOR) : Cursor.getDefaultCursor());
     }
 
-    private void editSelectedExpense() {
+    /**
+     * Expense selected in the table, or null (with a warning) if nothing usable is selected
+     */
+    private Expense getSelectedExpense(String action) {
         int selectedRow = expenseTable.getSelectedRow();
 
         if (selectedRow == -1) {
             JOptionPane.showMessageDialog(this,
-                    "Please select an expense to edit",
+                    "Please select an expense to " + action,
                     "No Selection",
                     JOptionPane.WARNING_MESSAGE);
-            return;
+            return null;
         }
 
-        int expenseId = (int) tableModel.getValueAt(selectedRow, 0);
+        Expense expense = tableModel.getExpenseAt(selectedRow);
+        if (expense == null) {
+            JOptionPane.showMessageDialog(this,
+                    "The selected expense is still loading, please try again",
+                    "Please Wait",
+                    JOptionPane.INFORMATION_MESSAGE);
+        }
+        return expense;
+    }
 
-        // Find the expense
-        List<Expense> allExpenses = expenseDAO.getAllExpenses(currentUser.getUserId());
-        Expense selectedExpense = null;
-        for (Expense exp : allExpenses) {
-            if (exp.getExpenseId() == expenseId) {
-                selectedExpense = exp;
-                break;
-            }
+    /**
+     * Ids of the expenses selected in the table, or null (with a message) if none are selected
+     * or some selected rows have not loaded yet
+     */
+    private List<Integer> getSelectedExpenseIds(String action) {
+        int[] rows = expenseTable.getSelectedRows();
+        if (rows.length == 0) {
+            JOptionPane.showMessageDialog(this,
+                    "Please select the expenses to " + action,
+                    "No Selection",
+                    JOptionPane.WARNING_MESSAGE);
+            return null;
         }
 
-        if (selectedExpense != null) {
-            EditExpenseFrame editFrame = new EditExpenseFrame(selectedExpense, this, dashboardFrame);
-            editFrame.setVisible(true);
+        List<Integer> ids = new ArrayList<>(rows.length);
+        for (int row : rows) {
+            Expense expense = tableModel.getExpenseAt(row);
+            if (expense == null) {
+                JOptionPane.showMessageDialog(this,
+                        "Some selected expenses are still loading, please try again",
+                        "Please Wait",
+                        JOptionPane.INFORMATION_MESSAGE);
+                return null;
+            }
+            ids.add(expense.getExpenseId());
         }
+        return ids;
     }
 
-    private void deleteSelectedExpense() {
-        int selectedRow = expenseTable.getSelectedRow();
+    private JPopupMenu createBulkMenu() {
+        JPopupMenu menu = new JPopupMenu();
 
-        if (selectedRow == -1) {
+        JMenuItem editItem = new JMenuItem("Edit");
+        editItem.addActionListener(e -> editSelectedExpense());
+        menu.add(editItem);
+
+        JMenuItem deleteItem = new JMenuItem("Delete Selected");
+        deleteItem.addActionListener(e -> deleteSelectedExpense());
+        menu.add(deleteItem);
+
+        menu.addSeparator();
+
+        JMenuItem categoryItem = new JMenuItem("Change Category...");
+        categoryItem.addActionListener(e -> recategorizeSelectedExpenses());
+        menu.add(categoryItem);
+
+        JMenuItem shiftItem = new JMenuItem("Shift Dates...");
+        shiftItem.addActionListener(e -> shiftSelectedExpenseDates());
+        menu.add(shiftItem);
+
+        return menu;
+    }
+
+    private void editSelectedExpense() {
+        if (expenseTable.getSelectedRowCount() > 1) {
             JOptionPane.showMessageDialog(this,
-                    "Please select an expense to delete",
-                    "No Selection",
+                    "Please select a single expense to edit",
+                    "Multiple Selection",
                     JOptionPane.WARNING_MESSAGE);
             return;
         }
 
+        // The table model resolves the row from memory, so no database round trip is needed
+        Expense selected = getSelectedExpense("edit");
+        if (selected == null) {
+            return;
+        }
+
+        EditExpenseFrame editFrame = new EditExpenseFrame(selected);
+        editFrame.setVisible(true);
+    }
+
+    private void deleteSelectedExpense() {
+        List<Integer> ids = getSelectedExpenseIds("delete");
+        if (ids == null) {
+            return;
+        }
+
         int choice = JOptionPane.showConfirmDialog(this,
-                "Are you sure you want to delete this expense?",
+                ids.size() == 1
+                        ? "Are you sure you want to delete this expense?"
+                        : "Are you sure you want to delete these " + ids.size() + " expenses?",
                 "Confirm Delete",
                 JOptionPane.YES_NO_OPTION,
                 JOptionPane.WARNING_MESSAGE);
 
         if (choice == JOptionPane.YES_OPTION) {
-            int expenseId = (int) tableModel.getValueAt(selectedRow, 0);
-            boolean success = expenseDAO.deleteExpense(expenseId);
+            runBulk(expenseDAO.deleteExpenses(currentUser.getUserId(), ids), ids.size(), "deleted", "delete");
+        }
+    }
+
+    private void recategorizeSelectedExpenses() {
+        List<Integer> ids = getSelectedExpenseIds("recategorise");
+        if (ids == null) {
+            return;
+        }
+
+        JComboBox<String> categoryCombo = new JComboBox<>();
+        categoryCombo.setEditable(true);
+        CategoryChoices.load(categoryCombo, currentUser.getUserId(), false, null);
+        int choice = JOptionPane.showConfirmDialog(this,
+                new Object[]{"Move " + ids.size() + " expenses to category:", categoryCombo},
+                "Change Category",
+                JOptionPane.OK_CANCEL_OPTION,
+                JOptionPane.QUESTION_MESSAGE);
+
+        String category = CategoryChoices.selectedName(categoryCombo);
+        if (choice != JOptionPane.OK_OPTION || category.isEmpty()) {
+            return;
+        }
+        runBulk(expenseDAO.updateCategory(currentUser.getUserId(), ids, category), ids.size(), "updated", "update");
+    }
+
+    private void shiftSelectedExpenseDates() {
+        List<Integer> ids = getSelectedExpenseIds("shift");
+        if (ids == null) {
+            return;
+        }
+
+        JSpinner daysSpinner = new JSpinner(new SpinnerNumberModel(1, -3650, 3650, 1));
+        int choice = JOptionPane.showConfirmDialog(this,
+                new Object[]{"Shift the dates of " + ids.size() + " expenses by days (negative for earlier):",
+                        daysSpinner},
+                "Shift Dates",
+                JOptionPane.OK_CANCEL_OPTION,
+                JOptionPane.QUESTION_MESSAGE);
+
+        int days = (Integer) daysSpinner.getValue();
+        if (choice != JOptionPane.OK_OPTION || days == 0) {
+            return;
+        }
+        runBulk(expenseDAO.shiftDates(currentUser.getUserId(), ids, days), ids.size(), "updated", "update");
+    }
 
-            if (success) {
+    /**
+     * Report a bulk operation. The table and dashboard follow the change through expense events.
+     */
+    private void runBulk(CompletableFuture<Integer> operation, int selected, String done, String verb) {
+        setLoading(true);
+        SwingAsync.onEdt(operation, changed -> {
+            setLoading(false);
+            if (changed > 0) {
                 JOptionPane.showMessageDialog(this,
-                        "Expense deleted successfully!",
+                        changed + (changed == 1 ? " expense " : " expenses ") + done + " successfully!",
                         "Success",
                         JOptionPane.INFORMATION_MESSAGE);
-                loadExpenses();
-                dashboardFrame.refreshDashboard();
             } else {
                 JOptionPane.showMessageDialog(this,
-                        "Failed to delete expense",
+                        "Failed to " + verb + " the " + selected + " selected expenses",
                         "Error",
                         JOptionPane.ERROR_MESSAGE);
             }
+        }, error -> {
+            setLoading(false);
+            JOptionPane.showMessageDialog(this,
+                    "Database error: " + error.getMessage(),
+                    "Error",
+                    JOptionPane.ERROR_MESSAGE);
+        });
+    }
+
+    /**
+     * Export the expenses the current filters show. The file name picks the format:
+     * .csv or .jsonl, with .gz appended for a gzipped file.
+     */
+    private void exportExpenses() {
+        ExpenseQuery query = tableModel.getQuery() != null
+                ? tableModel.getQuery()
+                : ExpenseQuery.forUser(currentUser.getUserId());
+
+        JFileChooser chooser = new JFileChooser();
+        chooser.setDialogTitle("Export Expenses");
+        chooser.setFileFilter(new FileNameExtensionFilter("CSV or JSON Lines (*.csv, *.jsonl, *.gz)",
+                "csv", "jsonl", "gz"));
+        chooser.setSelectedFile(new File("expenses-" + LocalDate.now() + ".csv"));
+        if (chooser.showSaveDialog(this) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+
+        File file = chooser.getSelectedFile();
+        if (ExpenseExporter.Format.fromFileName(file.getName()) == null) {
+            file = new File(file.getParentFile(), file.getName() + ExpenseExporter.Format.CSV.getExtension());
+        }
+        if (file.exists()) {
+            int choice = JOptionPane.showConfirmDialog(this,
+                    file.getName() + " already exists. Replace it?",
+                    "Confirm Export",
+                    JOptionPane.YES_NO_OPTION,
+                    JOptionPane.WARNING_MESSAGE);
+            if (choice != JOptionPane.YES_OPTION) {
+                return;
+            }
         }
+
+        ExportProgressDialog.start(this, query, file.toPath());
     }
 
-    public void refreshTable() {
-        loadExpenses();
+    /**
+     * Apply expense changes made anywhere in the session to the listing. Count and total are
+     * adjusted from the changes themselves; only rows that moved are read again.
+     */
+    private void showChanges(List<ExpenseEvent> events) {
+        ExpenseQuery query = tableModel.getQuery();
+        if (query == null || listingRequest.isRunning() || query.getSearchText() != null) {
+            // No settled listing to patch, or matching is up to the full-text index
+            refreshListing();
+            return;
+        }
+
+        for (ExpenseEvent event : events) {
+            if (event.getBefore() != null && query.matches(event.getBefore())) {
+                listingTotal -= event.getBefore().getAmount();
+            }
+            if (event.getAfter() != null && query.matches(event.getAfter())) {
+                listingTotal += event.getAfter().getAmount();
+            }
+        }
+        tableModel.applyChanges(events);
+        totalLabel.setText(Money.format(listingTotal));
+    }
+
+    private void refreshListing() {
+        if (tableModel.getQuery() != null) {
+            displayExpenses(tableModel.getQuery());
+        } else {
+            loadExpenses();
+        }
+    }
+
+    @Override
+    public void dispose() {
+        searchTimer.stop();
+        listingRequest.cancel();
+        expenseChanges.close();
+        super.dispose();
+    }
+
+    /**
+     * Row count and total of a listing, fetched together before the table is shown
+     */
+    private static class ListingTotals {
+        private final int count;
+        private final long total;
+
+        private ListingTotals(int count, long total) {
+            this.count = count;
+            this.total = total;
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,109 @@
+package analytics;
+
+import dao.ExpenseDAO;
+import dao.ExpenseEventBus;
+import dao.ExpenseQuery;
+import model.Expense;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import util.TestDatabase;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Columnar Expense Store Test
+ * Columns kept in step by expense events must answer like columns loaded afresh after any
+ * mix of writes, and a load that a write overlapped must not be kept.
+ */
+@Tag("columnar")
+class ColumnarExpenseStoreTest {
+    private static final LocalDate START = LocalDate.of(2024, 4, 20);
+
+    private final ExpenseDAO dao = new ExpenseDAO();
+    private final ColumnarExpenseStore store = ColumnarExpenseStore.getInstance();
+
+    @BeforeAll
+    static void checkEnabled() {
+        assertTrue(ColumnarExpenseStore.isEnabled(), "run with expensetracker.analytics.columnar=true");
+        TestDatabase.init();
+    }
+
+    private static List<ExpenseQuery> queries(int userId) {
+        return List.of(
+                ExpenseQuery.forUser(userId),
+                ExpenseQuery.forUser(userId).inMonth(2024, 5),
+                ExpenseQuery.forUser(userId).inCategory("food"),
+                ExpenseQuery.forUser(userId).between(START.plusDays(3), START.plusDays(15)));
+    }
+
+    private void assertSameAsFreshLoad(int userId, ExpenseColumns kept) {
+        store.invalidate(userId);
+        ExpenseColumns loaded = store.getColumns(userId);
+        assertNotSame(kept, loaded);
+
+        assertEquals(loaded.size(), kept.size());
+        for (ExpenseQuery query : queries(userId)) {
+            assertEquals(loaded.count(query), kept.count(query), "count " + query);
+            assertEquals(loaded.total(query), kept.total(query), "total " + query);
+            assertEquals(loaded.categoryTotals(query), kept.categoryTotals(query), "category totals " + query);
+        }
+    }
+
+    @Test
+    void eventsKeepColumnsEqualToAFreshLoad() throws Exception {
+        int userId = TestDatabase.newUser();
+        List<Expense> expenses = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            String category = i % 2 == 0 ? "Food" : "Travel";
+            expenses.add(new Expense(userId, "Item " + i, 500L + i, category, START.plusDays(i), null));
+        }
+        assertEquals(20, dao.addExpenses(expenses).getSuccessCount());
+        ExpenseColumns columns = store.getColumns(userId);
+        assertNotNull(columns);
+
+        assertTrue(dao.addExpense(new Expense(userId, "Late", 900, "Bills", START.plusDays(30), null)));
+        assertTrue(dao.addExpense(new Expense(userId, "Early", 800, "FOOD", START.minusDays(30), null)));
+        Expense edited = new Expense(expenses.get(4));
+        edited.setExpenseDate(START.plusDays(12));
+        edited.setAmount(1500);
+        assertTrue(dao.updateExpense(edited));
+        assertTrue(dao.deleteExpense(userId, expenses.get(7).getExpenseId()));
+        assertEquals(2, dao.deleteExpenses(userId, List.of(expenses.get(8).getExpenseId(),
+                expenses.get(9).getExpenseId())));
+        assertEquals(1, dao.updateCategory(userId, List.of(expenses.get(10).getExpenseId()), "Health"));
+        assertEquals(2, dao.shiftDates(userId, List.of(expenses.get(11).getExpenseId(),
+                expenses.get(12).getExpenseId()), -15));
+
+        assertSame(columns, store.getColumns(userId), "events should have kept the loaded columns");
+        assertSameAsFreshLoad(userId, columns);
+    }
+
+    @Test
+    void loadOverlappedByAWriteIsNotKept() throws Exception {
+        int userId = TestDatabase.newUser();
+        assertTrue(dao.addExpense(new Expense(userId, "Book", 4500, "Education", START, null)));
+
+        ExpenseEventBus events = ExpenseEventBus.getInstance();
+        ExpenseColumns duringWrite;
+        events.beginWrite(userId);
+        try {
+            duringWrite = store.getColumns(userId);
+            assertEquals(1, duringWrite.size());
+        } finally {
+            events.endWrite(userId);
+        }
+
+        ExpenseColumns afterWrite = store.getColumns(userId);
+        assertNotSame(duringWrite, afterWrite);
+        assertSame(afterWrite, store.getColumns(userId));
+    }
+}
@@ -0,0 +1,163 @@
+package analytics;
+
+import dao.ExpenseDAO;
+import dao.ExpenseQuery;
+import model.Expense;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import util.TestDatabase;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Expense Columns Test
+ * Columns built in any insertion order must answer every aggregate exactly as SQL does
+ * over the same expenses, with categories matched regardless of case.
+ */
+class ExpenseColumnsTest {
+    private static final LocalDate START = LocalDate.of(2024, 1, 25);
+    private static final String[] CATEGORIES = {"Food", "Travel", "Bills", "Health"};
+
+    private static final ExpenseDAO DAO = new ExpenseDAO();
+    private static int userId;
+    private static List<Expense> expenses;
+
+    @BeforeAll
+    static void addExpenses() throws Exception {
+        // The columnar store is off in this run, so the DAO answers from SQL
+        assertFalse(ColumnarExpenseStore.isEnabled());
+        userId = TestDatabase.newUser();
+
+        // Several expenses a day across a month boundary, with distinct category totals
+        expenses = new ArrayList<>();
+        for (int i = 0; i < 60; i++) {
+            String category = CATEGORIES[i % CATEGORIES.length];
+            long amount = 1000L * (i % 7 + 1) + 10L * i;
+            expenses.add(new Expense(userId, "Item " + i, amount, category, START.plusDays(i / 4), null));
+        }
+        assertEquals(60, DAO.addExpenses(expenses).getSuccessCount());
+    }
+
+    private static ExpenseColumns columnsInOrder() {
+        ExpenseColumns columns = new ExpenseColumns(new CategoryDictionary());
+        for (Expense expense : expenses) {
+            columns.append(expense.getExpenseId(), (int) expense.getExpenseDate().toEpochDay(),
+                    expense.getAmount(), expense.getCategory());
+        }
+        return columns;
+    }
+
+    private static List<ExpenseQuery> queries() {
+        List<ExpenseQuery> queries = new ArrayList<>();
+        queries.add(ExpenseQuery.forUser(userId));
+        queries.add(ExpenseQuery.forUser(userId).inMonth(2024, 1));
+        queries.add(ExpenseQuery.forUser(userId).inMonth(2024, 2).inCategory("Travel"));
+        queries.add(ExpenseQuery.forUser(userId).onDate(START.plusDays(3)));
+        queries.add(ExpenseQuery.forUser(userId).between(START.plusDays(2), START.plusDays(9)));
+        queries.add(ExpenseQuery.forUser(userId).between(START.plusDays(10), null));
+        queries.add(ExpenseQuery.forUser(userId).inCategory("food"));
+        queries.add(ExpenseQuery.forUser(userId).inCategory("Rent"));
+        queries.add(ExpenseQuery.forUser(userId).inYear(2023));
+        return queries;
+    }
+
+    private static void assertAnswersLikeSql(ExpenseColumns columns) {
+        for (ExpenseQuery query : queries()) {
+            assertEquals(DAO.countExpenses(query), columns.count(query), "count " + query);
+            assertEquals(DAO.getTotal(query), columns.total(query), "total " + query);
+            assertEquals(DAO.getCategoryTotals(query), columns.categoryTotals(query), "category totals " + query);
+            assertEquals(List.copyOf(DAO.getTopCategories(query, 2).entrySet()),
+                    List.copyOf(columns.topCategories(query, 2).entrySet()), "top categories " + query);
+        }
+    }
+
+    @Test
+    void appendedColumnsAnswerLikeSql() {
+        ExpenseColumns columns = columnsInOrder();
+
+        assertEquals(expenses.size(), columns.size());
+        assertAnswersLikeSql(columns);
+    }
+
+    @Test
+    void insertedColumnsAnswerLikeSql() {
+        List<Expense> shuffled = new ArrayList<>(expenses);
+        Collections.shuffle(shuffled, new Random(42));
+        ExpenseColumns columns = new ExpenseColumns(new CategoryDictionary());
+        for (Expense expense : shuffled) {
+            columns.insert(expense.getExpenseId(), (int) expense.getExpenseDate().toEpochDay(),
+                    expense.getAmount(), expense.getCategory());
+        }
+
+        assertAnswersLikeSql(columns);
+    }
+
+    @Test
+    void removeTakesOutOnlyThatRow() {
+        ExpenseColumns columns = columnsInOrder();
+        Expense removed = expenses.get(17);
+        int day = (int) removed.getExpenseDate().toEpochDay();
+
+        assertFalse(columns.remove(removed.getExpenseId(), day + 1));
+        assertTrue(columns.remove(removed.getExpenseId(), day));
+        assertFalse(columns.remove(removed.getExpenseId(), day));
+
+        ExpenseQuery all = ExpenseQuery.forUser(userId);
+        assertEquals(expenses.size() - 1, columns.count(all));
+        assertEquals(DAO.getTotal(all) - removed.getAmount(), columns.total(all));
+    }
+
+    @Test
+    void topExpenseIdsAreTheLargestFirst() {
+        ExpenseColumns columns = columnsInOrder();
+        ExpenseQuery query = ExpenseQuery.forUser(userId).inMonth(2024, 2);
+
+        List<Expense> matching = new ArrayList<>();
+        for (Expense expense : expenses) {
+            if (query.matches(expense)) {
+                matching.add(expense);
+            }
+        }
+        matching.sort((a, b) -> Long.compare(b.getAmount(), a.getAmount()));
+        int[] expected = new int[5];
+        for (int k = 0; k < expected.length; k++) {
+            expected[k] = matching.get(k).getExpenseId();
+        }
+
+        assertArrayEquals(expected, columns.topExpenseIds(query, 5));
+        assertArrayEquals(new int[0], columns.topExpenseIds(query, 0));
+    }
+
+    @Test
+    void dictionaryFoldsCaseAndKeepsTheFirstSpelling() {
+        CategoryDictionary dictionary = new CategoryDictionary();
+
+        int food = dictionary.ordinal("Food");
+        assertEquals(food, dictionary.ordinal("FOOD"));
+        assertEquals(food, dictionary.find("food"));
+        assertEquals("Food", dictionary.name(food));
+        assertEquals(CategoryDictionary.NONE, dictionary.find("Travel"));
+        assertEquals(1, dictionary.size());
+    }
+
+    @Test
+    void dictionaryRefusesMoreCategoriesThanAnOrdinalHolds() {
+        CategoryDictionary dictionary = new CategoryDictionary();
+        for (int i = 0; i < CategoryDictionary.MAX_CATEGORIES; i++) {
+            assertEquals(i, dictionary.ordinal("Category " + i));
+        }
+
+        assertThrows(IllegalStateException.class, () -> dictionary.ordinal("One too many"));
+        assertEquals(0, dictionary.ordinal("category 0"));
+    }
+}
@@ -0,0 +1,96 @@
+package dao;
+
+import model.Category;
+import model.Expense;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import util.TestDatabase;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Category DAO Test
+ * A name resolves to a built-in before a custom category and is matched without regard to
+ * case, so no user ends up with two categories that differ only in case.
+ */
+class CategoryDAOTest {
+    private final CategoryDAO categoryDAO = new CategoryDAO();
+    private final ExpenseDAO expenseDAO = new ExpenseDAO();
+
+    @BeforeAll
+    static void initDatabase() {
+        TestDatabase.init();
+    }
+
+    @Test
+    void builtInsComeFirstInTheirOwnOrder() throws Exception {
+        List<String> names = new ArrayList<>();
+        for (Category category : categoryDAO.getCategories(TestDatabase.newUser())) {
+            assertTrue(category.isBuiltIn());
+            names.add(category.getName());
+        }
+
+        assertEquals(List.of("Food", "Travel", "Shopping", "Bills", "Entertainment", "Health", "Other"), names);
+    }
+
+    @Test
+    void addingABuiltInNameReturnsTheBuiltIn() throws Exception {
+        int userId = TestDatabase.newUser();
+
+        Category food = categoryDAO.addCategory(userId, "  fOOD ");
+
+        assertNotNull(food);
+        assertTrue(food.isBuiltIn());
+        assertEquals("Food", food.getName());
+    }
+
+    @Test
+    void customCategoriesBelongToTheirUser() throws Exception {
+        int owner = TestDatabase.newUser();
+        int other = TestDatabase.newUser();
+
+        Category pets = categoryDAO.addCategory(owner, "Pets");
+        assertNotNull(pets);
+        assertFalse(pets.isBuiltIn());
+        assertEquals(owner, pets.getUserId());
+        assertEquals(pets.getCategoryId(), categoryDAO.addCategory(owner, "PETS").getCategoryId());
+
+        Category otherPets = categoryDAO.addCategory(other, "pets");
+        assertNotEquals(pets.getCategoryId(), otherPets.getCategoryId());
+        assertEquals("pets", otherPets.getName());
+
+        assertTrue(categoryDAO.getCategories(owner).contains(pets));
+        assertFalse(categoryDAO.getCategories(other).contains(pets));
+    }
+
+    @Test
+    void blankNamesAreRefused() throws Exception {
+        int userId = TestDatabase.newUser();
+
+        assertNull(categoryDAO.addCategory(userId, null));
+        assertNull(categoryDAO.addCategory(userId, "   "));
+    }
+
+    @Test
+    void expensesReadBackTheCategorysOwnSpelling() throws Exception {
+        int userId = TestDatabase.newUser();
+        Expense custom = new Expense(userId, "Vet", 90000, "Pets", LocalDate.of(2024, 6, 1), null);
+        Expense sameCustom = new Expense(userId, "Food bowl", 4000, "PETS", LocalDate.of(2024, 6, 2), null);
+        Expense builtIn = new Expense(userId, "Kibble", 12000, "food", LocalDate.of(2024, 6, 3), null);
+        assertEquals(3, expenseDAO.addExpenses(List.of(custom, sameCustom, builtIn)).getSuccessCount());
+
+        assertEquals("Pets", expenseDAO.findById(userId, sameCustom.getExpenseId()).getCategory());
+        assertEquals("Food", expenseDAO.findById(userId, builtIn.getExpenseId()).getCategory());
+        long customCategories = categoryDAO.getCategories(userId).stream().filter(c -> !c.isBuiltIn()).count();
+        assertEquals(1, customCategories);
+    }
+}
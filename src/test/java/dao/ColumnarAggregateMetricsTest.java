@@ -0,0 +1,65 @@
+package dao;
+
+import analytics.ColumnarExpenseStore;
+import metrics.MetricsRegistry;
+import model.Expense;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import util.TestDatabase;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Columnar Aggregate Metrics Test
+ * Aggregates the columnar store answers must still be timed under their DAO operation,
+ * or the metrics undercount exactly the calls the store takes over.
+ */
+@Tag("columnar")
+class ColumnarAggregateMetricsTest {
+    private static final MetricsRegistry METRICS = MetricsRegistry.getInstance();
+    private static final ExpenseDAO DAO = new ExpenseDAO();
+    private static int userId;
+
+    @BeforeAll
+    static void addExpenses() throws Exception {
+        assertTrue(ColumnarExpenseStore.isEnabled(), "run with expensetracker.analytics.columnar=true");
+        userId = TestDatabase.newUser();
+        LocalDate day = LocalDate.of(2024, 5, 10);
+        assertEquals(3, DAO.addExpenses(List.of(
+                new Expense(userId, "Lunch", 1200, "Food", day, null),
+                new Expense(userId, "Bus", 300, "Travel", day, null),
+                new Expense(userId, "Dinner", 2500, "Food", day.plusDays(1), null))).getSuccessCount());
+        assertNotNull(ColumnarExpenseStore.columnsIfEnabled(userId));
+    }
+
+    private static long calls(String operation) {
+        return METRICS.operation(operation).getCount();
+    }
+
+    @Test
+    void columnarAnswersAreTimed() {
+        // Mid-month bounds keep the rollup table out of it
+        ExpenseQuery query = ExpenseQuery.forUser(userId).between(LocalDate.of(2024, 5, 2), LocalDate.of(2024, 5, 20));
+
+        long count = calls("ExpenseDAO.countExpenses");
+        long total = calls("ExpenseDAO.getTotal");
+        long categoryTotals = calls("ExpenseDAO.getCategoryTotals");
+        long topCategories = calls("ExpenseDAO.getTopCategories");
+
+        assertEquals(3, DAO.countExpenses(query));
+        assertEquals(4000, DAO.getTotal(query));
+        assertEquals(2, DAO.getCategoryTotals(query).size());
+        assertEquals(1, DAO.getTopCategories(query, 1).size());
+
+        assertEquals(count + 1, calls("ExpenseDAO.countExpenses"));
+        assertEquals(total + 1, calls("ExpenseDAO.getTotal"));
+        assertEquals(categoryTotals + 1, calls("ExpenseDAO.getCategoryTotals"));
+        assertEquals(topCategories + 1, calls("ExpenseDAO.getTopCategories"));
+    }
+}
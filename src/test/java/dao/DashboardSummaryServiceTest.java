@@ -0,0 +1,130 @@
+package dao;
+
+import model.DashboardSummary;
+import model.Expense;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import util.TestDatabase;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Dashboard Summary Service Test
+ * A summary kept up to date by expense events must equal one loaded afresh after any mix
+ * of writes, and a load that a write overlapped must not be kept.
+ */
+class DashboardSummaryServiceTest {
+    private static final LocalDate TODAY = LocalDate.now();
+
+    private final ExpenseDAO dao = new ExpenseDAO();
+    private final DashboardSummaryService service = DashboardSummaryService.getInstance();
+
+    @BeforeAll
+    static void initDatabase() {
+        TestDatabase.init();
+    }
+
+    private static void assertSameFigures(DashboardSummary expected, DashboardSummary actual) {
+        assertEquals(expected.getAsOf(), actual.getAsOf());
+        assertEquals(expected.getMonthlyTotal(), actual.getMonthlyTotal(), "monthly total");
+        assertEquals(expected.getTodayTotal(), actual.getTodayTotal(), "today total");
+        assertEquals(expected.getCategoryTotals(), actual.getCategoryTotals(), "category totals");
+    }
+
+    private DashboardSummary loadAfresh(int userId) {
+        service.invalidate(userId);
+        return service.getSummary(userId);
+    }
+
+    @Test
+    void newUserHasAnEmptySummary() throws Exception {
+        DashboardSummary summary = service.getSummary(TestDatabase.newUser());
+
+        assertEquals(TODAY, summary.getAsOf());
+        assertEquals(0, summary.getMonthlyTotal());
+        assertEquals(0, summary.getTodayTotal());
+        assertEquals(Map.of(), summary.getCategoryTotals());
+    }
+
+    @Test
+    void eventsKeepTheSummaryEqualToAFreshLoad() throws Exception {
+        int userId = TestDatabase.newUser();
+        service.getSummary(userId);
+
+        List<Expense> expenses = new ArrayList<>();
+        expenses.add(new Expense(userId, "Lunch", 25000, "Food", TODAY, null));
+        expenses.add(new Expense(userId, "Taxi", 40000, "Travel", TODAY, null));
+        expenses.add(new Expense(userId, "Groceries", 120000, "Food", TODAY.minusMonths(1), null));
+        expenses.add(new Expense(userId, "Train", 90000, "Travel", TODAY.minusMonths(2), null));
+        for (Expense expense : expenses) {
+            assertTrue(dao.addExpense(expense));
+        }
+        assertEquals(2, dao.addExpenses(List.of(
+                new Expense(userId, "Coffee", 15000, "Food", TODAY, null),
+                new Expense(userId, "Hotel", 500000, "Travel", TODAY.minusDays(40), null)))
+                .getSuccessCount());
+
+        Expense edited = new Expense(expenses.get(0));
+        edited.setAmount(30000);
+        edited.setCategory("Bills");
+        edited.setExpenseDate(TODAY.minusMonths(1));
+        assertTrue(dao.updateExpense(edited));
+        assertTrue(dao.deleteExpense(userId, expenses.get(1).getExpenseId()));
+        assertEquals(1, dao.updateCategory(userId, List.of(expenses.get(2).getExpenseId()), "food"));
+        assertEquals(1, dao.shiftDates(userId, List.of(expenses.get(3).getExpenseId()), 60));
+
+        DashboardSummary cached = service.getCachedSummary(userId);
+        assertNotNull(cached, "events should have kept the cached summary");
+        assertSameFigures(loadAfresh(userId), cached);
+    }
+
+    @Test
+    void categoryEmptiedByWritesLeavesTheSummary() throws Exception {
+        int userId = TestDatabase.newUser();
+        Expense expense = new Expense(userId, "Gift", 70000, "Gifts", TODAY, null);
+        assertTrue(dao.addExpense(expense));
+        assertEquals(Map.of("Gifts", 70000L), service.getSummary(userId).getCategoryTotals());
+
+        assertTrue(dao.deleteExpense(userId, expense.getExpenseId()));
+
+        assertEquals(Map.of(), service.getCachedSummary(userId).getCategoryTotals());
+    }
+
+    @Test
+    void loadOverlappedByAWriteIsNotKept() throws Exception {
+        int userId = TestDatabase.newUser();
+        assertTrue(dao.addExpense(new Expense(userId, "Book", 45000, "Education", TODAY, null)));
+
+        ExpenseEventBus events = ExpenseEventBus.getInstance();
+        events.beginWrite(userId);
+        try {
+            DashboardSummary summary = service.getSummary(userId);
+            assertEquals(45000, summary.getTodayTotal());
+            assertNull(service.getCachedSummary(userId));
+        } finally {
+            events.endWrite(userId);
+        }
+
+        service.getSummary(userId);
+        assertNotNull(service.getCachedSummary(userId));
+    }
+
+    @Test
+    void invalidateDropsTheCachedSummary() throws Exception {
+        int userId = TestDatabase.newUser();
+        service.getSummary(userId);
+        assertNotNull(service.getCachedSummary(userId));
+
+        service.invalidate(userId);
+
+        assertNull(service.getCachedSummary(userId));
+    }
+}
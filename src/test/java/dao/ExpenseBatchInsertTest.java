@@ -0,0 +1,155 @@
+package dao;
+
+import model.BatchResult;
+import model.Expense;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import util.DatabaseUtil;
+import util.ShardRouter;
+import util.TestDatabase;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Expense Batch Insert Test
+ * addExpenses() must report every row that was not written, by its position in the input,
+ * and write all the others, whether a row, a batch or a whole chunk fails.
+ */
+class ExpenseBatchInsertTest {
+    private final ExpenseDAO dao = new ExpenseDAO();
+
+    @BeforeAll
+    static void initDatabase() {
+        TestDatabase.init();
+    }
+
+    private static Expense expense(int userId, String title, String category) {
+        return new Expense(userId, title, 100, category, LocalDate.now(), null);
+    }
+
+    private static List<Integer> failedRows(BatchResult result) {
+        List<Integer> rows = new ArrayList<>();
+        for (BatchResult.RowFailure failure : result.getFailures()) {
+            rows.add(failure.getIndex());
+        }
+        rows.sort(null);
+        return rows;
+    }
+
+    private static void execute(int shard, String sql) throws SQLException {
+        try (Connection conn = DatabaseUtil.getShardRouter().getPool(shard).getConnection();
+             Statement stmt = conn.createStatement()) {
+            stmt.execute(sql);
+        }
+    }
+
+    @Test
+    void invalidRowsAreReportedAndSkipped() throws Exception {
+        int userId = TestDatabase.newUser();
+        Expense negative = expense(userId, "Refund", "Food");
+        negative.setAmount(-5);
+
+        BatchResult result = dao.addExpenses(Arrays.asList(
+                expense(userId, "A", "Food"), expense(userId, " ", "Food"), null,
+                negative, expense(userId, "B", "Food"), expense(userId, "C", null)), 2);
+
+        assertEquals(2, result.getSuccessCount());
+        assertEquals(List.of(1, 2, 3, 5), failedRows(result));
+        assertEquals(2, dao.countExpenses(ExpenseQuery.forUser(userId)));
+    }
+
+    @Test
+    void rowsRejectedInsideABatchFailAlone() throws Exception {
+        // Two users on one shard, so their rows share chunks; the second has been moved away,
+        // and the guard trigger fails the batch
+        ShardRouter router = DatabaseUtil.getShardRouter();
+        int kept = TestDatabase.newUser();
+        int moved = TestDatabase.newUser();
+        while (router.shardOf(moved) != router.shardOf(kept)) {
+            moved = TestDatabase.newUser();
+        }
+        int shard = router.shardOf(kept);
+        execute(shard, "INSERT INTO moved_users (user_id, shard) VALUES (" + moved + ", " + shard + ")");
+
+        try {
+            List<Expense> expenses = new ArrayList<>();
+            for (int i = 0; i < 10; i++) {
+                expenses.add(expense(i % 3 == 1 ? moved : kept, "Item " + i, "Food"));
+            }
+            BatchResult result = dao.addExpenses(expenses, 4);
+
+            assertEquals(List.of(1, 4, 7), failedRows(result));
+            assertEquals(7, result.getSuccessCount());
+            assertEquals(7, dao.countExpenses(ExpenseQuery.forUser(kept)));
+            for (int i = 0; i < expenses.size(); i++) {
+                Expense expense = expenses.get(i);
+                if (expense.getUserId() == kept) {
+                    assertEquals(expense.getTitle(), dao.findById(kept, expense.getExpenseId()).getTitle());
+                } else {
+                    assertEquals(0, expense.getExpenseId(), "row " + i + " was not written");
+                }
+            }
+        } finally {
+            execute(shard, "DELETE FROM moved_users WHERE user_id = " + moved);
+        }
+    }
+
+    @Test
+    void failedChunkIsReportedAndLaterChunksAreWritten() throws Exception {
+        int userId = TestDatabase.newUser();
+        int shard = DatabaseUtil.getShardRouter().shardOf(userId);
+
+        // Creating this category fails outside the batch, so the whole chunk cannot be written
+        execute(shard, "CREATE TRIGGER test_reject_category BEFORE INSERT ON categories " +
+                "WHEN new.name = 'Rejected' BEGIN SELECT RAISE(ABORT, 'category rejected'); END");
+        try {
+            List<Expense> expenses = List.of(
+                    expense(userId, "A", "Food"), expense(userId, "B", "Food"),
+                    expense(userId, "C", "Food"), expense(userId, "D", "Rejected"),
+                    expense(userId, "E", "Food"));
+            BatchResult result = dao.addExpenses(expenses, 2);
+
+            assertEquals(List.of(2, 3), failedRows(result));
+            assertTrue(result.getFailures().get(0).getMessage().contains("category rejected"));
+            assertEquals(3, result.getSuccessCount());
+            assertEquals(0, expenses.get(2).getExpenseId());
+            assertNotEquals(0, expenses.get(4).getExpenseId());
+            assertEquals(3, dao.countExpenses(ExpenseQuery.forUser(userId)));
+        } finally {
+            execute(shard, "DROP TRIGGER IF EXISTS test_reject_category");
+        }
+    }
+
+    @Test
+    void idsMatchTheStoredRows() throws Exception {
+        int userId = TestDatabase.newUser();
+        List<Expense> expenses = new ArrayList<>();
+        for (int i = 0; i < 25; i++) {
+            expenses.add(expense(userId, "Item " + i, i % 2 == 0 ? "Food" : "Pet supplies"));
+        }
+        assertEquals(25, dao.addExpenses(expenses, 10).getSuccessCount());
+
+        try (Connection conn = DatabaseUtil.getConnection(userId);
+             PreparedStatement pstmt = conn.prepareStatement("SELECT title FROM expenses WHERE expense_id = ?")) {
+            for (Expense expense : expenses) {
+                pstmt.setInt(1, expense.getExpenseId());
+                ResultSet rs = pstmt.executeQuery();
+                assertTrue(rs.next());
+                assertEquals(expense.getTitle(), rs.getString(1));
+            }
+        }
+        assertEquals("Pet supplies", dao.findById(userId, expenses.get(1).getExpenseId()).getCategory());
+    }
+}
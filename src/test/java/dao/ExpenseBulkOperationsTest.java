@@ -0,0 +1,194 @@
+package dao;
+
+import model.Expense;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import util.DatabaseUtil;
+import util.TestDatabase;
+
+import java.sql.Connection;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * Expense Bulk Operations Test
+ * Delete, recategorise and date shift over an id set touch only the owner's rows, publish
+ * one exact before/after event per row, and leave the rollups exact.
+ */
+class ExpenseBulkOperationsTest {
+    private static final LocalDate START = LocalDate.of(2024, 9, 28);
+
+    private final ExpenseDAO dao = new ExpenseDAO();
+    private final List<ExpenseEvent> events = new ArrayList<>();
+    private final ExpenseChangeListener recorder = new ExpenseChangeListener() {
+        @Override
+        public void expensesChanged(List<ExpenseEvent> changes) {
+            synchronized (events) {
+                events.addAll(changes);
+            }
+        }
+
+        @Override
+        public void expenseAdded(Expense expense) {
+        }
+
+        @Override
+        public void expenseUpdated(Expense before, Expense after) {
+        }
+
+        @Override
+        public void expenseDeleted(Expense expense) {
+        }
+    };
+
+    private int userId;
+    private int otherId;
+    private List<Integer> ids;
+    private int otherExpenseId;
+
+    @BeforeAll
+    static void initDatabase() {
+        TestDatabase.init();
+    }
+
+    @BeforeEach
+    void addExpenses() throws Exception {
+        userId = TestDatabase.newUser();
+        otherId = TestDatabase.newUser();
+
+        List<Expense> expenses = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            expenses.add(new Expense(userId, "Item " + i, 1000L * (i + 1), "Food", START.plusDays(i), null));
+        }
+        assertEquals(6, dao.addExpenses(expenses).getSuccessCount());
+        ids = new ArrayList<>();
+        for (Expense expense : expenses) {
+            ids.add(expense.getExpenseId());
+        }
+
+        Expense other = new Expense(otherId, "Not yours", 500, "Food", START, null);
+        dao.addExpense(other);
+        otherExpenseId = other.getExpenseId();
+
+        ExpenseEventBus.getInstance().subscribe(recorder);
+    }
+
+    @AfterEach
+    void stopRecording() {
+        ExpenseEventBus.getInstance().unsubscribe(recorder);
+    }
+
+    private List<ExpenseEvent> eventsOf(int user) {
+        List<ExpenseEvent> own = new ArrayList<>();
+        synchronized (events) {
+            for (ExpenseEvent event : events) {
+                if (event.getUserId() == user) {
+                    own.add(event);
+                }
+            }
+        }
+        return own;
+    }
+
+    private void assertRollupsExact() throws Exception {
+        for (int user : new int[] {userId, otherId}) {
+            try (Connection conn = DatabaseUtil.getConnection(user)) {
+                assertEquals(List.of(), new RollupMaintenance().verify(conn));
+            }
+        }
+    }
+
+    @Test
+    void deleteTakesOnlyTheOwnersRows() throws Exception {
+        int deleted = dao.deleteExpenses(userId, List.of(ids.get(0), ids.get(3), otherExpenseId, -1));
+
+        assertEquals(2, deleted);
+        assertNull(dao.findById(userId, ids.get(0)));
+        assertNull(dao.findById(userId, ids.get(3)));
+        assertNotNull(dao.findById(userId, ids.get(1)));
+        assertNotNull(dao.findById(otherId, otherExpenseId));
+
+        List<ExpenseEvent> published = eventsOf(userId);
+        assertEquals(2, published.size());
+        for (ExpenseEvent event : published) {
+            assertEquals(ExpenseEvent.Type.DELETED, event.getType());
+            assertNull(event.getAfter());
+        }
+        assertEquals(List.of(), eventsOf(otherId));
+        assertRollupsExact();
+    }
+
+    @Test
+    void recategoriseUsesTheCategorysOwnSpelling() throws Exception {
+        assertEquals(2, dao.updateCategory(userId, List.of(ids.get(1), ids.get(2), otherExpenseId), "pets"));
+        assertEquals(1, dao.updateCategory(userId, List.of(ids.get(2)), "TRAVEL"));
+
+        assertEquals("pets", dao.findById(userId, ids.get(1)).getCategory());
+        assertEquals("Travel", dao.findById(userId, ids.get(2)).getCategory());
+        assertEquals("Food", dao.findById(userId, ids.get(0)).getCategory());
+        assertEquals("Food", dao.findById(otherId, otherExpenseId).getCategory());
+
+        List<ExpenseEvent> published = eventsOf(userId);
+        assertEquals(3, published.size());
+        ExpenseEvent last = published.get(2);
+        assertEquals(ExpenseEvent.Type.UPDATED, last.getType());
+        assertEquals("pets", last.getBefore().getCategory());
+        assertEquals("Travel", last.getAfter().getCategory());
+        assertRollupsExact();
+    }
+
+    @Test
+    void shiftMovesDatesAcrossMonths() throws Exception {
+        assertEquals(3, dao.shiftDates(userId, List.of(ids.get(0), ids.get(1), ids.get(5), otherExpenseId), 5));
+
+        assertEquals(START.plusDays(5), dao.findById(userId, ids.get(0)).getExpenseDate());
+        assertEquals(START.plusDays(10), dao.findById(userId, ids.get(5)).getExpenseDate());
+        assertEquals(START.plusDays(2), dao.findById(userId, ids.get(2)).getExpenseDate());
+        assertEquals(START, dao.findById(otherId, otherExpenseId).getExpenseDate());
+
+        for (ExpenseEvent event : eventsOf(userId)) {
+            assertEquals(event.getBefore().getExpenseDate().plusDays(5), event.getAfter().getExpenseDate());
+            assertEquals(event.getBefore().getAmount(), event.getAfter().getAmount());
+        }
+        // Items 0 and 1 move into October, joining 3, 4 and 5; item 2 stays in September
+        assertEquals(1000 + 2000 + 4000 + 5000 + 6000, dao.getTotal(ExpenseQuery.forUser(userId).inMonth(2024, 10)));
+        assertEquals(3000, dao.getTotal(ExpenseQuery.forUser(userId).inMonth(2024, 9)));
+        assertRollupsExact();
+    }
+
+    @Test
+    void emptyOperationsChangeNothing() {
+        assertEquals(0, dao.deleteExpenses(userId, List.of()));
+        assertEquals(0, dao.updateCategory(userId, List.of(), "Bills"));
+        assertEquals(0, dao.shiftDates(userId, ids, 0));
+        assertEquals(0, dao.deleteExpenses(userId, List.of(otherExpenseId)));
+
+        assertEquals(List.of(), eventsOf(userId));
+        assertEquals(6, dao.countExpenses(ExpenseQuery.forUser(userId)));
+    }
+
+    @Test
+    void idSetsLargerThanTheVariableLimitAreOneStatement() throws Exception {
+        List<Expense> many = new ArrayList<>();
+        for (int i = 0; i < 1500; i++) {
+            many.add(new Expense(userId, "Bulk " + i, 100, "Bills", START, null));
+        }
+        assertEquals(1500, dao.addExpenses(many).getSuccessCount());
+        List<Integer> manyIds = new ArrayList<>();
+        for (Expense expense : many) {
+            manyIds.add(expense.getExpenseId());
+        }
+
+        assertEquals(1500, dao.updateCategory(userId, manyIds, "Health"));
+        assertEquals(1500, dao.deleteExpenses(userId, manyIds));
+        assertEquals(6, dao.countExpenses(ExpenseQuery.forUser(userId)));
+        assertRollupsExact();
+    }
+}
@@ -0,0 +1,165 @@
+package dao;
+
+import model.Expense;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import util.TestDatabase;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Expense Event Bus Test
+ * Listeners get each committed write as one batch, in order, even when another listener
+ * fails, and write stamps tell a load whether a write of its user overlapped it.
+ * Events made up here belong to users that do not exist, so other listeners ignore them.
+ */
+class ExpenseEventBusTest {
+    private static final int USER = -100;
+
+    private final ExpenseEventBus bus = ExpenseEventBus.getInstance();
+    private final List<ExpenseChangeListener> subscribed = new ArrayList<>();
+
+    @AfterEach
+    void unsubscribe() {
+        for (ExpenseChangeListener listener : subscribed) {
+            bus.unsubscribe(listener);
+        }
+    }
+
+    private static Expense expense(int id) {
+        Expense expense = new Expense(USER, "Item " + id, 100, "Food", LocalDate.of(2024, 1, 1), null);
+        expense.setExpenseId(id);
+        return expense;
+    }
+
+    /**
+     * Records the batches it is handed and, through the default expensesChanged(), each change
+     */
+    private class Recorder implements ExpenseChangeListener {
+        private final List<List<ExpenseEvent>> batches = new ArrayList<>();
+        private final List<String> changes = new ArrayList<>();
+
+        Recorder() {
+            bus.subscribe(this);
+            subscribed.add(this);
+        }
+
+        @Override
+        public void expensesChanged(List<ExpenseEvent> events) {
+            batches.add(events);
+            ExpenseChangeListener.super.expensesChanged(events);
+        }
+
+        @Override
+        public void expenseAdded(Expense expense) {
+            changes.add("added " + expense.getExpenseId());
+        }
+
+        @Override
+        public void expenseUpdated(Expense before, Expense after) {
+            changes.add("updated " + before.getExpenseId() + " " + after.getTitle());
+        }
+
+        @Override
+        public void expenseDeleted(Expense expense) {
+            changes.add("deleted " + expense.getExpenseId());
+        }
+    }
+
+    @Test
+    void eachWriteArrivesAsOneBatchInOrder() {
+        Recorder recorder = new Recorder();
+        Expense renamed = expense(2);
+        renamed.setTitle("Renamed");
+
+        bus.publish(List.of(ExpenseEvent.added(expense(1)), ExpenseEvent.updated(expense(2), renamed)));
+        bus.publish(List.of(ExpenseEvent.deleted(expense(1))));
+        bus.publish(List.of());
+
+        assertEquals(2, recorder.batches.size());
+        assertEquals(List.of("added 1", "updated 2 Renamed", "deleted 1"), recorder.changes);
+    }
+
+    @Test
+    void aFailingListenerDoesNotStopTheOthers() {
+        // Subscribed first, so it fails before the other listener is reached
+        new Recorder() {
+            @Override
+            public void expensesChanged(List<ExpenseEvent> events) {
+                throw new IllegalStateException("listener failed");
+            }
+        };
+        Recorder after = new Recorder();
+
+        bus.publish(List.of(ExpenseEvent.added(expense(3))));
+
+        assertEquals(List.of("added 3"), after.changes);
+    }
+
+    @Test
+    void unsubscribedListenersHearNothing() {
+        Recorder recorder = new Recorder();
+        bus.unsubscribe(recorder);
+
+        bus.publish(List.of(ExpenseEvent.added(expense(4))));
+
+        assertEquals(List.of(), recorder.changes);
+    }
+
+    @Test
+    void stampsSeeOverlappingWritesOfTheSameUserOnly() {
+        long stamp = bus.writeStamp(USER);
+        assertNotEquals(ExpenseEventBus.NO_STAMP, stamp);
+        assertTrue(bus.isUnchangedSince(USER, stamp));
+
+        // Another stripe
+        bus.beginWrite(USER + 1);
+        bus.endWrite(USER + 1);
+        assertTrue(bus.isUnchangedSince(USER, stamp));
+
+        bus.beginWrite(USER);
+        try {
+            assertEquals(ExpenseEventBus.NO_STAMP, bus.writeStamp(USER));
+            assertFalse(bus.isUnchangedSince(USER, ExpenseEventBus.NO_STAMP));
+        } finally {
+            bus.endWrite(USER);
+        }
+        assertFalse(bus.isUnchangedSince(USER, stamp));
+        assertTrue(bus.isUnchangedSince(USER, bus.writeStamp(USER)));
+    }
+
+    @Test
+    void daoPublishesOnlyOnceTheWriteIsVisible() throws Exception {
+        int userId = TestDatabase.newUser();
+        ExpenseDAO dao = new ExpenseDAO();
+        List<Boolean> visible = new ArrayList<>();
+        new Recorder() {
+            @Override
+            public void expenseAdded(Expense expense) {
+                if (expense.getUserId() == userId) {
+                    visible.add(dao.findById(userId, expense.getExpenseId()) != null);
+                }
+            }
+
+            @Override
+            public void expenseDeleted(Expense expense) {
+                if (expense.getUserId() == userId) {
+                    visible.add(dao.findById(userId, expense.getExpenseId()) != null);
+                }
+            }
+        };
+
+        Expense expense = new Expense(userId, "Lunch", 1200, "Food", LocalDate.of(2024, 2, 1), null);
+        assertTrue(dao.addExpense(expense));
+        assertTrue(dao.deleteExpense(userId, expense.getExpenseId()));
+
+        assertEquals(List.of(true, false), visible);
+    }
+}
@@ -0,0 +1,218 @@
+package dao;
+
+import model.Expense;
+import model.ExpenseCursor;
+import model.ExpensePage;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import util.TestDatabase;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Expense Paging Test
+ * Keyset pages over (sort key, expense_id) must list every expense once, newest first or in
+ * the order the query picks, including runs of expenses that share a sort key, and a seek
+ * over several pages must land where walking them does.
+ */
+class ExpensePagingTest {
+    private static final LocalDate START = LocalDate.of(2024, 1, 1);
+
+    private static final ExpenseDAO DAO = new ExpenseDAO();
+    private static int userId;
+    private static List<Integer> newestFirst;
+
+    @BeforeAll
+    static void addExpenses() throws Exception {
+        userId = TestDatabase.newUser();
+
+        // Three expenses per day, so page boundaries fall inside runs of equal dates
+        List<Expense> expenses = new ArrayList<>();
+        for (int i = 0; i < 30; i++) {
+            String category = i % 2 == 0 ? "Food" : "Travel";
+            expenses.add(new Expense(userId, "Item " + i, 100 + i, category, START.plusDays(i / 3), null));
+        }
+        assertEquals(30, DAO.addExpenses(expenses).getSuccessCount());
+
+        newestFirst = new ArrayList<>();
+        for (int i = expenses.size() - 1; i >= 0; i--) {
+            newestFirst.add(expenses.get(i).getExpenseId());
+        }
+    }
+
+    private static List<Integer> walk(ExpenseQuery query, int pageSize) {
+        List<Integer> ids = new ArrayList<>();
+        ExpenseCursor cursor = null;
+        do {
+            ExpensePage page = DAO.getExpensePage(query, cursor, pageSize);
+            assertTrue(page.getExpenses().size() <= pageSize);
+            for (Expense expense : page.getExpenses()) {
+                ids.add(expense.getExpenseId());
+            }
+            cursor = page.getNextCursor();
+            assertEquals(cursor != null, page.hasMore());
+        } while (cursor != null);
+        return ids;
+    }
+
+    @Test
+    void pagesListEveryExpenseOnceNewestFirst() {
+        for (int pageSize : new int[] {1, 4, 7, 30, 50}) {
+            assertEquals(newestFirst, walk(ExpenseQuery.forUser(userId), pageSize), "page size " + pageSize);
+        }
+    }
+
+    @Test
+    void pagesMatchTheUnpagedListing() {
+        ExpenseQuery food = ExpenseQuery.forUser(userId).inCategory("Food");
+        List<Integer> expected = new ArrayList<>();
+        for (Expense expense : DAO.findExpenses(food)) {
+            expected.add(expense.getExpenseId());
+        }
+        assertEquals(15, expected.size());
+        assertEquals(expected, walk(food, 4));
+
+        ExpenseQuery range = ExpenseQuery.forUser(userId).between(START.plusDays(2), START.plusDays(5));
+        assertEquals(newestFirst.subList(15, 24), walk(range, 2));
+    }
+
+    @Test
+    void lastFullPageHasNoNextCursor() {
+        ExpensePage page = DAO.getExpensePage(ExpenseQuery.forUser(userId), null, 30);
+        assertEquals(30, page.getExpenses().size());
+        assertFalse(page.hasMore());
+        assertNull(page.getNextCursor());
+    }
+
+    @Test
+    void pageEndMatchesTheLastExpenseOfThePage() {
+        ExpenseQuery query = ExpenseQuery.forUser(userId);
+        ExpenseCursor cursor = null;
+        for (int page = 0; page < 4; page++) {
+            ExpenseCursor end = DAO.findPageEnd(query, cursor, 7);
+            ExpensePage loaded = DAO.getExpensePage(query, cursor, 7);
+            assertNotNull(end);
+            Expense last = loaded.getExpenses().get(loaded.getExpenses().size() - 1);
+            assertEquals(last.getExpenseId(), end.getExpenseId());
+            assertEquals(last.getExpenseDate(), end.getExpenseDate());
+            cursor = end;
+        }
+        // 28 rows are behind the cursor, so no page of 7 ends among the last 2
+        assertNull(DAO.findPageEnd(query, cursor, 7));
+    }
+
+    @Test
+    void newerExpensesDoNotShiftLaterPages() throws Exception {
+        int otherUser = TestDatabase.newUser();
+        List<Expense> expenses = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            expenses.add(new Expense(otherUser, "Item " + i, 100, "Food", START.plusDays(i), null));
+        }
+        DAO.addExpenses(expenses);
+
+        ExpenseQuery query = ExpenseQuery.forUser(otherUser);
+        ExpensePage first = DAO.getExpensePage(query, null, 3);
+        assertTrue(DAO.addExpense(new Expense(otherUser, "Late", 100, "Food", START.plusDays(10), null)));
+        ExpensePage second = DAO.getExpensePage(query, first.getNextCursor(), 3);
+
+        assertEquals(List.of(expenses.get(2).getExpenseId(), expenses.get(1).getExpenseId(),
+                expenses.get(0).getExpenseId()), second.getExpenses().stream().map(Expense::getExpenseId).toList());
+        assertFalse(second.hasMore());
+    }
+
+    /**
+     * Expenses with repeated dates, amounts and titles that differ only in case, so every
+     * order has ties for expense_id to break
+     */
+    private static List<Expense> addExpensesWithTies() throws Exception {
+        int otherUser = TestDatabase.newUser();
+        String[] titles = {"apple", "Banana", "cherry", "Apple"};
+        List<Expense> expenses = new ArrayList<>();
+        for (int i = 0; i < 24; i++) {
+            expenses.add(new Expense(otherUser, titles[i % 4], 100 * (1 + i % 5), "Food", START.plusDays(i % 6), null));
+        }
+        assertEquals(24, DAO.addExpenses(expenses).getSuccessCount());
+        return expenses;
+    }
+
+    private static List<Integer> sortedIds(List<Expense> expenses, ExpenseOrder order) {
+        Comparator<Expense> byKey;
+        switch (order) {
+            case NEWEST_FIRST:
+            case OLDEST_FIRST:
+                byKey = Comparator.comparing(Expense::getExpenseDate);
+                break;
+            case LARGEST_FIRST:
+            case SMALLEST_FIRST:
+                byKey = Comparator.comparingLong(Expense::getAmount);
+                break;
+            default:
+                byKey = Comparator.comparing(Expense::getTitle, String.CASE_INSENSITIVE_ORDER);
+        }
+        Comparator<Expense> comparator = byKey.thenComparingInt(Expense::getExpenseId);
+        return expenses.stream()
+                .sorted(order.isDescending() ? comparator.reversed() : comparator)
+                .map(Expense::getExpenseId)
+                .toList();
+    }
+
+    @Test
+    void everyOrderListsEveryExpenseOnce() throws Exception {
+        List<Expense> expenses = addExpensesWithTies();
+        int otherUser = expenses.get(0).getUserId();
+
+        for (ExpenseOrder order : ExpenseOrder.values()) {
+            ExpenseQuery query = ExpenseQuery.forUser(otherUser).orderBy(order);
+            for (int pageSize : new int[] {1, 5, 24}) {
+                assertEquals(sortedIds(expenses, order), walk(query, pageSize), order + ", page size " + pageSize);
+            }
+        }
+    }
+
+    @Test
+    void seekLandsWhereWalkingDoes() throws Exception {
+        List<Expense> expenses = addExpensesWithTies();
+        int otherUser = expenses.get(0).getUserId();
+
+        for (ExpenseOrder order : ExpenseOrder.values()) {
+            ExpenseQuery query = ExpenseQuery.forUser(otherUser).orderBy(order);
+            List<Integer> expected = sortedIds(expenses, order);
+
+            // Three pages of 5 skipped in one query, then a page read from there
+            ExpenseCursor start = DAO.findPageEnd(query, null, 15);
+            assertNotNull(start, order.name());
+            assertEquals(expected.get(14).intValue(), start.getExpenseId(), order.name());
+            List<Integer> page = DAO.getExpensePage(query, start, 5).getExpenses().stream()
+                    .map(Expense::getExpenseId).toList();
+            assertEquals(expected.subList(15, 20), page, order.name());
+
+            // A seek from a cursor counts from there
+            ExpenseCursor next = DAO.findPageEnd(query, start, 5);
+            assertEquals(expected.get(19).intValue(), next.getExpenseId(), order.name());
+            assertNull(DAO.findPageEnd(query, next, 5), order.name());
+        }
+    }
+
+    @Test
+    void orderedSearchSortsTheMatches() throws Exception {
+        List<Expense> expenses = addExpensesWithTies();
+        int otherUser = expenses.get(0).getUserId();
+        List<Expense> apples = expenses.stream().filter(e -> e.getTitle().equalsIgnoreCase("apple")).toList();
+
+        ExpenseQuery query = ExpenseQuery.forUser(otherUser).matching("apple").orderBy(ExpenseOrder.LARGEST_FIRST);
+        List<Integer> found = DAO.search(query, 100, 0).stream().map(Expense::getExpenseId).toList();
+        assertEquals(sortedIds(apples, ExpenseOrder.LARGEST_FIRST), found);
+
+        List<Integer> secondPage = DAO.search(query, 4, 4).stream().map(Expense::getExpenseId).toList();
+        assertEquals(found.subList(4, 8), secondPage);
+    }
+}
@@ -0,0 +1,84 @@
+package dao;
+
+import model.Expense;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import util.TestDatabase;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+/**
+ * Expense Query Test
+ * The in-memory filter must pick exactly the expenses the SQL filter does, so a change
+ * can be placed in or out of a listing without running the listing again. Categories
+ * match the way categories.name's NOCASE collation matches them.
+ */
+class ExpenseQueryTest {
+    private static final LocalDate START = LocalDate.of(2024, 1, 20);
+
+    private static final ExpenseDAO DAO = new ExpenseDAO();
+    private static int userId;
+    private static List<Expense> expenses;
+
+    @BeforeAll
+    static void addExpenses() throws Exception {
+        userId = TestDatabase.newUser();
+
+        // Ten days either side of a month boundary, in two categories
+        expenses = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            String category = i % 3 == 0 ? "Travel" : i % 3 == 1 ? "Food" : "Éducation";
+            expenses.add(new Expense(userId, "Item " + i, 100 + i, category, START.plusDays(i), null));
+        }
+        assertEquals(20, DAO.addExpenses(expenses).getSuccessCount());
+    }
+
+    private static void assertMatchesAgree(ExpenseQuery query) {
+        List<Integer> expected = new ArrayList<>();
+        for (Expense expense : DAO.findExpenses(query)) {
+            expected.add(expense.getExpenseId());
+        }
+        List<Integer> matched = new ArrayList<>();
+        for (Expense expense : expenses) {
+            if (query.matches(expense)) {
+                matched.add(expense.getExpenseId());
+            }
+        }
+        expected.sort(null);
+        matched.sort(null);
+        assertEquals(expected, matched, query.toString());
+    }
+
+    @Test
+    void matchesPicksWhatTheDatabaseReturns() {
+        assertMatchesAgree(ExpenseQuery.forUser(userId));
+        assertMatchesAgree(ExpenseQuery.forUser(userId).inCategory("Food"));
+        assertMatchesAgree(ExpenseQuery.forUser(userId).inMonth(2024, 2));
+        assertMatchesAgree(ExpenseQuery.forUser(userId).onDate(START.plusDays(3)));
+        assertMatchesAgree(ExpenseQuery.forUser(userId).between(START.plusDays(5), null));
+        assertMatchesAgree(ExpenseQuery.forUser(userId).inMonth(2024, 1).inCategory("Travel"));
+    }
+
+    @Test
+    void categoriesMatchRegardlessOfCase() {
+        assertMatchesAgree(ExpenseQuery.forUser(userId).inCategory("food"));
+        assertMatchesAgree(ExpenseQuery.forUser(userId).inCategory("TRAVEL"));
+        assertMatchesAgree(ExpenseQuery.forUser(userId).inMonth(2024, 2).inCategory("fOOD"));
+        // NOCASE folds only ASCII letters
+        assertMatchesAgree(ExpenseQuery.forUser(userId).inCategory("ÉDUCATION"));
+        assertMatchesAgree(ExpenseQuery.forUser(userId).inCategory("éducation"));
+    }
+
+    @Test
+    void otherUsersExpensesNeverMatch() throws Exception {
+        ExpenseQuery other = ExpenseQuery.forUser(TestDatabase.newUser());
+        for (Expense expense : expenses) {
+            assertFalse(other.matches(expense));
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package dao;
+
+import model.Expense;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import util.TestDatabase;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Expense Search Test
+ * Search must find every word of the text as a prefix in a title or description, of the
+ * searching user's expenses only, rank title hits first, and follow every write.
+ */
+class ExpenseSearchTest {
+    private static final LocalDate DAY = LocalDate.of(2024, 7, 15);
+
+    private final ExpenseDAO dao = new ExpenseDAO();
+
+    @BeforeAll
+    static void initDatabase() {
+        TestDatabase.init();
+    }
+
+    private static List<String> titles(List<Expense> expenses) {
+        List<String> titles = new ArrayList<>();
+        for (Expense expense : expenses) {
+            titles.add(expense.getTitle());
+        }
+        return titles;
+    }
+
+    private Expense add(int userId, String title, String description, String category, LocalDate date) {
+        Expense expense = new Expense(userId, title, 1000, category, date, description);
+        assertTrue(dao.addExpense(expense));
+        return expense;
+    }
+
+    @Test
+    void textBecomesQuotedPrefixTerms() {
+        assertEquals("\"coffee\"* \"shop\"*", ExpenseQuery.toMatchExpression("  coffee, shop! "));
+        // FTS5 syntax is taken literally, never as operators
+        assertEquals("\"tea\"* \"OR\"* \"NEAR\"* \"x\"*", ExpenseQuery.toMatchExpression("tea\" OR NEAR(x*"));
+        assertEquals("\"1\"* \"2\"* \"3\"* \"4\"* \"5\"* \"6\"* \"7\"* \"8\"*",
+                ExpenseQuery.toMatchExpression("1 2 3 4 5 6 7 8 9 10"));
+        assertNull(ExpenseQuery.toMatchExpression("  -- !! "));
+        assertNull(ExpenseQuery.toMatchExpression(null));
+    }
+
+    @Test
+    void everyWordMustMatchAsAPrefix() throws Exception {
+        int userId = TestDatabase.newUser();
+        add(userId, "Coffee beans", null, "Food", DAY);
+        add(userId, "Coffee shop", "Flat white", "Food", DAY);
+        add(userId, "Bookshop", null, "Shopping", DAY);
+
+        List<String> coffee = titles(dao.search(userId, "cof", 10));
+        coffee.sort(null);
+        assertEquals(List.of("Coffee beans", "Coffee shop"), coffee);
+        assertEquals(List.of("Coffee shop"), titles(dao.search(userId, "coffee sh", 10)));
+        assertEquals(List.of("Coffee shop"), titles(dao.search(userId, "white", 10)));
+        assertEquals(List.of(), titles(dao.search(userId, "shopping", 10)));
+        assertEquals(List.of(), dao.search(userId, " ?! ", 10));
+    }
+
+    @Test
+    void accentsAndCaseAreIgnored() throws Exception {
+        int userId = TestDatabase.newUser();
+        add(userId, "Café crème", null, "Food", DAY);
+
+        assertEquals(List.of("Café crème"), titles(dao.search(userId, "CAFE CREME", 10)));
+    }
+
+    @Test
+    void titleHitsRankAboveDescriptionHits() throws Exception {
+        int userId = TestDatabase.newUser();
+        add(userId, "Groceries", "Bread and pizza dough", "Food", DAY.plusDays(1));
+        add(userId, "Pizza", null, "Food", DAY);
+
+        assertEquals(List.of("Pizza", "Groceries"), titles(dao.search(userId, "pizza", 10)));
+    }
+
+    @Test
+    void onlyTheSearchingUsersExpensesAreFound() throws Exception {
+        int userId = TestDatabase.newUser();
+        int otherId = TestDatabase.newUser();
+        add(otherId, "Umbrella", null, "Shopping", DAY);
+
+        assertEquals(List.of(), dao.search(userId, "umbrella", 10));
+        assertEquals(1, dao.search(otherId, "umbrella", 10).size());
+    }
+
+    @Test
+    void theIndexFollowsUpdatesAndDeletes() throws Exception {
+        int userId = TestDatabase.newUser();
+        Expense expense = add(userId, "Cinema tickets", "Evening show", "Entertainment", DAY);
+
+        Expense renamed = new Expense(expense);
+        renamed.setTitle("Theatre tickets");
+        renamed.setDescription(null);
+        assertTrue(dao.updateExpense(renamed));
+        assertEquals(List.of(), dao.search(userId, "cinema", 10));
+        assertEquals(List.of(), dao.search(userId, "evening", 10));
+        assertEquals(List.of("Theatre tickets"), titles(dao.search(userId, "theatre", 10)));
+
+        assertTrue(dao.deleteExpense(userId, expense.getExpenseId()));
+        assertEquals(List.of(), dao.search(userId, "tickets", 10));
+    }
+
+    @Test
+    void textCombinesWithTheOtherFilters() throws Exception {
+        int userId = TestDatabase.newUser();
+        add(userId, "Taxi to airport", null, "Travel", DAY);
+        add(userId, "Taxi home", null, "Travel", DAY.plusMonths(1));
+        add(userId, "Taxi snack", null, "Food", DAY);
+
+        ExpenseQuery query = ExpenseQuery.forUser(userId).matching("taxi")
+                .inMonth(DAY.getYear(), DAY.getMonthValue()).inCategory("travel");
+
+        assertEquals(List.of("Taxi to airport"), titles(dao.search(query, 10, 0)));
+        assertEquals(1, dao.countExpenses(query));
+        assertEquals(1000, dao.getTotal(query));
+    }
+
+    @Test
+    void pagesOfResultsAddUpToAllOfThem() throws Exception {
+        int userId = TestDatabase.newUser();
+        for (int i = 0; i < 7; i++) {
+            add(userId, "Parking " + i, null, "Travel", DAY.plusDays(i));
+        }
+
+        List<String> all = titles(dao.search(userId, "parking", 10));
+        List<String> paged = new ArrayList<>();
+        for (int offset = 0; offset < 10; offset += 3) {
+            paged.addAll(titles(dao.search(userId, "parking", 3, offset)));
+        }
+
+        assertEquals(7, all.size());
+        assertEquals(all, paged);
+    }
+}
@@ -0,0 +1,147 @@
+package dao;
+
+import model.Expense;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import util.DatabaseUtil;
+import util.TestDatabase;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Expense Write Queue Test
+ * Runs queues of their own against the test shards. A linger time keeps writes submitted
+ * back to back in one group, so a failing write shares its transaction with good ones.
+ */
+class ExpenseWriteQueueTest {
+    private static final long TIMEOUT_SECONDS = 10;
+
+    private final ExpenseDAO dao = new ExpenseDAO();
+    private ExpenseWriteQueue queue;
+
+    @BeforeAll
+    static void initDatabase() {
+        TestDatabase.init();
+    }
+
+    @AfterEach
+    void shutdownQueue() {
+        if (queue != null) {
+            queue.shutdown();
+        }
+    }
+
+    private ExpenseWriteQueue newQueue(long lingerMillis) {
+        queue = new ExpenseWriteQueue(DatabaseUtil.getShardRouter(), 64, 32, lingerMillis, 1000);
+        return queue;
+    }
+
+    private static <T> T await(CompletableFuture<T> future) throws Exception {
+        return future.get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+    }
+
+    @Test
+    void addUpdateAndDeleteAreCommitted() throws Exception {
+        ExpenseWriteQueue queue = newQueue(0);
+        int userId = TestDatabase.newUser();
+
+        Expense expense = new Expense(userId, "Lunch", 450, "food", LocalDate.now(), null);
+        assertTrue(await(queue.add(expense)));
+        assertTrue(expense.getExpenseId() > 0);
+        assertEquals("Food", dao.findById(userId, expense.getExpenseId()).getCategory());
+
+        Expense edited = new Expense(expense);
+        edited.setTitle("Dinner");
+        edited.setAmount(900);
+        assertTrue(await(queue.update(edited)));
+        assertEquals(900, dao.findById(userId, expense.getExpenseId()).getAmount());
+
+        Expense missing = new Expense(edited);
+        missing.setExpenseId(Integer.MAX_VALUE);
+        assertFalse(await(queue.update(missing)));
+
+        assertEquals(1, await(queue.delete(userId, List.of(expense.getExpenseId(), Integer.MAX_VALUE))));
+        assertNull(dao.findById(userId, expense.getExpenseId()));
+        assertEquals(0, await(queue.delete(userId, List.of())));
+    }
+
+    @Test
+    void failingWritesDoNotFailTheirGroup() throws Exception {
+        ExpenseWriteQueue queue = newQueue(200);
+        int userId = TestDatabase.newUser();
+
+        Expense first = new Expense(userId, "First", 100, "Food", LocalDate.now(), null);
+        // NOT NULL constraint on title: an SQLException inside the group
+        Expense noTitle = new Expense(userId, null, 200, "Food", LocalDate.now(), null);
+        // A null date throws NullPointerException while binding
+        Expense noDate = new Expense(userId, "No date", 300, "Food", null, null);
+        Expense last = new Expense(userId, "Last", 400, "Food", LocalDate.now(), null);
+
+        List<CompletableFuture<Boolean>> futures = new ArrayList<>();
+        for (Expense expense : List.of(first, noTitle, noDate, last)) {
+            futures.add(queue.add(expense));
+        }
+
+        assertTrue(await(futures.get(0)));
+        assertFalse(await(futures.get(1)));
+        assertFalse(await(futures.get(2)));
+        assertTrue(await(futures.get(3)));
+        assertEquals(500, dao.getTotal(ExpenseQuery.forUser(userId)));
+        assertEquals(2, dao.countExpenses(ExpenseQuery.forUser(userId)));
+    }
+
+    @Test
+    void interruptedWriterIsReplaced() throws Exception {
+        ExpenseWriteQueue queue = newQueue(0);
+        int userId = TestDatabase.newUser();
+        assertTrue(await(queue.add(new Expense(userId, "Before", 100, "Food", LocalDate.now(), null))));
+
+        String name = "expense-writer-" + DatabaseUtil.getShardRouter().shardOf(userId);
+        Thread writer = null;
+        for (Thread thread : Thread.getAllStackTraces().keySet()) {
+            if (thread.getName().equals(name) && thread.isAlive()) {
+                writer = thread;
+            }
+        }
+        assertNotNull(writer);
+        writer.interrupt();
+        writer.join(TimeUnit.SECONDS.toMillis(TIMEOUT_SECONDS));
+        assertFalse(writer.isAlive());
+
+        assertTrue(await(queue.add(new Expense(userId, "After", 200, "Food", LocalDate.now(), null))));
+        assertEquals(300, dao.getTotal(ExpenseQuery.forUser(userId)));
+    }
+
+    @Test
+    void shutdownCommitsQueuedWritesThenRejects() throws Exception {
+        ExpenseWriteQueue queue = newQueue(50);
+        int userId = TestDatabase.newUser();
+
+        List<CompletableFuture<Boolean>> futures = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            futures.add(queue.add(new Expense(userId, "Item " + i, 10, "Food", LocalDate.now(), null)));
+        }
+        queue.shutdown();
+
+        for (CompletableFuture<Boolean> future : futures) {
+            assertTrue(future.isDone());
+            assertTrue(await(future));
+        }
+        assertEquals(200, dao.getTotal(ExpenseQuery.forUser(userId)));
+        assertThrows(RejectedExecutionException.class,
+                () -> queue.add(new Expense(userId, "Late", 10, "Food", LocalDate.now(), null)));
+    }
+}
@@ -0,0 +1,166 @@
+package dao;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DynamicTest;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestFactory;
+import util.DatabaseUtil;
+import util.TestDatabase;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Query Plan Test
+ * Runs EXPLAIN QUERY PLAN for every ExpenseDAO read path and fails any that falls back
+ * to a full scan of the expenses or expense_rollups table. Text searches must go through
+ * the expenses_fts index; ranked search and top categories may sort, since neither rank
+ * nor a category's total is held in any index.
+ */
+class QueryPlanTest {
+
+    @BeforeAll
+    static void initDatabase() {
+        TestDatabase.init();
+    }
+
+    /**
+     * Representative query for every filter shape the DAO issues
+     */
+    private static Map<String, ExpenseQuery> readPathQueries() {
+        LocalDate today = LocalDate.now();
+        Map<String, ExpenseQuery> queries = new LinkedHashMap<>();
+        queries.put("all", ExpenseQuery.forUser(1));
+        queries.put("month", ExpenseQuery.forUser(1).inMonth(today.getYear(), today.getMonthValue()));
+        queries.put("day", ExpenseQuery.forUser(1).onDate(today));
+        queries.put("year", ExpenseQuery.forUser(1).inYear(today.getYear()));
+        queries.put("category", ExpenseQuery.forUser(1).inCategory("Food"));
+        queries.put("month+category", ExpenseQuery.forUser(1).inMonth(today.getYear(), today.getMonthValue())
+                .inCategory("Food"));
+        queries.put("open range", ExpenseQuery.forUser(1).between(today.minusDays(30), null));
+        queries.put("text", ExpenseQuery.forUser(1).matching("coffee"));
+        queries.put("month+text", ExpenseQuery.forUser(1).inMonth(today.getYear(), today.getMonthValue())
+                .matching("coffee shop"));
+        return queries;
+    }
+
+    @TestFactory
+    Stream<DynamicTest> everyReadPathUsesAnIndex() {
+        List<DynamicTest> tests = new ArrayList<>();
+        for (Map.Entry<String, ExpenseQuery> entry : readPathQueries().entrySet()) {
+            String shape = entry.getKey();
+            ExpenseQuery query = entry.getValue();
+            tests.add(planTest("select[" + shape + "]", ExpenseDAO.selectSql(query), query, false));
+            tests.add(planTest("total[" + shape + "]", ExpenseDAO.totalSql(query), query, false));
+            tests.add(planTest("categoryTotals[" + shape + "]", ExpenseDAO.categoryTotalsSql(query), query, false));
+            tests.add(planTest("topCategories[" + shape + "]", ExpenseDAO.topCategoriesSql(query), query, true));
+            tests.add(planTest("count[" + shape + "]", ExpenseDAO.countSql(query), query, false));
+            tests.add(planTest("page[" + shape + "]", ExpenseDAO.pageSql(query, true), query, false));
+            tests.add(planTest("pageEnd[" + shape + "]", ExpenseDAO.pageEndSql(query, true), query, false));
+            tests.add(planTest("stream[" + shape + "]", ExpenseDAO.streamSql(query), query, false));
+            if (query.getSearchText() != null) {
+                tests.add(planTest("search[" + shape + "]", ExpenseDAO.searchSql(query), query, true));
+            }
+        }
+        return tests.stream();
+    }
+
+    /**
+     * Every listing order must page in index order, without sorting, over all of a user's
+     * expenses; date ranges and categories narrow a listing enough that the planner may sort
+     */
+    @TestFactory
+    Stream<DynamicTest> everyListingOrderPagesInIndexOrder() {
+        List<DynamicTest> tests = new ArrayList<>();
+        for (ExpenseOrder order : ExpenseOrder.values()) {
+            ExpenseQuery query = ExpenseQuery.forUser(1).orderBy(order);
+            tests.add(planTest("page[" + order + "]", ExpenseDAO.pageSql(query, false), query, false));
+            tests.add(planTest("pageAfter[" + order + "]", ExpenseDAO.pageSql(query, true), query, false));
+            tests.add(planTest("pageEnd[" + order + "]", ExpenseDAO.pageEndSql(query, true), query, false));
+
+            ExpenseQuery search = ExpenseQuery.forUser(1).matching("coffee").orderBy(order);
+            tests.add(planTest("search[" + order + "]", ExpenseDAO.searchSql(search), search, true));
+        }
+        return tests.stream();
+    }
+
+    @Test
+    void findByIdLooksUpThePrimaryKey() throws SQLException {
+        try (Connection conn = DatabaseUtil.getConnection()) {
+            List<String> plan = explain(conn, ExpenseDAO.FIND_BY_ID_SQL, null);
+            assertEquals(List.of(), problems(plan, null, false), "plan: " + plan);
+        }
+    }
+
+    /**
+     * @param sorted Whether the query orders by a computed value, so sorting its result is expected
+     */
+    private static DynamicTest planTest(String name, String sql, ExpenseQuery query, boolean sorted) {
+        return DynamicTest.dynamicTest(name, () -> {
+            try (Connection conn = DatabaseUtil.getConnection()) {
+                List<String> plan = explain(conn, sql, query);
+                assertEquals(List.of(), problems(plan, query, sorted), "plan: " + plan);
+            }
+        });
+    }
+
+    private static List<String> problems(List<String> plan, ExpenseQuery query, boolean sorted) {
+        List<String> problems = new ArrayList<>();
+        boolean usesIndex = false;
+
+        for (String detail : plan) {
+            boolean fullTextIndex = detail.contains("expenses_fts VIRTUAL TABLE INDEX");
+            boolean expenseTable = detail.contains("expenses") || detail.contains("expense_rollups");
+            if (expenseTable && detail.startsWith("SCAN") && !detail.contains("USING") && !fullTextIndex) {
+                problems.add("full table scan (" + detail + ")");
+            }
+            if (sorted && fullTextIndex) {
+                usesIndex = true;
+            }
+            // With a text filter only the matching rows are left to sort, which the planner may prefer
+            if (!sorted && (query == null || query.getSearchText() == null) && detail.contains("TEMP B-TREE FOR ORDER BY")) {
+                problems.add("sorts rows instead of reading them in index order (" + detail + ")");
+            }
+            // expense_rollups is a WITHOUT ROWID table, so its key lookups show as PRIMARY KEY;
+            // lookups by expense_id go straight to the rowid
+            if (detail.contains("USING INDEX") || detail.contains("USING COVERING INDEX")
+                    || detail.contains("USING PRIMARY KEY") || detail.contains("USING INTEGER PRIMARY KEY")) {
+                usesIndex = true;
+            }
+        }
+
+        if (!usesIndex) {
+            problems.add("no index used");
+        }
+        return problems;
+    }
+
+    /**
+     * @param query Query whose parameters to bind, or null to explain with every parameter unbound
+     */
+    private static List<String> explain(Connection conn, String sql, ExpenseQuery query) throws SQLException {
+        List<String> details = new ArrayList<>();
+
+        try (PreparedStatement pstmt = conn.prepareStatement("EXPLAIN QUERY PLAN " + sql)) {
+            if (query != null) {
+                query.bind(pstmt, 1);
+            }
+            ResultSet rs = pstmt.executeQuery();
+            while (rs.next()) {
+                details.add(rs.getString("detail"));
+            }
+        }
+
+        return details;
+    }
+}
@@ -0,0 +1,129 @@
+package dao;
+
+import model.Expense;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import util.DatabaseUtil;
+import util.TestDatabase;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Rollup Trigger Test
+ * Every kind of expense write must leave expense_rollups equal to a fresh aggregation,
+ * and month-aligned totals read from the rollups must match the expenses themselves.
+ */
+class RollupTriggerTest {
+    private static final LocalDate MARCH = LocalDate.of(2024, 3, 1);
+
+    private final ExpenseDAO dao = new ExpenseDAO();
+
+    @BeforeAll
+    static void initDatabase() {
+        TestDatabase.init();
+    }
+
+    private static void assertRollupsExact(int userId) throws Exception {
+        try (Connection conn = DatabaseUtil.getConnection(userId)) {
+            assertEquals(List.of(), new RollupMaintenance().verify(conn));
+        }
+    }
+
+    private static int rollupRows(int userId) throws Exception {
+        try (Connection conn = DatabaseUtil.getConnection(userId);
+             PreparedStatement pstmt = conn.prepareStatement("SELECT COUNT(*) FROM expense_rollups WHERE user_id = ?")) {
+            pstmt.setInt(1, userId);
+            ResultSet rs = pstmt.executeQuery();
+            rs.next();
+            return rs.getInt(1);
+        }
+    }
+
+    @Test
+    void rollupsFollowEveryWrite() throws Exception {
+        int userId = TestDatabase.newUser();
+
+        List<Expense> expenses = new ArrayList<>();
+        for (int i = 0; i < 12; i++) {
+            expenses.add(new Expense(userId, "Item " + i, 1000 + i, i % 3 == 0 ? "Bills" : "Food",
+                    MARCH.plusDays(i * 5), null));
+        }
+        dao.addExpenses(expenses);
+        Expense single = new Expense(userId, "Single", 250, "Health", MARCH.plusDays(3), null);
+        assertTrue(dao.addExpense(single));
+        assertRollupsExact(userId);
+
+        Expense edited = new Expense(expenses.get(1));
+        edited.setAmount(99999);
+        edited.setExpenseDate(MARCH.minusMonths(2));
+        edited.setCategory("Travel");
+        assertTrue(dao.updateExpense(edited));
+        assertRollupsExact(userId);
+
+        List<Integer> ids = List.of(expenses.get(2).getExpenseId(), expenses.get(4).getExpenseId());
+        assertEquals(2, dao.updateCategory(userId, ids, "Rent"));
+        assertRollupsExact(userId);
+
+        assertEquals(2, dao.shiftDates(userId, ids, 40));
+        assertRollupsExact(userId);
+
+        assertTrue(dao.deleteExpense(userId, expenses.get(0).getExpenseId()));
+        assertEquals(2, dao.deleteExpenses(userId, List.of(expenses.get(5).getExpenseId(),
+                expenses.get(6).getExpenseId())));
+        assertRollupsExact(userId);
+    }
+
+    @Test
+    void emptiedGroupsAreRemoved() throws Exception {
+        int userId = TestDatabase.newUser();
+        Expense a = new Expense(userId, "A", 500, "Food", MARCH, null);
+        Expense b = new Expense(userId, "B", 700, "Food", MARCH.plusDays(1), null);
+        assertTrue(dao.addExpense(a));
+        assertTrue(dao.addExpense(b));
+        assertEquals(1, rollupRows(userId));
+
+        assertTrue(dao.deleteExpense(userId, a.getExpenseId()));
+        assertEquals(1, rollupRows(userId));
+
+        // Moving the last expense of a group to another month leaves no zero row behind
+        assertEquals(1, dao.shiftDates(userId, List.of(b.getExpenseId()), 31));
+        assertEquals(1, rollupRows(userId));
+
+        assertTrue(dao.deleteExpense(userId, b.getExpenseId()));
+        assertEquals(0, rollupRows(userId));
+    }
+
+    @Test
+    void monthTotalsFromRollupsMatchExpenses() throws Exception {
+        int userId = TestDatabase.newUser();
+        List<Expense> expenses = new ArrayList<>();
+        long march = 0;
+        long marchFood = 0;
+        for (int i = 0; i < 40; i++) {
+            LocalDate date = MARCH.minusDays(10).plusDays(i);
+            String category = i % 4 == 0 ? "Travel" : "Food";
+            expenses.add(new Expense(userId, "Item " + i, 100 + i, category, date, null));
+            if (date.getMonthValue() == 3) {
+                march += 100 + i;
+                if (category.equals("Food")) {
+                    marchFood += 100 + i;
+                }
+            }
+        }
+        dao.addExpenses(expenses);
+
+        ExpenseQuery month = ExpenseQuery.forUser(userId).inMonth(2024, 3);
+        assertEquals(march, dao.getTotal(month));
+        assertEquals(marchFood, dao.getTotal(ExpenseQuery.forUser(userId).inMonth(2024, 3).inCategory("Food")));
+        assertEquals(marchFood, dao.getCategoryTotals(month).get("Food"));
+        assertEquals(dao.findExpenses(month).size(), dao.countExpenses(month));
+    }
+}
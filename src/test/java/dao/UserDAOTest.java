@@ -0,0 +1,118 @@
+package dao;
+
+import model.User;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import security.LegacySha256PasswordHasher;
+import security.PasswordService;
+import security.Pbkdf2PasswordHasher;
+import util.DatabaseUtil;
+import util.TestDatabase;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * User DAO Test
+ * Registration and login against the test catalog, including the upgrade of legacy
+ * SHA-256 hashes and the dummy verification for unknown usernames.
+ */
+class UserDAOTest {
+    private static final AtomicInteger UNKNOWN_USER_CHECKS = new AtomicInteger();
+
+    // Counts the dummy verifications, so the tests can see unknown users take that path
+    private static final PasswordService SERVICE = new PasswordService(new Pbkdf2PasswordHasher(1000),
+            List.of(new LegacySha256PasswordHasher()), 2, 16) {
+        @Override
+        public Verification verifyUnknownUser(String password) {
+            UNKNOWN_USER_CHECKS.incrementAndGet();
+            return super.verifyUnknownUser(password);
+        }
+    };
+
+    private final UserDAO dao = new UserDAO(SERVICE);
+
+    @BeforeAll
+    static void initDatabase() {
+        TestDatabase.init();
+    }
+
+    @AfterAll
+    static void shutdown() {
+        SERVICE.shutdown();
+    }
+
+    private static String storedHash(String username) throws Exception {
+        try (Connection conn = DatabaseUtil.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement("SELECT password FROM users WHERE username = ?")) {
+            pstmt.setString(1, username);
+            ResultSet rs = pstmt.executeQuery();
+            assertTrue(rs.next());
+            return rs.getString(1);
+        }
+    }
+
+    private static String uniqueName(String base) {
+        return base + System.nanoTime();
+    }
+
+    @Test
+    void registeredUserCanLogIn() throws Exception {
+        String name = uniqueName("alice");
+        User user = new User();
+        user.setUsername(name);
+        user.setEmail(name + "@example.com");
+        user.setPassword("s3cret-pass");
+        assertTrue(dao.registerUser(user));
+
+        assertTrue(storedHash(name).startsWith(Pbkdf2PasswordHasher.PREFIX));
+        User loggedIn = dao.loginUser(name, "s3cret-pass");
+        assertNotNull(loggedIn);
+        assertEquals(name, loggedIn.getUsername());
+        assertNull(dao.loginUser(name, "wrong-pass"));
+        assertTrue(dao.usernameExists(name));
+        assertTrue(dao.emailExists(name + "@example.com"));
+    }
+
+    @Test
+    void legacyLoginRewritesTheHash() throws Exception {
+        String name = uniqueName("legacy");
+        String legacy = new LegacySha256PasswordHasher().hash("old-password");
+        try (Connection conn = DatabaseUtil.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(
+                     "INSERT INTO users (username, email, password) VALUES (?, ?, ?)")) {
+            pstmt.setString(1, name);
+            pstmt.setString(2, name + "@example.com");
+            pstmt.setString(3, legacy);
+            pstmt.executeUpdate();
+        }
+
+        assertNull(dao.loginUser(name, "wrong-password"));
+        assertEquals(legacy, storedHash(name), "a failed login leaves the hash alone");
+
+        assertNotNull(dao.loginUser(name, "old-password"));
+        String upgraded = storedHash(name);
+        assertTrue(upgraded.startsWith(Pbkdf2PasswordHasher.PREFIX), upgraded);
+
+        assertNotNull(dao.loginUser(name, "old-password"));
+        assertEquals(upgraded, storedHash(name), "a current hash is not rewritten");
+    }
+
+    @Test
+    void unknownUserGoesThroughTheDummyVerification() {
+        int before = UNKNOWN_USER_CHECKS.get();
+        assertNull(dao.loginUser(uniqueName("nobody"), "whatever"));
+        assertEquals(before + 1, UNKNOWN_USER_CHECKS.get());
+        assertFalse(dao.usernameExists(uniqueName("nobody")));
+    }
+}
@@ -0,0 +1,68 @@
+package exporter;
+
+import importer.CsvExpenseReader;
+import model.Expense;
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * CSV Expense Writer Test
+ * An export must read back through CsvExpenseReader unchanged, whatever the fields hold.
+ */
+class CsvExpenseWriterTest {
+
+    private static String export(List<Expense> expenses) throws Exception {
+        StringWriter out = new StringWriter();
+        try (CsvExpenseWriter writer = new CsvExpenseWriter(out)) {
+            writer.writeHeader();
+            for (Expense expense : expenses) {
+                writer.write(expense);
+            }
+        }
+        return out.toString();
+    }
+
+    @Test
+    void writesPlainFieldsUnquoted() throws Exception {
+        Expense lunch = new Expense(1, "Lunch", 12050, "Food", LocalDate.of(2024, 3, 1), null);
+
+        assertEquals("date,title,amount,category,description\n2024-03-01,Lunch,120.50,Food,\n",
+                export(List.of(lunch)));
+    }
+
+    @Test
+    void awkwardFieldsSurviveARoundTrip() throws Exception {
+        List<Expense> expenses = List.of(
+                new Expense(7, "Dinner, drinks", 250000, "Food", LocalDate.of(2024, 3, 2), "Said \"cheers\""),
+                new Expense(7, "Multi\nline", 5, "Other", LocalDate.of(2024, 3, 3), "first\nsecond"),
+                new Expense(7, " padded ", 100, "Bills", LocalDate.of(2024, 3, 4), "Café ₹ receipt"));
+
+        List<Expense> read = new ArrayList<>();
+        try (CsvExpenseReader reader = new CsvExpenseReader(new BufferedReader(new StringReader(export(expenses))), 7)) {
+            for (Expense expense : reader) {
+                read.add(expense);
+            }
+            assertEquals(List.of(), reader.getParseFailures().getFailures());
+        }
+
+        assertEquals(expenses.size(), read.size());
+        for (int i = 0; i < expenses.size(); i++) {
+            Expense expected = expenses.get(i);
+            Expense actual = read.get(i);
+            assertEquals(expected.getUserId(), actual.getUserId());
+            assertEquals(expected.getTitle(), actual.getTitle());
+            assertEquals(expected.getAmount(), actual.getAmount());
+            assertEquals(expected.getCategory(), actual.getCategory());
+            assertEquals(expected.getExpenseDate(), actual.getExpenseDate());
+            assertEquals(expected.getDescription(), actual.getDescription());
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package exporter;
+
+import dao.ExpenseDAO;
+import dao.ExpenseQuery;
+import model.Expense;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import util.TestDatabase;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Expense Exporter Test
+ * An export writes every matching expense oldest first in the format its file name asks
+ * for, reports progress, and replaces the target only when it completes.
+ */
+class ExpenseExporterTest {
+    private static final LocalDate START = LocalDate.of(2024, 8, 1);
+    private static final int EXPENSES = 2500;
+
+    private static int userId;
+    private static Path dir;
+
+    @BeforeAll
+    static void addExpenses() throws Exception {
+        userId = TestDatabase.newUser();
+        dir = Files.createDirectories(TestDatabase.dataDir().resolve("exports"));
+
+        // Newest first on insert, so the export has to order them
+        List<Expense> expenses = new ArrayList<>();
+        for (int i = EXPENSES - 1; i >= 0; i--) {
+            expenses.add(new Expense(userId, "Item " + i, 100 + i, "Food", START.plusDays(i % 60), null));
+        }
+        assertEquals(EXPENSES, new ExpenseDAO().addExpenses(expenses).getSuccessCount());
+    }
+
+    private static List<String> lines(Path file) throws IOException {
+        try (InputStream in = ExpenseExporter.isGzip(file.toString())
+                ? new GZIPInputStream(Files.newInputStream(file)) : Files.newInputStream(file)) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8).lines().toList();
+        }
+    }
+
+    @Test
+    void formatFollowsTheFileName() {
+        assertEquals(ExpenseExporter.Format.CSV, ExpenseExporter.Format.fromFileName("a.CSV"));
+        assertEquals(ExpenseExporter.Format.CSV, ExpenseExporter.Format.fromFileName("a.csv.gz"));
+        assertEquals(ExpenseExporter.Format.JSON_LINES, ExpenseExporter.Format.fromFileName("a.jsonl"));
+        assertEquals(ExpenseExporter.Format.JSON_LINES, ExpenseExporter.Format.fromFileName("a.ndjson.GZ"));
+        assertNull(ExpenseExporter.Format.fromFileName("a.xlsx"));
+        assertThrows(IOException.class, () -> new ExpenseExporter()
+                .exportFile(ExpenseQuery.forUser(userId), dir.resolve("a.xlsx"), null));
+    }
+
+    @Test
+    void csvExportHoldsEveryExpenseOldestFirst() throws Exception {
+        Path file = dir.resolve("all.csv");
+        List<long[]> progress = new ArrayList<>();
+
+        ExpenseExporter.ExportReport report = new ExpenseExporter(new ExpenseDAO(), 100).exportFile(
+                ExpenseQuery.forUser(userId), file, (written, total) -> progress.add(new long[] {written, total}));
+
+        List<String> lines = lines(file);
+        assertEquals(EXPENSES, report.getExportedCount());
+        assertFalse(report.isCancelled());
+        assertEquals(Files.size(file), report.getBytes());
+        assertEquals(EXPENSES + 1, lines.size());
+        assertEquals("date,title,amount,category,description", lines.get(0));
+        for (int i = 2; i < lines.size(); i++) {
+            String previousDate = lines.get(i - 1).substring(0, 10);
+            assertTrue(previousDate.compareTo(lines.get(i).substring(0, 10)) <= 0, lines.get(i));
+        }
+
+        long[] last = progress.get(progress.size() - 1);
+        assertEquals(EXPENSES, last[0]);
+        assertEquals(EXPENSES, last[1]);
+        assertEquals(EXPENSES / 1000 + 1, progress.size());
+        assertFalse(Files.exists(dir.resolve("all.csv.part")));
+    }
+
+    @Test
+    void gzippedJsonLinesExportHoldsTheMatchingExpenses() throws Exception {
+        Path file = dir.resolve("august.jsonl.gz");
+        ExpenseQuery august = ExpenseQuery.forUser(userId).inMonth(2024, 8);
+
+        ExpenseExporter.ExportReport report = new ExpenseExporter().exportFile(august, file, null);
+
+        List<String> lines = lines(file);
+        assertEquals(new ExpenseDAO().countExpenses(august), report.getExportedCount());
+        assertEquals(report.getExportedCount(), lines.size());
+        for (String line : lines) {
+            assertTrue(line.startsWith("{\"id\":") && line.contains("\"date\":\"2024-08-"), line);
+        }
+    }
+
+    @Test
+    void cancelledExportLeavesTheOldFileAlone() throws Exception {
+        Path file = dir.resolve("cancelled.csv");
+        Files.writeString(file, "previous export\n");
+
+        ExpenseExporter.ExportReport report = new ExpenseExporter(new ExpenseDAO(), 100).exportFile(
+                ExpenseQuery.forUser(userId), file, new ExpenseExporter.ProgressListener() {
+                    private long seen;
+
+                    @Override
+                    public void progress(long written, long total) {
+                        seen = written;
+                    }
+
+                    @Override
+                    public boolean isCancelled() {
+                        return seen >= 1000;
+                    }
+                });
+
+        assertTrue(report.isCancelled());
+        assertEquals(1000, report.getExportedCount());
+        assertEquals("previous export\n", Files.readString(file));
+        assertFalse(Files.exists(dir.resolve("cancelled.csv.part")));
+    }
+}
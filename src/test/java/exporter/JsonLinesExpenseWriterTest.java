@@ -0,0 +1,63 @@
+package exporter;
+
+import model.Expense;
+import org.junit.jupiter.api.Test;
+import server.Json;
+
+import java.io.StringWriter;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * JSON Lines Expense Writer Test
+ * Each expense is one line holding one JSON object, with every string escaped.
+ */
+class JsonLinesExpenseWriterTest {
+
+    private static String export(Expense expense) throws Exception {
+        StringWriter out = new StringWriter();
+        try (JsonLinesExpenseWriter writer = new JsonLinesExpenseWriter(out)) {
+            writer.writeHeader();
+            writer.write(expense);
+        }
+        return out.toString();
+    }
+
+    @Test
+    void writesTheDocumentedObject() throws Exception {
+        Expense lunch = new Expense(1, "Lunch", 12050, "Food", LocalDate.of(2024, 3, 1), null);
+        lunch.setExpenseId(7);
+
+        assertEquals("{\"id\":7,\"date\":\"2024-03-01\",\"title\":\"Lunch\",\"amount\":\"120.50\","
+                + "\"amountMinor\":12050,\"category\":\"Food\",\"description\":null}\n", export(lunch));
+    }
+
+    @Test
+    void escapedStringsParseBackUnchanged() throws Exception {
+        String title = "Quote \" backslash \\ tab \t bell \u0007 end";
+        String description = "line one\nline two\r\nCafé ₹";
+        Expense expense = new Expense(1, title, 5, "Other", LocalDate.of(2024, 3, 2), description);
+
+        String line = export(expense);
+        assertEquals(line.length() - 1, line.indexOf('\n'));
+
+        Map<?, ?> object = (Map<?, ?>) Json.parse(line.trim());
+        assertEquals(title, object.get("title"));
+        assertEquals(description, object.get("description"));
+        assertEquals("0.05", object.get("amount"));
+        assertEquals(new BigDecimal(5), object.get("amountMinor"));
+    }
+
+    @Test
+    void nullStringsAreJsonNull() throws Exception {
+        StringBuilder out = new StringBuilder();
+        JsonLinesExpenseWriter.writeString(out, null);
+
+        assertEquals("null", out.toString());
+        assertNull(Json.parse(out.toString()));
+    }
+}
@@ -0,0 +1,45 @@
+package importer;
+
+import model.Expense;
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * CSV Expense Reader Test
+ * Unquoted fields are trimmed; quoted fields keep exactly what is between the quotes.
+ */
+class CsvExpenseReaderTest {
+
+    private static List<Expense> read(String csv) throws Exception {
+        List<Expense> expenses = new ArrayList<>();
+        try (CsvExpenseReader reader = new CsvExpenseReader(new BufferedReader(new StringReader(csv)), 1)) {
+            for (Expense expense : reader) {
+                expenses.add(expense);
+            }
+        }
+        return expenses;
+    }
+
+    @Test
+    void unquotedFieldsAreTrimmed() throws Exception {
+        Expense expense = read(" Title , Amount ,date\n  Lunch  , 12.50 , 2024-03-01 \n").get(0);
+
+        assertEquals("Lunch", expense.getTitle());
+        assertEquals(1250, expense.getAmount());
+        assertEquals("Other", expense.getCategory());
+    }
+
+    @Test
+    void quotedFieldsKeepTheirSpaces() throws Exception {
+        Expense expense = read("title,amount,date,description\n  \" Lunch \"  ,1,2024-03-01,\"a,\"\"b\"\"\n c \"\n").get(0);
+
+        assertEquals(" Lunch ", expense.getTitle());
+        assertEquals("a,\"b\"\n c ", expense.getDescription());
+    }
+}
@@ -0,0 +1,112 @@
+package metrics;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Latency Histogram Test
+ * Bucket boundaries, the precision they promise, and percentiles read from a snapshot.
+ */
+class LatencyHistogramTest {
+
+    @Test
+    void smallValuesHaveABucketEach() {
+        for (int value = 0; value < 32; value++) {
+            assertEquals(value, LatencyHistogram.bucketOf(value));
+            assertEquals(value, LatencyHistogram.highestValueIn(value));
+        }
+    }
+
+    @Test
+    void bucketsTileTheValueRange() {
+        // Each bucket starts right after the one before it ends, with no gaps or overlaps
+        long expectedStart = 0;
+        for (int bucket = 0; bucket < LatencyHistogram.BUCKET_COUNT; bucket++) {
+            long highest = LatencyHistogram.highestValueIn(bucket);
+            assertEquals(bucket, LatencyHistogram.bucketOf(expectedStart), "start of bucket " + bucket);
+            assertEquals(bucket, LatencyHistogram.bucketOf(highest), "end of bucket " + bucket);
+            expectedStart = highest + 1;
+        }
+        // The last bucket ends at the largest recordable value, 2^41 - 1
+        assertEquals((1L << 41) - 1, expectedStart - 1);
+    }
+
+    @Test
+    void bucketWidthStaysWithinThreePercent() {
+        for (int bucket = 32; bucket < LatencyHistogram.BUCKET_COUNT; bucket++) {
+            long lowest = LatencyHistogram.highestValueIn(bucket - 1) + 1;
+            long highest = LatencyHistogram.highestValueIn(bucket);
+            double width = (double) (highest - lowest + 1) / lowest;
+            assertTrue(width <= 1.0 / 32, "bucket " + bucket + " spans " + lowest + ".." + highest);
+        }
+    }
+
+    @Test
+    void valuesOutsideTheRangeAreClamped() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(-5);
+        histogram.record(Long.MAX_VALUE);
+
+        LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+        assertEquals(2, snapshot.getCount());
+        assertEquals(0, snapshot.getValueAtPercentile(50));
+        assertEquals((1L << 41) - 1, snapshot.getMax());
+        assertEquals((1L << 41) - 1, snapshot.getValueAtPercentile(100));
+    }
+
+    @Test
+    void percentilesPickTheBucketHoldingTheRank() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int value = 1; value <= 100; value++) {
+            histogram.record(value * 1000L);
+        }
+
+        LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+        assertEquals(100, snapshot.getCount());
+        assertEquals(50_500, snapshot.getMean(), 0.001);
+        assertEquals(100_000, snapshot.getMax());
+        // Reported values are the top of the bucket, so at most ~3% above the value recorded
+        assertWithinBucket(50_000, snapshot.getValueAtPercentile(50));
+        assertWithinBucket(90_000, snapshot.getValueAtPercentile(90));
+        assertWithinBucket(99_000, snapshot.getValueAtPercentile(99));
+        assertWithinBucket(1_000, snapshot.getValueAtPercentile(0));
+        // Never above the largest value actually recorded
+        assertEquals(100_000, snapshot.getValueAtPercentile(100));
+    }
+
+    @Test
+    void percentileRankRoundsUp() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(10);
+        histogram.record(20);
+        histogram.record(30);
+
+        LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+        // Ranks are ceil(p * count): 1 for 33%, 2 for 34%
+        assertEquals(10, snapshot.getValueAtPercentile(33));
+        assertEquals(20, snapshot.getValueAtPercentile(34));
+        assertEquals(30, snapshot.getValueAtPercentile(99.9));
+    }
+
+    @Test
+    void emptyAndResetHistogramsReadAsZero() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        assertEquals(0, histogram.snapshot().getValueAtPercentile(99));
+        assertEquals(0, histogram.snapshot().getMean());
+
+        histogram.record(12_345);
+        histogram.reset();
+        LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+        assertEquals(0, snapshot.getCount());
+        assertEquals(0, snapshot.getMax());
+        assertEquals(0, snapshot.getValueAtPercentile(50));
+    }
+
+    private static void assertWithinBucket(long recorded, long reported) {
+        assertEquals(LatencyHistogram.bucketOf(recorded), LatencyHistogram.bucketOf(reported),
+                "reported " + reported + " for " + recorded);
+        assertTrue(reported >= recorded && reported <= recorded * 1.03125, "reported " + reported + " for " + recorded);
+    }
+}
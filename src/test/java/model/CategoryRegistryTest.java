@@ -0,0 +1,83 @@
+package model;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Category Registry Test
+ * The registry is shared by the whole run, so these tests register custom categories
+ * of their own users and ids only, far from any the database hands out.
+ */
+class CategoryRegistryTest {
+    private static final int FIRST_ID = 2_000_000_000;
+
+    private final CategoryRegistry registry = CategoryRegistry.getInstance();
+
+    @Test
+    void registerKeepsTheFirstInstanceOfAnId() {
+        Category first = new Category(FIRST_ID, -1, "Pets", 100);
+        Category second = new Category(FIRST_ID, -1, "Pets", 100);
+
+        assertSame(first, registry.register(first));
+        assertSame(first, registry.register(second));
+        assertSame(first, registry.get(FIRST_ID));
+    }
+
+    @Test
+    void findIgnoresTheCaseOfAsciiLettersOnly() {
+        Category cafe = registry.register(new Category(FIRST_ID + 1, -2, "Café", 100));
+
+        assertSame(cafe, registry.find(-2, "café"));
+        assertSame(cafe, registry.find(-2, "CAFé"));
+        assertNull(registry.find(-2, "CAFÉ"));
+    }
+
+    @Test
+    void customCategoriesAreSeenOnlyByTheirOwner() {
+        Category garden = registry.register(new Category(FIRST_ID + 2, -3, "Garden", 100));
+
+        assertSame(garden, registry.find(-3, "garden"));
+        assertNull(registry.find(-4, "garden"));
+        assertEquals(List.of(), customNames(-4));
+    }
+
+    @Test
+    void customCategoriesFollowBuiltInsByName() {
+        registry.register(new Category(FIRST_ID + 3, -5, "zoo", 100));
+        registry.register(new Category(FIRST_ID + 4, -5, "Art", 100));
+        registry.register(new Category(FIRST_ID + 5, -5, "music", 100));
+
+        List<Category> categories = registry.forUser(-5);
+        int firstCustom = categories.size() - 3;
+        for (int i = 0; i < firstCustom; i++) {
+            assertTrue(categories.get(i).isBuiltIn(), categories.toString());
+        }
+        assertEquals(List.of("Art", "music", "zoo"), customNames(-5));
+    }
+
+    @Test
+    void foldNameLowersAsciiLettersOnly() {
+        String lower = "already lower";
+
+        assertSame(lower, CategoryRegistry.foldName(lower));
+        assertEquals("food & drink", CategoryRegistry.foldName("Food & Drink"));
+        assertEquals("Éducation", CategoryRegistry.foldName("ÉDUCATION"));
+    }
+
+    private List<String> customNames(int userId) {
+        List<String> names = new ArrayList<>();
+        for (Category category : registry.forUser(userId)) {
+            if (!category.isBuiltIn()) {
+                names.add(category.getName());
+            }
+        }
+        return names;
+    }
+}
@@ -0,0 +1,87 @@
+package model;
+
+import dao.ExpenseDAO;
+import dao.ExpenseQuery;
+import org.junit.jupiter.api.Test;
+import util.TestDatabase;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Money Test
+ * Parsing and formatting of paise amounts, and exact sums through the DAO.
+ */
+class MoneyTest {
+
+    @Test
+    void parsesRupeesIntoPaise() {
+        assertEquals(12000, Money.parse("120"));
+        assertEquals(12050, Money.parse("120.5"));
+        assertEquals(12050, Money.parse("120.50"));
+        assertEquals(12050, Money.parse(" 120.500 "));
+        assertEquals(1, Money.parse("0.01"));
+        assertEquals(-250, Money.parse("-2.5"));
+    }
+
+    @Test
+    void rejectsInvalidAmounts() {
+        assertThrows(NumberFormatException.class, () -> Money.parse("1.005"));
+        assertThrows(NumberFormatException.class, () -> Money.parse("abc"));
+        assertThrows(NumberFormatException.class, () -> Money.parse(""));
+        assertThrows(NumberFormatException.class, () -> Money.parse("99999999999999999999"));
+    }
+
+    @Test
+    void formatsPaise() {
+        assertEquals("123.45", Money.toPlainString(12345));
+        assertEquals("0.05", Money.toPlainString(5));
+        assertEquals("7.00", Money.toPlainString(700));
+        assertEquals("-0.50", Money.toPlainString(-50));
+        assertEquals(Money.SYMBOL + "123.45", Money.format(12345));
+        assertEquals("-" + Money.SYMBOL + "1.10", Money.format(-110));
+    }
+
+    @Test
+    void formatAndParseRoundTrip() {
+        for (long paise : new long[] {0, 1, 9, 10, 99, 100, 101, 123456789}) {
+            assertEquals(paise, Money.parse(Money.toPlainString(paise)));
+        }
+    }
+
+    @Test
+    void arithmeticIsExact() {
+        Money sum = Money.ZERO;
+        for (int i = 0; i < 10; i++) {
+            sum = sum.plus(Money.ofMinor(Money.parse("0.10")));
+        }
+        assertEquals(Money.ofMinor(100), sum);
+        assertEquals(Money.ZERO, sum.minus(Money.ofMinor(100)));
+        assertTrue(Money.ofMinor(1).compareTo(Money.ZERO) > 0);
+        assertThrows(ArithmeticException.class, () -> Money.ofMinor(Long.MAX_VALUE).plus(Money.ofMinor(1)));
+    }
+
+    @Test
+    void databaseTotalsAreExact() throws Exception {
+        int userId = TestDatabase.newUser();
+        ExpenseDAO dao = new ExpenseDAO();
+        LocalDate today = LocalDate.now();
+
+        List<Expense> expenses = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            expenses.add(new Expense(userId, "Sweet " + i, Money.parse("0.10"), "Food", today, null));
+        }
+        expenses.add(new Expense(userId, "Ticket", Money.parse("0.20"), "Travel", today, null));
+        assertEquals(11, dao.addExpenses(expenses).getSuccessCount());
+
+        assertEquals(120, dao.getTotal(ExpenseQuery.forUser(userId)));
+        assertEquals(100, dao.getCategoryTotals(userId).get("Food"));
+        assertEquals(20, dao.getCategoryTotals(userId).get("Travel"));
+        assertEquals(Money.parse("0.10"), dao.findById(userId, expenses.get(0).getExpenseId()).getAmount());
+    }
+}
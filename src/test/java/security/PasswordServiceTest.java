@@ -0,0 +1,103 @@
+package security;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Password Service Test
+ * PBKDF2 and legacy SHA-256 verification, upgrades and malformed hashes. Uses a low
+ * iteration count so the tests stay fast; the format is the same at any count.
+ */
+class PasswordServiceTest {
+    private static final PasswordService SERVICE = new PasswordService(new Pbkdf2PasswordHasher(1000),
+            List.of(new LegacySha256PasswordHasher()), 2, 16);
+
+    @AfterAll
+    static void shutdown() {
+        SERVICE.shutdown();
+    }
+
+    @Test
+    void pbkdf2RoundTrip() {
+        String hash = SERVICE.hash("correct horse");
+        assertTrue(hash.startsWith(Pbkdf2PasswordHasher.PREFIX + "1000$"));
+
+        PasswordService.Verification verification = SERVICE.verify("correct horse", hash);
+        assertTrue(verification.isMatched());
+        assertNull(verification.getUpgradedHash(), "a current hash needs no upgrade");
+
+        // Every hash has its own salt
+        assertNotEquals(hash, SERVICE.hash("correct horse"));
+    }
+
+    @Test
+    void wrongPasswordIsRejected() {
+        String hash = SERVICE.hash("correct horse");
+        assertFalse(SERVICE.verify("correct horsE", hash).isMatched());
+        assertFalse(SERVICE.verify("", hash).isMatched());
+    }
+
+    @Test
+    void malformedHashesAreRejectedWithoutThrowing() {
+        String valid = SERVICE.hash("secret");
+        String prefix = Pbkdf2PasswordHasher.PREFIX;
+        List<String> malformed = List.of(
+                prefix,
+                prefix + "1000",
+                prefix + "1000$",
+                prefix + "1000$c2FsdA",
+                prefix + "x$c2FsdA$aGFzaA",
+                prefix + "-5$c2FsdA$aGFzaA",
+                prefix + "0$c2FsdA$aGFzaA",
+                prefix + "1000$$aGFzaA",
+                prefix + "1000$c2FsdA$",
+                prefix + "1000$!!!!$aGFzaA",
+                prefix + "1000$c2FsdA$aGFzaA$extra",
+                valid.substring(0, valid.length() - 10),
+                valid.substring(0, valid.lastIndexOf('$')),
+                "",
+                "not a hash");
+
+        for (String hash : malformed) {
+            assertFalse(SERVICE.verify("secret", hash).isMatched(), hash);
+        }
+    }
+
+    @Test
+    void outdatedIterationCountIsUpgraded() {
+        String weak = new Pbkdf2PasswordHasher(500).hash("secret");
+        PasswordService.Verification verification = SERVICE.verify("secret", weak);
+        assertTrue(verification.isMatched());
+        assertNotNull(verification.getUpgradedHash());
+        assertTrue(verification.getUpgradedHash().startsWith(Pbkdf2PasswordHasher.PREFIX + "1000$"));
+    }
+
+    @Test
+    void legacySha256IsAcceptedAndUpgraded() {
+        String legacy = new LegacySha256PasswordHasher().hash("secret");
+        assertEquals(64, legacy.length());
+
+        PasswordService.Verification verification = SERVICE.verify("secret", legacy);
+        assertTrue(verification.isMatched());
+        assertNotNull(verification.getUpgradedHash());
+        assertTrue(SERVICE.verify("secret", verification.getUpgradedHash()).isMatched());
+
+        assertTrue(SERVICE.verify("secret", legacy.toUpperCase()).isMatched());
+        assertFalse(SERVICE.verify("Secret", legacy).isMatched());
+    }
+
+    @Test
+    void unknownUserAlwaysFails() {
+        assertFalse(SERVICE.verifyUnknownUser("unknown-user").isMatched());
+        assertFalse(SERVICE.verifyUnknownUser("anything").isMatched());
+    }
+}
@@ -0,0 +1,141 @@
+package server;
+
+import dao.UserDAO;
+import model.User;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import util.TestDatabase;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * API Server Test
+ * Routing, authentication and error statuses, over HTTP against a server on a free port.
+ */
+class ApiServerTest {
+    private static final AtomicInteger USER_COUNT = new AtomicInteger();
+    private static final HttpClient CLIENT = HttpClient.newHttpClient();
+
+    private static ApiServer server;
+
+    @BeforeAll
+    static void startServer() throws IOException {
+        TestDatabase.init();
+        server = new ApiServer("127.0.0.1", 0, 16, 4, 60_000);
+        server.start();
+    }
+
+    @AfterAll
+    static void stopServer() {
+        server.stop(0);
+    }
+
+    private static HttpResponse<String> send(String method, String path, String token, String body)
+            throws IOException, InterruptedException {
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create("http://127.0.0.1:" + server.getPort() + path))
+                .method(method, body == null ? HttpRequest.BodyPublishers.noBody() : HttpRequest.BodyPublishers.ofString(body));
+        if (token != null) {
+            request.header("Authorization", "Bearer " + token);
+        }
+        return CLIENT.send(request.build(), HttpResponse.BodyHandlers.ofString());
+    }
+
+    private static String login() throws Exception {
+        String name = "api" + USER_COUNT.incrementAndGet() + "-" + System.nanoTime();
+        User user = new User(name, name + "@example.com", "secret-password");
+        assertTrue(new UserDAO().registerUser(user));
+
+        HttpResponse<String> response = send("POST", "/api/login", null,
+                "{\"username\":\"" + name + "\",\"password\":\"secret-password\"}");
+        assertEquals(200, response.statusCode(), response.body());
+        return (String) ((Map<?, ?>) Json.parse(response.body())).get("token");
+    }
+
+    private static int createExpense(String token) throws Exception {
+        HttpResponse<String> response = send("POST", "/api/expenses", token,
+                "{\"title\":\"Lunch\",\"amount\":12.50,\"category\":\"Food\",\"date\":\"2024-03-05\"}");
+        assertEquals(201, response.statusCode(), response.body());
+        Map<?, ?> expense = (Map<?, ?>) Json.parse(response.body());
+        return ((Number) expense.get("id")).intValue();
+    }
+
+    @Test
+    void requestWithoutValidTokenIs401() throws Exception {
+        HttpResponse<String> missing = send("GET", "/api/expenses", null, null);
+        assertEquals(401, missing.statusCode());
+        assertEquals("Bearer", missing.headers().firstValue("WWW-Authenticate").orElse(null));
+
+        assertEquals(401, send("GET", "/api/expenses", "made-up", null).statusCode());
+    }
+
+    @Test
+    void wrongPasswordIs401() throws Exception {
+        login();
+        HttpResponse<String> response = send("POST", "/api/login", null,
+                "{\"username\":\"nobody-" + System.nanoTime() + "\",\"password\":\"x\"}");
+        assertEquals(401, response.statusCode());
+    }
+
+    @Test
+    void unknownPathIs404AndWrongMethodIs405() throws Exception {
+        String token = login();
+        assertEquals(404, send("GET", "/api/nothing-here", token, null).statusCode());
+        assertEquals(404, send("GET", "/api/expenses/1/extra", token, null).statusCode());
+        // The path exists, so this is not a 404 even before authentication
+        assertEquals(405, send("PATCH", "/api/expenses", null, null).statusCode());
+        assertEquals(405, send("DELETE", "/api/summary", token, null).statusCode());
+    }
+
+    @Test
+    void routesReachTheirHandlers() throws Exception {
+        String token = login();
+        int expenseId = createExpense(token);
+
+        HttpResponse<String> fetched = send("GET", "/api/expenses/" + expenseId, token, null);
+        assertEquals(200, fetched.statusCode(), fetched.body());
+        assertEquals("Lunch", ((Map<?, ?>) Json.parse(fetched.body())).get("title"));
+
+        // "export" is its own route, not an expense id
+        HttpResponse<String> export = send("GET", "/api/expenses/export?format=csv", token, null);
+        assertEquals(200, export.statusCode(), export.body());
+        assertTrue(export.body().contains("Lunch"), export.body());
+
+        assertEquals(404, send("GET", "/api/expenses/abc", token, null).statusCode());
+        assertEquals(204, send("DELETE", "/api/expenses/" + expenseId, token, null).statusCode());
+        assertEquals(404, send("GET", "/api/expenses/" + expenseId, token, null).statusCode());
+    }
+
+    @Test
+    void otherUsersExpensesReadAsMissing() throws Exception {
+        int expenseId = createExpense(login());
+        String other = login();
+
+        assertEquals(404, send("GET", "/api/expenses/" + expenseId, other, null).statusCode());
+        assertEquals(404, send("DELETE", "/api/expenses/" + expenseId, other, null).statusCode());
+    }
+
+    @Test
+    void invalidJsonIs400() throws Exception {
+        String token = login();
+        assertEquals(400, send("POST", "/api/expenses", token, "{\"title\": ").statusCode());
+        assertEquals(400, send("POST", "/api/expenses", token, "[1, 2]").statusCode());
+    }
+
+    @Test
+    void logoutEndsTheSession() throws Exception {
+        String token = login();
+        assertEquals(200, send("GET", "/api/categories", token, null).statusCode());
+        assertEquals(204, send("POST", "/api/logout", token, null).statusCode());
+        assertEquals(401, send("GET", "/api/categories", token, null).statusCode());
+    }
+}
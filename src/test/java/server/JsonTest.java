@@ -0,0 +1,61 @@
+package server;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Json Test
+ * Parsing of request bodies, and the inputs the parser must refuse.
+ */
+class JsonTest {
+
+    @Test
+    void parsesNestedValues() {
+        Object value = Json.parse(" {\"title\": \"Lunch\", \"amount\": 12.50, \"tags\": [true, false, null], \"meta\": {}} ");
+
+        Map<?, ?> object = (Map<?, ?>) value;
+        assertEquals(List.of("title", "amount", "tags", "meta"), List.copyOf(object.keySet()));
+        assertEquals("Lunch", object.get("title"));
+        assertEquals(Arrays.asList(true, false, null), object.get("tags"));
+        assertEquals(Map.of(), object.get("meta"));
+    }
+
+    @Test
+    void numbersKeepTheirExactDecimalValue() {
+        assertEquals(new BigDecimal("0.10"), Json.parse("0.10"));
+        assertEquals(new BigDecimal("-3E+2"), Json.parse("-3e2"));
+        assertEquals(new BigDecimal("12345678901234567890.01"), Json.parse("12345678901234567890.01"));
+    }
+
+    @Test
+    void decodesEscapes() {
+        assertEquals("a\"b\\c/d\n\t\u00e9", Json.parse("\"a\\\"b\\\\c\\/d\\n\\t\\u00e9\""));
+        assertNull(Json.parse("null"));
+    }
+
+    @Test
+    void rejectsMalformedInput() {
+        for (String text : List.of("", "{", "{\"a\" 1}", "{a: 1}", "[1,]", "[1 2]", "\"open", "\"bad \\x escape\"",
+                "\"\\u12\"", "tru", "1 2", "{} x", "--1", "\"tab\there\"")) {
+            assertThrows(IllegalArgumentException.class, () -> Json.parse(text), text);
+        }
+    }
+
+    @Test
+    void rejectsDeepNesting() {
+        String shallow = "[".repeat(32) + "]".repeat(32);
+        assertInstanceOf(List.class, Json.parse(shallow));
+
+        String deep = "[".repeat(40) + "]".repeat(40);
+        assertThrows(IllegalArgumentException.class, () -> Json.parse(deep));
+    }
+}
@@ -0,0 +1,70 @@
+package server;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * Token Store Test
+ * Issuing, sliding expiry and revocation of bearer tokens.
+ */
+class TokenStoreTest {
+
+    @Test
+    void issuedTokenAuthenticatesItsUser() {
+        TokenStore tokens = new TokenStore(60_000);
+        String first = tokens.issue(7, "alice");
+        String second = tokens.issue(7, "alice");
+
+        assertNotEquals(first, second);
+        TokenStore.Session session = tokens.authenticate(first);
+        assertNotNull(session);
+        assertEquals(7, session.getUserId());
+        assertEquals("alice", session.getUsername());
+    }
+
+    @Test
+    void unknownAndMissingTokensAreRefused() {
+        TokenStore tokens = new TokenStore(60_000);
+        tokens.issue(1, "bob");
+
+        assertNull(tokens.authenticate(null));
+        assertNull(tokens.authenticate("not-a-token"));
+    }
+
+    @Test
+    void tokenExpiresAfterGoingUnused() throws InterruptedException {
+        TokenStore tokens = new TokenStore(100);
+        String token = tokens.issue(1, "carol");
+
+        Thread.sleep(150);
+        assertNull(tokens.authenticate(token));
+        // Expired sessions are dropped, not revived by a later check
+        assertNull(tokens.authenticate(token));
+    }
+
+    @Test
+    void useExtendsTheSession() throws InterruptedException {
+        TokenStore tokens = new TokenStore(300);
+        String token = tokens.issue(1, "dave");
+
+        // Each check lands well inside the time-to-live, but together they outlast it
+        for (int i = 0; i < 5; i++) {
+            Thread.sleep(100);
+            assertNotNull(tokens.authenticate(token), "check " + i);
+        }
+    }
+
+    @Test
+    void revokedTokenIsRefused() {
+        TokenStore tokens = new TokenStore(60_000);
+        String token = tokens.issue(1, "erin");
+
+        tokens.revoke(token);
+        tokens.revoke(null);
+        assertNull(tokens.authenticate(token));
+    }
+}
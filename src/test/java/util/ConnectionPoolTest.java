@@ -0,0 +1,245 @@
+package util;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Connection Pool Test
+ * Borrow timeouts, reuse, validation, idle eviction, leak detection and the reset of a
+ * connection on return, each against a pool of its own.
+ */
+class ConnectionPoolTest {
+    private static String url;
+
+    private ConnectionPool pool;
+
+    @BeforeAll
+    static void createDatabase() throws SQLException {
+        TestDatabase.init();
+        url = "jdbc:sqlite:" + TestDatabase.dataDir().resolve("pool-test.db");
+        try (Connection conn = DriverManager.getConnection(url);
+             Statement stmt = conn.createStatement()) {
+            stmt.execute("CREATE TABLE IF NOT EXISTS items (name TEXT)");
+        }
+    }
+
+    @AfterEach
+    void shutdownPool() {
+        if (pool != null) {
+            pool.shutdown();
+        }
+    }
+
+    private static PoolConfig config() {
+        PoolConfig config = new PoolConfig();
+        config.setMaxSize(2);
+        config.setMinIdle(0);
+        config.setBorrowTimeoutMillis(200);
+        config.setLeakThresholdMillis(0);
+        return config;
+    }
+
+    private static int countItems(Connection conn, String name) throws SQLException {
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT COUNT(*) FROM items WHERE name = '" + name + "'")) {
+            rs.next();
+            return rs.getInt(1);
+        }
+    }
+
+    @Test
+    void borrowTimesOutWhenEveryConnectionIsInUse() throws SQLException {
+        pool = new ConnectionPool(url, config());
+        try (Connection first = pool.getConnection(); Connection second = pool.getConnection()) {
+            long start = System.nanoTime();
+            SQLException e = assertThrows(SQLException.class, pool::getConnection);
+            long waitedMillis = (System.nanoTime() - start) / 1_000_000;
+
+            assertTrue(e.getMessage().contains("Timed out"), e.getMessage());
+            assertTrue(waitedMillis >= 150, "gave up after " + waitedMillis + " ms");
+            assertEquals(2, pool.getActiveCount());
+        }
+        // Both came back, so borrowing works again
+        pool.getConnection().close();
+    }
+
+    @Test
+    void returnedConnectionIsReused() throws SQLException {
+        AtomicInteger initialized = new AtomicInteger();
+        pool = new ConnectionPool(url, config(), conn -> initialized.incrementAndGet());
+
+        Connection first = pool.getConnection();
+        first.close();
+        assertEquals(0, pool.getActiveCount());
+        assertEquals(1, pool.getIdleCount());
+
+        try (Connection second = pool.getConnection()) {
+            assertEquals(0, countItems(second, "none"));
+        }
+        assertEquals(1, pool.getCreatedCount());
+        assertEquals(1, initialized.get(), "the initializer runs once per physical connection");
+    }
+
+    @Test
+    void returnedHandleCannotBeUsed() throws SQLException {
+        pool = new ConnectionPool(url, config());
+        Connection stale = pool.getConnection();
+        stale.close();
+
+        try (Connection current = pool.getConnection()) {
+            assertTrue(stale.isClosed());
+            assertThrows(SQLException.class, stale::createStatement);
+            // Closing the stale handle again must not hand back the connection now lent out
+            stale.close();
+            assertEquals(1, pool.getActiveCount());
+            assertFalse(current.isClosed());
+        }
+    }
+
+    @Test
+    void racingClosesReleaseTheConnectionOnce() throws Exception {
+        PoolConfig config = config();
+        config.setMaxSize(1);
+        pool = new ConnectionPool(url, config);
+
+        for (int round = 0; round < 20; round++) {
+            Connection conn = pool.getConnection();
+            CountDownLatch start = new CountDownLatch(1);
+            List<Thread> closers = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                Thread closer = new Thread(() -> {
+                    try {
+                        start.await();
+                        conn.close();
+                    } catch (Exception e) {
+                        throw new IllegalStateException(e);
+                    }
+                });
+                closer.start();
+                closers.add(closer);
+            }
+            start.countDown();
+            for (Thread closer : closers) {
+                closer.join();
+            }
+
+            // A double release would leave a spare permit, letting a second borrower in
+            try (Connection only = pool.getConnection()) {
+                assertThrows(SQLException.class, pool::getConnection, "round " + round);
+                assertFalse(only.isClosed());
+            }
+        }
+    }
+
+    @Test
+    void invalidIdleConnectionIsReplaced() throws SQLException {
+        PoolConfig config = config();
+        config.setValidationIntervalMillis(0);
+        pool = new ConnectionPool(url, config);
+
+        Connection first = pool.getConnection();
+        Connection physical = first.unwrap(Connection.class);
+        first.close();
+        // The connection dies while idle, e.g. the driver lost its file handle
+        physical.close();
+
+        try (Connection second = pool.getConnection()) {
+            assertEquals(0, countItems(second, "nothing"));
+        }
+        assertEquals(2, pool.getCreatedCount());
+    }
+
+    @Test
+    void idleConnectionsAreEvictedDownToMinIdle() throws Exception {
+        PoolConfig config = config();
+        config.setMaxSize(3);
+        config.setMinIdle(1);
+        config.setIdleTimeoutMillis(50);
+        config.setHousekeepingIntervalMillis(20);
+        pool = new ConnectionPool(url, config);
+
+        Connection a = pool.getConnection();
+        Connection b = pool.getConnection();
+        Connection c = pool.getConnection();
+        a.close();
+        b.close();
+        c.close();
+        assertEquals(3, pool.getIdleCount());
+
+        long deadline = System.currentTimeMillis() + 2000;
+        while (pool.getIdleCount() > 1 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+        assertEquals(1, pool.getIdleCount());
+        assertEquals(2, pool.getEvictedCount());
+    }
+
+    @Test
+    void connectionHeldPastTheThresholdIsReportedOnce() throws Exception {
+        PoolConfig config = config();
+        config.setLeakThresholdMillis(50);
+        config.setHousekeepingIntervalMillis(20);
+        pool = new ConnectionPool(url, config);
+
+        try (Connection held = pool.getConnection()) {
+            long deadline = System.currentTimeMillis() + 2000;
+            while (pool.getLeaksDetected() == 0 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(20);
+            }
+            assertEquals(1, pool.getLeaksDetected());
+            // Later sweeps do not report the same borrow again
+            Thread.sleep(100);
+            assertEquals(1, pool.getLeaksDetected());
+            assertFalse(held.isClosed());
+        }
+    }
+
+    @Test
+    void openTransactionIsRolledBackOnReturn() throws SQLException {
+        PoolConfig config = config();
+        config.setMaxSize(1);
+        pool = new ConnectionPool(url, config);
+
+        try (Connection conn = pool.getConnection()) {
+            conn.setAutoCommit(false);
+            try (Statement stmt = conn.createStatement()) {
+                stmt.executeUpdate("INSERT INTO items (name) VALUES ('uncommitted')");
+            }
+            // Returned without commit or rollback
+        }
+
+        try (Connection conn = pool.getConnection()) {
+            assertTrue(conn.getAutoCommit());
+            assertEquals(0, countItems(conn, "uncommitted"));
+        }
+    }
+
+    @Test
+    void shutdownStopsBorrowingAndClosesReturnedConnections() throws SQLException {
+        pool = new ConnectionPool(url, config());
+        Connection held = pool.getConnection();
+        Connection physical = held.unwrap(Connection.class);
+
+        pool.shutdown();
+        assertThrows(SQLException.class, pool::getConnection);
+        held.close();
+        assertTrue(physical.isClosed());
+        assertEquals(0, pool.getIdleCount());
+    }
+}
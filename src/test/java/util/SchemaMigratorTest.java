@@ -0,0 +1,137 @@
+package util;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Schema Migrator Test
+ * Migrates databases of their own, both empty and holding version 1 data, and checks
+ * the resulting schema and rows.
+ */
+class SchemaMigratorTest {
+
+    @BeforeAll
+    static void initDatabase() {
+        TestDatabase.init();
+    }
+
+    private static Connection open(String name) throws Exception {
+        Path file = TestDatabase.dataDir().resolve(name);
+        Files.deleteIfExists(file);
+        return DriverManager.getConnection("jdbc:sqlite:" + file);
+    }
+
+    @Test
+    void migratesEmptyDatabaseToLatestVersionOnce() throws Exception {
+        SchemaMigrator migrator = new SchemaMigrator(Migrations.all());
+        try (Connection conn = open("migrate-empty.db")) {
+            assertEquals(0, migrator.getCurrentVersion(conn));
+            assertEquals(migrator.getLatestVersion(), migrator.migrate(conn));
+            assertEquals(migrator.getLatestVersion(), migrator.getCurrentVersion(conn));
+            assertEquals(0, migrator.migrate(conn));
+
+            Set<String> objects = schemaObjects(conn);
+            for (String name : List.of("users", "expenses", "categories", "expenses_fts", "expense_rollups",
+                    "user_shards", "moved_users", "idx_expenses_user_date", "idx_expenses_user_category_date",
+                    "idx_categories_owner_name", "expenses_fts_insert", "expense_rollups_insert",
+                    "expense_rollups_update", "expense_rollups_delete", "expenses_moved_insert",
+                    "expenses_moved_update", "expenses_moved_delete")) {
+                assertTrue(objects.contains(name), "missing " + name);
+            }
+        }
+    }
+
+    @Test
+    void convertsVersionOneExpenses() throws Exception {
+        List<Migration> all = Migrations.all();
+        try (Connection conn = open("migrate-v1.db");
+             Statement stmt = conn.createStatement()) {
+            new SchemaMigrator(all.subList(0, 1)).migrate(conn);
+            stmt.execute("INSERT INTO users (user_id, username, email, password) VALUES (1, 'a', 'a@x', 'x')");
+            stmt.execute("INSERT INTO expenses (user_id, title, amount, category, expense_date) " +
+                    "VALUES (1, 'Lunch', 12.35, 'Food', '2024-03-05')");
+            stmt.execute("INSERT INTO expenses (user_id, title, amount, category, expense_date) " +
+                    "VALUES (1, 'Paint', 0.1, 'Hobbies', '2024-03-20')");
+            stmt.execute("INSERT INTO expenses (user_id, title, amount, category, expense_date) " +
+                    "VALUES (1, 'Cake', 0.2, 'Hobbies', '2024-03-21')");
+
+            new SchemaMigrator(all).migrate(conn);
+
+            ResultSet rs = stmt.executeQuery("""
+                    SELECT e.title, e.amount_minor, c.name, c.user_id FROM expenses e
+                    JOIN categories c ON c.category_id = e.category_id ORDER BY e.expense_id
+                    """);
+            assertTrue(rs.next());
+            assertEquals(1235, rs.getLong("amount_minor"));
+            assertEquals("Food", rs.getString("name"));
+            assertEquals(0, rs.getInt("user_id"), "built-in category has no owner");
+            assertTrue(rs.next());
+            assertEquals(10, rs.getLong("amount_minor"));
+            assertEquals("Hobbies", rs.getString("name"));
+            assertEquals(1, rs.getInt("user_id"));
+            assertTrue(rs.next());
+            assertEquals(20, rs.getLong("amount_minor"));
+
+            rs = stmt.executeQuery("SELECT total, count FROM expense_rollups " +
+                    "WHERE user_id = 1 AND year_month = '2024-03' ORDER BY total");
+            assertTrue(rs.next());
+            assertEquals(30, rs.getLong("total"));
+            assertEquals(2, rs.getInt("count"));
+            assertTrue(rs.next());
+            assertEquals(1235, rs.getLong("total"));
+
+            rs = stmt.executeQuery("SELECT rowid FROM expenses_fts WHERE expenses_fts MATCH 'lunch'");
+            assertTrue(rs.next());
+        }
+    }
+
+    @Test
+    void failedMigrationLeavesPreviousVersion() throws Exception {
+        List<Migration> migrations = List.of(
+                Migration.sql(1, "Create a table", "CREATE TABLE t (id INTEGER PRIMARY KEY)"),
+                Migration.sql(2, "Broken", "CREATE TABLE u (id INTEGER)", "INSERT INTO missing VALUES (1)"));
+        SchemaMigrator migrator = new SchemaMigrator(migrations);
+
+        try (Connection conn = open("migrate-failed.db")) {
+            assertThrows(SQLException.class, () -> migrator.migrate(conn));
+            assertEquals(1, migrator.getCurrentVersion(conn));
+            assertTrue(conn.getAutoCommit());
+            Set<String> objects = schemaObjects(conn);
+            assertTrue(objects.contains("t"));
+            assertTrue(!objects.contains("u"), "table of the failed migration was rolled back");
+        }
+    }
+
+    @Test
+    void rejectsDuplicateVersions() {
+        assertThrows(IllegalArgumentException.class, () -> new SchemaMigrator(List.of(
+                Migration.sql(1, "a", "SELECT 1"), Migration.sql(1, "b", "SELECT 1"))));
+    }
+
+    private static Set<String> schemaObjects(Connection conn) throws SQLException {
+        Set<String> names = new HashSet<>();
+        try (PreparedStatement pstmt = conn.prepareStatement("SELECT name FROM sqlite_master")) {
+            ResultSet rs = pstmt.executeQuery();
+            while (rs.next()) {
+                names.add(rs.getString(1));
+            }
+        }
+        return names;
+    }
+}
@@ -0,0 +1,159 @@
+package util;
+
+import dao.CategoryDAO;
+import dao.ExpenseDAO;
+import dao.ExpenseQuery;
+import model.Expense;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Shard Rebalancer Test
+ * Moves users between the two test shards and checks that ids survive, that the source
+ * rejects writes once the user has moved, and that an id clash aborts the move.
+ */
+class ShardRebalancerTest {
+    private final ExpenseDAO dao = new ExpenseDAO();
+
+    private static ShardRouter router;
+    private static ShardRebalancer rebalancer;
+
+    @BeforeAll
+    static void initDatabase() {
+        TestDatabase.init();
+        router = DatabaseUtil.getShardRouter();
+        assertEquals(2, router.getShardCount(), "tests run with expensetracker.shards.count=2");
+        rebalancer = new ShardRebalancer(router, DatabaseUtil.getProfile());
+    }
+
+    private static int count(int shard, String sql, int userId) throws SQLException {
+        try (Connection conn = router.getPool(shard).getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setInt(1, userId);
+            ResultSet rs = pstmt.executeQuery();
+            rs.next();
+            return rs.getInt(1);
+        }
+    }
+
+    private static void insertOnShard(int shard, int expenseId, int userId) throws SQLException {
+        try (Connection conn = router.getPool(shard).getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(
+                     "INSERT INTO expenses (expense_id, user_id, title, amount_minor, category_id, expense_date) " +
+                     "VALUES (?, ?, 'Planted', 1, 1, '2024-01-01')")) {
+            pstmt.setInt(1, expenseId);
+            pstmt.setInt(2, userId);
+            pstmt.executeUpdate();
+        }
+    }
+
+    @Test
+    void moveKeepsIdsAndGuardsTheSource() throws Exception {
+        int userId = TestDatabase.newUser();
+        int from = router.shardOf(userId);
+        int to = 1 - from;
+
+        assertNotNull(new CategoryDAO().addCategory(userId, "Pets"));
+        Expense pets = new Expense(userId, "Dog food", 250, "Pets", LocalDate.now(), "kibble");
+        Expense food = new Expense(userId, "Coffee", 300, "Food", LocalDate.now(), null);
+        assertTrue(dao.addExpense(pets));
+        assertTrue(dao.addExpense(food));
+
+        ShardRebalancer.Move move = new ShardRebalancer.Move(userId, from, to);
+        rebalancer.move(move);
+        assertEquals(2, move.getExpenses());
+        assertEquals(to, router.shardOf(userId));
+
+        Expense movedPets = dao.findById(userId, pets.getExpenseId());
+        assertNotNull(movedPets);
+        assertEquals("Pets", movedPets.getCategory());
+        assertEquals("kibble", movedPets.getDescription());
+        assertEquals("Food", dao.findById(userId, food.getExpenseId()).getCategory());
+        assertEquals(550, dao.getTotal(ExpenseQuery.forUser(userId)));
+
+        // A process still routing by the old directory entry cannot write to the source
+        SQLException rejected = assertThrows(SQLException.class,
+                () -> insertOnShard(from, Integer.MAX_VALUE - userId, userId));
+        assertTrue(rejected.getMessage().contains("moved"), rejected.getMessage());
+        assertTrue(dao.addExpense(new Expense(userId, "After", 100, "Food", LocalDate.now(), null)));
+
+        rebalancer.purge(move);
+        assertEquals(0, count(from, "SELECT COUNT(*) FROM expenses WHERE user_id = ?", userId));
+        assertEquals(0, count(from, "SELECT COUNT(*) FROM categories WHERE user_id = ?", userId));
+        assertEquals(1, count(from, "SELECT COUNT(*) FROM moved_users WHERE user_id = ?", userId));
+        assertEquals(3, count(to, "SELECT COUNT(*) FROM expenses WHERE user_id = ?", userId));
+    }
+
+    @Test
+    void moveLeavesTheTargetsIdCounterInItsBlock() throws Exception {
+        int userId = TestDatabase.newUser();
+        while (router.shardOf(userId) == 0) {
+            userId = TestDatabase.newUser();
+        }
+        Expense expense = new Expense(userId, "Taxi", 700, "Travel", LocalDate.now(), null);
+        assertTrue(dao.addExpense(expense));
+        assertTrue(expense.getExpenseId() > ShardRouter.ID_BLOCK);
+
+        // The copy brings ids of shard 1's block to shard 0
+        rebalancer.move(new ShardRebalancer.Move(userId, 1, 0));
+        Expense after = new Expense(userId, "Bus", 300, "Travel", LocalDate.now(), null);
+        assertTrue(dao.addExpense(after));
+        assertTrue(after.getExpenseId() < ShardRouter.ID_BLOCK, "id " + after.getExpenseId());
+    }
+
+    @Test
+    void idClashAbortsTheMove() throws Exception {
+        int userId = TestDatabase.newUser();
+        int from = router.shardOf(userId);
+        int to = 1 - from;
+        int stranger = -userId;
+
+        Expense expense = new Expense(userId, "Rent", 1000, "Bills", LocalDate.now(), null);
+        assertTrue(dao.addExpense(expense));
+        insertOnShard(to, expense.getExpenseId(), stranger);
+        try {
+            SQLException e = assertThrows(SQLException.class,
+                    () -> rebalancer.move(new ShardRebalancer.Move(userId, from, to)));
+            assertTrue(e.getMessage().contains("already used"), e.getMessage());
+
+            // The user stays where they were and can still write there
+            assertEquals(from, router.shardOf(userId));
+            assertEquals(0, count(from, "SELECT COUNT(*) FROM moved_users WHERE user_id = ?", userId));
+            assertEquals(0, count(to, "SELECT COUNT(*) FROM expenses WHERE user_id = ?", userId));
+            assertTrue(dao.addExpense(new Expense(userId, "Water", 200, "Bills", LocalDate.now(), null)));
+            assertEquals("Rent", dao.findById(userId, expense.getExpenseId()).getTitle());
+        } finally {
+            try (Connection conn = router.getPool(to).getConnection();
+                 Statement stmt = conn.createStatement()) {
+                stmt.executeUpdate("DELETE FROM expenses WHERE user_id = " + stranger);
+            }
+        }
+    }
+
+    @Test
+    void updatesNeverReachAnotherUsersExpense() throws Exception {
+        int owner = TestDatabase.newUser();
+        int other = TestDatabase.newUser();
+        Expense expense = new Expense(owner, "Groceries", 800, "Food", LocalDate.now(), null);
+        assertTrue(dao.addExpense(expense));
+
+        Expense forged = new Expense(other, "Forged", 1, "Food", LocalDate.now(), null);
+        forged.setExpenseId(expense.getExpenseId());
+        assertFalse(dao.updateExpense(forged));
+        assertFalse(dao.deleteExpense(other, expense.getExpenseId()));
+        assertEquals("Groceries", dao.findById(owner, expense.getExpenseId()).getTitle());
+    }
+}
@@ -0,0 +1,114 @@
+package util;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Shard Router Test
+ * Id blocks on a database of its own: new ids start at the shard's block, stop at its end,
+ * and ids copied in from other blocks neither fail nor move the counter.
+ */
+class ShardRouterTest {
+    private static final long BLOCK = ShardRouter.ID_BLOCK;
+
+    @BeforeAll
+    static void initDatabase() {
+        TestDatabase.init();
+    }
+
+    private static Connection open(String name) throws Exception {
+        Path file = TestDatabase.dataDir().resolve(name);
+        Files.deleteIfExists(file);
+        Connection conn = DriverManager.getConnection("jdbc:sqlite:" + file);
+        new SchemaMigrator(Migrations.all()).migrate(conn);
+        return conn;
+    }
+
+    /**
+     * Insert an expense the way ExpenseDAO does, or with a given id the way a move copies it
+     */
+    private static long insert(Connection conn, Long expenseId) throws SQLException {
+        String id = expenseId == null ? ShardRouter.nextIdSql("expenses") : String.valueOf(expenseId);
+        try (PreparedStatement pstmt = conn.prepareStatement(
+                "INSERT INTO expenses (expense_id, user_id, title, amount_minor, category_id, expense_date) " +
+                "VALUES (" + id + ", 1, 'Item', 100, 1, '2024-01-01')", Statement.RETURN_GENERATED_KEYS)) {
+            pstmt.executeUpdate();
+            ResultSet keys = pstmt.getGeneratedKeys();
+            keys.next();
+            return keys.getLong(1);
+        }
+    }
+
+    private static long sequence(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT seq FROM sqlite_sequence WHERE name = 'expenses'")) {
+            assertTrue(rs.next());
+            return rs.getLong(1);
+        }
+    }
+
+    private static void setSequence(Connection conn, long seq) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.executeUpdate("UPDATE sqlite_sequence SET seq = " + seq + " WHERE name = 'expenses'");
+        }
+    }
+
+    @Test
+    void idsStayInsideTheShardsBlock() throws Exception {
+        try (Connection conn = open("id-block.db")) {
+            ShardRouter.reserveIdBlock(conn, 1);
+            assertEquals(BLOCK + 1, insert(conn, null));
+
+            // Rows copied from shard 3 keep their ids, and new ids still follow the counter
+            insert(conn, 3 * BLOCK + 5);
+            setSequence(conn, BLOCK + 1);
+            assertEquals(BLOCK + 2, insert(conn, null));
+
+            setSequence(conn, 2 * BLOCK - 1);
+            SQLException full = assertThrows(SQLException.class, () -> insert(conn, null));
+            assertTrue(full.getMessage().contains("used up"), full.getMessage());
+            assertEquals(2 * BLOCK - 1, sequence(conn));
+        }
+    }
+
+    @Test
+    void counterPushedPastTheBlockIsRepaired() throws Exception {
+        try (Connection conn = open("id-block-repair.db")) {
+            ShardRouter.reserveIdBlock(conn, 2);
+            insert(conn, null);
+            insert(conn, null);
+            setSequence(conn, 5 * BLOCK);
+
+            ShardRouter.reserveIdBlock(conn, 2);
+            assertEquals(2 * BLOCK + 2, sequence(conn));
+            assertEquals(2 * BLOCK + 3, insert(conn, null));
+
+            // Calling it again on a healthy shard changes nothing
+            ShardRouter.reserveIdBlock(conn, 2);
+            assertEquals(2 * BLOCK + 3, sequence(conn));
+        }
+    }
+
+    @Test
+    void catalogBlockEndsBeforeShardOne() throws Exception {
+        try (Connection conn = open("id-block-catalog.db")) {
+            ShardRouter.reserveIdBlock(conn, 0);
+            assertEquals(1, insert(conn, null));
+            setSequence(conn, BLOCK - 1);
+            assertThrows(SQLException.class, () -> insert(conn, null));
+        }
+    }
+}
@@ -0,0 +1,204 @@
+package util;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Statement Cache Test
+ * Hit, miss and eviction counting, the LRU bound, and releaseAll() finishing every
+ * statement a borrower left open, on a private in-memory connection.
+ */
+class StatementCacheTest {
+    private static final String SELECT_A = "SELECT 1";
+    private static final String SELECT_B = "SELECT 2";
+    private static final String SELECT_C = "SELECT 3";
+
+    private Connection physical;
+    private StatementCache.Stats stats;
+
+    @BeforeEach
+    void openConnection() throws SQLException {
+        physical = DriverManager.getConnection("jdbc:sqlite::memory:");
+        stats = new StatementCache.Stats();
+    }
+
+    @AfterEach
+    void closeConnection() throws SQLException {
+        physical.close();
+    }
+
+    private StatementCache cache(int capacity) {
+        return new StatementCache(physical, capacity, stats);
+    }
+
+    private PreparedStatement prepare(StatementCache cache, String sql) throws SQLException {
+        return cache.prepare(physical, sql, Statement.NO_GENERATED_KEYS);
+    }
+
+    /**
+     * The driver's statement behind a handle, to see whether the cache closed it
+     */
+    private static PreparedStatement physicalOf(PreparedStatement handle) throws SQLException {
+        return handle.unwrap(PreparedStatement.class);
+    }
+
+    @Test
+    void countsHitsAndMisses() throws SQLException {
+        StatementCache cache = cache(4);
+
+        PreparedStatement first = prepare(cache, SELECT_A);
+        PreparedStatement raw = physicalOf(first);
+        first.close();
+        PreparedStatement second = prepare(cache, SELECT_A);
+        assertSame(raw, physicalOf(second));
+        second.close();
+        prepare(cache, SELECT_B).close();
+
+        assertEquals(1, stats.getHits());
+        assertEquals(2, stats.getMisses());
+        assertEquals(0, stats.getEvictions());
+        assertEquals(2, cache.size());
+    }
+
+    @Test
+    void keepsOnlyTheMostRecentlyUsedStatements() throws SQLException {
+        StatementCache cache = cache(2);
+
+        PreparedStatement a = prepare(cache, SELECT_A);
+        PreparedStatement rawA = physicalOf(a);
+        a.close();
+        prepare(cache, SELECT_B).close();
+        // Using A again makes B the eldest
+        prepare(cache, SELECT_A).close();
+        PreparedStatement b = prepare(cache, SELECT_C);
+        b.close();
+
+        assertEquals(2, cache.size());
+        assertEquals(1, stats.getEvictions());
+        assertFalse(rawA.isClosed());
+
+        long misses = stats.getMisses();
+        prepare(cache, SELECT_A).close();
+        assertEquals(misses, stats.getMisses(), "A stayed cached");
+        prepare(cache, SELECT_B).close();
+        assertEquals(misses + 1, stats.getMisses(), "B was evicted");
+    }
+
+    @Test
+    void evictionClosesIdleStatements() throws SQLException {
+        StatementCache cache = cache(1);
+
+        PreparedStatement a = prepare(cache, SELECT_A);
+        PreparedStatement rawA = physicalOf(a);
+        a.close();
+        prepare(cache, SELECT_B).close();
+
+        assertTrue(rawA.isClosed());
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    void releaseAllResetsBorrowedStatements() throws SQLException {
+        StatementCache cache = cache(4);
+
+        PreparedStatement leaked = prepare(cache, "SELECT ?");
+        leaked.setInt(1, 42);
+        ResultSet rs = leaked.executeQuery();
+        PreparedStatement raw = physicalOf(leaked);
+
+        cache.releaseAll();
+
+        assertTrue(rs.isClosed());
+        assertTrue(leaked.isClosed());
+        assertThrows(SQLException.class, leaked::executeQuery);
+        // Reset, not closed, so the next borrower reuses it
+        assertFalse(raw.isClosed());
+        PreparedStatement reused = prepare(cache, "SELECT ?");
+        assertSame(raw, physicalOf(reused));
+        assertEquals(1, stats.getHits());
+        reused.close();
+    }
+
+    @Test
+    void releaseAllClosesStatementsEvictedWhileInUse() throws SQLException {
+        StatementCache cache = cache(1);
+
+        PreparedStatement held = prepare(cache, SELECT_A);
+        PreparedStatement raw = physicalOf(held);
+        prepare(cache, SELECT_B).close();
+        assertEquals(1, stats.getEvictions());
+        assertFalse(raw.isClosed(), "still in use");
+
+        cache.releaseAll();
+        assertTrue(raw.isClosed());
+        assertTrue(held.isClosed());
+    }
+
+    @Test
+    void releaseAllClosesUncachedCopiesForNestedUse() throws SQLException {
+        StatementCache cache = cache(4);
+
+        PreparedStatement outer = prepare(cache, SELECT_A);
+        PreparedStatement inner = prepare(cache, SELECT_A);
+        PreparedStatement rawOuter = physicalOf(outer);
+        PreparedStatement rawInner = physicalOf(inner);
+        assertNotSame(rawOuter, rawInner);
+        assertEquals(1, cache.size());
+
+        cache.releaseAll();
+        assertTrue(rawInner.isClosed());
+        assertFalse(rawOuter.isClosed());
+
+        // The cached one is free again
+        PreparedStatement again = prepare(cache, SELECT_A);
+        assertSame(rawOuter, physicalOf(again));
+        again.close();
+    }
+
+    @Test
+    void staleHandleCannotReachAReusedStatement() throws SQLException {
+        StatementCache cache = cache(4);
+
+        PreparedStatement first = prepare(cache, SELECT_A);
+        first.close();
+        PreparedStatement second = prepare(cache, SELECT_A);
+
+        assertTrue(first.isClosed());
+        assertThrows(SQLException.class, first::executeQuery);
+        // Closing the stale handle again must not release the statement from its new borrower
+        first.close();
+        assertFalse(second.isClosed());
+        try (ResultSet rs = second.executeQuery()) {
+            assertTrue(rs.next());
+        }
+        second.close();
+    }
+
+    @Test
+    void closeAllClosesEveryCachedStatement() throws SQLException {
+        StatementCache cache = cache(4);
+
+        PreparedStatement a = prepare(cache, SELECT_A);
+        PreparedStatement raw = physicalOf(a);
+        a.close();
+        cache.closeAll();
+
+        assertTrue(raw.isClosed());
+        assertEquals(0, cache.size());
+    }
+}
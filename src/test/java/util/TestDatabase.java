@@ -0,0 +1,81 @@
+package util;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Comparator;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+/**
+ * Test Database
+ * Starts every test run from empty databases in expensetracker.test.dataDir, which the
+ * surefire configuration also points the catalog and shard URLs at, and hands out users
+ * so tests never share data.
+ */
+public final class TestDatabase {
+    private static final AtomicInteger USER_COUNT = new AtomicInteger();
+    private static boolean initialized;
+
+    private TestDatabase() {}
+
+    /**
+     * Delete what an earlier run left behind and apply the migrations, once per JVM
+     */
+    public static synchronized void init() {
+        if (initialized) {
+            return;
+        }
+        Path dataDir = dataDir();
+        try {
+            if (Files.exists(dataDir)) {
+                try (Stream<Path> files = Files.walk(dataDir)) {
+                    for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                        Files.delete(file);
+                    }
+                }
+            }
+            Files.createDirectories(dataDir);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        DatabaseUtil.initializeDatabase();
+        initialized = true;
+    }
+
+    /**
+     * @return Directory holding the test databases, for tests that need files of their own
+     */
+    public static Path dataDir() {
+        return Paths.get(System.getProperty("expensetracker.test.dataDir", "target/test-data"));
+    }
+
+    /**
+     * Add a user without hashing a password, and place them on their shard
+     * @return User ID
+     */
+    public static int newUser() throws SQLException {
+        init();
+        String name = "test" + USER_COUNT.incrementAndGet() + "-" + System.nanoTime();
+        try (Connection conn = DatabaseUtil.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(
+                     "INSERT INTO users (username, email, password) VALUES (?, ?, 'x')",
+                     Statement.RETURN_GENERATED_KEYS)) {
+            pstmt.setString(1, name);
+            pstmt.setString(2, name + "@example.com");
+            pstmt.executeUpdate();
+            ResultSet keys = pstmt.getGeneratedKeys();
+            keys.next();
+            int userId = keys.getInt(1);
+            DatabaseUtil.getShardRouter().assign(userId);
+            return userId;
+        }
+    }
+}